@@ -3,7 +3,6 @@ package de.itdesigners.winslow.api.node;
 import javax.annotation.Nonnull;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public record NodeUtilization(
         long time,
@@ -17,98 +16,16 @@ public record NodeUtilization(
     public static final String CSV_TOP_LEVEL_SEPARATOR = ";";
     public static final String CSV_LEVEL_2_SEPARATOR   = ",";
 
+    /**
+     * @see NodeUtilizationAccumulator#average(long, long)
+     */
     @Nonnull
     public static NodeUtilization average(long time, long uptime, @Nonnull List<NodeUtilization> nodes) {
-        return new NodeUtilization(
-                time,
-                uptime,
-                transposedFloatAverage(nodes.stream().map(n -> n.cpuUtilization)),
-                new MemInfo(
-                        nodes.stream().mapToLong(n -> n.memoryInfo.memoryTotal()).max().orElse(0),
-                        (long) nodes.stream().mapToLong(n -> n.memoryInfo.memoryFree()).average().orElse(0),
-                        nodes.stream().mapToLong(n -> n.memoryInfo.systemCache()).max().orElse(0),
-                        nodes.stream().mapToLong(n -> n.memoryInfo.swapTotal()).max().orElse(0),
-                        (long) nodes.stream().mapToLong(n -> n.memoryInfo.swapFree()).average().orElse(0)
-                ),
-                new NetInfo(
-                        (long) nodes.stream().mapToLong(n -> n.netInfo.receiving()).average().orElse(0),
-                        (long) nodes.stream().mapToLong(n -> n.netInfo.transmitting()).average().orElse(0)
-                ),
-                new DiskInfo(
-                        (long) nodes.stream().mapToLong(n -> n.diskInfo.reading()).average().orElse(0),
-                        (long) nodes.stream().mapToLong(n -> n.diskInfo.writing()).average().orElse(0),
-                        nodes.stream().mapToLong(n -> n.diskInfo.free()).min().orElse(0),
-                        nodes.stream().mapToLong(n -> n.diskInfo.used()).max().orElse(0)
-                ),
-                transposedStream(nodes.stream().map(n -> n.gpuUtilization))
-                        .map(gpuUtils -> new GpuUtilization(
-                                (float) gpuUtils
-                                        .stream()
-                                        .mapToDouble(GpuUtilization::computeUtilization)
-                                        .average()
-                                        .orElse(0),
-                                (float) gpuUtils
-                                        .stream()
-                                        .mapToDouble(GpuUtilization::memoryUtilization)
-                                        .average()
-                                        .orElse(0),
-                                (long) gpuUtils
-                                        .stream()
-                                        .mapToDouble(GpuUtilization::memoryUsedMegabytes)
-                                        .average()
-                                        .orElse(0),
-                                gpuUtils.stream().mapToLong(GpuUtilization::memoryTotalMegabytes).max().orElse(0)
-                        ))
-                        .toList()
-        );
-    }
-
-    @Nonnull
-    private static <T> Stream<List<T>> transposedStream(@Nonnull Stream<List<T>> stream) {
-        var raw = stream.toList();
-        if (raw.isEmpty()) {
-            return Stream.empty();
+        var accumulator = new NodeUtilizationAccumulator();
+        for (var node : nodes) {
+            accumulator.add(node);
         }
-
-        var transposed = new ArrayList<List<T>>(raw.get(0).size());
-
-        for (var rawList : raw) {
-            for (int i = 0; i < rawList.size(); ++i) {
-                if (i >= transposed.size()) {
-                    transposed.add(new ArrayList<>());
-                }
-                transposed.get(i).add(rawList.get(i));
-            }
-        }
-
-        return transposed.stream();
-    }
-
-    private static List<Float> transposedFloatAverage(Stream<List<Float>> stream) {
-        var raw     = stream.toList();
-        var result  = new ArrayList<Float>();
-        var counter = new ArrayList<Float>();
-
-        // sum transposed
-        for (var rawList : raw) {
-            if (rawList != null) {
-                for (int i = 0; i < rawList.size(); ++i) {
-                    if (i >= result.size()) {
-                        result.add(0.f);
-                        counter.add(0.f);
-                    }
-                    result.set(i, result.get(i) + rawList.get(i));
-                    counter.set(i, counter.get(i) + 1);
-                }
-            }
-        }
-
-        // divide each cell by element count
-        for (int n = 0; n < result.size(); ++n) {
-            result.set(n, result.get(n) / (float) counter.get(n));
-        }
-
-        return result;
+        return accumulator.average(time, uptime);
     }
 
     @Nonnull
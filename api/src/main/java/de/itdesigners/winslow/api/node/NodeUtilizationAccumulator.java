@@ -0,0 +1,274 @@
+package de.itdesigners.winslow.api.node;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Aggregates {@link NodeUtilization}s incrementally into one primitive array per metric, so that averaging many
+ * samples of nodes with many cores does not box or transpose the values. Partial results, for example of
+ * different time ranges, can be combined with {@link #merge(NodeUtilizationAccumulator)}. Values that are only
+ * present in some of the samples (like a GPU that disappeared) are averaged over the samples they are present in.
+ */
+public class NodeUtilizationAccumulator {
+
+    private int  count      = 0;
+    private long firstTime  = 0;
+    private long lastUptime = 0;
+
+    private int     cpus     = 0;
+    private float[] cpuSum   = new float[0];
+    private int[]   cpuCount = new int[0];
+
+    private long memoryTotalMax = 0;
+    private long memoryFreeSum  = 0;
+    private long systemCacheMax = 0;
+    private long swapTotalMax   = 0;
+    private long swapFreeSum    = 0;
+
+    private long receivingSum    = 0;
+    private long transmittingSum = 0;
+
+    private long readingSum = 0;
+    private long writingSum = 0;
+    private long freeMin    = 0;
+    private long usedMax    = 0;
+
+    private int      gpus              = 0;
+    private double[] gpuComputeSum     = new double[0];
+    private double[] gpuMemorySum      = new double[0];
+    private double[] gpuMemoryUsedSum  = new double[0];
+    private long[]   gpuMemoryTotalMax = new long[0];
+    private int[]    gpuCount          = new int[0];
+
+    public void add(@Nonnull NodeUtilization utilization) {
+        if (this.count == 0) {
+            this.firstTime = utilization.time();
+        }
+        this.lastUptime = utilization.uptime();
+
+        var cpus = utilization.cpuUtilization();
+        ensureCpuCapacity(cpus.size());
+        for (int i = 0; i < cpus.size(); ++i) {
+            this.cpuSum[i]   += cpus.get(i);
+            this.cpuCount[i] += 1;
+        }
+
+        var mem = utilization.memoryInfo();
+        this.memoryTotalMax = max(this.memoryTotalMax, mem.memoryTotal());
+        this.memoryFreeSum += mem.memoryFree();
+        this.systemCacheMax = max(this.systemCacheMax, mem.systemCache());
+        this.swapTotalMax   = max(this.swapTotalMax, mem.swapTotal());
+        this.swapFreeSum   += mem.swapFree();
+
+        this.receivingSum    += utilization.netInfo().receiving();
+        this.transmittingSum += utilization.netInfo().transmitting();
+
+        var disk = utilization.diskInfo();
+        this.readingSum += disk.reading();
+        this.writingSum += disk.writing();
+        this.freeMin     = this.count == 0 ? disk.free() : Math.min(this.freeMin, disk.free());
+        this.usedMax     = max(this.usedMax, disk.used());
+
+        var gpus = utilization.gpuUtilization();
+        ensureGpuCapacity(gpus.size());
+        for (int i = 0; i < gpus.size(); ++i) {
+            var gpu = gpus.get(i);
+            this.gpuComputeSum[i]     += gpu.computeUtilization();
+            this.gpuMemorySum[i]      += gpu.memoryUtilization();
+            this.gpuMemoryUsedSum[i]  += gpu.memoryUsedMegabytes();
+            this.gpuMemoryTotalMax[i] = this.gpuCount[i] == 0
+                                        ? gpu.memoryTotalMegabytes()
+                                        : Math.max(this.gpuMemoryTotalMax[i], gpu.memoryTotalMegabytes());
+            this.gpuCount[i] += 1;
+        }
+
+        this.count += 1;
+    }
+
+    /**
+     * Adds the samples aggregated by the given accumulator, as if they had been added after the samples of this one
+     */
+    public void merge(@Nonnull NodeUtilizationAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (this.count == 0) {
+            this.firstTime = other.firstTime;
+        }
+        this.lastUptime = other.lastUptime;
+
+        ensureCpuCapacity(other.cpus);
+        for (int i = 0; i < other.cpus; ++i) {
+            this.cpuSum[i]   += other.cpuSum[i];
+            this.cpuCount[i] += other.cpuCount[i];
+        }
+
+        this.memoryTotalMax = max(this.memoryTotalMax, other.memoryTotalMax);
+        this.memoryFreeSum += other.memoryFreeSum;
+        this.systemCacheMax = max(this.systemCacheMax, other.systemCacheMax);
+        this.swapTotalMax   = max(this.swapTotalMax, other.swapTotalMax);
+        this.swapFreeSum   += other.swapFreeSum;
+
+        this.receivingSum    += other.receivingSum;
+        this.transmittingSum += other.transmittingSum;
+
+        this.readingSum += other.readingSum;
+        this.writingSum += other.writingSum;
+        this.freeMin     = this.count == 0 ? other.freeMin : Math.min(this.freeMin, other.freeMin);
+        this.usedMax     = max(this.usedMax, other.usedMax);
+
+        ensureGpuCapacity(other.gpus);
+        for (int i = 0; i < other.gpus; ++i) {
+            if (other.gpuCount[i] > 0) {
+                this.gpuComputeSum[i]     += other.gpuComputeSum[i];
+                this.gpuMemorySum[i]      += other.gpuMemorySum[i];
+                this.gpuMemoryUsedSum[i]  += other.gpuMemoryUsedSum[i];
+                this.gpuMemoryTotalMax[i] = this.gpuCount[i] == 0
+                                            ? other.gpuMemoryTotalMax[i]
+                                            : Math.max(this.gpuMemoryTotalMax[i], other.gpuMemoryTotalMax[i]);
+                this.gpuCount[i] += other.gpuCount[i];
+            }
+        }
+
+        this.count += other.count;
+    }
+
+    /**
+     * @param time   The time of the resulting {@link NodeUtilization}
+     * @param uptime The uptime of the resulting {@link NodeUtilization}
+     * @return The average of all samples, but the maximum of totals and used disk space and the minimum of free
+     * disk space
+     */
+    @Nonnull
+    public NodeUtilization average(long time, long uptime) {
+        var cpus = new ArrayList<Float>(this.cpus);
+        for (int i = 0; i < this.cpus; ++i) {
+            cpus.add(this.cpuSum[i] / (float) this.cpuCount[i]);
+        }
+
+        var gpus = new ArrayList<GpuUtilization>(this.gpus);
+        for (int i = 0; i < this.gpus; ++i) {
+            gpus.add(new GpuUtilization(
+                    (float) (this.gpuComputeSum[i] / this.gpuCount[i]),
+                    (float) (this.gpuMemorySum[i] / this.gpuCount[i]),
+                    (long) (this.gpuMemoryUsedSum[i] / this.gpuCount[i]),
+                    this.gpuMemoryTotalMax[i]
+            ));
+        }
+
+        return new NodeUtilization(
+                time,
+                uptime,
+                cpus,
+                new MemInfo(
+                        this.memoryTotalMax,
+                        average(this.memoryFreeSum),
+                        this.systemCacheMax,
+                        this.swapTotalMax,
+                        average(this.swapFreeSum)
+                ),
+                new NetInfo(
+                        average(this.receivingSum),
+                        average(this.transmittingSum)
+                ),
+                new DiskInfo(
+                        average(this.readingSum),
+                        average(this.writingSum),
+                        this.freeMin,
+                        this.usedMax
+                ),
+                gpus
+        );
+    }
+
+    /**
+     * @return The average of all samples with the time of the first and the uptime of the last sample
+     */
+    @Nonnull
+    public NodeUtilization average() {
+        return average(this.firstTime, this.lastUptime);
+    }
+
+    /**
+     * @return The number of samples added so far
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return The time of the first sample or zero if there is none
+     */
+    public long getFirstTime() {
+        return this.firstTime;
+    }
+
+    /**
+     * @return The uptime of the last sample or zero if there is none
+     */
+    public long getLastUptime() {
+        return this.lastUptime;
+    }
+
+    /**
+     * Forgets all samples, the allocated arrays are reused for the next samples
+     */
+    public void clear() {
+        this.count      = 0;
+        this.firstTime  = 0;
+        this.lastUptime = 0;
+
+        Arrays.fill(this.cpuSum, 0, this.cpus, 0);
+        Arrays.fill(this.cpuCount, 0, this.cpus, 0);
+        this.cpus = 0;
+
+        this.memoryTotalMax = 0;
+        this.memoryFreeSum  = 0;
+        this.systemCacheMax = 0;
+        this.swapTotalMax   = 0;
+        this.swapFreeSum    = 0;
+
+        this.receivingSum    = 0;
+        this.transmittingSum = 0;
+
+        this.readingSum = 0;
+        this.writingSum = 0;
+        this.freeMin    = 0;
+        this.usedMax    = 0;
+
+        Arrays.fill(this.gpuComputeSum, 0, this.gpus, 0);
+        Arrays.fill(this.gpuMemorySum, 0, this.gpus, 0);
+        Arrays.fill(this.gpuMemoryUsedSum, 0, this.gpus, 0);
+        Arrays.fill(this.gpuMemoryTotalMax, 0, this.gpus, 0);
+        Arrays.fill(this.gpuCount, 0, this.gpus, 0);
+        this.gpus = 0;
+    }
+
+    private long average(long sum) {
+        return this.count > 0 ? (long) ((double) sum / this.count) : 0;
+    }
+
+    private long max(long current, long value) {
+        return this.count == 0 ? value : Math.max(current, value);
+    }
+
+    private void ensureCpuCapacity(int size) {
+        if (this.cpuSum.length < size) {
+            this.cpuSum   = Arrays.copyOf(this.cpuSum, size);
+            this.cpuCount = Arrays.copyOf(this.cpuCount, size);
+        }
+        this.cpus = Math.max(this.cpus, size);
+    }
+
+    private void ensureGpuCapacity(int size) {
+        if (this.gpuCount.length < size) {
+            this.gpuComputeSum     = Arrays.copyOf(this.gpuComputeSum, size);
+            this.gpuMemorySum      = Arrays.copyOf(this.gpuMemorySum, size);
+            this.gpuMemoryUsedSum  = Arrays.copyOf(this.gpuMemoryUsedSum, size);
+            this.gpuMemoryTotalMax = Arrays.copyOf(this.gpuMemoryTotalMax, size);
+            this.gpuCount          = Arrays.copyOf(this.gpuCount, size);
+        }
+        this.gpus = Math.max(this.gpus, size);
+    }
+}
@@ -0,0 +1,15 @@
+package de.itdesigners.winslow.api.pipeline;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * @param groups     The {@link ExecutionGroupInfo}s of this page, the most recent one first
+ * @param nextCursor The cursor to request the next (older) page with or null if there is none
+ */
+public record ExecutionGroupInfoPage(
+        @Nonnull List<ExecutionGroupInfo> groups,
+        @Nullable String nextCursor) {
+
+}
@@ -60,6 +60,11 @@ public record WorkspaceConfiguration(
         STANDALONE,
         INCREMENTAL,
         CONTINUATION,
+        /**
+         * Like {@link #INCREMENTAL}, but the files are shared with the previous workspace through a
+         * content-addressed store instead of being copied
+         */
+        SNAPSHOT,
     }
 }
 
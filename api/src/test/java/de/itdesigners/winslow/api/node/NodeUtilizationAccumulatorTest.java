@@ -0,0 +1,107 @@
+package de.itdesigners.winslow.api.node;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class NodeUtilizationAccumulatorTest {
+
+    private static final NodeUtilization SAMPLE_1 = new NodeUtilization(
+            1000,
+            10,
+            List.of(0.25f, 0.5f),
+            new MemInfo(4096, 1024, 512, 2048, 1000),
+            new NetInfo(100, 200),
+            new DiskInfo(10, 20, 5000, 3000),
+            List.of(new GpuUtilization(0.5f, 0.25f, 100, 1024))
+    );
+
+    private static final NodeUtilization SAMPLE_2 = new NodeUtilization(
+            2000,
+            20,
+            List.of(0.75f, 1.0f, 0.5f),
+            new MemInfo(8192, 2048, 256, 2048, 2000),
+            new NetInfo(300, 400),
+            new DiskInfo(30, 40, 4000, 4000),
+            List.of(new GpuUtilization(1.0f, 0.75f, 300, 2048), new GpuUtilization(0.5f, 0.5f, 10, 512))
+    );
+
+    private static final NodeUtilization SAMPLE_3 = new NodeUtilization(
+            3000,
+            30,
+            List.of(),
+            new MemInfo(4096, 3072, 1024, 4096, 3000),
+            new NetInfo(500, 600),
+            new DiskInfo(50, 60, 6000, 2000),
+            List.of()
+    );
+
+    private static final NodeUtilization AVERAGE = new NodeUtilization(
+            1000,
+            30,
+            List.of(0.5f, 0.75f, 0.5f),
+            new MemInfo(8192, 2048, 1024, 4096, 2000),
+            new NetInfo(300, 400),
+            new DiskInfo(30, 40, 4000, 4000),
+            List.of(new GpuUtilization(0.75f, 0.5f, 200, 2048), new GpuUtilization(0.5f, 0.5f, 10, 512))
+    );
+
+    @Test
+    public void testAverageOfSamplesWithDifferentCoreAndGpuCounts() {
+        var accumulator = new NodeUtilizationAccumulator();
+        accumulator.add(SAMPLE_1);
+        accumulator.add(SAMPLE_2);
+        accumulator.add(SAMPLE_3);
+
+        assertEquals(3, accumulator.getCount());
+        assertEquals(AVERAGE, accumulator.average());
+        assertEquals(AVERAGE, NodeUtilization.average(1000, 30, List.of(SAMPLE_1, SAMPLE_2, SAMPLE_3)));
+    }
+
+    @Test
+    public void testMergeEqualsAddingSequentially() {
+        var first = new NodeUtilizationAccumulator();
+        first.add(SAMPLE_1);
+
+        var second = new NodeUtilizationAccumulator();
+        second.add(SAMPLE_2);
+        second.add(SAMPLE_3);
+
+        var empty = new NodeUtilizationAccumulator();
+        empty.merge(first);
+        empty.merge(new NodeUtilizationAccumulator());
+        empty.merge(second);
+
+        assertEquals(3, empty.getCount());
+        assertEquals(AVERAGE, empty.average());
+    }
+
+    @Test
+    public void testClearForgetsAllSamples() {
+        var accumulator = new NodeUtilizationAccumulator();
+        accumulator.add(SAMPLE_2);
+        accumulator.clear();
+        accumulator.add(SAMPLE_1);
+
+        assertEquals(1, accumulator.getCount());
+        assertEquals(SAMPLE_1, accumulator.average());
+    }
+
+    @Test
+    public void testAverageOfNoSamples() {
+        assertEquals(
+                new NodeUtilization(
+                        0,
+                        0,
+                        List.of(),
+                        new MemInfo(0, 0, 0, 0, 0),
+                        new NetInfo(0, 0),
+                        new DiskInfo(0, 0, 0, 0),
+                        List.of()
+                ),
+                new NodeUtilizationAccumulator().average()
+        );
+    }
+}
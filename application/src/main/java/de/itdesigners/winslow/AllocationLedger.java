@@ -0,0 +1,106 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.node.AllocInfo;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Sums up the resources allocated throughout the cluster per project and per accounting group. Instead of
+ * recalculating the sums from the {@link AllocInfo}s of all nodes for each query, the ledger is updated whenever the
+ * allocations of a node change, by replacing the previous contribution of that node. The accounting group of a project
+ * is resolved once, when the project shows up in the allocations for the first time.
+ */
+public class AllocationLedger {
+
+    private final @Nonnull Function<String, Optional<String>> accountingGroupOfProject;
+
+    private final @Nonnull Map<String, List<AllocInfo>> nodes           = new HashMap<>();
+    private final @Nonnull Map<String, AllocInfo>       projects        = new HashMap<>();
+    private final @Nonnull Map<String, AllocInfo>       accounts        = new HashMap<>();
+    private final @Nonnull Map<String, String>          accountingGroup = new HashMap<>();
+
+    private @Nonnull AllocInfo total = new AllocInfo("", 0, 0, 0);
+
+    /**
+     * @param accountingGroupOfProject Resolves the accounting group of a project, allocations of projects that cannot
+     *                                 be resolved only count towards the project
+     */
+    public AllocationLedger(@Nonnull Function<String, Optional<String>> accountingGroupOfProject) {
+        this.accountingGroupOfProject = accountingGroupOfProject;
+    }
+
+    /**
+     * @param node        The node to replace the allocations of
+     * @param allocations All allocations currently on the node, titled by project
+     */
+    public synchronized void update(@Nonnull String node, @Nonnull List<AllocInfo> allocations) {
+        var previous = this.nodes.put(node, List.copyOf(allocations));
+        // adding first keeps the accounting group of projects that are still allocating resources
+        allocations.forEach(alloc -> apply(alloc, 1));
+        if (previous != null) {
+            previous.forEach(alloc -> apply(alloc, -1));
+        }
+    }
+
+    /**
+     * @param node The node that is no longer active
+     */
+    public synchronized void remove(@Nonnull String node) {
+        var previous = this.nodes.remove(node);
+        if (previous != null) {
+            previous.forEach(alloc -> apply(alloc, -1));
+        }
+    }
+
+    @Nonnull
+    public synchronized AllocInfo getProjectAllocation(@Nonnull String projectId) {
+        var alloc = this.projects.get(projectId);
+        return alloc != null ? alloc : new AllocInfo(projectId, 0, 0, 0);
+    }
+
+    @Nonnull
+    public synchronized AllocInfo getAccountAllocation(@Nonnull String accountingGroup) {
+        var alloc = this.accounts.get(accountingGroup);
+        return alloc != null ? alloc : new AllocInfo(accountingGroup, 0, 0, 0);
+    }
+
+    /**
+     * @return The sum of the allocations of all projects with a known accounting group
+     */
+    @Nonnull
+    public synchronized AllocInfo getTotalAccountAllocation() {
+        return this.total;
+    }
+
+    private void apply(@Nonnull AllocInfo alloc, long sign) {
+        var signed = new AllocInfo(alloc.title(), sign * alloc.cpu(), sign * alloc.memory(), sign * alloc.gpu());
+        merge(this.projects, alloc.title(), signed);
+
+        var account = this.accountingGroup.get(alloc.title());
+        if (account == null && sign > 0) {
+            account = this.accountingGroupOfProject.apply(alloc.title()).orElse(null);
+            if (account != null) {
+                this.accountingGroup.put(alloc.title(), account);
+            }
+        }
+        if (account != null) {
+            merge(this.accounts, account, signed);
+            this.total = this.total.add(signed);
+        }
+        if (sign < 0 && !this.projects.containsKey(alloc.title())) {
+            // resolved again once the project allocates resources the next time
+            this.accountingGroup.remove(alloc.title());
+        }
+    }
+
+    private static void merge(@Nonnull Map<String, AllocInfo> map, @Nonnull String title, @Nonnull AllocInfo delta) {
+        var sum = map.getOrDefault(title, new AllocInfo(title, 0, 0, 0)).add(delta, title);
+        if (sum.cpu() == 0 && sum.memory() == 0 && sum.gpu() == 0) {
+            map.remove(title);
+        } else {
+            map.put(title, sum);
+        }
+    }
+}
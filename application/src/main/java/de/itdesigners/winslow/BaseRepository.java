@@ -1,14 +1,10 @@
 package de.itdesigners.winslow;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import de.itdesigners.winslow.config.ExecutionGroup;
-import de.itdesigners.winslow.config.ExecutionGroupUpgrade;
-import de.itdesigners.winslow.config.PipelineUpgrade;
 import de.itdesigners.winslow.fs.*;
 import de.itdesigners.winslow.pipeline.Pipeline;
 
@@ -77,16 +73,10 @@ public abstract class BaseRepository {
 
     @Nonnull
     public static <T> Reader<T> defaultReader(Class<T> clazz) {
+        var objectReader = YamlMapper.reader(clazz);
         return inputStream -> {
             try {
-                var upgradeLoader = new SimpleModule();
-                upgradeLoader.addDeserializer(ExecutionGroup.class, new ExecutionGroupUpgrade());
-                upgradeLoader.addDeserializer(Pipeline.class, new PipelineUpgrade());
-
-                return defaultObjectMapper()
-                        .registerModule(new ParameterNamesModule())
-                        .registerModule(upgradeLoader)
-                        .readValue(inputStream, clazz);
+                return objectReader.readValue(inputStream);
             } catch (IOException e) {
                 throw e;
             } catch (Throwable t) {
@@ -111,7 +101,7 @@ public abstract class BaseRepository {
 
     @Nonnull
     public static <T> Writer<T> defaultWriter() {
-        return (outputStream, value) -> defaultObjectMapper().writeValue(outputStream, value);
+        return (outputStream, value) -> YamlMapper.writer().writeValue(outputStream, value);
     }
 
     @Nonnull
@@ -353,18 +343,13 @@ public abstract class BaseRepository {
     }
 
     public static <T> T readFromString(Class<T> clazz, @Nonnull String string) throws IOException {
-        try (var bis = new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8))) {
-            return BaseRepository
-                    .defaultReader(clazz)
-                    .load(bis);
-        }
+        return BaseRepository
+                .defaultReader(clazz)
+                .load(new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8)));
     }
 
     public static String writeToString(@Nonnull Object value) throws IOException {
-        try (var bas = new ByteArrayOutputStream()) {
-            BaseRepository.defaultWriter().store(bas, value);
-            return new String(bas.toByteArray(), StandardCharsets.UTF_8);
-        }
+        return YamlMapper.writer().writeValueAsString(value);
     }
 
 }
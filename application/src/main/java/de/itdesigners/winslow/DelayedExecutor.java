@@ -2,56 +2,132 @@ package de.itdesigners.winslow;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class DelayedExecutor {
+/**
+ * Runs {@link Runnable}s after a delay. The plans are kept in a heap ordered by their time of execution, a single
+ * dispatcher thread hands the due plans to a bounded pool of workers, so that a slow plan does not hold back the
+ * others. There is at most one plan per identifier: an identifier cannot be planned again until its previous plan has
+ * started to run, and two plans of the same identifier never run at the same time.
+ */
+public class DelayedExecutor implements AutoCloseable {
 
-    private static final Logger LOG = Logger.getLogger(DelayedExecutor.class.getSimpleName());
+    public static final int DEFAULT_WORKER_COUNT = 4;
 
-    private final Map<String, Plan> runnables     = new HashMap<>();
-    private final List<Plan>        runnableQueue = new ArrayList<>();
+    private static final Logger        LOG                     = Logger.getLogger(DelayedExecutor.class.getSimpleName());
+    private static final long          WORKER_KEEP_ALIVE_MS    = 60_000;
+    private static final long          IDLE_DISPATCHER_WAIT_MS = 1_000;
+    private static final AtomicInteger WORKER_THREAD_COUNTER   = new AtomicInteger();
+
+    private static final Comparator<Plan> ORDER = Comparator
+            .comparingLong(Plan::plannedTimeOfExecution)
+            .thenComparingLong(Plan::sequence);
+
+    private final @Nonnull PriorityQueue<Plan> queue    = new PriorityQueue<>(ORDER);
+    private final @Nonnull Map<String, Plan>   planned  = new HashMap<>();
+    private final @Nonnull Map<String, Plan>   deferred = new HashMap<>();
+    private final @Nonnull Set<String>         running  = new HashSet<>();
+    private final @Nonnull ThreadPoolExecutor  workers;
+
+    private long    sequence   = 0;
+    private long    executed   = 0;
+    private long    failed     = 0;
+    private long    lagCount   = 0;
+    private long    lagTotalNs = 0;
+    private long    lagMaxNs   = 0;
+    private boolean closed     = false;
 
     public DelayedExecutor() {
-        var thread = new Thread(this::run);
+        this(DEFAULT_WORKER_COUNT);
+    }
+
+    /**
+     * @param workerCount The maximum number of plans to run at the same time
+     */
+    public DelayedExecutor(int workerCount) {
+        this.workers = new ThreadPoolExecutor(
+                Math.max(1, workerCount),
+                Math.max(1, workerCount),
+                WORKER_KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable);
+                    thread.setName(DelayedExecutor.class.getSimpleName() + "-" + WORKER_THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.workers.allowCoreThreadTimeOut(true);
+
+        var thread = new Thread(this::dispatch);
         thread.setName(DelayedExecutor.class.getSimpleName());
         thread.setDaemon(true);
         thread.start();
     }
 
-    private void run() {
-        while (true) {
-            Plan planned = null;
-
-            synchronized (this) {
-                long sleepFor = 1000;
+    private synchronized void dispatch() {
+        while (!this.closed) {
+            var next = this.queue.peek();
+            var now  = System.nanoTime();
 
-                if (!this.runnableQueue.isEmpty()) {
-                    var now   = System.currentTimeMillis();
-                    var index = this.runnableQueue.size() - 1;
-                    var plan  = this.runnableQueue.get(index);
-
-                    if (now + 1 >= plan.plannedTimeOfExecution) {
-                        this.runnableQueue.remove(index);
-                        planned = this.runnables.remove(plan.identifier);
+            try {
+                if (next == null) {
+                    this.wait(IDLE_DISPATCHER_WAIT_MS);
+                } else if (next.plannedTimeOfExecution() - now > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, next.plannedTimeOfExecution() - now);
+                } else {
+                    this.queue.poll();
+                    if (this.running.contains(next.identifier())) {
+                        // picked up once the current run of the same identifier has finished
+                        this.deferred.put(next.identifier(), next);
                     } else {
-                        sleepFor = plan.plannedTimeOfExecution - now - 1;
-                    }
-                }
-                if (planned == null) {
-                    try {
-                        this.wait(sleepFor);
-                    } catch (InterruptedException e) {
-                        LOG.log(Level.WARNING, "Wait got interrupted, might cause performance issues", e);
+                        submit(next);
                     }
-                    continue;
                 }
+            } catch (InterruptedException e) {
+                LOG.log(Level.WARNING, "Wait got interrupted, might cause performance issues", e);
             }
+        }
+    }
 
-            try {
-                planned.runnable.run();
-            } catch (Throwable t) {
-                LOG.log(Level.SEVERE, "Delayed execution failed", t);
+    private void submit(@Nonnull Plan plan) {
+        this.running.add(plan.identifier());
+        this.workers.execute(() -> run(plan));
+    }
+
+    private void run(@Nonnull Plan plan) {
+        synchronized (this) {
+            this.planned.remove(plan.identifier(), plan);
+
+            var lag = Math.max(0, System.nanoTime() - plan.plannedTimeOfExecution());
+            this.lagCount   += 1;
+            this.lagTotalNs += lag;
+            this.lagMaxNs    = Math.max(this.lagMaxNs, lag);
+        }
+
+        var success = false;
+        try {
+            plan.runnable().run();
+            success = true;
+        } catch (Throwable t) {
+            LOG.log(Level.SEVERE, "Delayed execution of " + plan.identifier() + " failed", t);
+        } finally {
+            synchronized (this) {
+                this.executed += 1;
+                this.failed   += success ? 0 : 1;
+                this.running.remove(plan.identifier());
+
+                var next = this.deferred.remove(plan.identifier());
+                if (next != null && !this.closed) {
+                    submit(next);
+                }
             }
         }
     }
@@ -61,34 +137,91 @@ public class DelayedExecutor {
             long millisDelayMin,
             long millisDelayMax,
             @Nonnull Runnable runnable) {
-        var delay = millisDelayMin + new Random().nextInt((int) (millisDelayMax - millisDelayMin));
+        var delay = millisDelayMax > millisDelayMin
+                    ? ThreadLocalRandom.current().nextLong(millisDelayMin, millisDelayMax)
+                    : millisDelayMin;
         LOG.info("Random offset for " + identifier + " determined to be " + delay + " ms");
         return executeDelayed(identifier, delay, runnable);
     }
 
+    /**
+     * @param identifier  Identifies the plan, only one plan per identifier is accepted until that plan starts to run
+     * @param millisDelay The minimum time to wait before running the given {@link Runnable}
+     * @param runnable    The {@link Runnable} to run
+     * @return Whether the plan has been accepted, false if there is already a plan for the given identifier
+     */
     public synchronized boolean executeDelayed(@Nonnull String identifier, long millisDelay, @Nonnull Runnable runnable) {
-
-        if (this.runnables.containsKey(identifier)) {
+        if (this.closed || this.planned.containsKey(identifier)) {
             return false;
         } else {
-            var plan = new Plan(millisDelay, identifier, runnable);
-            this.runnables.put(identifier, plan);
-            this.runnableQueue.add(plan);
-            this.runnableQueue.sort(Comparator.<Plan>comparingLong(planA -> planA.plannedTimeOfExecution).reversed());
-            this.notifyAll();
+            var plan = new Plan(
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisDelay)),
+                    this.sequence++,
+                    identifier,
+                    runnable
+            );
+            this.planned.put(identifier, plan);
+            this.queue.add(plan);
+            if (this.queue.peek() == plan) {
+                this.notifyAll();
+            }
             return true;
         }
     }
 
-    private static class Plan {
-        final          long     plannedTimeOfExecution;
-        @Nonnull final String   identifier;
-        @Nonnull final Runnable runnable;
+    @Nonnull
+    public synchronized Metrics getMetrics() {
+        return new Metrics(
+                this.planned.size(),
+                this.running.size(),
+                this.workers.getMaximumPoolSize(),
+                this.executed,
+                this.failed,
+                this.lagCount > 0 ? (double) this.lagTotalNs / this.lagCount / 1_000_000 : 0,
+                TimeUnit.NANOSECONDS.toMillis(this.lagMaxNs)
+        );
+    }
 
-        private Plan(long plannedTimeOfExecution, @Nonnull String identifier, @Nonnull Runnable runnable) {
-            this.plannedTimeOfExecution = plannedTimeOfExecution;
-            this.identifier             = identifier;
-            this.runnable               = runnable;
-        }
+    /**
+     * Drops all plans that have not yet started, plans that are currently running are not interrupted
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.queue.clear();
+        this.planned.clear();
+        this.deferred.clear();
+        this.workers.shutdown();
+        this.notifyAll();
+    }
+
+    /**
+     * @param plannedTimeOfExecution The {@link System#nanoTime()} at which the plan is due
+     * @param sequence               Orders plans that are due at the same time by their creation
+     */
+    private record Plan(
+            long plannedTimeOfExecution,
+            long sequence,
+            @Nonnull String identifier,
+            @Nonnull Runnable runnable) {
+    }
+
+    /**
+     * @param planned      The number of plans that have not yet started to run
+     * @param running      The number of plans handed to the workers that have not yet finished
+     * @param workers      The maximum number of plans that can run at the same time
+     * @param executed     The number of plans that have run so far
+     * @param failed       The number of plans that have thrown
+     * @param averageLagMs The average time plans started after they were due
+     * @param maxLagMs     The longest time a plan started after it was due
+     */
+    public record Metrics(
+            int planned,
+            int running,
+            int workers,
+            long executed,
+            long failed,
+            double averageLagMs,
+            long maxLagMs) {
     }
 }
@@ -67,11 +67,63 @@ public class DistributedAllocationView {
         });
     }
 
+    /**
+     * Takes the allocations of the project and the account from the given {@link AllocationLedger} instead of summing
+     * them up from the allocations of all nodes. Unlike {@link #loadAllocInfo(Stream, Function)}, the limit of the
+     * project applies even while the project has nothing allocated.
+     *
+     * @param ledger       The {@link AllocationLedger} of the cluster
+     * @param projectLimit The {@link ResourceLimitation} of the project, if any
+     */
+    public void loadAllocInfo(@Nonnull AllocationLedger ledger, @Nullable ResourceLimitation projectLimit) {
+        this.accountAllocation = ledger.getAccountAllocation(this.accountAllocation.title());
+        this.projectAllocation = ledger.getProjectAllocation(this.projectAllocation.title());
+        this.projectLimit      = projectLimit;
+    }
+
     public boolean wouldResourcesExceedLimit(@Nonnull ResourceAllocationMonitor.ResourceSet<Long> resources) {
         return wouldResourcesExceedLimit(accountLimit, accountAllocation, resources)
                 || wouldResourcesExceedLimit(projectLimit, projectAllocation, resources);
     }
 
+    /**
+     * @param resources The resources of a single stage
+     * @return How many stages with the given resources could be allocated at once without exceeding any limit, or
+     * {@link Long#MAX_VALUE} if there is no limit for any of the required resources
+     */
+    public long getAllocatableCountWithinLimit(@Nonnull ResourceAllocationMonitor.ResourceSet<Long> resources) {
+        return Math.min(
+                getAllocatableCountWithinLimit(accountLimit, accountAllocation, resources),
+                getAllocatableCountWithinLimit(projectLimit, projectAllocation, resources)
+        );
+    }
+
+    private static long getAllocatableCountWithinLimit(
+            @Nullable ResourceLimitation limit,
+            @Nonnull AllocInfo allocation,
+            @Nonnull ResourceAllocationMonitor.ResourceSet<Long> resources) {
+        if (limit != null) {
+            return Stream
+                    .of(
+                            getAllocatableCount(limit.cpu(), allocation.cpu(), resources.getOrDefault(ResourceAllocationMonitor.StandardResources.CPU, 0L)),
+                            getAllocatableCount(limit.mem(), allocation.memory(), resources.getOrDefault(ResourceAllocationMonitor.StandardResources.RAM, 0L)),
+                            getAllocatableCount(limit.gpu(), allocation.gpu(), resources.getOrDefault(ResourceAllocationMonitor.StandardResources.GPU, 0L))
+                    )
+                    .min(Long::compare)
+                    .orElse(Long.MAX_VALUE);
+        } else {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long getAllocatableCount(@Nullable Long limit, long allocated, long required) {
+        if (limit == null || required <= 0) {
+            return Long.MAX_VALUE;
+        } else {
+            return Math.max(0, limit - allocated) / required;
+        }
+    }
+
     private static boolean wouldResourcesExceedLimit(
             @Nullable ResourceLimitation limit,
             @Nonnull AllocInfo allocation,
@@ -18,6 +18,8 @@ public class Election {
     private final Map<String, Participation> participations = new TreeMap<>();
 
     private @Nonnull ResourceAllocationMonitor.ResourceSet<Long> requiredResources = new ResourceAllocationMonitor.ResourceSet<>();
+    private          boolean                                     resourcesReserved = false;
+    private          int                                         stageCount        = 1;
 
     public Election(@Nonnull String issuer, @Nonnull String projectId, long time, long duration) {
         this.issuer    = issuer;
@@ -78,6 +80,46 @@ public class Election {
         return requiredResources;
     }
 
+    /**
+     * @param reservedResources The resources this node has reserved to participate in this election
+     */
+    public synchronized void setReservedResources(@Nonnull ResourceAllocationMonitor.ResourceSet<Long> reservedResources) {
+        this.setReservedResources(reservedResources, 1);
+    }
+
+    /**
+     * @param reservedResources The resources this node has reserved to participate in this election
+     * @param stageCount        The number of stages this node would start at once with the reserved resources
+     */
+    public synchronized void setReservedResources(
+            @Nonnull ResourceAllocationMonitor.ResourceSet<Long> reservedResources,
+            int stageCount) {
+        this.requiredResources = reservedResources;
+        this.resourcesReserved = true;
+        this.stageCount        = stageCount;
+    }
+
+    /**
+     * @return The number of stages this node would start at once if it wins this election
+     */
+    public synchronized int getStageCount() {
+        return stageCount;
+    }
+
+    /**
+     * @return The resources this node has reserved to participate in this election, only on the first call so that
+     * they are freed exactly once
+     */
+    @Nonnull
+    public synchronized Optional<ResourceAllocationMonitor.ResourceSet<Long>> takeReservedResources() {
+        if (this.resourcesReserved) {
+            this.resourcesReserved = false;
+            return Optional.of(this.requiredResources);
+        } else {
+            return Optional.empty();
+        }
+    }
+
     public static class Participation {
         final float affinity;
         final float aversion;
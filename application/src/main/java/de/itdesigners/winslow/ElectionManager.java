@@ -14,6 +14,11 @@ import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+/**
+ * Manages the elections of the nodes that shall execute the next stage of a project. Elections for different projects
+ * run concurrently, up to a maximum number of elections at once throughout the cluster, but there is at most one
+ * election per project at any time.
+ */
 public class ElectionManager {
 
     private static final Logger LOG = Logger.getLogger(ElectionManager.class.getSimpleName());
@@ -23,15 +28,33 @@ public class ElectionManager {
     public static final String PROPERTY_AFFINITY = "affinity";
     public static final String PROPERTY_AVERSION = "aversion";
 
+    public static final int DEFAULT_MAX_CONCURRENT_ELECTIONS = 64;
+
     private final @Nonnull LockBus               lockBus;
+    private final          int                   maxConcurrentElections;
     private final @Nonnull Map<String, Election> elections = new ConcurrentHashMap<>();
+    private final @Nonnull Map<String, Long>     starting  = new HashMap<>();
 
     private final @Nonnull List<Consumer<Election>> electionStartedListeners = new ArrayList<>();
     private final @Nonnull List<Consumer<Election>> electionClosedListeners  = new ArrayList<>();
 
 
     public ElectionManager(@Nonnull LockBus lockBus) {
-        this.lockBus = lockBus;
+        this(lockBus, Env.getMaxConcurrentElections());
+    }
+
+    /**
+     * @param lockBus                The bus to publish the election events on
+     * @param maxConcurrentElections The number of elections that might run at once, 1 to only have a single election
+     *                               throughout the cluster at any time
+     */
+    public ElectionManager(@Nonnull LockBus lockBus, int maxConcurrentElections) {
+        this.lockBus                = lockBus;
+        this.maxConcurrentElections = Math.max(1, maxConcurrentElections);
+    }
+
+    public int getMaxConcurrentElections() {
+        return maxConcurrentElections;
     }
 
     public synchronized void registerOnElectionStarted(@Nonnull Consumer<Election> listener) {
@@ -59,21 +82,52 @@ public class ElectionManager {
         return Optional.ofNullable(this.elections.get(projectId));
     }
 
+    /**
+     * @return The number of elections currently running or about to start throughout the cluster
+     */
+    public synchronized int getRunningElectionCount() {
+        checkForOutdatedElections();
+        return this.elections.size() + this.starting.size();
+    }
+
+    /**
+     * Starts an election for the given project unless there is already one for it, or the maximum number of
+     * concurrent elections is reached
+     *
+     * @return Whether the election has been started
+     */
     public synchronized boolean maybeStartElection(
             @Nonnull String projectId,
             long duration) throws LockException, IOException {
-        checkForOutdatedElection(projectId);
-        if (this.elections.isEmpty()) {
-            //if (!this.elections.containsKey(projectId)) {
+        checkForOutdatedElections();
+        var isRunning   = this.elections.containsKey(projectId) || this.starting.containsKey(projectId);
+        var hasCapacity = this.elections.size() + this.starting.size() < this.maxConcurrentElections;
+        if (!isRunning && hasCapacity) {
             var properties = new Properties();
             properties.setProperty(PROPERTY_PROJECT, projectId);
-            this.lockBus.publishCommand(Event.Command.ELECTION_START, toSubjectLine(properties), duration);
+            // until the start event has been read back from the bus, which notifies the listeners asynchronously
+            var until = System.currentTimeMillis() + duration + LockBus.DURATION_SURELY_OUT_OF_DATE;
+            this.starting.put(projectId, until);
+            try {
+                this.lockBus.publishCommand(Event.Command.ELECTION_START, toSubjectLine(properties), duration);
+            } catch (LockException | IOException e) {
+                this.starting.remove(projectId);
+                throw e;
+            }
             return true;
         } else {
             return false;
         }
     }
 
+    private void checkForOutdatedElections() {
+        var now = System.currentTimeMillis();
+        this.starting.values().removeIf(until -> until < now);
+        for (var projectId : List.copyOf(this.elections.keySet())) {
+            checkForOutdatedElection(projectId);
+        }
+    }
+
     public void closeElection(@Nonnull String projectId) throws LockException, IOException {
         if (this.elections.containsKey(projectId)) {
             var properties = new Properties();
@@ -101,6 +155,7 @@ public class ElectionManager {
         var properties = fromSubjectLine(subject);
         var projectId  = properties.getProperty(PROPERTY_PROJECT);
         if (projectId != null) {
+            this.starting.remove(projectId);
             var election = new Election(issuer, projectId, time, duration);
             this.elections.put(election.getProjectId(), election);
             notifyAll(electionStartedListeners, election);
@@ -1,5 +1,7 @@
 package de.itdesigners.winslow;
 
+import de.itdesigners.winslow.asblr.WorkspaceCloner;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.InetAddress;
@@ -31,6 +33,17 @@ public class Env {
     public static final String DEV_ENV_IP         = SELF_PREFIX + "_DEV_ENV_IP";
     public static final String WEB_REQUIRE_SECURE = SELF_PREFIX + "_WEB_REQUIRE_SECURE";
     public static final String LOCK_DURATION_MS   = SELF_PREFIX + "_LOCK_DURATION_MS";
+    public static final String LOCK_BUS_STORAGE   = SELF_PREFIX + "_LOCK_BUS_STORAGE";
+    public static final String LOG_STORAGE        = SELF_PREFIX + "_LOG_STORAGE";
+    public static final String LOG_QUEUE_CAPACITY = SELF_PREFIX + "_LOG_QUEUE_CAPACITY";
+    public static final String LOG_QUEUE_OVERFLOW = SELF_PREFIX + "_LOG_QUEUE_OVERFLOW";
+    public static final String DOWNLOAD_THREADS   = SELF_PREFIX + "_DOWNLOAD_THREADS";
+    public static final String MAX_ELECTIONS      = SELF_PREFIX + "_MAX_ELECTIONS";
+    public static final String STAGE_BATCH_SIZE   = SELF_PREFIX + "_STAGE_BATCH_SIZE";
+    public static final String DELAYED_WORKERS    = SELF_PREFIX + "_DELAYED_WORKERS";
+
+    public static final String WORKSPACE_CLONE_MODE    = SELF_PREFIX + "_WORKSPACE_CLONE_MODE";
+    public static final String WORKSPACE_CLONE_THREADS = SELF_PREFIX + "_WORKSPACE_CLONE_THREADS";
 
     /**
      * This variable is resolved in the SecurityConfig from SpringBoot don't to this, the winslow way is to use {@link Env}
@@ -69,6 +82,16 @@ public class Env {
         return Optional.ofNullable(System.getenv().getOrDefault(STORAGE_PATH, null));
     }
 
+    @Nonnull
+    public static String getLockBusStorage() {
+        return System.getenv().getOrDefault(LOCK_BUS_STORAGE, "files");
+    }
+
+    @Nonnull
+    public static String getLogStorage() {
+        return System.getenv().getOrDefault(LOG_STORAGE, "plain");
+    }
+
     @Nullable
     public static String getStaticHtml() {
         return System.getenv(STATIC_HTML);
@@ -116,6 +139,90 @@ public class Env {
         }
     }
 
+    /**
+     * @throws NumberFormatException If the configured capacity is not a positive number, validated on startup
+     */
+    public static int getLogQueueCapacity() throws NumberFormatException {
+        var capacity = System.getenv().get(LOG_QUEUE_CAPACITY);
+        if (capacity == null) {
+            return LogQueue.DEFAULT_CAPACITY;
+        }
+        var parsed = Integer.parseInt(capacity.trim());
+        if (parsed < 1) {
+            throw new NumberFormatException("Not a positive number: " + capacity);
+        }
+        return parsed;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the configured policy is unknown, validated on startup
+     */
+    @Nonnull
+    public static LogQueue.OverflowPolicy getLogQueueOverflowPolicy() throws IllegalArgumentException {
+        var policy = System.getenv().get(LOG_QUEUE_OVERFLOW);
+        if (policy == null) {
+            return LogQueue.DEFAULT_POLICY;
+        }
+        return LogQueue.OverflowPolicy.valueOf(policy.trim().toUpperCase());
+    }
+
+    /**
+     * @throws IllegalArgumentException If the configured mode is unknown, validated on startup
+     */
+    @Nonnull
+    public static WorkspaceCloner.Mode getWorkspaceCloneMode() throws IllegalArgumentException {
+        var mode = System.getenv().get(WORKSPACE_CLONE_MODE);
+        if (mode == null) {
+            return WorkspaceCloner.DEFAULT_MODE;
+        }
+        return WorkspaceCloner.Mode.valueOf(mode.trim().toUpperCase());
+    }
+
+    public static int getWorkspaceCloneThreads() {
+        try {
+            var threads = Integer.parseInt(System.getenv().get(WORKSPACE_CLONE_THREADS));
+            return Integer.max(1, threads);
+        } catch (Throwable t) {
+            return WorkspaceCloner.DEFAULT_THREADS;
+        }
+    }
+
+    public static int getDownloadCompressionThreads() {
+        try {
+            var threads = Integer.parseInt(System.getenv().get(DOWNLOAD_THREADS));
+            return Integer.max(1, threads);
+        } catch (Throwable t) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    public static int getMaxConcurrentElections() {
+        try {
+            var elections = Integer.parseInt(System.getenv().get(MAX_ELECTIONS));
+            return Integer.max(1, elections);
+        } catch (Throwable t) {
+            return ElectionManager.DEFAULT_MAX_CONCURRENT_ELECTIONS;
+        }
+    }
+
+    public static int getStageBatchSize() {
+        try {
+            var size = Integer.parseInt(System.getenv().get(STAGE_BATCH_SIZE));
+            return Integer.max(1, size);
+        } catch (Throwable t) {
+            return Orchestrator.DEFAULT_STAGE_BATCH_SIZE;
+        }
+    }
+
+    public static int getDelayedExecutorWorkerCount() {
+        try {
+            var workers = Integer.parseInt(System.getenv().get(DELAYED_WORKERS));
+            return Integer.max(1, workers);
+        } catch (Throwable t) {
+            return DelayedExecutor.DEFAULT_WORKER_COUNT;
+        }
+    }
+
     public static boolean isDevEnv() {
         return isTrueOr1(System.getenv(DEV_ENV));
     }
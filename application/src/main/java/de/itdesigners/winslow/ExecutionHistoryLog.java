@@ -0,0 +1,586 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.config.ExecutionGroup;
+import de.itdesigners.winslow.pipeline.ExecutionHistory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only storage of the archived {@link ExecutionGroup}s of a {@link de.itdesigners.winslow.pipeline.Pipeline}.
+ * The log file contains one record per archived, modified or removed {@link ExecutionGroup}, each prefixed by its
+ * length, a CRC32 checksum and its type. The index file contains a fixed size entry for each record, so that the
+ * number of {@link ExecutionGroup}s, their order and position is known without parsing any of them.
+ * <p>
+ * A modified {@link ExecutionGroup} is appended again and replaces the previous record with the same id in place,
+ * a removed {@link ExecutionGroup} is hidden by a removal record. The index is written after the log, so records
+ * without an index entry are considered to be the torn tail of an interrupted writer. Writing requires the
+ * exclusive lock of the pipeline, while readers can always read up to the number of index entries they have seen.
+ * <p>
+ * Once the replaced and removed records outnumber the live ones (and there are at least
+ * {@link #COMPACTION_MIN_DEAD_RECORDS} of them), the log is compacted by rewriting it with the live records only.
+ * Compaction replaces the files, so the index entries of older {@link Snapshot}s are re-located by the id hash of
+ * their {@link ExecutionGroup}s in the compacted log once they no longer match.
+ */
+class ExecutionHistoryLog {
+
+    private static final Logger LOG = Logger.getLogger(ExecutionHistoryLog.class.getSimpleName());
+
+    public static final int HEADER_SIZE      = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    public static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+    public static final int MAX_RECORD_SIZE  = 64 * 1024 * 1024;
+
+    static final int COMPACTION_MIN_DEAD_RECORDS = 64;
+
+    private static final byte TYPE_GROUP   = 0;
+    private static final byte TYPE_REMOVED = 1;
+
+    private final @Nonnull Path log;
+    private final @Nonnull Path index;
+
+    ExecutionHistoryLog(@Nonnull Path log, @Nonnull Path index) {
+        this.log   = log;
+        this.index = index;
+    }
+
+    /**
+     * @return A {@link Snapshot} of the currently persisted {@link ExecutionGroup}s, which are loaded lazily
+     */
+    @Nonnull
+    public Snapshot snapshot() throws IOException {
+        // before the index, so that a compaction in between is noticed once the snapshot is resolved
+        var generation = generation();
+        try {
+            return new Snapshot(Files.size(this.index) / INDEX_ENTRY_SIZE, generation);
+        } catch (NoSuchFileException e) {
+            // rebuilt from the log if necessary
+            return new Snapshot(-1, generation);
+        }
+    }
+
+    /**
+     * @return The file key of the current log, which changes whenever the log is replaced, or null if unknown
+     */
+    @Nullable
+    private Object generation() throws IOException {
+        try {
+            return Files.readAttributes(this.log, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Persists all changes of the {@link ExecutionHistory} and re-binds it to the resulting {@link Snapshot}.
+     * Requires the {@link ExecutionHistory} to be based on a {@link Snapshot} of this log.
+     */
+    public void append(@Nonnull ExecutionHistory history, @Nonnull Snapshot base) throws IOException {
+        var removed  = history.getRemoved();
+        var appended = history.getAppended();
+        var records  = new ArrayList<Record>(appended.size() + removed.size());
+
+        base.resolve();
+        for (var index : removed) {
+            records.add(Record.removed(base.load(index, index + 1).get(0).getFullyQualifiedId()));
+        }
+        for (int i = 0; i < base.groups.length; ++i) {
+            var group = base.groups[i];
+            if (group != null && !removed.contains(i)) {
+                var record = Record.group(group);
+                if (!Arrays.equals(record.payload, base.payloads[i])) {
+                    records.add(record);
+                }
+            }
+        }
+        for (var group : appended) {
+            records.add(Record.group(group));
+        }
+
+        if (!records.isEmpty()) {
+            write(records, false);
+
+            var next = Snapshot.successorOf(this, base, records);
+            history.persisted(next);
+
+            var dead = next.recordCount - next.entries.length;
+            if (dead >= COMPACTION_MIN_DEAD_RECORDS && dead > next.entries.length) {
+                LOG.info("Compacting " + dead + " dead of " + next.recordCount + " records of " + this.log);
+                rewrite(history);
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole log by the given {@link ExecutionGroup}s and re-binds the {@link ExecutionHistory}
+     * to the resulting {@link Snapshot}. Used to migrate a history that is not yet stored in this log.
+     */
+    public void rewrite(@Nonnull ExecutionHistory history) throws IOException {
+        var records = new ArrayList<Record>(history.size());
+        for (var group : history.stream().toList()) {
+            records.add(Record.group(group));
+        }
+        write(records, true);
+        history.persisted(Snapshot.successorOf(this, new Snapshot(0, null), records));
+    }
+
+    private void write(@Nonnull List<Record> records, boolean replace) throws IOException {
+        var logTarget   = replace ? sibling(this.log, ".new") : this.log;
+        var indexTarget = replace ? sibling(this.index, ".new") : this.index;
+
+        if (replace) {
+            Files.deleteIfExists(logTarget);
+            Files.deleteIfExists(indexTarget);
+        } else {
+            repair();
+        }
+
+        try (var logChannel = FileChannel.open(logTarget, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             var indexChannel = FileChannel.open(
+                     indexTarget,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE
+             )) {
+            var position = logChannel.size();
+            var entries  = ByteBuffer.allocate(records.size() * INDEX_ENTRY_SIZE);
+            var logged   = ByteBuffer.allocate(records.stream().mapToInt(r -> HEADER_SIZE + r.payload.length).sum());
+
+            for (var record : records) {
+                entries.putLong(position + logged.position());
+                entries.putInt(record.payload.length);
+                entries.putInt(record.type);
+                entries.putLong(record.hash);
+                logged.putInt(record.payload.length);
+                logged.putInt(record.checksum());
+                logged.put(record.type);
+                logged.put(record.payload);
+            }
+
+            // the index entries commit the records, so they must not be visible before the records are
+            writeFully(logChannel, logged.flip(), position);
+            writeFully(indexChannel, entries.flip(), indexChannel.size());
+        }
+
+        if (replace) {
+            // without index, the log is scanned instead, so there is never an index of another log
+            Files.deleteIfExists(this.index);
+            Files.move(logTarget, this.log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTarget, this.index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Restores a missing index and truncates the index and log to the last complete record
+     */
+    private void repair() throws IOException {
+        if (!Files.exists(this.log)) {
+            Files.deleteIfExists(this.index);
+            return;
+        }
+
+        if (!Files.exists(this.index)) {
+            var entries = scan();
+            LOG.warning("Rebuilding missing index with " + entries.size() + " entries for " + this.log);
+            try (var channel = FileChannel.open(this.index, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                var buffer = ByteBuffer.allocate(entries.size() * INDEX_ENTRY_SIZE);
+                entries.forEach(entry -> entry.writeTo(buffer));
+                writeFully(channel, buffer.flip(), 0);
+            }
+        }
+
+        try (var logChannel = FileChannel.open(this.log, StandardOpenOption.WRITE);
+             var indexChannel = FileChannel.open(this.index, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var count = indexChannel.size() / INDEX_ENTRY_SIZE;
+            var end   = 0L;
+
+            if (count > 0) {
+                var buffer = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+                readFully(indexChannel, buffer, (count - 1) * INDEX_ENTRY_SIZE);
+                var last = IndexEntry.readFrom(buffer.flip());
+                end = last.offset + HEADER_SIZE + last.length;
+            }
+
+            if (end > logChannel.size()) {
+                throw new IOException("Index refers beyond the end of " + this.log);
+            }
+            if (indexChannel.size() != count * INDEX_ENTRY_SIZE) {
+                LOG.warning("Truncating torn index entry of " + this.index);
+                indexChannel.truncate(count * INDEX_ENTRY_SIZE);
+            }
+            if (logChannel.size() != end) {
+                LOG.warning("Truncating " + (logChannel.size() - end) + " bytes of unindexed records of " + this.log);
+                logChannel.truncate(end);
+            }
+        }
+    }
+
+    /**
+     * @return The {@link IndexEntry}s of all valid records of the log, up to the first torn or invalid one
+     */
+    @Nonnull
+    private List<IndexEntry> scan() throws IOException {
+        var entries = new ArrayList<IndexEntry>();
+        try (var channel = FileChannel.open(this.log, StandardOpenOption.READ)) {
+            var header   = ByteBuffer.allocate(HEADER_SIZE);
+            var position = 0L;
+            while (position + HEADER_SIZE <= channel.size()) {
+                readFully(channel, header.clear(), position);
+                var length   = header.flip().getInt();
+                var checksum = header.getInt();
+                var type     = header.get();
+                if (length < 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+                var payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + HEADER_SIZE);
+                var record = new Record(type, payload.array(), 0);
+                if (record.checksum() != checksum) {
+                    break;
+                }
+                entries.add(new IndexEntry(position, length, type, Record.hash(record.id())));
+                position += HEADER_SIZE + length;
+            }
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+
+    @Nonnull
+    private static Path sibling(@Nonnull Path path, @Nonnull String suffix) {
+        return path.resolveSibling("." + path.getFileName().toString() + suffix);
+    }
+
+    private static void writeFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            var read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * The persisted {@link ExecutionGroup}s as of the number of index entries seen at the time it was created.
+     * The index is read once the {@link ExecutionGroup}s are first accessed, each {@link ExecutionGroup} is
+     * loaded (and kept) once it is requested.
+     * <p>
+     * If the log has been compacted before the snapshot is resolved, it covers the whole compacted log instead.
+     * If it is compacted afterwards, the {@link ExecutionGroup}s not loaded yet are re-located in the compacted
+     * log, which only contains their latest version. Loading one that has been removed in the meantime fails.
+     */
+    class Snapshot implements ExecutionHistory.Storage {
+
+        /**
+         * The number of index entries this snapshot covers or -1 if the log needs to be scanned
+         */
+        private final long entryCount;
+
+        private @Nullable IndexEntry[]          entries;
+        private @Nullable ExecutionGroup[]      groups;
+        private @Nullable byte[][]              payloads;
+        private @Nullable Map<Long, Integer>    positions;
+        private @Nullable Object                generation;
+        private           int                   recordCount;
+
+        private Snapshot(long entryCount, @Nullable Object generation) {
+            this.entryCount = entryCount;
+            this.generation = generation;
+        }
+
+        boolean isOf(@Nonnull ExecutionHistoryLog log) {
+            return ExecutionHistoryLog.this.log.equals(log.log);
+        }
+
+        @Override
+        public synchronized int size() throws IOException {
+            resolve();
+            return this.entries.length;
+        }
+
+        @Nonnull
+        @Override
+        public synchronized List<ExecutionGroup> load(int fromIndex, int toIndex) throws IOException {
+            resolve();
+            Objects.checkFromToIndex(fromIndex, toIndex, this.entries.length);
+
+            if (!tryLoad(fromIndex, toIndex)) {
+                // the log has been compacted since this snapshot was resolved
+                relocate();
+                if (!tryLoad(fromIndex, toIndex)) {
+                    throw new IOException("Records do not match their index entries in " + log);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(this.groups).subList(fromIndex, toIndex));
+        }
+
+        /**
+         * @return Whether all {@link ExecutionGroup}s in the range are loaded, false on the first record that
+         * does not match its index entry
+         */
+        private boolean tryLoad(int fromIndex, int toIndex) throws IOException {
+            try (var channel = FileChannel.open(ExecutionHistoryLog.this.log, StandardOpenOption.READ)) {
+                for (int i = fromIndex; i < toIndex; ++i) {
+                    if (this.groups[i] == null) {
+                        var payload = read(channel, this.entries[i]);
+                        if (payload == null) {
+                            return false;
+                        }
+                        this.payloads[i] = payload;
+                        this.groups[i]   = BaseRepository
+                                .defaultReader(ExecutionGroup.class)
+                                .load(new ByteArrayInputStream(payload));
+                    }
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Replaces the index entries of the {@link ExecutionGroup}s not loaded yet by those of the current log
+         */
+        private void relocate() throws IOException {
+            var generation = generation();
+            var current    = live(readIndex(Long.MAX_VALUE));
+
+            for (int i = 0; i < this.entries.length; ++i) {
+                if (this.groups[i] == null) {
+                    var entry = current.get(this.entries[i].hash);
+                    if (entry == null) {
+                        throw new IOException("Record at " + this.entries[i].offset + " has been removed from " + log);
+                    }
+                    this.entries[i] = entry;
+                }
+            }
+
+            LOG.fine("Re-located the index entries of a snapshot in the compacted " + log);
+            this.generation = generation;
+        }
+
+        @Nonnull
+        @Override
+        public synchronized OptionalInt indexOf(@Nonnull String fullyQualifiedId) throws IOException {
+            resolve();
+            var position = this.positions.get(Record.hash(fullyQualifiedId));
+            if (position != null && load(position, position + 1).get(0).getFullyQualifiedId().equals(fullyQualifiedId)) {
+                return OptionalInt.of(position);
+            } else {
+                return OptionalInt.empty();
+            }
+        }
+
+        /**
+         * @return The payload of the record of the index entry or null if the record does not match it
+         */
+        @Nullable
+        private byte[] read(@Nonnull FileChannel channel, @Nonnull IndexEntry entry) throws IOException {
+            if (entry.offset + HEADER_SIZE + entry.length > channel.size()) {
+                return null;
+            }
+
+            var buffer = ByteBuffer.allocate(HEADER_SIZE + entry.length);
+            readFully(channel, buffer, entry.offset);
+            buffer.flip();
+
+            var length   = buffer.getInt();
+            var checksum = buffer.getInt();
+            var type     = buffer.get();
+            var payload  = Arrays.copyOfRange(buffer.array(), HEADER_SIZE, buffer.limit());
+
+            if (length != entry.length || type != entry.type || new Record(type, payload, 0).checksum() != checksum) {
+                return null;
+            }
+            return payload;
+        }
+
+        private synchronized void resolve() throws IOException {
+            if (this.entries != null) {
+                return;
+            }
+
+            var generation = generation();
+            var compacted  = this.generation != null && !this.generation.equals(generation);
+            var all        = this.entryCount < 0 ? scan() : readIndex(compacted ? Long.MAX_VALUE : this.entryCount);
+
+            this.generation  = generation;
+            this.recordCount = all.size();
+            this.entries     = live(all).values().toArray(IndexEntry[]::new);
+            this.groups      = new ExecutionGroup[this.entries.length];
+            this.payloads    = new byte[this.entries.length][];
+            this.positions   = new HashMap<>();
+            for (int i = 0; i < this.entries.length; ++i) {
+                this.positions.put(this.entries[i].hash, i);
+            }
+        }
+
+        @Nonnull
+        private static Map<Long, IndexEntry> live(@Nonnull List<IndexEntry> all) {
+            var live = new LinkedHashMap<Long, IndexEntry>();
+            for (var entry : all) {
+                if (entry.type == TYPE_REMOVED) {
+                    live.remove(entry.hash);
+                } else {
+                    // a modified group replaces the previous one in place
+                    live.put(entry.hash, entry);
+                }
+            }
+            return live;
+        }
+
+        @Nonnull
+        private List<IndexEntry> readIndex(long maxCount) throws IOException {
+            try (var channel = FileChannel.open(ExecutionHistoryLog.this.index, StandardOpenOption.READ)) {
+                // the index might have been replaced in the meantime, never read beyond it
+                var count  = Math.min(maxCount, channel.size() / INDEX_ENTRY_SIZE);
+                var buffer = ByteBuffer.allocate(Math.toIntExact(count * INDEX_ENTRY_SIZE));
+                readFully(channel, buffer, 0);
+                buffer.flip();
+
+                var entries = new ArrayList<IndexEntry>((int) count);
+                for (int i = 0; i < count; ++i) {
+                    entries.add(IndexEntry.readFrom(buffer));
+                }
+                return entries;
+            } catch (NoSuchFileException e) {
+                LOG.log(Level.WARNING, "Index disappeared, scanning the log instead " + log, e);
+                return scan();
+            }
+        }
+
+        /**
+         * Creates the {@link Snapshot} after the given records were appended to the base, keeping the
+         * already loaded {@link ExecutionGroup}s of the base and those that were just written.
+         */
+        @Nonnull
+        private static Snapshot successorOf(
+                @Nonnull ExecutionHistoryLog log,
+                @Nonnull Snapshot base,
+                @Nonnull List<Record> records) throws IOException {
+            var next = log.snapshot();
+            next.resolve();
+
+            var written = new HashMap<Long, Record>();
+            records.forEach(record -> written.put(record.hash, record));
+
+            for (int i = 0; i < next.entries.length; ++i) {
+                var entry  = next.entries[i];
+                var record = written.get(entry.hash);
+                var prev   = base.positions != null ? base.positions.get(entry.hash) : null;
+
+                if (record != null && record.group != null) {
+                    next.groups[i]   = record.group;
+                    next.payloads[i] = record.payload;
+                } else if (prev != null && base.entries[prev].offset == entry.offset) {
+                    next.groups[i]   = base.groups[prev];
+                    next.payloads[i] = base.payloads[prev];
+                }
+            }
+            return next;
+        }
+    }
+
+    private record IndexEntry(long offset, int length, int type, long hash) {
+
+        void writeTo(@Nonnull ByteBuffer buffer) {
+            buffer.putLong(offset);
+            buffer.putInt(length);
+            buffer.putInt(type);
+            buffer.putLong(hash);
+        }
+
+        @Nonnull
+        static IndexEntry readFrom(@Nonnull ByteBuffer buffer) {
+            return new IndexEntry(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+        }
+    }
+
+    private static class Record {
+        private final           byte           type;
+        private final @Nonnull  byte[]         payload;
+        private final           long           hash;
+        private final @Nullable ExecutionGroup group;
+
+        private Record(byte type, @Nonnull byte[] payload, long hash) {
+            this(type, payload, hash, null);
+        }
+
+        private Record(byte type, @Nonnull byte[] payload, long hash, @Nullable ExecutionGroup group) {
+            this.type    = type;
+            this.payload = payload;
+            this.hash    = hash;
+            this.group   = group;
+        }
+
+        @Nonnull
+        static Record group(@Nonnull ExecutionGroup group) throws IOException {
+            return new Record(
+                    TYPE_GROUP,
+                    YamlMapper.writer().writeValueAsBytes(group),
+                    hash(group.getFullyQualifiedId()),
+                    group
+            );
+        }
+
+        @Nonnull
+        static Record removed(@Nonnull String fullyQualifiedId) {
+            return new Record(TYPE_REMOVED, fullyQualifiedId.getBytes(StandardCharsets.UTF_8), hash(fullyQualifiedId));
+        }
+
+        /**
+         * @return The id of the {@link ExecutionGroup} of this record, parses the payload if necessary
+         */
+        @Nonnull
+        String id() throws IOException {
+            if (this.type == TYPE_REMOVED) {
+                return new String(this.payload, StandardCharsets.UTF_8);
+            } else if (this.group != null) {
+                return this.group.getFullyQualifiedId();
+            } else {
+                return BaseRepository
+                        .defaultReader(ExecutionGroup.class)
+                        .load(new ByteArrayInputStream(this.payload))
+                        .getFullyQualifiedId();
+            }
+        }
+
+        int checksum() {
+            var crc = new CRC32();
+            crc.update(this.type);
+            crc.update(this.payload);
+            return (int) crc.getValue();
+        }
+
+        /**
+         * 64-bit FNV-1a hash of the id, so that the index entries have a fixed size
+         */
+        static long hash(@Nonnull String fullyQualifiedId) {
+            var hash = 0xcbf29ce484222325L;
+            for (var b : fullyQualifiedId.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= (b & 0xff);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
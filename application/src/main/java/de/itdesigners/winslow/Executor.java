@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.logging.Level;
@@ -38,13 +40,15 @@ public class Executor implements Closeable, AutoCloseable {
     private final @Nonnull List<Runnable>           shutdownCompletedListeners = new ArrayList<>();
     private final @Nonnull IntervalInvoker          intervalInvoker            = new IntervalInvoker(INTERVAL_MS);
 
-    private @Nullable StageHandle             stageHandle;
-    private @Nullable BlockingDeque<LogEntry> logBuffer = new LinkedBlockingDeque<>();
-    private @Nullable Thread                  thread    = null;
+    private @Nullable          StageHandle             stageHandle;
+    private @Nullable          BlockingDeque<LogEntry> logBuffer = new LinkedBlockingDeque<>();
+    private @Nullable volatile Thread                  thread    = null;
+    private @Nullable          LogQueue.Metrics        logQueueMetrics;
 
-    private boolean keepRunning = true;
-    private boolean failed      = false;
-    private boolean killed      = false;
+    private long    linesPublished = 0;
+    private boolean keepRunning    = true;
+    private boolean failed         = false;
+    private boolean killed         = false;
 
     public Executor(
             @Nonnull String pipeline,
@@ -109,19 +113,50 @@ public class Executor implements Closeable, AutoCloseable {
         var handle = this.stageHandle;
         if (handle != null) {
             try {
-                handle.getStats().ifPresent(
-                        value -> orchestrator
-                                .getRunInfoRepository()
-                                .setStats(getStageIdFullyQualified(), value)
-                );
+                handle.getStats().ifPresent(value -> {
+                    orchestrator.getRunInfoRepository().setStats(getStageIdFullyQualified(), value);
+                    orchestrator.getStageEventHub().publishStats(stageId, value);
+                });
             } catch (IOException e) {
                 LOG.log(Level.WARNING, "Failed to update stats for " + getStageIdFullyQualified(), e);
             }
+            handle.getLogQueueMetrics().ifPresent(this::logQueueMetricsUpdater);
+        }
+    }
+
+    private void logQueueMetricsUpdater(@Nonnull LogQueue.Metrics metrics) {
+        var previous = this.logQueueMetrics;
+        if (!metrics.equals(previous)) {
+            this.logQueueMetrics = metrics;
+            orchestrator.getRunInfoRepository().setLogQueueMetrics(getStageIdFullyQualified(), metrics);
+            if (previous != null && metrics.dropped() > previous.dropped()) {
+                LOG.warning(getStageIdFullyQualified() + ": dropped " + (metrics.dropped() - previous.dropped()) + " log lines");
+            }
         }
     }
 
     public void setStageHandle(@Nonnull StageHandle handle) {
         this.stageHandle = handle;
+        handle.setLogListener(this::wakeup);
+        this.wakeup();
+    }
+
+    /**
+     * Wakes the thread writing the logs, which otherwise waits until the next interval
+     */
+    private void wakeup() {
+        var thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * @return The {@link LogQueue.Metrics} of the {@link StageHandle}, as of the last interval
+     */
+    @Nonnull
+    public Optional<LogQueue.Metrics> getLogQueueMetrics() {
+        return Optional.ofNullable(this.logQueueMetrics);
     }
 
     /**
@@ -145,6 +180,7 @@ public class Executor implements Closeable, AutoCloseable {
     private synchronized void log(boolean error, @Nonnull String message) {
         if (logBuffer != null) {
             logBuffer.add(createLogEntry(error, message));
+            wakeup();
         } else {
             LOG.warning("LogBuffer gone, not able to log message (error=" + error + "): " + message);
         }
@@ -197,12 +233,16 @@ public class Executor implements Closeable, AutoCloseable {
 
     private void run() {
         try (lockHeart) {
-            try (logOutput) {
-                var iter    = getLogIterator();
-                var backoff = new Backoff(250, 950, 2f, new JavaThreadSleepWrapper());
+            var lineIndex = orchestrator
+                    .getLogRepository()
+                    .getLineIndexWriter(pipeline, stageId.getFullyQualified())
+                    .orElse(null);
+            try (logOutput; lineIndex) {
+                var iter = getLogIterator();
 
                 LogWriter
                         .writeTo(logOutput)
+                        .lineIndex(lineIndex)
                         .source(Stream.concat(
                                 Stream.<LogEntry>iterate(
                                         null,
@@ -210,15 +250,17 @@ public class Executor implements Closeable, AutoCloseable {
                                         p -> {
                                             intervalInvoker.maybeInvokeAll();
                                             var next = iter.next();
-                                            if (next == null) {
-                                                backoff.sleep(intervalInvoker.timeMillisUntilNextInvocation());
+                                            if (next == null && p == null) {
+                                                // until woken up by new logs or the next interval
+                                                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(
+                                                        intervalInvoker.timeMillisUntilNextInvocation()
+                                                ));
                                                 next = iter.next();
-                                            } else {
-                                                backoff.reset();
                                             }
+                                            // passing null on to the LogWriter lets it flush once the source is idle
                                             return next;
                                         }
-                                ).filter(Objects::nonNull),
+                                ),
                                 Stream
                                         .of((Supplier<LogEntry>) () -> {
                                             var stageHandle = this.stageHandle;
@@ -230,6 +272,7 @@ public class Executor implements Closeable, AutoCloseable {
                                         .map(Supplier::get)
                         ))
                         .addConsumer(this::notifyLogConsumerIfStdout)
+                        .addFlushConsumer(this::publishLogs)
                         .runInForeground();
 
                 logOutput.flush();
@@ -288,6 +331,7 @@ public class Executor implements Closeable, AutoCloseable {
 
     public synchronized void stop() throws IOException {
         this.keepRunning = false;
+        this.wakeup();
         if (this.stageHandle != null) {
             this.stageHandle.stop();
         }
@@ -296,6 +340,12 @@ public class Executor implements Closeable, AutoCloseable {
     public synchronized void fail() {
         this.failed      = true;
         this.keepRunning = false;
+        this.wakeup();
+    }
+
+    private void publishLogs(@Nonnull List<LogEntry> entries) {
+        orchestrator.getStageEventHub().publishLogs(stageId, linesPublished, entries);
+        linesPublished += entries.size();
     }
 
     private synchronized void notifyLogConsumerIfStdout(@Nonnull LogEntry entry) {
@@ -319,6 +369,20 @@ public class Executor implements Closeable, AutoCloseable {
         this.logConsumer.remove(consumer);
     }
 
+    /**
+     * Adds the given listener to be invoked every {@link #INTERVAL_MS} while running, on the thread that also
+     * notifies the log consumers
+     *
+     * @param listener {@link Runnable} to add
+     */
+    public void addIntervalListener(@Nonnull Runnable listener) {
+        this.intervalInvoker.addListener(listener);
+    }
+
+    public void removeIntervalListener(@Nonnull Runnable listener) {
+        this.intervalInvoker.removeListener(listener);
+    }
+
     private synchronized void notifyShutdownListeners() {
         for (var runnable : this.shutdownListeners) {
             try {
@@ -1,15 +1,15 @@
 package de.itdesigners.winslow;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class IntervalInvoker {
 
     public static final long MAYBE_INVOKE_THRESHOLD_MILLIS = 10;
 
     private final long           interval;
-    private final List<Runnable> listeners = new ArrayList<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
 
     private long lastUpdate;
 
@@ -22,6 +22,10 @@ public class IntervalInvoker {
         this.listeners.add(listener);
     }
 
+    public void removeListener(@Nonnull Runnable listener) {
+        this.listeners.remove(listener);
+    }
+
     public long timeMillisUntilNextInvocation() {
         return Math.max(0, (lastUpdate + interval) - System.currentTimeMillis());
     }
@@ -1,5 +1,6 @@
 package de.itdesigners.winslow;
 
+import de.itdesigners.winslow.config.ExecutionGroup;
 import de.itdesigners.winslow.fs.Event;
 import de.itdesigners.winslow.fs.LockBus;
 import de.itdesigners.winslow.fs.LockException;
@@ -91,68 +92,67 @@ public class LockBusElectionManagerAdapter {
                     }
                     return hasResourced;
                 })
-                .flatMap(pipeline -> pipeline
+                .ifPresent(pipeline -> pipeline
                         .getActiveOrNextExecutionGroup()
                         .filter(executionGroup -> executionGroup.getNextStageDefinition().isPresent())
                         .findFirst()
-                )
-                .ifPresent(activeGroup -> {
-                    var requiredResources = orchestrator.getRequiredResources(activeGroup.getStageDefinition());
-                    var participation     = orchestrator.judgeParticipationScore(requiredResources);
+                        .ifPresent(activeGroup -> participate(election, pipeline, activeGroup))
+                );
+    }
 
-                    try {
-                        electionManager.participate(election, participation);
-                        election.setRequiredResources(requiredResources);
-                        orchestrator.getResourceAllocationMonitor().reserve(
-                                election.getProjectId(),
-                                requiredResources
-                        );
-                    } catch (IOException | LockException e) {
-                        LOG.log(
-                                Level.SEVERE,
-                                "Failed to participate in election for project=" + election.getProjectId(),
-                                e
-                        );
-                    }
-                });
+    private void participate(
+            @Nonnull Election election,
+            @Nonnull Pipeline pipeline,
+            @Nonnull ExecutionGroup activeGroup) {
+        var requiredResources = orchestrator.getRequiredResources(activeGroup.getStageDefinition());
+        var participation     = orchestrator.judgeParticipationScore(requiredResources);
+        var monitor           = orchestrator.getResourceAllocationMonitor();
+        var stageCount        = orchestrator.getStageBatchSize(pipeline, activeGroup, requiredResources);
+        var reserved          = ResourceAllocationMonitor.multiply(requiredResources, stageCount);
+
+        // other elections might be running at the same time, only participate with resources that are
+        // not already promised to one of them
+        if (stageCount > 1 && !monitor.tryReserve(election.getProjectId(), reserved)) {
+            stageCount = 1;
+            reserved   = requiredResources;
+        }
+        if (stageCount == 1 && !monitor.tryReserve(election.getProjectId(), reserved)) {
+            orchestrator.addProjectThatNeedsToBeReEvaluatedOnceMoreResourcesAreAvailable(election.getProjectId());
+            return;
+        }
+
+        try {
+            election.setReservedResources(reserved, stageCount);
+            electionManager.participate(election, participation);
+        } catch (IOException | LockException e) {
+            election.takeReservedResources().ifPresent(r -> monitor.free(election.getProjectId(), r));
+            LOG.log(
+                    Level.SEVERE,
+                    "Failed to participate in election for project=" + election.getProjectId(),
+                    e
+            );
+        }
     }
 
     private void handleElectionClosed(@Nonnull Election election) {
-        if (election.hasParticipated(nodeName)) {
-            orchestrator.getResourceAllocationMonitor().free(
-                    election.getProjectId(),
-                    election.getRequiredResources()
-            );
+        var monitor  = orchestrator.getResourceAllocationMonitor();
+        var reserved = election.takeReservedResources();
+        var winner   = election.getMostFittingParticipant();
+
+        if (winner.filter(nodeName::equals).isEmpty()) {
+            reserved.ifPresent(resources -> monitor.free(election.getProjectId(), resources));
         }
 
-        election.getMostFittingParticipant().ifPresentOrElse(participant -> {
+        winner.ifPresentOrElse(participant -> {
             if (nodeName.equals(participant)) {
                 var thread = new Thread(() -> {
-                    var projectOpt    = orchestrator.getProjectUnsafe(election.getProjectId());
-                    var definitionOpt = projectOpt.flatMap(project -> orchestrator.getPipelineDefinitions().getPipelineDefinitionReadonly(project));
-                    var exclusiveOpt  = projectOpt.flatMap(orchestrator::getPipelineExclusive);
-
-                    exclusiveOpt.ifPresentOrElse(
-                            container -> {
-                                try (var lock = container.getLock(); container) {
-                                    var pipeline   = container.get().get();
-                                    var project    = projectOpt.get();
-                                    var definition = definitionOpt.get();
-                                    if (orchestrator.startPipeline(lock, project, definition, pipeline)) {
-                                        LOG.info("Updating pipeline...");
-                                        container.update(pipeline);
-                                    } else {
-                                        LOG.info("No pipeline update available...");
-                                    }
-                                    LOG.info("Closing lock=" + lock);
-                                } catch (LockException | IOException e) {
-                                    LOG.log(Level.SEVERE, "Failed to start next stage", e);
-                                } finally {
-                                    LOG.info("Closed lock");
-                                }
-                            },
-                            () -> LOG.severe("Failed to lock project which should be executed by this node by election")
-                    );
+                    try {
+                        startNextStage(election);
+                    } finally {
+                        // the stage holds its own reservation once started, keep the one of the election until
+                        // then so that no concurrent election can take the resources in the meantime
+                        reserved.ifPresent(resources -> monitor.free(election.getProjectId(), resources));
+                    }
                 });
                 thread.setName(election.getProjectId() + ".win");
                 thread.start();
@@ -166,4 +166,32 @@ public class LockBusElectionManagerAdapter {
             }
         });
     }
+
+    private void startNextStage(@Nonnull Election election) {
+        var projectOpt    = orchestrator.getProjectUnsafe(election.getProjectId());
+        var definitionOpt = projectOpt.flatMap(project -> orchestrator.getPipelineDefinitions().getPipelineDefinitionReadonly(project));
+        var exclusiveOpt  = projectOpt.flatMap(orchestrator::getPipelineExclusive);
+
+        exclusiveOpt.ifPresentOrElse(
+                container -> {
+                    try (var lock = container.getLock(); container) {
+                        var pipeline   = container.get().get();
+                        var project    = projectOpt.get();
+                        var definition = definitionOpt.get();
+                        if (orchestrator.startPipeline(lock, project, definition, pipeline, election.getStageCount()) > 0) {
+                            LOG.info("Updating pipeline...");
+                            container.update(pipeline);
+                        } else {
+                            LOG.info("No pipeline update available...");
+                        }
+                        LOG.info("Closing lock=" + lock);
+                    } catch (LockException | IOException e) {
+                        LOG.log(Level.SEVERE, "Failed to start next stage", e);
+                    } finally {
+                        LOG.info("Closed lock");
+                    }
+                },
+                () -> LOG.severe("Failed to lock project which should be executed by this node by election")
+        );
+    }
 }
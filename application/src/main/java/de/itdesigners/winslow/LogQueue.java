@@ -0,0 +1,329 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.pipeline.LogSource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of {@link LogEntry}s between the producer of a stage's logs (for example, the attached log
+ * stream of a container) and the {@link Executor} writing them. Once {@link #getCapacity()} entries are
+ * queued, the {@link OverflowPolicy} decides what happens to further entries. Instead of polling, the
+ * consumer is woken up by a listener as soon as entries become available.
+ */
+public class LogQueue implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(LogQueue.class.getSimpleName());
+
+    public static final int            DEFAULT_CAPACITY = 10_000;
+    public static final OverflowPolicy DEFAULT_POLICY   = OverflowPolicy.BLOCK;
+
+    private final @Nonnull LogEntry[]     entries;
+    private final @Nonnull OverflowPolicy policy;
+    private final @Nonnull ReentrantLock  lock    = new ReentrantLock();
+    private final @Nonnull Condition      notFull = lock.newCondition();
+
+    private           int      head       = 0;
+    private           int      size       = 0;
+    private           long     peak       = 0;
+    private           long     dropped    = 0;
+    private           long     spilled    = 0;
+    private           long     unreported = 0;
+    private           boolean  closed     = false;
+    private @Nullable Spill    spill      = null;
+    private @Nullable Runnable listener   = null;
+
+    public LogQueue() {
+        this(DEFAULT_CAPACITY, DEFAULT_POLICY);
+    }
+
+    public LogQueue(int capacity, @Nonnull OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive, but is " + capacity);
+        }
+        this.entries = new LogEntry[capacity];
+        this.policy  = policy;
+    }
+
+    /**
+     * @param listener Invoked whenever an entry is added to the empty queue
+     */
+    public void setListener(@Nullable Runnable listener) {
+        this.lock.lock();
+        try {
+            this.listener = listener;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the given entry or, if the queue is full, applies the {@link OverflowPolicy}
+     *
+     * @return Whether the entry was queued
+     */
+    public boolean offer(@Nonnull LogEntry entry) {
+        Runnable notify;
+        this.lock.lock();
+        try {
+            while (this.size == this.entries.length && this.policy == OverflowPolicy.BLOCK && !this.closed) {
+                try {
+                    this.notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            var wasEmpty = isEmptyLocked();
+            if (this.closed) {
+                return drop();
+            } else if (this.spill != null && this.spill.pending() > 0) {
+                // keep the order once entries have been spilled
+                if (!spill(entry)) {
+                    return false;
+                }
+            } else if (this.size < this.entries.length) {
+                this.entries[(this.head + this.size) % this.entries.length] = entry;
+                this.size += 1;
+            } else if (this.policy == OverflowPolicy.SPILL) {
+                if (!spill(entry)) {
+                    return false;
+                }
+            } else {
+                return drop();
+            }
+
+            this.peak = Math.max(this.peak, depth());
+            notify    = wasEmpty ? this.listener : null;
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (notify != null) {
+            notify.run();
+        }
+        return true;
+    }
+
+    private boolean drop() {
+        this.dropped    += 1;
+        this.unreported += 1;
+        return false;
+    }
+
+    private boolean spill(@Nonnull LogEntry entry) {
+        try {
+            if (this.spill == null) {
+                this.spill = new Spill();
+            }
+            this.spill.write(entry);
+            this.spilled += 1;
+            return true;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to spill log entry to disk", e);
+            return drop();
+        }
+    }
+
+    /**
+     * @return The next entry or null if there is none. If entries have been dropped since the last call,
+     * a {@link LogSource#MANAGEMENT_EVENT} reporting their number is returned first.
+     */
+    @Nullable
+    public LogEntry poll() {
+        this.lock.lock();
+        try {
+            if (this.unreported > 0) {
+                var entry = new LogEntry(
+                        System.currentTimeMillis(),
+                        LogSource.MANAGEMENT_EVENT,
+                        true,
+                        Executor.PREFIX + "Dropped " + this.unreported + " log lines, because the log queue was full"
+                );
+                this.unreported = 0;
+                return entry;
+            }
+
+            if (this.size > 0) {
+                var entry = this.entries[this.head];
+                this.entries[this.head] = null;
+                this.head = (this.head + 1) % this.entries.length;
+                this.size -= 1;
+                this.notFull.signal();
+                return entry;
+            }
+
+            if (this.spill != null && this.spill.pending() > 0) {
+                try {
+                    var entry = this.spill.read();
+                    if (this.spill.pending() == 0) {
+                        this.spill.closeNoThrows();
+                        this.spill = null;
+                    }
+                    return entry;
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to read spilled log entries, dropping them", e);
+                    this.dropped += this.spill.pending();
+                    this.unreported += this.spill.pending();
+                    this.spill.closeNoThrows();
+                    this.spill = null;
+                }
+            }
+            return null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        this.lock.lock();
+        try {
+            return isEmptyLocked();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean isEmptyLocked() {
+        return depth() == 0 && this.unreported == 0;
+    }
+
+    private long depth() {
+        return this.size + (this.spill != null ? this.spill.pending() : 0);
+    }
+
+    public int getCapacity() {
+        return this.entries.length;
+    }
+
+    @Nonnull
+    public OverflowPolicy getPolicy() {
+        return this.policy;
+    }
+
+    @Nonnull
+    public Metrics getMetrics() {
+        this.lock.lock();
+        try {
+            return new Metrics(
+                    this.entries.length,
+                    depth(),
+                    this.peak,
+                    this.dropped,
+                    this.spilled
+            );
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Releases blocked producers and deletes spilled entries, further entries are dropped
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notFull.signalAll();
+            if (this.spill != null) {
+                this.spill.closeNoThrows();
+                this.spill = null;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param capacity    The number of entries kept in memory
+     * @param depth       The number of entries currently queued, including spilled ones
+     * @param peakDepth   The highest depth so far
+     * @param dropped     The number of entries dropped so far
+     * @param spilled     The number of entries spilled to disk so far
+     */
+    public record Metrics(int capacity, long depth, long peakDepth, long dropped, long spilled) {
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Blocks the producer until there is space again
+         */
+        BLOCK,
+        /**
+         * Drops further entries and reports how many were dropped
+         */
+        DROP,
+        /**
+         * Writes further entries to a temporary file, which is read once the queue has been drained
+         */
+        SPILL,
+    }
+
+    /**
+     * Temporary file of entries that did not fit into the queue, it is deleted once all entries have been read
+     */
+    private static class Spill {
+
+        private final @Nonnull Path             path;
+        private final @Nonnull DataOutputStream output;
+        private final @Nonnull DataInputStream  input;
+
+        private long    written   = 0;
+        private long    read      = 0;
+        private boolean unflushed = false;
+
+        private Spill() throws IOException {
+            this.path   = Files.createTempFile(LogQueue.class.getSimpleName(), ".spill");
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())));
+            this.input  = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())));
+        }
+
+        private long pending() {
+            return this.written - this.read;
+        }
+
+        private void write(@Nonnull LogEntry entry) throws IOException {
+            var message = entry.message().getBytes(StandardCharsets.UTF_8);
+            this.output.writeLong(entry.time());
+            this.output.writeByte(entry.source().ordinal());
+            this.output.writeBoolean(entry.error());
+            this.output.writeInt(message.length);
+            this.output.write(message);
+            this.written += 1;
+            this.unflushed = true;
+        }
+
+        @Nonnull
+        private LogEntry read() throws IOException {
+            if (this.unflushed) {
+                this.output.flush();
+                this.unflushed = false;
+            }
+            var time    = this.input.readLong();
+            var source  = LogSource.values()[this.input.readByte()];
+            var error   = this.input.readBoolean();
+            var message = new byte[this.input.readInt()];
+            this.input.readFully(message);
+            this.read += 1;
+            return new LogEntry(time, source, error, new String(message, StandardCharsets.UTF_8));
+        }
+
+        private void closeNoThrows() {
+            try (this.output; this.input) {
+                Files.deleteIfExists(this.path);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to delete spill file " + this.path, e);
+            }
+        }
+    }
+}
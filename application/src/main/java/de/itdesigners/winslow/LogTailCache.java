@@ -0,0 +1,181 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.pipeline.StageId;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the last lines of the logs of the stages executed on this node in memory, as published through the
+ * {@link StageEventHub}, so that subscribers of a running stage need not to read its log file. At most
+ * {@link #DEFAULT_MAX_STAGES} stages are kept, the least recently used ones and those that have neither been
+ * read nor written for {@link #DEFAULT_IDLE_TIMEOUT_MS} are evicted.
+ */
+public class LogTailCache implements StageEventHub.Listener {
+
+    public static final int  DEFAULT_TAIL_SIZE       = 1024;
+    public static final int  DEFAULT_MAX_STAGES      = 256;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final          int               tailSize;
+    private final          long              idleTimeoutMs;
+    private final @Nonnull LongSupplier      clock;
+    private final @Nonnull Map<String, Tail> tails;
+
+    private long hits      = 0;
+    private long misses    = 0;
+    private long evictions = 0;
+
+    public LogTailCache() {
+        this(DEFAULT_TAIL_SIZE, DEFAULT_MAX_STAGES, DEFAULT_IDLE_TIMEOUT_MS, System::currentTimeMillis);
+    }
+
+    LogTailCache(int tailSize, int maxStages, long idleTimeoutMs, @Nonnull LongSupplier clock) {
+        this.tailSize      = tailSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.clock         = clock;
+        this.tails         = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tail> eldest) {
+                if (size() > maxStages) {
+                    evictions += 1;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void onLogs(@Nonnull StageId stageId, long firstLine, @Nonnull List<LogEntry> entries) {
+        var now = this.clock.getAsLong();
+        evictIdle(now);
+        var tail = this.tails.computeIfAbsent(stageId.getFullyQualified(), id -> new Tail(this.tailSize));
+        tail.append(firstLine, entries);
+        tail.lastAccess = now;
+    }
+
+    /**
+     * @param stageId    The fully qualified id of the stage
+     * @param endLine    The line number to end before, lines after it are not returned
+     * @param maxEntries The maximum number of lines to return, all lines of the log if zero or less
+     * @return The last lines before the given end, if they are all cached
+     */
+    @Nonnull
+    public synchronized Optional<List<Line>> getLast(@Nonnull String stageId, long endLine, int maxEntries) {
+        var tail = get(stageId);
+        if (tail != null) {
+            var end   = Math.min(endLine, tail.next);
+            var start = maxEntries > 0 ? Math.max(0, end - maxEntries) : 0;
+            if (start >= tail.start) {
+                this.hits += 1;
+                return Optional.of(tail.lines(start, end));
+            }
+        }
+        this.misses += 1;
+        return Optional.empty();
+    }
+
+    /**
+     * @param stageId   The fully qualified id of the stage
+     * @param firstLine The line number of the first line to return
+     * @return All lines from the given line on, if they are all cached
+     */
+    @Nonnull
+    public synchronized Optional<List<Line>> getFrom(@Nonnull String stageId, long firstLine) {
+        var tail = get(stageId);
+        if (tail != null && firstLine >= tail.start) {
+            this.hits += 1;
+            return Optional.of(tail.lines(Math.min(firstLine, tail.next), tail.next));
+        }
+        this.misses += 1;
+        return Optional.empty();
+    }
+
+    private Tail get(@Nonnull String stageId) {
+        var now = this.clock.getAsLong();
+        evictIdle(now);
+        var tail = this.tails.get(stageId);
+        if (tail != null) {
+            tail.lastAccess = now;
+        }
+        return tail;
+    }
+
+    private void evictIdle(long now) {
+        // in access order, so the idle tails are the first ones
+        var iterator = this.tails.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().lastAccess > this.idleTimeoutMs) {
+            iterator.remove();
+            this.evictions += 1;
+        }
+    }
+
+    @Nonnull
+    public synchronized Metrics getMetrics() {
+        return new Metrics(
+                this.tails.size(),
+                this.tails.values().stream().mapToLong(tail -> tail.next - tail.start).sum(),
+                this.hits,
+                this.misses,
+                this.evictions
+        );
+    }
+
+    /**
+     * @param line  The number of the line within the log of the stage, starting at zero
+     * @param entry The entry of the line
+     */
+    public record Line(long line, @Nonnull LogEntry entry) {
+    }
+
+    /**
+     * @param stages    The number of stages currently cached
+     * @param lines     The number of lines currently cached
+     * @param hits      The number of requests served from the cache so far
+     * @param misses    The number of requests that had to read the log file so far
+     * @param evictions The number of stages evicted so far
+     */
+    public record Metrics(int stages, long lines, long hits, long misses, long evictions) {
+    }
+
+    private static class Tail {
+        private final @Nonnull LogEntry[] entries;
+
+        private long start      = 0;
+        private long next       = 0;
+        private long lastAccess = 0;
+
+        private Tail(int size) {
+            this.entries = new LogEntry[size];
+        }
+
+        private void append(long firstLine, @Nonnull List<LogEntry> lines) {
+            if (firstLine != this.next) {
+                // lines are missing in between, so only the new lines are known
+                this.start = firstLine;
+                this.next  = firstLine;
+            }
+            for (var entry : lines) {
+                this.entries[(int) (this.next % this.entries.length)] = entry;
+                this.next += 1;
+            }
+            this.start = Math.max(this.start, this.next - this.entries.length);
+        }
+
+        @Nonnull
+        private List<Line> lines(long from, long to) {
+            var lines = new ArrayList<Line>((int) Math.max(0, to - from));
+            for (long line = from; line < to; ++line) {
+                lines.add(new Line(line, this.entries[(int) (line % this.entries.length)]));
+            }
+            return lines;
+        }
+    }
+}
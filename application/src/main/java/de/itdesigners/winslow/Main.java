@@ -41,6 +41,8 @@ public class Main {
         final String workDirectory = Env.getWorkDirectory();
         final String storageType   = Env.getStorageType();
         final String nodeName      = Env.getNodeName();
+        final String lockBusType   = Env.getLockBusStorage();
+        final String logType       = Env.getLogStorage();
 
         System.out.println();
         System.out.println("           ____               ");
@@ -59,6 +61,8 @@ public class Main {
         System.out.println("             node name = " + nodeName);
         System.out.println("        work-directory = " + workDirectory);
         System.out.println("          storage-type = " + storageType);
+        System.out.println("      lock-bus-storage = " + lockBusType);
+        System.out.println("           log-storage = " + logType);
         System.out.println("             log-level = INFO");
         System.out.println("               version = " + Build.DATE + "@" + Build.COMMIT_HASH_SHORT);
         System.out.println();
@@ -71,10 +75,12 @@ public class Main {
             WorkDirectoryConfiguration config = getWorkDirectoryConfiguration(workDirectory, storageType);
 
             LOG.info("Preparing requiredEnvVariables");
-            var lockBus         = new LockBus(nodeName, config.getEventsDirectory());
+            checkLogQueueConfiguration();
+            checkWorkspaceCloneMode();
+            var lockBus         = new LockBus(nodeName, config.getEventsDirectory(), getLockBusStorageMode(lockBusType));
             var resourceManager = new ResourceManager(config.getPath(), new PathConfiguration());
             var environment     = new Environment(config, resourceManager);
-            var logs            = new LogRepository(lockBus, config);
+            var logs            = new LogRepository(lockBus, config, getLogStorageMode(logType));
             var projects        = new ProjectRepository(lockBus, config);
             var tokens          = new AuthTokenRepository(lockBus, config);
             var settings        = new SettingsRepository(lockBus, config);
@@ -193,6 +199,61 @@ public class Main {
         }
     }
 
+    @Nonnull
+    private static LockBus.StorageMode getLockBusStorageMode(@Nonnull String lockBusType) throws IOException {
+        switch (lockBusType.toLowerCase()) {
+            case "files":
+                return LockBus.StorageMode.EVENT_FILES;
+            case "segments":
+                return LockBus.StorageMode.SEGMENTS;
+            default:
+                System.err.println("Invalid lock bus storage: " + lockBusType.toLowerCase());
+                System.exit(1);
+                throw new IOException("Invalid lock bus storage: " + lockBusType.toLowerCase());
+        }
+    }
+
+    @Nonnull
+    private static LogRepository.StorageMode getLogStorageMode(@Nonnull String logType) throws IOException {
+        switch (logType.toLowerCase()) {
+            case "plain":
+                return LogRepository.StorageMode.PLAIN;
+            case "compressed":
+                return LogRepository.StorageMode.COMPRESSED;
+            default:
+                System.err.println("Invalid log storage: " + logType.toLowerCase());
+                System.exit(1);
+                throw new IOException("Invalid log storage: " + logType.toLowerCase());
+        }
+    }
+
+    private static void checkLogQueueConfiguration() throws IOException {
+        try {
+            Env.getLogQueueCapacity();
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid log queue capacity: " + System.getenv(Env.LOG_QUEUE_CAPACITY));
+            System.exit(1);
+            throw new IOException("Invalid log queue capacity: " + System.getenv(Env.LOG_QUEUE_CAPACITY));
+        }
+        try {
+            Env.getLogQueueOverflowPolicy();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid log queue overflow policy: " + System.getenv(Env.LOG_QUEUE_OVERFLOW));
+            System.exit(1);
+            throw new IOException("Invalid log queue overflow policy: " + System.getenv(Env.LOG_QUEUE_OVERFLOW));
+        }
+    }
+
+    private static void checkWorkspaceCloneMode() throws IOException {
+        try {
+            Env.getWorkspaceCloneMode();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid workspace clone mode: " + System.getenv(Env.WORKSPACE_CLONE_MODE));
+            System.exit(1);
+            throw new IOException("Invalid workspace clone mode: " + System.getenv(Env.WORKSPACE_CLONE_MODE));
+        }
+    }
+
     @Nonnull
     private static Node getNode(
             @Nonnull String nodeName,
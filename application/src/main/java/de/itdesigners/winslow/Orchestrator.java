@@ -10,6 +10,7 @@ import de.itdesigners.winslow.fs.Event;
 import de.itdesigners.winslow.fs.Lock;
 import de.itdesigners.winslow.fs.LockBus;
 import de.itdesigners.winslow.fs.LockException;
+import de.itdesigners.winslow.fs.SnapshotStore;
 import de.itdesigners.winslow.gateway.GatewayBackend;
 import de.itdesigners.winslow.node.NodeRepository;
 import de.itdesigners.winslow.node.NodeResourceLimitFinder;
@@ -19,10 +20,13 @@ import de.itdesigners.winslow.project.LogRepository;
 import de.itdesigners.winslow.project.Project;
 import de.itdesigners.winslow.project.ProjectRepository;
 import de.itdesigners.winslow.resource.ResourceManager;
+import de.itdesigners.winslow.scheduler.FairShareScheduler;
+import de.itdesigners.winslow.web.websocket.ChangeEvent;
 import org.javatuples.Pair;
 import org.javatuples.Triplet;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -38,6 +42,7 @@ import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -49,6 +54,9 @@ public class Orchestrator implements Closeable, AutoCloseable {
     public static final  Pattern PROGRESS_HINT_PATTERN = Pattern.compile("(([\\d]+[.])?[\\d]+)[ ]*%");
     public static final  Pattern RESULT_PATTERN        = Pattern.compile("WINSLOW_RESULT:[ ]+(.*)=(.*)");
 
+    public static final int  DEFAULT_STAGE_BATCH_SIZE = 16;
+    public static final long ACCOUNT_LIMIT_MAX_AGE_MS = 5_000;
+
     private final @Nonnull LockBus       lockBus;
     private final @Nonnull Environment   environment;
     private final @Nonnull List<Backend> backends;
@@ -64,12 +72,18 @@ public class Orchestrator implements Closeable, AutoCloseable {
     private final @Nonnull String                       nodeName;
 
     private final @Nonnull Map<String, Executor>     executors         = new ConcurrentHashMap<>();
-    private final @Nonnull Set<String>               missingResources  = new ConcurrentSkipListSet<>();
-    private final @Nonnull DelayedExecutor           delayedExecutions = new DelayedExecutor();
+    private final @Nonnull StageEventHub             stageEvents       = new StageEventHub();
+    private final @Nonnull LogTailCache              logTails          = new LogTailCache();
+    private final @Nonnull FairShareScheduler        scheduler         = new FairShareScheduler();
+    private final @Nonnull DelayedExecutor           delayedExecutions = new DelayedExecutor(Env.getDelayedExecutorWorkerCount());
     private final @Nonnull ResourceAllocationMonitor monitor;
     private final @Nonnull ElectionManager           electionManager;
+    private final @Nonnull AllocationLedger          allocations;
+
+    private final @Nonnull Map<String, Pair<Long, Optional<ResourceLimitation>>> accountLimits = new ConcurrentHashMap<>();
 
     private final          boolean       executeStages;
+    private final          int           stageBatchSize;
     private final @Nonnull AtomicBoolean started = new AtomicBoolean(false);
 
     private final @Nonnull Map<String, Queue<Consumer<Pipeline>>> deferredPipelineUpdates = new ConcurrentHashMap<>();
@@ -103,10 +117,19 @@ public class Orchestrator implements Closeable, AutoCloseable {
         this.nodeName            = nodeName;
         this.monitor             = monitor;
         this.executeStages       = executeStages;
+        this.stageBatchSize      = Env.getStageBatchSize();
 
         this.electionManager = new ElectionManager(lockBus);
+        this.allocations     = new AllocationLedger(id -> getProjectUnsafe(id).map(Project::getAccountingGroup));
         this.backends        = List.of(backend, new GatewayBackend(pipelineDefinitions, pipelines, projects));
 
+        this.nodes.addChangeListener(this::updateNodeAllocations);
+        this.nodes.listActiveNodes().forEach(name -> updateNodeAllocations(ChangeEvent.ChangeType.UPDATE, name));
+        this.monitor.addChangeListener(() -> this.allocations.update(this.nodeName, this.monitor.getAllocInfo()));
+        this.allocations.update(this.nodeName, this.monitor.getAllocInfo());
+
+        this.stageEvents.subscribeAll(this.logTails);
+
         this.stageExecutionTags.add("winslow:node:" + this.nodeName);
         this.stageExecutionTags.add("winslow:server:" + this.nodeName);
 
@@ -136,7 +159,11 @@ public class Orchestrator implements Closeable, AutoCloseable {
                 this.lockBus.registerEventListener(Event.Command.RELEASE, this::handleReleaseEvent);
 
                 LockBusElectionManagerAdapter.setupAdapters(nodeName, electionManager, this, lockBus);
-                this.checkPipelinesForUpdate(this.pipelines.getAllPipelines());
+                this.pipelines
+                        .getAllPipelines()
+                        .flatMap(h -> h.unsafe().stream())
+                        .map(Pipeline::getProjectId)
+                        .forEach(this::schedulePipelineCheck);
 
             }
         }
@@ -147,6 +174,16 @@ public class Orchestrator implements Closeable, AutoCloseable {
         return backends.stream();
     }
 
+    @Nonnull
+    public FairShareScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Nonnull
+    public AllocationLedger getAllocationLedger() {
+        return allocations;
+    }
+
     @Nonnull
     public ElectionManager getElectionManager() {
         return electionManager;
@@ -182,6 +219,24 @@ public class Orchestrator implements Closeable, AutoCloseable {
         return logs;
     }
 
+    @Nonnull
+    public StageEventHub getStageEventHub() {
+        return stageEvents;
+    }
+
+    @Nonnull
+    public LogTailCache getLogTailCache() {
+        return logTails;
+    }
+
+    /**
+     * @return Whether the stage is executed on this node, its logs and stats are then published through the
+     * {@link #getStageEventHub()}
+     */
+    public boolean isExecutingLocally(@Nonnull String stageId) {
+        return this.executors.containsKey(stageId);
+    }
+
     @Nonnull
     public ResourceManager getResourceManager() {
         return environment.getResourceManager();
@@ -254,13 +309,88 @@ public class Orchestrator implements Closeable, AutoCloseable {
                 .or(() -> this.logs.getProjectIdForLogPath(Path.of(event.getSubject())));
         if (project.isPresent()) {
             LOG.info("Going to check project for changes: " + project.get());
-            this.missingResources.remove(project.get());
-            this.delayedExecutions.executeRandomlyDelayed(project.get(), 10, 100, () -> {
-                this.pollPipelineForUpdate(project.get());
-            });
+            this.scheduler.enqueue(
+                    project.get(),
+                    getAccountingGroup(project.get()),
+                    FairShareScheduler.PRIORITY_NORMAL
+            );
+            this.scheduleDispatchOfReadyProjects();
+        }
+    }
+
+    private void scheduleDispatchOfReadyProjects() {
+        // coalesces the release events of a burst into a single dispatch
+        this.delayedExecutions.executeDelayed(
+                FairShareScheduler.class.getSimpleName(),
+                10,
+                this::dispatchReadyProjects
+        );
+    }
+
+    /**
+     * Hands the ready projects in fair-share order to the {@link DelayedExecutor}, each as a plan of its own, so that
+     * a slow project does not hold back the others. Plans of the same project never run at the same time.
+     */
+    private void dispatchReadyProjects() {
+        while (true) {
+            var next = this.scheduler.poll(loadAccountShares());
+            if (next.isEmpty()) {
+                break;
+            }
+            var projectId = next.get().projectId();
+            var planned   = this.schedulePipelineCheck(projectId, () -> this.scheduler.done(projectId));
+            if (!planned) {
+                // the pending plan checks the project anyway
+                this.scheduler.done(projectId);
+            }
+        }
+    }
+
+    /**
+     * @return The dominant share of the resources the accounting groups are using, relative to their limitation or,
+     * for resources without limitation, relative to the allocation of all accounting groups
+     */
+    @Nonnull
+    private ToDoubleFunction<String> loadAccountShares() {
+        var all = this.allocations.getTotalAccountAllocation();
+        return account -> {
+            var used  = this.allocations.getAccountAllocation(account);
+            var limit = getAccountLimit(account).orElse(null);
+            return Math.max(
+                    getShare(used.cpu(), limit != null ? limit.cpu() : null, all.cpu()),
+                    Math.max(
+                            getShare(used.memory(), limit != null ? limit.mem() : null, all.memory()),
+                            getShare(used.gpu(), limit != null ? limit.gpu() : null, all.gpu())
+                    )
+            );
+        };
+    }
+
+    private void updateNodeAllocations(@Nonnull ChangeEvent.ChangeType type, @Nonnull String name) {
+        if (this.nodeName.equals(name)) {
+            // the heartbeat of this node is older than what the monitor reports
+            return;
+        }
+        if (type == ChangeEvent.ChangeType.DELETE) {
+            this.allocations.remove(name);
+        } else {
+            this.nodes.getNodeInfo(name).ifPresentOrElse(
+                    info -> this.allocations.update(name, info.allocInfo()),
+                    () -> this.allocations.remove(name)
+            );
         }
     }
 
+    private static double getShare(long used, @Nullable Long limit, long total) {
+        var capacity = limit != null ? limit : total;
+        return capacity > 0 ? (double) used / capacity : 0.0;
+    }
+
+    @Nonnull
+    private String getAccountingGroup(@Nonnull String projectId) {
+        return getProjectUnsafe(projectId).map(Project::getAccountingGroup).orElse(projectId);
+    }
+
     private void tryTriggerDeferredPipelineUpdates(@Nonnull String projectId) {
         Optional.ofNullable(deferredPipelineUpdates.get(projectId))
                 .ifPresent(queue -> pipelines
@@ -350,13 +480,35 @@ public class Orchestrator implements Closeable, AutoCloseable {
         this.lockBus.publishCommand(Event.Command.KILL, fullyQualifiedStageId);
     }
 
-    private void pollPipelineForUpdate(@Nonnull String id) {
-        this.checkPipelinesForUpdate(Stream.of(this.pipelines.getPipeline(id)));
+    private void schedulePipelineCheck(@Nonnull String projectId) {
+        this.schedulePipelineCheck(projectId, () -> {});
+    }
+
+    /**
+     * All checks of a project are planned under the id of the project, so that the {@link DelayedExecutor} never runs
+     * two checks of the same project at the same time, while different projects are checked concurrently.
+     *
+     * @param afterwards Runs once the check has finished, even if it failed
+     * @return Whether the check has been planned, false if there is already a pending check for the project
+     */
+    private boolean schedulePipelineCheck(@Nonnull String projectId, @Nonnull Runnable afterwards) {
+        return this.delayedExecutions.executeDelayed(projectId, 0, () -> {
+            try {
+                this.checkPipelineForUpdate(this.pipelines.getPipeline(projectId));
+            } catch (Throwable t) {
+                LOG.log(Level.SEVERE, "Failed to check project for changes: " + projectId, t);
+            } finally {
+                afterwards.run();
+            }
+        });
     }
 
-    private synchronized void checkPipelinesForUpdate(@Nonnull Stream<BaseRepository.Handle<Pipeline>> pipelines) {
+    /**
+     * Must only be called through {@link #schedulePipelineCheck(String, Runnable)}
+     */
+    private void checkPipelineForUpdate(@Nonnull BaseRepository.Handle<Pipeline> pipeline) {
         if (this.executeStages) {
-            pipelines
+            Stream.of(pipeline)
                     .filter(h -> !h.isLocked())
                     .flatMap(h -> h.unsafe().map(p -> new PipelineUpdater(this, p, h)).stream())
                     .filter(u -> {
@@ -379,7 +531,7 @@ public class Orchestrator implements Closeable, AutoCloseable {
     }
 
     public void addProjectThatNeedsToBeReEvaluatedOnceMoreResourcesAreAvailable(@Nonnull String projectId) {
-        this.missingResources.add(projectId);
+        this.scheduler.park(projectId, getAccountingGroup(projectId));
     }
 
     @Nonnull
@@ -395,33 +547,9 @@ public class Orchestrator implements Closeable, AutoCloseable {
 
 
                         var resources = getRequiredResources(stageWorkerDefinition);
-                        var wouldExceedLimit = getProjectUnsafe(pipeline.getProjectId()).map(project -> {
-                            var allocView = new DistributedAllocationView(
-                                    project.getAccountingGroup(),
-                                    pipeline.getProjectId()
-                            );
-
-                            Stream.of(
-                                          settings.getUserResourceLimitations().unsafe(),
-                                          nodes.getNodeResourceLimitConfiguration(nodeName).flatMap(conf -> {
-                                              var finder = new NodeResourceLimitFinder(conf);
-                                              return groups
-                                                      .getGroup(project.getAccountingGroup())
-                                                      .flatMap(finder::getAppliedLimit)
-                                                      .or(finder::getFallback);
-                                          })
-                                  )
-                                  .flatMap(Optional::stream)
-                                  .reduce(ResourceLimitation::min)
-                                  .ifPresent(allocView::setAccountLimit);
-
-
-                            allocView.loadAllocInfo(
-                                    nodes.loadActiveNodes().flatMap(info -> info.allocInfo().stream()),
-                                    new CachedFunction<>(this::getProjectUnsafe)
-                            );
-                            return allocView.wouldResourcesExceedLimit(resources);
-                        }).orElse(Boolean.FALSE);
+                        var wouldExceedLimit = loadAllocationView(pipeline.getProjectId())
+                                .map(allocView -> allocView.wouldResourcesExceedLimit(resources))
+                                .orElse(Boolean.FALSE);
 
                         boolean couldReserve = this.monitor.couldReserveConsideringReservations(resources);
                         boolean result       = !wouldExceedLimit && couldReserve;
@@ -442,6 +570,83 @@ public class Orchestrator implements Closeable, AutoCloseable {
                 });
     }
 
+    @Nonnull
+    private Optional<DistributedAllocationView> loadAllocationView(@Nonnull String projectId) {
+        return getProjectUnsafe(projectId).map(project -> {
+            var allocView = new DistributedAllocationView(
+                    project.getAccountingGroup(),
+                    projectId
+            );
+
+            getAccountLimit(project.getAccountingGroup()).ifPresent(allocView::setAccountLimit);
+
+            allocView.loadAllocInfo(this.allocations, project.getResourceLimitation().orElse(null));
+            return allocView;
+        });
+    }
+
+    /**
+     * The limit of an account is loaded at most once per {@link #ACCOUNT_LIMIT_MAX_AGE_MS}, so that changes to the
+     * settings, the node configuration or the groups apply after that time at the latest.
+     */
+    @Nonnull
+    private Optional<ResourceLimitation> getAccountLimit(@Nonnull String accountingGroup) {
+        var now    = System.currentTimeMillis();
+        var cached = this.accountLimits.get(accountingGroup);
+        if (cached == null || now - cached.getValue0() > ACCOUNT_LIMIT_MAX_AGE_MS) {
+            cached = new Pair<>(now, loadAccountLimit(accountingGroup));
+            this.accountLimits.put(accountingGroup, cached);
+        }
+        return cached.getValue1();
+    }
+
+    @Nonnull
+    private Optional<ResourceLimitation> loadAccountLimit(@Nonnull String accountingGroup) {
+        return Stream
+                .of(
+                        settings.getUserResourceLimitations().unsafe(),
+                        nodes.getNodeResourceLimitConfiguration(nodeName).flatMap(conf -> {
+                            var finder = new NodeResourceLimitFinder(conf);
+                            return groups
+                                    .getGroup(accountingGroup)
+                                    .flatMap(finder::getAppliedLimit)
+                                    .or(finder::getFallback);
+                        })
+                )
+                .flatMap(Optional::stream)
+                .reduce(ResourceLimitation::min);
+    }
+
+    /**
+     * Determines how many stages of the given {@link ExecutionGroup} this node could start at once. Only execution
+     * groups with ranged values are placed in batches, which are capped by the remaining executions of the group,
+     * the configured {@link Env#getStageBatchSize()}, the resources of this node that are not yet reserved and the
+     * resource limitations of the project and its account.
+     *
+     * @param pipeline          The {@link Pipeline} the {@link ExecutionGroup} belongs to
+     * @param group             The {@link ExecutionGroup} to spawn the next stages of
+     * @param requiredResources The resources required by a single stage of the group
+     * @return The number of stages to start at once, at least one
+     */
+    int getStageBatchSize(
+            @Nonnull Pipeline pipeline,
+            @Nonnull ExecutionGroup group,
+            @Nonnull ResourceAllocationMonitor.ResourceSet<Long> requiredResources) {
+        if (this.stageBatchSize <= 1 || !group.hasRangedValues() || group.isConfigureOnly() || group.isGateway()) {
+            return 1;
+        }
+
+        var size = Math.min((long) this.stageBatchSize, group.getRemainingExecutions());
+        size = Math.min(size, this.monitor.getReservableCount(requiredResources));
+        if (size > 1) {
+            var withinLimit = loadAllocationView(pipeline.getProjectId())
+                    .map(allocView -> allocView.getAllocatableCountWithinLimit(requiredResources))
+                    .orElse(Long.MAX_VALUE);
+            size = Math.min(size, withinLimit);
+        }
+        return (int) Math.max(1, size);
+    }
+
     @Nonnull
     public Optional<Boolean> isCapableOfExecutingNextStage(@Nonnull Pipeline pipeline) {
         return pipeline
@@ -478,15 +683,62 @@ public class Orchestrator implements Closeable, AutoCloseable {
             @Nonnull Project project,
             @Nonnull PipelineDefinition definition,
             @Nonnull Pipeline pipeline) {
-        return startNextPipelineStage(lock, definition, pipeline, project).map(result -> {
+        return startPipeline(lock, project, definition, pipeline, 1) > 0;
+    }
+
+    /**
+     * Starts up to the given number of stages of the next {@link ExecutionGroup}. Further stages are only started as
+     * long as they belong to the same {@link ExecutionGroup} as the first one, which has remaining executions. All
+     * stages are added to the given {@link Pipeline}, so that they are persisted in a single update.
+     *
+     * @param maxStages The maximum number of stages to start, see {@link #getStageBatchSize}
+     * @return The number of stages that have been started
+     */
+    protected int startPipeline(
+            @Nonnull Lock lock,
+            @Nonnull Project project,
+            @Nonnull PipelineDefinition definition,
+            @Nonnull Pipeline pipeline,
+            int maxStages) {
+        ExecutionGroup group   = null;
+        var            started = 0;
+
+        while (started < maxStages) {
+            if (group != null && !isNextExecutionGroupToStart(pipeline, group)) {
+                break;
+            }
+
+            var result = startNextPipelineStage(lock, definition, pipeline, project);
+            if (result.isEmpty()) {
+                break;
+            }
+
             hookUpResourceReservationAndFreeingHandler(
                     project.getId(),
-                    result.getValue0().getStageDefinition(),
-                    result.getValue2()
+                    result.get().getValue0().getStageDefinition(),
+                    result.get().getValue2()
             );
+            group = result.get().getValue0();
+            started += 1;
+        }
+
+        if (started > 0) {
             pipeline.clearPauseReason();
-            return Boolean.TRUE;
-        }).orElse(Boolean.FALSE);
+            scheduler.onPlaced(project.getAccountingGroup(), started);
+        }
+        if (started > 1) {
+            LOG.info("Started " + started + " stages of " + group.getFullyQualifiedId() + " at once");
+        }
+        return started;
+    }
+
+    private static boolean isNextExecutionGroupToStart(@Nonnull Pipeline pipeline, @Nonnull ExecutionGroup group) {
+        return group.hasRemainingExecutions() && pipeline
+                .getActiveExecutionGroups()
+                .filter(g -> g.getNextStageDefinition().isPresent())
+                .findFirst()
+                .filter(g -> g == group)
+                .isPresent();
     }
 
     private void hookUpResourceReservationAndFreeingHandler(
@@ -497,17 +749,12 @@ public class Orchestrator implements Closeable, AutoCloseable {
         this.monitor.reserve(projectId, requiredResources);
         executor.addShutdownCompletedListener(() -> {
             this.monitor.free(projectId, requiredResources);
-            takeAllPipelinesThatWereRecordedForMissingResources().forEach(this::pollPipelineForUpdate);
+            if (this.scheduler.requeueParked()) {
+                this.scheduleDispatchOfReadyProjects();
+            }
         });
     }
 
-    @Nonnull
-    private Set<String> takeAllPipelinesThatWereRecordedForMissingResources() {
-        var copy = new HashSet<>(this.missingResources);
-        this.missingResources.removeAll(copy);
-        return copy;
-    }
-
     @Nonnull
     private Optional<Triplet<ExecutionGroup, Stage, Executor>> startNextPipelineStage(
             @Nonnull Lock lock,
@@ -726,7 +973,10 @@ public class Orchestrator implements Closeable, AutoCloseable {
             }
 
             var workspace = environment.getResourceManager().getWorkspace(getWorkspacePathForPipeline(pipeline));
-            workspace.ifPresent(w -> forcePurgeWorkspaceNoThrows(project.getId(), w));
+            workspace.ifPresent(w -> {
+                forcePurgeWorkspaceNoThrows(project.getId(), w);
+                collectSnapshotGarbageNoThrows();
+            });
             return workspace.isPresent() && container.deleteOmitExceptions();
 
         } catch (LockException e) {
@@ -734,6 +984,17 @@ public class Orchestrator implements Closeable, AutoCloseable {
         }
     }
 
+    private void collectSnapshotGarbageNoThrows() {
+        try {
+            var store = this.environment.getResourceManager().getSnapshotsDirectory().map(SnapshotStore::new);
+            if (store.isPresent()) {
+                LOG.info("Released " + store.get().collectGarbage() + " stored files");
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to release stored files", e);
+        }
+    }
+
     public void forcePurgeWorkspaceNoThrows(@Nonnull String projectId, @Nonnull Path workspace) {
         try {
             forcePurgeWorkspace(projectId, workspace);
@@ -747,17 +1008,39 @@ public class Orchestrator implements Closeable, AutoCloseable {
                 .getResourceManager()
                 .getWorkspace(getWorkspacePathForPipeline(projectId))
                 .orElseThrow(() -> new IOException("Failed to determine scope for ProjectId " + projectId));
-        Orchestrator.forcePurge(
-                environment.getWorkDirectoryConfiguration().getPath(),
-                scope,
-                workspace.isAbsolute()
-                ? workspace
-                : this.environment
-                        .getResourceManager()
-                        .getWorkspace(workspace)
-                        .orElseThrow(() -> new IOException("Failed to resolve workspace-path=" + workspace)),
-                1
-        );
+        var path = workspace.isAbsolute()
+                   ? workspace
+                   : this.environment
+                           .getResourceManager()
+                           .getWorkspace(workspace)
+                           .orElseThrow(() -> new IOException("Failed to resolve workspace-path=" + workspace));
+        var snapshot = readSnapshotManifestNoThrows(path);
+
+        Orchestrator.forcePurge(environment.getWorkDirectoryConfiguration().getPath(), scope, path, 1);
+        this.environment.getResourceManager().invalidateDirectoryIndex(path);
+
+        // the stored files that were only part of this workspace are no longer needed
+        if (snapshot.isPresent()) {
+            this.environment
+                    .getResourceManager()
+                    .getSnapshotsDirectory()
+                    .map(SnapshotStore::new)
+                    .ifPresent(store -> store.release(snapshot.get()));
+        }
+    }
+
+    /**
+     * A corrupt or foreign manifest must not prevent the workspace from being purged, only the stored files that are
+     * no longer needed are not released then, until the next garbage collection.
+     */
+    @Nonnull
+    private static Optional<SnapshotStore.Manifest> readSnapshotManifestNoThrows(@Nonnull Path workspace) {
+        try {
+            return Files.exists(workspace) ? SnapshotStore.readManifest(workspace) : Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to read the snapshot manifest of workspace=" + workspace, e);
+            return Optional.empty();
+        }
     }
 
     public void forcePurgeNoThrows(
@@ -1034,6 +1317,18 @@ public class Orchestrator implements Closeable, AutoCloseable {
         }
     }
 
+    /**
+     * @param skipLines The number of lines to skip, without parsing them
+     */
+    @Nonnull
+    public Stream<LogEntry> getLogsSkipLines(@Nonnull Project project, @Nonnull String stageId, long skipLines) {
+        try {
+            return LogReader.stream(logs.getRawInputStreamNonExclusiveAtLine(project.getId(), stageId, skipLines));
+        } catch (IOException e) {
+            return Stream.empty();
+        }
+    }
+
     public long getLogSize(@Nonnull Project project, @Nonnull StageId id) {
         return getLogSize(project, id.getFullyQualified());
     }
@@ -1056,7 +1351,7 @@ public class Orchestrator implements Closeable, AutoCloseable {
                 LOG.log(Level.SEVERE, "Failed to close executor", e);
             }
         });
-        executor.addShutdownCompletedListener(() -> this.pollPipelineForUpdate(stageId.getProjectId()));
+        executor.addShutdownCompletedListener(() -> this.schedulePipelineCheck(stageId.getProjectId()));
         executor.addLogEntryConsumer(getProgressHintMatcher(stageId.getFullyQualified()));
         executor.addLogEntryConsumer(getResultMatcher(stageId.getFullyQualified()));
         executor.start();
@@ -1117,6 +1412,7 @@ public class Orchestrator implements Closeable, AutoCloseable {
 
     @Override
     public void close() throws IOException {
+        this.delayedExecutions.close();
         for (var backend : this.backends) {
             backend.close();
         }
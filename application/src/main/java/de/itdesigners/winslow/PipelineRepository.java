@@ -5,11 +5,13 @@ import de.itdesigners.winslow.config.ExecutionGroup;
 import de.itdesigners.winslow.fs.Event;
 import de.itdesigners.winslow.fs.LockBus;
 import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
+import de.itdesigners.winslow.pipeline.ExecutionHistory;
 import de.itdesigners.winslow.pipeline.Pipeline;
 import org.javatuples.Pair;
 
 import javax.annotation.Nonnull;
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
@@ -23,6 +25,9 @@ public class PipelineRepository extends BaseRepository {
     public static final String SIBLING_EG_ENQUEUED = ".enqueued" + FILE_EXTENSION;
     public static final String SIBLING_EG_ACTIVE   = ".active" + FILE_EXTENSION;
 
+    public static final String SIBLING_EG_HISTORY_LOG   = ".history.log";
+    public static final String SIBLING_EG_HISTORY_INDEX = ".history.idx";
+
     private final @Nonnull List<Consumer<Pair<String, Handle<Pipeline>>>> changeListeners
             = Collections.synchronizedList(new ArrayList<>());
 
@@ -80,10 +85,7 @@ public class PipelineRepository extends BaseRepository {
             var pipelineWithoutExecutionGroups = defaultReader(Pipeline.class).load(inputStream);
             return new Pipeline(
                     pipelineWithoutExecutionGroups.getProjectId(),
-                    Stream.concat(
-                            pipelineWithoutExecutionGroups.getExecutionHistory(),
-                            Arrays.stream(loadExecutionGroups(getPipelineSiblingFile(path, SIBLING_EG_HISTORY)))
-                    ).collect(Collectors.toList()),
+                    loadExecutionHistory(path, pipelineWithoutExecutionGroups),
                     Stream.concat(
                             pipelineWithoutExecutionGroups.getEnqueuedExecutions(),
                             Arrays.stream(loadExecutionGroups(getPipelineSiblingFile(path, SIBLING_EG_ENQUEUED)))
@@ -100,10 +102,7 @@ public class PipelineRepository extends BaseRepository {
                     pipelineWithoutExecutionGroups.getExecutionCounter()
             );
         }, (outputStream, pipelineWithExecutionGroups) -> {
-            storeExecutionGroups(
-                    getPipelineSiblingFile(path, SIBLING_EG_HISTORY),
-                    pipelineWithExecutionGroups.getExecutionHistory()
-            );
+            storeExecutionHistory(path, pipelineWithExecutionGroups.getHistory());
             storeExecutionGroups(
                     getPipelineSiblingFile(path, SIBLING_EG_ENQUEUED),
                     pipelineWithExecutionGroups.getEnqueuedExecutions()
@@ -127,6 +126,50 @@ public class PipelineRepository extends BaseRepository {
         });
     }
 
+    /**
+     * The history is loaded lazily from its {@link ExecutionHistoryLog}, unless it is still stored
+     * in the YAML sibling file (or the pipeline file itself), which is then migrated on the next store.
+     */
+    @Nonnull
+    private ExecutionHistory loadExecutionHistory(
+            @Nonnull Path path,
+            @Nonnull Pipeline pipelineWithoutExecutionGroups) throws IOException {
+        var legacyFile = getPipelineSiblingFile(path, SIBLING_EG_HISTORY);
+        var inline     = pipelineWithoutExecutionGroups.getExecutionHistory().collect(Collectors.toList());
+
+        if (inline.isEmpty() && !Files.exists(legacyFile)) {
+            return new ExecutionHistory(getExecutionHistoryLog(path).snapshot());
+        } else {
+            return new ExecutionHistory(Stream.concat(
+                    inline.stream(),
+                    Arrays.stream(loadExecutionGroups(legacyFile))
+            ).collect(Collectors.toList()));
+        }
+    }
+
+    private void storeExecutionHistory(@Nonnull Path path, @Nonnull ExecutionHistory history) throws IOException {
+        var log     = getExecutionHistoryLog(path);
+        var storage = history.getStorage().orElse(null);
+
+        if (storage instanceof ExecutionHistoryLog.Snapshot snapshot && snapshot.isOf(log)) {
+            log.append(history, snapshot);
+        } else {
+            log.rewrite(history);
+            var legacyFile = getPipelineSiblingFile(path, SIBLING_EG_HISTORY);
+            if (Files.deleteIfExists(legacyFile)) {
+                LOG.info("Migrated the execution history of " + path.getFileName() + " to " + SIBLING_EG_HISTORY_LOG);
+            }
+        }
+    }
+
+    @Nonnull
+    private static ExecutionHistoryLog getExecutionHistoryLog(@Nonnull Path path) {
+        return new ExecutionHistoryLog(
+                getPipelineSiblingFile(path, SIBLING_EG_HISTORY_LOG),
+                getPipelineSiblingFile(path, SIBLING_EG_HISTORY_INDEX)
+        );
+    }
+
     @Nonnull
     private ExecutionGroup[] loadExecutionGroups(@Nonnull Path path) throws IOException {
         try (var fis = new FileInputStream(path.toFile())) {
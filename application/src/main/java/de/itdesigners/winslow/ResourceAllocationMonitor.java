@@ -1,5 +1,7 @@
 package de.itdesigners.winslow;
 
+import de.itdesigners.winslow.api.node.AllocInfo;
+
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -59,6 +61,24 @@ public class ResourceAllocationMonitor {
         this.notifyChangeListeners();
     }
 
+    /**
+     * Reserves the given resources only if they are available, considering all other reservations. The check and the
+     * reservation are atomic, so that concurrent reservations, for example for several elections at once, cannot
+     * exceed the available resources.
+     *
+     * @param token The token to reserve the resources for, they are freed through {@link #free(String, ResourceSet)}
+     * @param set   The resources to reserve
+     * @return Whether the resources have been reserved
+     */
+    public synchronized boolean tryReserve(@Nonnull String token, @Nonnull ResourceSet<Long> set) {
+        if (couldReserveConsideringReservations(set)) {
+            reserve(token, set);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     public synchronized void free(@Nonnull String token, @Nonnull ResourceSet<Long> set) {
         var reserved = this.reserved.computeIfAbsent(token, p -> new ResourceSet<>());
         for (Map.Entry<String, Long> entry : set.entries.entrySet()) {
@@ -67,7 +87,7 @@ public class ResourceAllocationMonitor {
                     Math.max(0, reserved.getOrDefault(entry.getKey(), entry.getValue()) - entry.getValue())
             );
         }
-        if (set.entries.values().stream().allMatch(v -> v == 0)) {
+        if (reserved.entries.values().stream().allMatch(v -> v == 0)) {
             this.reserved.remove(token);
         }
         this.notifyChangeListeners();
@@ -82,6 +102,33 @@ public class ResourceAllocationMonitor {
         return true;
     }
 
+    /**
+     * @param set The resources of a single stage
+     * @return How many times the given resources could be reserved at once, considering all other reservations, or
+     * {@link Long#MAX_VALUE} if none of them is required
+     */
+    public synchronized long getReservableCount(@Nonnull ResourceSet<Long> set) {
+        var count = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : set.entries.entrySet()) {
+            if (entry.getValue() > 0) {
+                count = Math.min(count, Math.max(0, getAvailable(entry.getKey())) / entry.getValue());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return A new {@link ResourceSet} with each resource of the given one multiplied by the given factor
+     */
+    @Nonnull
+    public static ResourceSet<Long> multiply(@Nonnull ResourceSet<Long> set, long factor) {
+        var result = new ResourceSet<Long>();
+        for (Map.Entry<String, Long> entry : set.entries.entrySet()) {
+            result.entries.put(entry.getKey(), entry.getValue() * factor);
+        }
+        return result;
+    }
+
     public synchronized boolean couldReserveNotConsideringReservations(@Nonnull ResourceSet<Long> set) {
         for (Map.Entry<String, Long> entry : set.entries.entrySet()) {
             if (entry.getValue() > resources.getOrDefault(entry.getKey(), 0L)) {
@@ -101,6 +148,23 @@ public class ResourceAllocationMonitor {
         return map;
     }
 
+    /**
+     * @return The {@link #getAllocationReport()} as {@link AllocInfo}s titled by the token
+     */
+    @Nonnull
+    public synchronized List<AllocInfo> getAllocInfo() {
+        var result = new ArrayList<AllocInfo>(this.reserved.size());
+        for (var entry : getAllocationReport().entrySet()) {
+            result.add(new AllocInfo(
+                    entry.getKey(),
+                    entry.getValue().getOrDefault(StandardResources.CPU, 0L),
+                    entry.getValue().getOrDefault(StandardResources.RAM, 0L),
+                    entry.getValue().getOrDefault(StandardResources.GPU, 0L)
+            ));
+        }
+        return result;
+    }
+
     @Nonnull
     private Long getAvailable(@Nonnull String resource) {
         return this.resources.getOrDefault(resource, 0L)
@@ -25,6 +25,7 @@ public class RunInfoRepository extends BaseRepository {
     private static final String PROPERTY_FILE_LOG_COMPLETED_SUCCESSFULLY = "log-completed-successfully";
     private static final String PROPERTY_FILE_STATS                      = "stats";
     private static final String PROPERTY_FILE_RESULT                     = "result";
+    private static final String PROPERTY_FILE_LOG_QUEUE                  = "log-queue";
 
     public RunInfoRepository(
             @Nonnull LockBus lockBus,
@@ -202,6 +203,28 @@ public class RunInfoRepository extends BaseRepository {
         }
     }
 
+    @Nonnull
+    public Optional<LogQueue.Metrics> getLogQueueMetrics(@Nonnull String stageId) {
+        var path = getPropertyPathIfStageExists(stageId, PROPERTY_FILE_LOG_QUEUE);
+        if (path.isPresent() && Files.exists(path.get())) {
+            try (var fis = new FileInputStream(path.get().toFile())) {
+                return Optional.ofNullable(defaultReader(LogQueue.Metrics.class).load(fis));
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to deserialize log queue metrics for " + stageId, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void setLogQueueMetrics(@Nonnull String stageId, @Nonnull LogQueue.Metrics metrics) {
+        try {
+            var path = getPropertyPath(stageId, PROPERTY_FILE_LOG_QUEUE);
+            AtomicWriteByUsingTempFile.write(path, os -> defaultWriter().store(os, metrics));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write log queue metrics for " + stageId, e);
+        }
+    }
+
     void setLogRedirectionCompletedSuccessfullyHint(@Nonnull String stageId) {
         try {
             Files.write(getPropertyPath(stageId, PROPERTY_FILE_LOG_COMPLETED_SUCCESSFULLY), Collections.emptyList());
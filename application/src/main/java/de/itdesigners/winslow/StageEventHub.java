@@ -0,0 +1,96 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.pipeline.StatsInfo;
+import de.itdesigners.winslow.pipeline.StageId;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fans the log lines and stats of the stages executed on this node out to the listeners of their project,
+ * as they are produced by the {@link Executor}. Stages executed on other nodes are not published.
+ */
+public class StageEventHub {
+
+    private static final Logger LOG = Logger.getLogger(StageEventHub.class.getSimpleName());
+
+    private final @Nonnull List<Listener>              global    = new CopyOnWriteArrayList<>();
+    private final @Nonnull Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * @param projectId The id of the project to receive the events of
+     * @param listener  Invoked on the thread of the publishing {@link Executor}, so it should not block
+     * @return Unsubscribes the listener when run
+     */
+    @Nonnull
+    public Runnable subscribe(@Nonnull String projectId, @Nonnull Listener listener) {
+        this.listeners.compute(projectId, (id, list) -> {
+            var result = list != null ? list : new CopyOnWriteArrayList<Listener>();
+            result.add(listener);
+            return result;
+        });
+        return () -> this.listeners.computeIfPresent(projectId, (id, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * @param listener Invoked for the events of all projects, before the listeners of the project
+     */
+    public void subscribeAll(@Nonnull Listener listener) {
+        this.global.add(listener);
+    }
+
+    public boolean hasListeners(@Nonnull String projectId) {
+        return this.listeners.containsKey(projectId);
+    }
+
+    /**
+     * @param firstLine The line number of the first of the given entries within the log of the stage
+     * @param entries   The entries that have just been written to the log of the stage
+     */
+    public void publishLogs(@Nonnull StageId stageId, long firstLine, @Nonnull List<LogEntry> entries) {
+        publish(stageId, listener -> listener.onLogs(stageId, firstLine, entries));
+    }
+
+    public void publishStats(@Nonnull StageId stageId, @Nonnull StatsInfo stats) {
+        publish(stageId, listener -> listener.onStats(stageId, stats));
+    }
+
+    private void publish(@Nonnull StageId stageId, @Nonnull Consumer<Listener> event) {
+        publish(stageId, this.global, event);
+        var listeners = this.listeners.get(stageId.getProjectId());
+        if (listeners != null) {
+            publish(stageId, listeners, event);
+        }
+    }
+
+    private static void publish(
+            @Nonnull StageId stageId,
+            @Nonnull List<Listener> listeners,
+            @Nonnull Consumer<Listener> event) {
+        for (var listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (Throwable t) {
+                LOG.log(Level.WARNING, "Listener for " + stageId.getFullyQualified() + " failed", t);
+            }
+        }
+    }
+
+    public interface Listener {
+
+        default void onLogs(@Nonnull StageId stageId, long firstLine, @Nonnull List<LogEntry> entries) {
+        }
+
+        default void onStats(@Nonnull StageId stageId, @Nonnull StatsInfo stats) {
+        }
+    }
+}
@@ -4,6 +4,7 @@ import de.itdesigners.winslow.api.pipeline.State;
 import de.itdesigners.winslow.api.pipeline.StatsInfo;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Optional;
@@ -51,6 +52,21 @@ public interface StageHandle extends AutoCloseable {
     @Nonnull
     Iterator<LogEntry> getLogs() throws IOException;
 
+    /**
+     * @param listener Invoked whenever new logs become available, so that the consumer of {@link #getLogs()}
+     *                 does not need to poll for them. Not supported by all implementations.
+     */
+    default void setLogListener(@Nullable Runnable listener) {
+    }
+
+    /**
+     * @return The {@link LogQueue.Metrics} of the queue buffering the logs, if there is one
+     */
+    @Nonnull
+    default Optional<LogQueue.Metrics> getLogQueueMetrics() {
+        return Optional.empty();
+    }
+
     @Nonnull
     Optional<StatsInfo> getStats() throws IOException;
 
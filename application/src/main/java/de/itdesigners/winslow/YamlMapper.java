@@ -0,0 +1,53 @@
+package de.itdesigners.winslow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import de.itdesigners.winslow.config.ExecutionGroup;
+import de.itdesigners.winslow.config.ExecutionGroupUpgrade;
+import de.itdesigners.winslow.config.PipelineUpgrade;
+import de.itdesigners.winslow.pipeline.Pipeline;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the {@link ObjectReader}s and the {@link ObjectWriter} of the repositories. Both are immutable
+ * and therefore thread-safe, while creating a new {@link ObjectMapper} and registering its modules for
+ * each load or store would also start with empty introspection caches each time.
+ */
+public final class YamlMapper {
+
+    private static final @Nonnull ObjectMapper READ_MAPPER = createReadMapper();
+    private static final @Nonnull ObjectWriter WRITER      = BaseRepository.defaultObjectMapper().writer();
+
+    private static final @Nonnull Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private YamlMapper() {
+    }
+
+    @Nonnull
+    public static ObjectReader reader(@Nonnull Class<?> clazz) {
+        return READERS.computeIfAbsent(clazz, READ_MAPPER::readerFor);
+    }
+
+    @Nonnull
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    @Nonnull
+    private static ObjectMapper createReadMapper() {
+        var upgradeLoader = new SimpleModule();
+        upgradeLoader.addDeserializer(ExecutionGroup.class, new ExecutionGroupUpgrade());
+        upgradeLoader.addDeserializer(Pipeline.class, new PipelineUpgrade());
+
+        return BaseRepository
+                .defaultObjectMapper()
+                .registerModule(new ParameterNamesModule())
+                .registerModule(upgradeLoader);
+    }
+}
@@ -156,6 +156,24 @@ public class Context {
         this.executor.removeLogEntryConsumer(listener);
     }
 
+    /**
+     * @see Executor#addIntervalListener(Runnable)
+     */
+    public void addIntervalListener(@Nonnull Runnable listener) {
+        this.executor.addIntervalListener(listener);
+    }
+
+    public void removeIntervalListener(@Nonnull Runnable listener) {
+        this.executor.removeIntervalListener(listener);
+    }
+
+    /**
+     * @see Executor#addShutdownListener(Runnable)
+     */
+    public void addShutdownListener(@Nonnull Runnable listener) {
+        this.executor.addShutdownListener(listener);
+    }
+
     public boolean hasAssemblyBeenAborted() {
         return this.executor.hasBeenKilled();
     }
@@ -0,0 +1,198 @@
+package de.itdesigners.winslow.asblr;
+
+import de.itdesigners.winslow.LogEntry;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates all log parsers of a stage against the {@link LogEntry}s of the stage. The last lines are kept in
+ * one shared window, which each parser matches over the region of its last {@link Parser#lines()} lines,
+ * so that the window needs not to be rebuilt per entry and parser. The output is appended to the destination
+ * files through writers that are kept open until {@link #close()}, at most {@link #MAX_OPEN_WRITERS} at a time.
+ * Written output becomes visible on {@link #flush()}.
+ */
+class LogParserEngine implements Consumer<LogEntry>, Flushable, Closeable {
+
+    static final int MAX_OPEN_WRITERS = 64;
+
+    private final @Nonnull CompiledParser[]          parsers;
+    private final @Nonnull BiConsumer<Level, String> log;
+    private final @Nonnull StringBuilder             window = new StringBuilder();
+    private final @Nonnull long[]                    starts;
+    private final @Nonnull Map<Path, Writer>         writers;
+
+    private long    removed = 0;
+    private long    lines   = 0;
+    private boolean closed  = false;
+
+    /**
+     * @param parsers The parsers to evaluate for each {@link LogEntry}
+     * @param log     Receives warnings about invalid destinations and failed writes
+     */
+    LogParserEngine(@Nonnull List<Parser> parsers, @Nonnull BiConsumer<Level, String> log) {
+        this.parsers = parsers.stream().map(CompiledParser::new).toArray(CompiledParser[]::new);
+        this.log     = log;
+        this.starts  = new long[parsers.stream().mapToInt(Parser::lines).max().orElse(1)];
+        this.writers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Writer> eldest) {
+                if (size() > MAX_OPEN_WRITERS) {
+                    closeWriter(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void accept(@Nonnull LogEntry entry) {
+        if (this.closed) {
+            return;
+        }
+
+        appendToWindow(entry.message());
+
+        for (var parser : this.parsers) {
+            var start   = this.starts[(int) ((this.lines - Math.min(this.lines, parser.lines)) % this.starts.length)];
+            var matcher = parser.matcher.reset(this.window).region((int) (start - this.removed), this.window.length());
+
+            if (matcher.find()) {
+                parser.destination.apply(entry, matcher).ifPresentOrElse(
+                        destination -> write(destination, parser.formatter.apply(entry, matcher)),
+                        () -> this.log.accept(Level.WARNING, "Invalid destination path, at least one line is ignored")
+                );
+            }
+        }
+    }
+
+    private void appendToWindow(@Nonnull String message) {
+        if (this.lines >= this.starts.length) {
+            // the oldest line leaves the window, the next line starts where it has to be cut
+            var cut = this.starts.length > 1
+                      ? this.starts[(int) ((this.lines - this.starts.length + 1) % this.starts.length)] - this.removed
+                      : this.window.length();
+            this.window.delete(0, (int) cut);
+            this.removed += cut;
+        }
+        if (Math.min(this.lines, this.starts.length - 1) > 0) {
+            this.window.append(System.lineSeparator());
+        }
+        this.starts[(int) (this.lines % this.starts.length)] = this.removed + this.window.length();
+        this.window.append(message);
+        this.lines += 1;
+    }
+
+    /**
+     * Appends the given text and a line separator to the destination
+     */
+    synchronized void write(@Nonnull Path destination, @Nonnull String text) {
+        if (this.closed) {
+            return;
+        }
+        try {
+            var writer = this.writers.get(destination);
+            if (writer == null) {
+                if (destination.getParent() != null) {
+                    Files.createDirectories(destination.getParent());
+                }
+                writer = Files.newBufferedWriter(
+                        destination,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.APPEND,
+                        StandardOpenOption.CREATE
+                );
+                this.writers.put(destination, writer);
+            }
+            writer.write(text);
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            this.log.accept(Level.SEVERE, "Failed to write entry to destination: " + e.getMessage());
+            closeWriter(destination, this.writers.remove(destination));
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        for (var iterator = this.writers.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            try {
+                entry.getValue().flush();
+            } catch (IOException e) {
+                this.log.accept(Level.SEVERE, "Failed to write entry to destination: " + e.getMessage());
+                iterator.remove();
+                closeWriter(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes all destinations, further entries are ignored
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        for (var entry : this.writers.entrySet()) {
+            closeWriter(entry.getKey(), entry.getValue());
+        }
+        this.writers.clear();
+    }
+
+    private void closeWriter(@Nonnull Path destination, Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                this.log.accept(Level.SEVERE, "Failed to close destination " + destination + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param pattern     The compiled pattern to find in the last lines
+     * @param lines       The number of last lines to find the pattern in, at least one
+     * @param destination Resolves the destination for a match, empty if it is not valid
+     * @param formatter   Formats the line to append to the destination for a match
+     */
+    record Parser(
+            @Nonnull Pattern pattern,
+            int lines,
+            @Nonnull BiFunction<LogEntry, Matcher, Optional<Path>> destination,
+            @Nonnull BiFunction<LogEntry, Matcher, String> formatter) {
+        Parser {
+            lines = Math.max(1, lines);
+        }
+    }
+
+    private static class CompiledParser {
+        private final @Nonnull Matcher                                       matcher;
+        private final          int                                           lines;
+        private final @Nonnull BiFunction<LogEntry, Matcher, Optional<Path>> destination;
+        private final @Nonnull BiFunction<LogEntry, Matcher, String>         formatter;
+
+        private CompiledParser(@Nonnull Parser parser) {
+            this.matcher     = parser.pattern().matcher("");
+            this.lines       = parser.lines();
+            this.destination = parser.destination();
+            this.formatter   = parser.formatter();
+        }
+    }
+}
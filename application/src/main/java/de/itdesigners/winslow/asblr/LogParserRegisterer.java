@@ -8,14 +8,9 @@ import de.itdesigners.winslow.resource.ResourceManager;
 import org.apache.logging.log4j.util.TriConsumer;
 
 import javax.annotation.Nonnull;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
@@ -42,28 +37,43 @@ public class LogParserRegisterer implements AssemblerStep {
                 .map(Path::of)
                 .flatMap(resourceManager::getWorkspace)
                 .ifPresent(workDir -> {
+                    var path = workDir.resolve(LOG_PARSER_OUTPUT_DIRECTORY);
                     var parsers = (context.getStageDefinition() instanceof StageWorkerDefinition w
                                    ? w.logParsers().stream()
                                    : Stream.<LogParser>empty())
-                            .flatMap(parser -> instantiateConsumer(
-                                    context,
-                                    workDir.resolve(LOG_PARSER_OUTPUT_DIRECTORY),
-                                    parser
-                            ))
+                            .flatMap(parser -> instantiateParser(context, path, parser))
                             .toList();
 
-                    parsers.forEach(context::addLogListener);
-                    context.store(new LogParsers(parsers));
+                    if (!parsers.isEmpty()) {
+                        var engine = new LogParserEngine(
+                                parsers.stream().map(ParserInstance::parser).toList(),
+                                context::log
+                        );
+
+                        // todo
+                        parsers.forEach(instance -> engine.write(instance.destination(), instance.header()));
+                        engine.flush();
+
+                        var logParsers = new LogParsers(engine);
+                        context.addLogListener(logParsers.engine);
+                        context.addIntervalListener(logParsers.flush);
+                        context.addShutdownListener(logParsers.engine::close);
+                        context.store(logParsers);
+                    }
                 });
     }
 
     @Override
     public void revert(@Nonnull Context context) {
-        context.load(LogParsers.class).ifPresent(parsers -> parsers.consumers.forEach(context::removeLogListener));
+        context.load(LogParsers.class).ifPresent(parsers -> {
+            context.removeLogListener(parsers.engine);
+            context.removeIntervalListener(parsers.flush);
+            parsers.engine.close();
+        });
     }
 
     @Nonnull
-    private Stream<Consumer<LogEntry>> instantiateConsumer(
+    private Stream<ParserInstance> instantiateParser(
             @Nonnull Context context,
             @Nonnull Path path,
             @Nonnull LogParser parser) {
@@ -112,34 +122,11 @@ public class LogParserRegisterer implements AssemblerStep {
                     destinationResolver = (_e, _m) -> destination;
                 }
 
-                var lineAmount = Math.max(1, parameters.lines);
-                var lineBuffer = new ArrayDeque<String>(lineAmount);
-
-                // todo
-                writeToLogFile(parser.formatter(), parserDestination, context);
-
-                return Stream.of(entry -> {
-                    while (lineBuffer.size() >= lineAmount) {
-                        lineBuffer.removeFirst();
-                    }
-                    lineBuffer.add(entry.message());
-
-                    var message = String.join(System.lineSeparator(), lineBuffer);
-                    var matcher = pattern.matcher(message);
-
-                    if (matcher.find()) {
-                        destinationResolver.apply(entry, matcher).ifPresentOrElse(
-                                destination -> {
-                                    var text = formatter.format(entry, matcher);
-                                    writeToLogFile(text, destination, context);
-                                },
-                                () -> context.log(
-                                        Level.WARNING,
-                                        "Invalid destination path, at least one line is ignored"
-                                )
-                        );
-                    }
-                });
+                return Stream.of(new ParserInstance(
+                        new LogParserEngine.Parser(pattern, parameters.lines, destinationResolver, formatter::format),
+                        parserDestination,
+                        parser.formatter()
+                ));
             } catch (PatternSyntaxException pse) {
                 context.log(Level.WARNING, "Invalid pattern syntax", pse);
                 return Stream.empty();
@@ -150,23 +137,6 @@ public class LogParserRegisterer implements AssemblerStep {
         }
     }
 
-    private void writeToLogFile(String text, Path destination, Context context) {
-        try {
-            if (destination.getParent() != null) {
-                Files.createDirectories(destination.getParent());
-            }
-            Files.write(
-                    destination,
-                    List.of(text),
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.APPEND,
-                    StandardOpenOption.CREATE
-            );
-        } catch (IOException e) {
-            context.log(Level.SEVERE, "Failed to write entry to destination", e);
-        }
-    }
-
     private Parameters parseParameters(String parameters) {
         var keyValues = new HashMap<String, String>();
         var result    = new Parameters();
@@ -195,11 +165,19 @@ public class LogParserRegisterer implements AssemblerStep {
         public int lines;
     }
 
+    private record ParserInstance(
+            @Nonnull LogParserEngine.Parser parser,
+            @Nonnull Path destination,
+            @Nonnull String header) {
+    }
+
     private static class LogParsers {
-        private final @Nonnull List<Consumer<LogEntry>> consumers;
+        private final @Nonnull LogParserEngine engine;
+        private final @Nonnull Runnable        flush;
 
-        private LogParsers(@Nonnull List<Consumer<LogEntry>> consumers) {
-            this.consumers = consumers;
+        private LogParsers(@Nonnull LogParserEngine engine) {
+            this.engine = engine;
+            this.flush  = engine::flush;
         }
     }
 
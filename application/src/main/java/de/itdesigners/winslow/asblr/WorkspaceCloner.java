@@ -0,0 +1,312 @@
+package de.itdesigners.winslow.asblr;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies the content of a workspace into another one. The files are copied by a bounded pool of threads, each
+ * file through {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the
+ * kernel (or the NFS server) copy the data without it passing through the heap. Files that already exist in the
+ * target with the same size and modification time are skipped, so that an interrupted clone can be resumed. Entries
+ * whose path relative to the source starts with a dot are ignored. All messages are logged from the calling thread.
+ */
+public class WorkspaceCloner {
+
+    private static final Logger LOG = Logger.getLogger(WorkspaceCloner.class.getSimpleName());
+
+    public static final @Nonnull Mode DEFAULT_MODE    = Mode.COPY;
+    public static final          int  DEFAULT_THREADS = 4;
+
+    private static final long TRANSFER_CHUNK_SIZE  = 64L * 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 2_000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    public enum Mode {
+        /**
+         * Copies the content of each file
+         */
+        COPY,
+        /**
+         * Creates a hard link to each file instead of copying it and falls back to copying if the file system does
+         * not support it. The content is shared with the source workspace, therefore this mode is only suitable if
+         * the stages replace files instead of modifying them in place.
+         */
+        LINK,
+    }
+
+    private final @Nonnull Mode mode;
+    private final          int  threads;
+
+    public WorkspaceCloner() {
+        this(DEFAULT_MODE, DEFAULT_THREADS);
+    }
+
+    public WorkspaceCloner(@Nonnull Mode mode, int threads) {
+        this.mode    = mode;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Nonnull
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param source  The directory to copy the content of
+     * @param target  The directory to copy the content into, existing files are replaced unless unchanged
+     * @param log     Receives the names of the files being copied and the progress, always on the calling thread
+     * @param aborted Whether the clone shall be aborted, polled before each chunk that is copied
+     * @return What has been cloned
+     * @throws InterruptedIOException If the clone has been aborted
+     * @throws IOException            If a file could not be copied
+     */
+    @Nonnull
+    public Result clone(
+            @Nonnull Path source,
+            @Nonnull Path target,
+            @Nonnull Consumer<String> log,
+            @Nonnull BooleanSupplier aborted) throws IOException {
+        var files      = new ArrayList<FileToClone>();
+        var totalBytes = collectAndCreateDirectories(source, target, files, aborted);
+
+        var job  = new Job(aborted);
+        var pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            var thread = new Thread(runnable);
+            thread.setName(getClass().getSimpleName() + "-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (var file : files) {
+                pool.execute(() -> job.run(file, this.mode));
+            }
+            pool.shutdown();
+            awaitWhileLogging(pool, job, files.size(), totalBytes, log);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        var result = new Result(job.copied.get(), job.linked.get(), job.skipped.get(), job.bytes.get());
+        log.accept(String.format(
+                "...%d files copied, %d linked, %d unchanged, %d bytes copied",
+                result.copied(),
+                result.linked(),
+                result.skipped(),
+                result.bytes()
+        ));
+        return result;
+    }
+
+    private static long collectAndCreateDirectories(
+            @Nonnull Path source,
+            @Nonnull Path target,
+            @Nonnull List<FileToClone> files,
+            @Nonnull BooleanSupplier aborted) throws IOException {
+        var totalBytes = new AtomicLong();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (aborted.getAsBoolean()) {
+                    throw new InterruptedIOException("Cloning the workspace has been aborted");
+                } else if (isIgnored(source, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!isIgnored(source, file)) {
+                    files.add(new FileToClone(file, target.resolve(source.relativize(file)), attrs));
+                    totalBytes.addAndGet(attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return totalBytes.get();
+    }
+
+    private static boolean isIgnored(@Nonnull Path source, @Nonnull Path path) {
+        return source.relativize(path).toString().startsWith(".");
+    }
+
+    private static void awaitWhileLogging(
+            @Nonnull ExecutorService pool,
+            @Nonnull Job job,
+            int totalFiles,
+            long totalBytes,
+            @Nonnull Consumer<String> log) throws IOException {
+        var lastTime  = System.currentTimeMillis();
+        var lastBytes = 0L;
+
+        while (true) {
+            boolean terminated;
+            try {
+                terminated = pool.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.failure.compareAndSet(null, new InterruptedIOException("Interrupted while cloning the workspace"));
+                terminated = false;
+            }
+
+            String name;
+            while ((name = job.started.poll()) != null) {
+                log.accept("..." + name);
+            }
+
+            if (job.hasFailed()) {
+                pool.shutdownNow();
+                throw job.failure.get();
+            } else if (terminated) {
+                return;
+            }
+
+            var time  = System.currentTimeMillis();
+            var bytes = job.bytes.get();
+            log.accept(String.format(
+                    "...%d of %d files, %3d %%, %d bytes/s, %d bytes in total",
+                    job.done.get(),
+                    totalFiles,
+                    totalBytes > 0 ? (int) (bytes * 100 / totalBytes) : 100,
+                    (bytes - lastBytes) * 1_000 / Math.max(1, time - lastTime),
+                    bytes
+            ));
+            lastTime  = time;
+            lastBytes = bytes;
+        }
+    }
+
+    public record Result(long copied, long linked, long skipped, long bytes) {
+    }
+
+    private record FileToClone(@Nonnull Path source, @Nonnull Path target, @Nonnull BasicFileAttributes attributes) {
+    }
+
+    private static class Job {
+        private final @Nonnull BooleanSupplier               aborted;
+        private final @Nonnull AtomicReference<IOException>  failure = new AtomicReference<>();
+        private final @Nonnull ConcurrentLinkedQueue<String> started = new ConcurrentLinkedQueue<>();
+        private final @Nonnull AtomicInteger                 done    = new AtomicInteger();
+        private final @Nonnull AtomicLong                    copied  = new AtomicLong();
+        private final @Nonnull AtomicLong                    linked  = new AtomicLong();
+        private final @Nonnull AtomicLong                    skipped = new AtomicLong();
+        private final @Nonnull AtomicLong                    bytes   = new AtomicLong();
+
+        private Job(@Nonnull BooleanSupplier aborted) {
+            this.aborted = aborted;
+        }
+
+        private boolean hasFailed() {
+            if (this.failure.get() == null && this.aborted.getAsBoolean()) {
+                this.failure.compareAndSet(null, new InterruptedIOException("Cloning the workspace has been aborted"));
+            }
+            return this.failure.get() != null;
+        }
+
+        private void run(@Nonnull FileToClone file, @Nonnull Mode mode) {
+            if (hasFailed()) {
+                return;
+            }
+            try {
+                if (isUnchanged(file)) {
+                    this.skipped.incrementAndGet();
+                } else {
+                    this.started.add(file.target().getFileName().toString());
+                    Files.deleteIfExists(file.target()); // it might be a link to the content of another workspace
+                    if (file.attributes().isSymbolicLink()) {
+                        Files.createSymbolicLink(file.target(), Files.readSymbolicLink(file.source()));
+                        this.copied.incrementAndGet();
+                    } else if (mode == Mode.LINK && tryLink(file)) {
+                        this.linked.incrementAndGet();
+                    } else {
+                        copy(file);
+                        this.copied.incrementAndGet();
+                    }
+                }
+                this.done.incrementAndGet();
+            } catch (IOException e) {
+                this.failure.compareAndSet(null, e);
+            } catch (Throwable t) {
+                this.failure.compareAndSet(null, new IOException("Failed to clone " + file.source(), t));
+            }
+        }
+
+        private static boolean isUnchanged(@Nonnull FileToClone file) throws IOException {
+            try {
+                var existing = Files.readAttributes(
+                        file.target(),
+                        BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS
+                );
+                return existing.isRegularFile()
+                        && file.attributes().isRegularFile()
+                        && existing.size() == file.attributes().size()
+                        && existing.lastModifiedTime().equals(file.attributes().lastModifiedTime());
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        private static boolean tryLink(@Nonnull FileToClone file) {
+            try {
+                Files.createLink(file.target(), file.source());
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOG.log(Level.FINE, "Failed to link " + file.source() + ", copying it instead", e);
+                return false;
+            }
+        }
+
+        private void copy(@Nonnull FileToClone file) throws IOException {
+            try (var input = FileChannel.open(file.source(), StandardOpenOption.READ);
+                 var output = FileChannel.open(
+                         file.target(),
+                         StandardOpenOption.CREATE_NEW,
+                         StandardOpenOption.WRITE
+                 )) {
+                var size     = input.size();
+                var position = 0L;
+                while (position < size) {
+                    if (hasFailed()) {
+                        return;
+                    }
+                    var transferred = input.transferTo(
+                            position,
+                            Math.min(TRANSFER_CHUNK_SIZE, size - position),
+                            output
+                    );
+                    if (transferred <= 0) {
+                        break; // the file has been truncated meanwhile
+                    }
+                    position += transferred;
+                    this.bytes.addAndGet(transferred);
+                }
+            }
+            // allows to skip the file if the clone is repeated
+            Files.setLastModifiedTime(file.target(), file.attributes().lastModifiedTime());
+        }
+    }
+}
@@ -1,26 +1,25 @@
 package de.itdesigners.winslow.asblr;
 
+import de.itdesigners.winslow.Env;
 import de.itdesigners.winslow.Environment;
 import de.itdesigners.winslow.Orchestrator;
 import de.itdesigners.winslow.api.pipeline.State;
 import de.itdesigners.winslow.api.pipeline.WorkspaceConfiguration.WorkspaceMode;
 import de.itdesigners.winslow.config.ExecutionGroup;
 import de.itdesigners.winslow.config.StageWorkerDefinition;
+import de.itdesigners.winslow.fs.SnapshotStore;
 import de.itdesigners.winslow.pipeline.Pipeline;
 import de.itdesigners.winslow.pipeline.StageId;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -30,12 +29,25 @@ public class WorkspaceCreator implements AssemblerStep {
 
     private static final Logger LOG = Logger.getLogger(WorkspaceCreator.class.getSimpleName());
 
-    private final @Nonnull Orchestrator orchestrator;
-    private final @Nonnull Environment  environment;
+    private final @Nonnull Orchestrator    orchestrator;
+    private final @Nonnull Environment     environment;
+    private final @Nonnull WorkspaceCloner cloner;
 
     public WorkspaceCreator(@Nonnull Orchestrator orchestrator, @Nonnull Environment environment) {
+        this(
+                orchestrator,
+                environment,
+                new WorkspaceCloner(Env.getWorkspaceCloneMode(), Env.getWorkspaceCloneThreads())
+        );
+    }
+
+    public WorkspaceCreator(
+            @Nonnull Orchestrator orchestrator,
+            @Nonnull Environment environment,
+            @Nonnull WorkspaceCloner cloner) {
         this.orchestrator = orchestrator;
         this.environment  = environment;
+        this.cloner       = cloner;
     }
 
     @Override
@@ -131,11 +143,12 @@ public class WorkspaceCreator implements AssemblerStep {
             ));
 
             if (!context.isConfigureOnly()
-                    && workspaceMode == WorkspaceMode.INCREMENTAL
+                    && (workspaceMode == WorkspaceMode.INCREMENTAL || workspaceMode == WorkspaceMode.SNAPSHOT)
                     && (!workspaceConfiguration.sharedWithinGroup() || !workspaceExistedBefore)) {
                 copyContentOfMostRecentlyAndSuccessfullyExecutedStageTo(
                         context,
-                        workspace.get()
+                        workspace.get(),
+                        workspaceMode == WorkspaceMode.SNAPSHOT
                 );
             }
         }
@@ -238,7 +251,8 @@ public class WorkspaceCreator implements AssemblerStep {
 
     private void copyContentOfMostRecentlyAndSuccessfullyExecutedStageTo(
             @Nonnull Context context,
-            @Nonnull Path workspaceTarget) throws AssemblyException {
+            @Nonnull Path workspaceTarget,
+            boolean snapshot) throws AssemblyException {
 
         var pipeline = context.getPipeline();
         var workspaces = pipeline
@@ -269,97 +283,59 @@ public class WorkspaceCreator implements AssemblerStep {
                         .getResourceManager()
                         .getWorkspace(getInitWorkspacePath(pipeline.getProjectId())));
 
-        if (workDirBefore.isPresent()) {
+        if (workDirBefore.isPresent() && snapshot) {
+            snapshotContentTo(context, workDirBefore.get(), workspaceTarget);
+        } else if (workDirBefore.isPresent()) {
             var dirBefore = workDirBefore.get();
-            var failure   = Optional.<IOException>empty();
 
             LOG.info("Copying into workspace " + workspaceTarget + " ...");
             context.log(Level.INFO, "Copying workspace...");
             context.log(Level.INFO, " - Source directory: " + dirBefore.getFileName());
             context.log(Level.INFO, " - Target directory: " + workspaceTarget.getFileName());
+            context.log(Level.INFO, " - Mode: " + cloner.getMode() + ", " + cloner.getThreads() + " threads");
 
-            try (var walk = Files.walk(workDirBefore.get())) {
-                failure = walk.flatMap(path -> {
-                    try {
-                        context.ensureAssemblyHasNotBeenAborted();
-                        if (!dirBefore.relativize(path).toString().startsWith(".")) {
-                            var file = path.toFile();
-                            var dst  = workspaceTarget.resolve(dirBefore.relativize(path));
-                            if (file.isDirectory()) {
-                                Files.createDirectories(dst);
-                            } else {
-
-                                context.log(Level.INFO, "..." + dst.getFileName());
-                                copyFileWhile(path, dst, new Supplier<Boolean>() {
-                                    final float totalBytes = (float) path.toFile().length();
-                                    long lastGetCall = System.currentTimeMillis() - 1_500;
-                                    long lastFileLen = 0;
-
-                                    @Override
-                                    public Boolean get() {
-                                        if (System.currentTimeMillis() - lastGetCall > 2_000) {
-                                            var timeDiff = System.currentTimeMillis() - lastGetCall;
-                                            lastGetCall = System.currentTimeMillis();
-
-                                            if (dst.toFile().exists()) {
-                                                var fileLen  = dst.toFile().length();
-                                                var lenDiff  = fileLen - lastFileLen;
-                                                var lenPerc  = (int) (((float) fileLen / totalBytes) * 100.0f);
-                                                var bytesSec = (int) (((float) lenDiff / (float) timeDiff) * 1000.0f);
-                                                lastFileLen = fileLen;
-
-                                                context.log(
-                                                        Level.INFO,
-                                                        "..." + dst.getFileName() + String.format(
-                                                                ", %3d %%, %d bytes/s, %d bytes in total",
-                                                                lenPerc,
-                                                                bytesSec,
-                                                                fileLen
-                                                        )
-                                                );
-                                            }
-                                        }
-                                        return !context.hasAssemblyBeenAborted();
-                                    }
-                                });
-                            }
-                        }
-                        return Stream.empty();
-                    } catch (AssemblyException e) {
-                        return Stream.of(new IOException(e));
-                    } catch (IOException e) {
-                        return Stream.of(e);
-                    }
-                }).findFirst();
+            try {
+                cloner.clone(
+                        dirBefore,
+                        workspaceTarget,
+                        message -> context.log(Level.INFO, message),
+                        context::hasAssemblyBeenAborted
+                );
             } catch (IOException e) {
-                failure = Optional.of(e);
-            }
-
-            if (failure.isPresent()) {
-                throw new AssemblyException("Failed to prepare workspace", failure.get());
+                context.ensureAssemblyHasNotBeenAborted();
+                throw new AssemblyException("Failed to prepare workspace", e);
             }
         } else {
             context.log(Level.WARNING, "No previous valid workspace directory found");
         }
     }
 
-    private void copyFileWhile(
-            @Nonnull Path source,
-            @Nonnull Path destination,
-            @Nonnull Supplier<Boolean> condition) throws IOException {
-        try (var fis = new FileInputStream(source.toFile())) {
-            try (var fos = new FileOutputStream(destination.toFile())) {
-                while (condition.get()) {
-                    var chunk = new byte[512 * 1024]; // TODO dynamic probing, need to support less than 7MiB/s
-                    var read  = fis.read(chunk, 0, chunk.length);
-                    if (read >= 0) {
-                        fos.write(chunk, 0, read);
-                        fos.flush(); // this is slower, but reliefs the storage from write stress (like a nfs backend)
-                    } else {
-                        break;
-                    }
-                }
-            }
+    private void snapshotContentTo(
+            @Nonnull Context context,
+            @Nonnull Path dirBefore,
+            @Nonnull Path workspaceTarget) throws AssemblyException {
+        var store = environment
+                .getResourceManager()
+                .getSnapshotsDirectory()
+                .map(SnapshotStore::new)
+                .orElseThrow(() -> new AssemblyException("Failed to create the snapshots directory"));
+
+        LOG.info("Materializing snapshot into workspace " + workspaceTarget + " ...");
+        context.log(Level.INFO, "Taking snapshot of workspace...");
+        context.log(Level.INFO, " - Source directory: " + dirBefore.getFileName());
+        context.log(Level.INFO, " - Target directory: " + workspaceTarget.getFileName());
+
+        try {
+            var manifest = store.snapshot(
+                    dirBefore,
+                    message -> context.log(Level.INFO, message),
+                    context::hasAssemblyBeenAborted
+            );
+            store.materialize(manifest, dirBefore, workspaceTarget, context::hasAssemblyBeenAborted);
+            context.log(Level.INFO, "..." + manifest.entries().size() + " entries linked");
+        } catch (IOException e) {
+            context.ensureAssemblyHasNotBeenAborted();
+            throw new AssemblyException("Failed to prepare workspace", e);
         }
     }
 }
@@ -12,24 +12,27 @@ import com.fasterxml.jackson.databind.type.TypeFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DeserializerUtils {
 
+    /**
+     * Building a bean deserializer is expensive, so they are built once per {@link DeserializationConfig}
+     * (which are identity-compared and shared between all readers of an {@link ObjectMapper}).
+     */
+    private static final Map<DeserializationConfig, Map<JavaType, JsonDeserializer<Object>>> DEFAULT_DESERIALIZERS
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
     public static <T> T deserializeWithDefaultDeserializer(
             @Nonnull JsonNode node,
             @Nonnull DeserializationContext ctxt,
             @Nonnull Class<T> clazz) throws IOException, JsonProcessingException {
-        DeserializationConfig config = ctxt.getConfig();
-        JavaType              type   = TypeFactory.defaultInstance().constructType(clazz);
-        JsonDeserializer<Object> defaultDeserializer = BeanDeserializerFactory.instance.buildBeanDeserializer(
-                ctxt,
-                type,
-                config.introspect(type)
-        );
-
-        if (defaultDeserializer instanceof ResolvableDeserializer) {
-            ((ResolvableDeserializer) defaultDeserializer).resolve(ctxt);
-        }
+        DeserializationConfig    config              = ctxt.getConfig();
+        JavaType                 type                = TypeFactory.defaultInstance().constructType(clazz);
+        JsonDeserializer<Object> defaultDeserializer = getDefaultDeserializer(ctxt, config, type);
 
         JsonParser treeParser = ctxt.getParser().getCodec().treeAsTokens(node);
         config.initialize(treeParser);
@@ -41,6 +44,29 @@ public class DeserializerUtils {
         return (T) defaultDeserializer.deserialize(treeParser, ctxt);
     }
 
+    @Nonnull
+    private static JsonDeserializer<Object> getDefaultDeserializer(
+            @Nonnull DeserializationContext ctxt,
+            @Nonnull DeserializationConfig config,
+            @Nonnull JavaType type) throws JsonMappingException {
+        var cached = DEFAULT_DESERIALIZERS.computeIfAbsent(config, c -> new ConcurrentHashMap<>());
+        var deserializer = cached.get(type);
+        if (deserializer == null) {
+            deserializer = BeanDeserializerFactory.instance.buildBeanDeserializer(
+                    ctxt,
+                    type,
+                    config.introspect(type)
+            );
+
+            if (deserializer instanceof ResolvableDeserializer) {
+                ((ResolvableDeserializer) deserializer).resolve(ctxt);
+            }
+
+            cached.put(type, deserializer);
+        }
+        return deserializer;
+    }
+
     public static <T> void serializeWithDefaultSerializer(
             @Nonnull T value,
             @Nonnull JsonGenerator gen,
@@ -281,6 +281,15 @@ public class ExecutionGroup {
         return getGroupCounter() < getExpectedGroupSize();
     }
 
+    /**
+     * @return The number of stages that still need to be spawned, for example for the remaining combinations of the
+     * ranged values
+     */
+    @Transient
+    public int getRemainingExecutions() {
+        return Math.max(0, getExpectedGroupSize() - getGroupCounter());
+    }
+
     public boolean isConfigureOnly() {
         return configureOnly;
     }
@@ -4,7 +4,9 @@ import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerCmd;
 import com.github.dockerjava.api.exception.DockerException;
 import com.github.dockerjava.api.model.*;
+import de.itdesigners.winslow.Env;
 import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.LogQueue;
 import de.itdesigners.winslow.StageHandle;
 import de.itdesigners.winslow.api.pipeline.LogSource;
 import de.itdesigners.winslow.api.pipeline.State;
@@ -17,7 +19,6 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,8 +35,11 @@ public class DockerStageHandle implements StageHandle {
     private final @Nonnull DockerBackend backend;
     private final @Nonnull String        stageId;
 
-    private final @Nonnull Deque<LogEntry> logs      = new ConcurrentLinkedDeque<>();
-    private final @Nonnull Set<Closeable>  closeable = new HashSet<>();
+    private final @Nonnull LogQueue       logs      = new LogQueue(
+            Env.getLogQueueCapacity(),
+            Env.getLogQueueOverflowPolicy()
+    );
+    private final @Nonnull Set<Closeable> closeable = new HashSet<>();
 
     private           boolean   started     = false;
     private           boolean   gone        = false;
@@ -409,7 +413,8 @@ public class DockerStageHandle implements StageHandle {
     }
 
     private void log(long time, @Nonnull LogSource source, boolean error, @Nonnull String message) {
-        this.logs.add(new LogEntry(
+        // might block the log stream of the container, depending on the overflow policy
+        this.logs.offer(new LogEntry(
                 time,
                 source,
                 error,
@@ -474,15 +479,22 @@ public class DockerStageHandle implements StageHandle {
 
             @Override
             public LogEntry next() {
-                if (DockerStageHandle.this.logs.isEmpty()) {
-                    return null;
-                } else {
-                    return DockerStageHandle.this.logs.pop();
-                }
+                return DockerStageHandle.this.logs.poll();
             }
         };
     }
 
+    @Override
+    public void setLogListener(@Nullable Runnable listener) {
+        this.logs.setListener(listener);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<LogQueue.Metrics> getLogQueueMetrics() {
+        return Optional.of(this.logs.getMetrics());
+    }
+
     @Nonnull
     @Override
     public Optional<StatsInfo> getStats() {
@@ -532,5 +544,6 @@ public class DockerStageHandle implements StageHandle {
         }
         this.gone |= !this.hasFinished();
         this.closeable.clear();
+        this.logs.close();
     }
 }
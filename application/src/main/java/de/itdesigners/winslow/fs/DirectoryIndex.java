@@ -0,0 +1,252 @@
+package de.itdesigners.winslow.fs;
+
+import org.eclipse.jgit.lib.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the aggregated size of the directories within a tree, so that listing a directory with the sizes of its
+ * subdirectories does not need to walk all of them again. Indexing a directory caches the sizes of all directories
+ * within it and reuses the sizes already cached for its subdirectories. Changes made through Winslow must be reported
+ * to {@link #invalidate(Path)}, which drops the size of the changed directory, of all directories within it and of
+ * all directories containing it. Changes made otherwise are picked up by reconciliation: a cached size that is older
+ * than the maximum age is still returned but the directory is indexed anew in the background.
+ * <p>
+ * The name of the checked out git branch of a directory is cached as well, until the modification time of its HEAD
+ * changes.
+ */
+public class DirectoryIndex {
+
+    private static final Logger LOG = Logger.getLogger(DirectoryIndex.class.getSimpleName());
+
+    public static final long DEFAULT_MAX_AGE_MS = 5 * 60 * 1_000;
+
+    private static final String GIT_DIRECTORY        = ".git";
+    private static final String GIT_HEAD             = "HEAD";
+    private static final String GIT_SYMBOLIC_REF     = "ref:";
+    private static final long   THREAD_KEEP_ALIVE_MS = 30_000;
+
+    private final @Nonnull Path               root;
+    private final          long               maxAgeMs;
+    private final @Nonnull Map<Path, Size>    sizes      = new ConcurrentHashMap<>();
+    private final @Nonnull Map<Path, GitHead> gitHeads   = new ConcurrentHashMap<>();
+    private final @Nonnull Set<Path>          refreshing = ConcurrentHashMap.newKeySet();
+    private final @Nonnull ThreadPoolExecutor reconciler;
+
+    private long generation = 0;
+
+    public DirectoryIndex(@Nonnull Path root) {
+        this(root, DEFAULT_MAX_AGE_MS);
+    }
+
+    /**
+     * @param root     The directory of the tree to index
+     * @param maxAgeMs The age after which a cached size is reconciled with the file system
+     */
+    public DirectoryIndex(@Nonnull Path root, long maxAgeMs) {
+        this.root       = root.toAbsolutePath().normalize();
+        this.maxAgeMs   = maxAgeMs;
+        this.reconciler = new ThreadPoolExecutor(
+                0,
+                1,
+                THREAD_KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable);
+                    thread.setName(getClass().getSimpleName() + "-" + root.getFileName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    @Nonnull
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @param directory The directory to determine the size of
+     * @return The sum of the sizes of all regular files within the given directory and its subdirectories, zero if it
+     * cannot be listed
+     */
+    public long getSize(@Nonnull Path directory) {
+        var path   = directory.toAbsolutePath().normalize();
+        var cached = this.sizes.get(path);
+        if (cached == null) {
+            return index(path, true);
+        } else {
+            if (System.currentTimeMillis() - cached.time() > this.maxAgeMs) {
+                reconcileInBackground(path);
+            }
+            return cached.bytes();
+        }
+    }
+
+    /**
+     * @param directory The directory to determine the checked out git branch of
+     * @return The name of the checked out branch or the id of the checked out commit if the HEAD is detached, nothing
+     * if the given directory is not a git repository
+     */
+    @Nonnull
+    public Optional<String> getGitBranch(@Nonnull Path directory) {
+        var path = directory.toAbsolutePath().normalize();
+        var head = path.resolve(GIT_DIRECTORY).resolve(GIT_HEAD);
+        try {
+            var modified = Files.getLastModifiedTime(head).toMillis();
+            var cached   = this.gitHeads.get(path);
+            if (cached != null && cached.modified() == modified) {
+                return Optional.of(cached.branch());
+            }
+
+            var branch = readBranch(head);
+            this.gitHeads.put(path, new GitHead(modified, branch));
+            return Optional.of(branch);
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            this.gitHeads.remove(path);
+            return Optional.empty();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Failed to read the git HEAD of " + path, e);
+            return Optional.empty();
+        }
+    }
+
+    @Nonnull
+    private static String readBranch(@Nonnull Path head) throws IOException {
+        var content = Files.readString(head).trim();
+        if (content.startsWith(GIT_SYMBOLIC_REF)) {
+            return Repository.shortenRefName(content.substring(GIT_SYMBOLIC_REF.length()).trim());
+        } else {
+            return content;
+        }
+    }
+
+    /**
+     * Drops the cached sizes of the given file or directory, of all directories within it and of all directories
+     * containing it, because its content has been changed, created or deleted.
+     *
+     * @param path The file or directory that has been changed
+     */
+    public void invalidate(@Nonnull Path path) {
+        var changed = path.toAbsolutePath().normalize();
+        synchronized (this) {
+            this.generation += 1;
+            this.sizes.keySet().removeIf(p -> p.startsWith(changed));
+            this.gitHeads.keySet().removeIf(p -> p.startsWith(changed));
+            var parent = changed.getParent();
+            while (parent != null && parent.startsWith(root)) {
+                this.sizes.remove(parent);
+                parent = parent.getParent();
+            }
+        }
+    }
+
+    /**
+     * Indexes the given directory anew, without reusing any cached size within it
+     *
+     * @param directory The directory to index
+     * @return The size of the given directory
+     */
+    public long reconcile(@Nonnull Path directory) {
+        return index(directory.toAbsolutePath().normalize(), false);
+    }
+
+    private void reconcileInBackground(@Nonnull Path directory) {
+        if (this.refreshing.add(directory)) {
+            this.reconciler.execute(() -> {
+                try {
+                    index(directory, false);
+                } finally {
+                    this.refreshing.remove(directory);
+                }
+            });
+        }
+    }
+
+    private long index(@Nonnull Path directory, boolean reuseCached) {
+        long generation;
+        synchronized (this) {
+            generation = this.generation;
+        }
+
+        var time    = System.currentTimeMillis();
+        var indexed = new HashMap<Path, Long>();
+        var sums    = new ArrayDeque<long[]>();
+
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    var cached = reuseCached && !dir.equals(directory) ? sizes.get(dir) : null;
+                    if (cached != null) {
+                        sums.element()[0] += cached.bytes();
+                        return FileVisitResult.SKIP_SUBTREE;
+                    } else {
+                        sums.push(new long[]{0L});
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !sums.isEmpty()) {
+                        sums.element()[0] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // deleted meanwhile or not accessible, either way it does not add to the size
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    var size = sums.pop()[0];
+                    indexed.put(dir, size);
+                    if (!sums.isEmpty()) {
+                        sums.element()[0] += size;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Failed to index " + directory, e);
+            return 0L;
+        }
+
+        synchronized (this) {
+            // otherwise the walk might have missed a change and the sizes are outdated already
+            if (this.generation == generation) {
+                if (!reuseCached) {
+                    this.sizes.keySet().removeIf(p -> p.startsWith(directory));
+                }
+                indexed.forEach((path, size) -> this.sizes.put(path, new Size(size, time)));
+            }
+        }
+
+        return indexed.getOrDefault(directory, 0L);
+    }
+
+    private record Size(long bytes, long time) {
+    }
+
+    private record GitHead(long modified, @Nonnull String branch) {
+    }
+}
@@ -0,0 +1,261 @@
+package de.itdesigners.winslow.fs;
+
+import de.itdesigners.winslow.BaseRepository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static de.itdesigners.winslow.fs.LockBus.*;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Stores each {@link Event} in a file of its own, named after the consecutive event counter.
+ */
+class EventFileDirectory implements EventStorage {
+
+    private static final Logger LOG = Logger.getLogger(EventFileDirectory.class.getSimpleName());
+
+    public static final int    MAX_OLD_EVENT_FILE_COUNT = 25;
+    public static final String COMMON_LOCK_FILE         = ".lock";
+
+    private final @Nonnull Path         eventDirectory;
+    private final @Nonnull WatchService watchService;
+
+    private int eventCounter = 0;
+
+    EventFileDirectory(@Nonnull Path eventDirectory) throws IOException {
+        this.eventDirectory = eventDirectory;
+        this.watchService   = eventDirectory.getFileSystem().newWatchService();
+        this.eventDirectory.register(this.watchService, ENTRY_MODIFY);
+        this.initEventCounter();
+    }
+
+    @Nonnull
+    @Override
+    public Optional<StoredEvent> loadNext() throws LockException {
+        for (int i = 0; i < LOCK_RETRY_READ_MAX_TRIALS; ++i) {
+            Path  path  = null;
+            Event event = null;
+            try {
+                path  = this.nextEventPath();
+                event = loadEvent(path);
+
+                if (event.isIncomplete() && !Files.exists(nextEventPath(this.eventCounter + 1))) {
+                    if (i > LOCK_RETRY_READ_MAX_TRIALS / 20) {
+                        LOG.warning("Event " + path + " still seems incomplete, attempt " + i);
+                    }
+                    ensureSleepMs(LOCK_RETRY_READ_COOLDOWN_MS);
+                    continue;
+                } else {
+                    event.check();
+                }
+
+                this.eventCounter += 1;
+                return Optional.of(new StoredEvent(path, event));
+            } catch (NoSuchFileException | FileNotFoundException e) {
+                LOG.fine("Failed to read next event because there is none");
+                return Optional.empty();
+            } catch (Throwable e) {
+                var cooledDownAtLeastOnceAndHasNext = i > 0 && !fileJustModified(path) && Files.exists(nextEventPath(
+                        this.eventCounter + 1));
+                if (i > LOCK_RETRY_MIN_THRESHOLD && (i + 1 == LOCK_RETRY_READ_MAX_TRIALS || !fileJustModified(path) || cooledDownAtLeastOnceAndHasNext)) {
+                    // max retries exceeded or file probably not actively written to
+                    if (path != null && Files.exists(path)) {
+                        this.eventCounter += 1; // do not try again
+                    }
+                    LOG.warning("Aborting read attempt after " + i + " failures, " +
+                                        "justModified=" + fileJustModified(path) + ", " +
+                                        "hasNext=" + Files.exists(nextEventPath(this.eventCounter + 1))
+                    );
+                    throw new LockException("Failed to parse event file: " + path, e);
+                } else {
+                    LOG.warning("Failed to read event, retrying after cooldown");
+                    ensureSleepMs(LOCK_RETRY_READ_COOLDOWN_MS);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return Files.exists(nextEventPath());
+    }
+
+    @Override
+    public boolean hasUnread() {
+        return getMaxEventCounterNoThrows().map(c -> c >= this.eventCounter).orElse(Boolean.FALSE);
+    }
+
+    @Nonnull
+    @Override
+    public Path append(@Nonnull Event event) throws IOException {
+        var path     = this.nextEventPath();
+        var pathLock = path.resolveSibling(COMMON_LOCK_FILE);
+
+        try (var channel = FileChannel.open(pathLock, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            try (var lock = channel.lock()) {
+                if (Files.exists(path)) {
+                    throw new IOException("Target file already exists: " + path);
+                }
+                try {
+                    Files.write(
+                            path,
+                            Collections.singleton(BaseRepository.writeToString(event)),
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE_NEW
+                    );
+                } finally {
+                    Files.deleteIfExists(pathLock);
+                }
+            }
+        }
+
+        return path;
+    }
+
+    @Override
+    public void awaitChanges(long timeoutMs) throws InterruptedException {
+        var key = this.watchService.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (key != null) {
+            // the events themselves are of no interest, the caller checks for the next event file anyway
+            key.pollEvents();
+            if (!key.reset() || !key.isValid()) {
+                key.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void cleanup(@Nonnull Collection<Event> liveLocks) {
+        try {
+            this.tryDeleteOldEventFiles();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to delete old events", e);
+        }
+    }
+
+    private void initEventCounter() throws IOException {
+        getMinEventCounter()
+                .filter(a -> a >= this.eventCounter)
+                .ifPresent(next -> {
+                    this.eventCounter = next;
+                });
+    }
+
+    @Nonnull
+    private Optional<Integer> getMinEventCounter() throws IOException {
+        try (var stream = Files.list(eventDirectory)) {
+            return stream
+                    .flatMap(this::parseEventCounterFromPath)
+                    .min(Comparator.comparingInt(a -> a));
+        }
+    }
+
+    @Nonnull
+    private Optional<Integer> getMaxEventCounter() throws IOException {
+        try (var stream = Files.list(eventDirectory)) {
+            return stream
+                    .flatMap(this::parseEventCounterFromPath)
+                    .max(Comparator.comparingInt(a -> a));
+        }
+    }
+
+    @Nonnull
+    private Optional<Integer> getMaxEventCounterNoThrows() {
+        try {
+            return this.getMaxEventCounter();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to determine the max event counter");
+            return Optional.empty();
+        }
+    }
+
+    private Stream<Integer> parseEventCounterFromPath(Path p) {
+        try {
+            return Stream.of(Integer.parseInt(p.getFileName().toString()));
+        } catch (NumberFormatException ee) {
+            return Stream.empty();
+        }
+    }
+
+    private Path nextEventPath() {
+        return this.nextEventPath(eventCounter);
+    }
+
+    private Path nextEventPath(int counter) {
+        return this.eventDirectory.resolve(this.getEventFileNameForCurrentCounter(counter));
+    }
+
+    private String getEventFileNameForCurrentCounter(int counter) {
+        return String.format("%08d", counter);
+    }
+
+    private static boolean fileJustModified(@Nullable Path path) {
+        return path != null && System.currentTimeMillis() - path.toFile().lastModified() < 30_000;
+    }
+
+    private void tryDeleteOldEventFiles() throws IOException {
+        var list = sortedEventFileList();
+        var diff = list.size() - MAX_OLD_EVENT_FILE_COUNT;
+
+        for (int i = 0; i < diff; ++i) {
+            Path path = list.get(i);
+
+            if (isEventFile(path)) {
+                try {
+                    if (isSurelyOutOfDate(loadEvent(path))) {
+                        Files.deleteIfExists(path);
+                    } else {
+                        break;
+                    }
+                } catch (NoSuchFileException | FileNotFoundException e) {
+                    // already gone, can be ignored
+                } catch (IOException e) {
+                    // probably corrupt file
+                    LOG.log(Level.WARNING, "Failed to load file to check for last usage", e);
+                    if (path.toFile().lastModified() + DURATION_FOR_UNREADABLE_FILES < System.currentTimeMillis()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isEventFile(Path path) {
+        try {
+            Integer.parseInt(path.getFileName().toString());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private List<Path> sortedEventFileList() throws IOException {
+        try (var files = Files.list(eventDirectory)) {
+            return files
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    private static Event loadEvent(@Nonnull Path path) throws IOException {
+        var content = Files.readString(path);
+        return BaseRepository.readFromString(Event.class, content);
+    }
+}
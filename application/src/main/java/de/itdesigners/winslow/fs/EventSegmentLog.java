@@ -0,0 +1,506 @@
+package de.itdesigners.winslow.fs;
+
+import de.itdesigners.winslow.BaseRepository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Stores all {@link Event}s in append-only segment files. Each record is prefixed by its length, a
+ * CRC32 checksum and its type, so that readers can tail a segment by its byte offset and detect
+ * records that are not (yet) completely visible to them. Appending requires an exclusive lock on
+ * a common lock file, which also allows the writer to safely truncate the torn tail of a crashed
+ * writer.
+ * <p>
+ * Once a segment grows beyond {@link #MAX_SEGMENT_SIZE} (by default), the next segment is started
+ * with a snapshot of all live locks. This way, a starting node only needs to read the most recent
+ * segment and old segments can be deleted after {@link #SEGMENT_RETENTION_MS}.
+ */
+class EventSegmentLog implements EventStorage {
+
+    private static final Logger LOG = Logger.getLogger(EventSegmentLog.class.getSimpleName());
+
+    public static final String SEGMENT_PREFIX       = "segment-";
+    public static final String SEGMENT_SUFFIX       = ".log";
+    public static final String LOCK_FILE            = "segments.lock";
+    public static final long   MAX_SEGMENT_SIZE     = 4L * 1024 * 1024;
+    public static final int    MAX_RECORD_SIZE      = 1024 * 1024;
+    public static final int    READ_BUFFER_SIZE     = 64 * 1024;
+    public static final int    HEADER_SIZE          = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    public static final long   POLL_INTERVAL_MS     = 100;
+    public static final long   SEGMENT_RETENTION_MS = 60_000;
+
+    private static final byte TYPE_EVENT    = 0;
+    private static final byte TYPE_SNAPSHOT = 1;
+
+    /**
+     * {@link java.nio.channels.FileLock}s are held on behalf of the whole JVM,
+     * so instances within the same JVM need to be serialized on their own
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final @Nonnull Path   directory;
+    private final @Nonnull Path   lockFile;
+    private final          long   maxSegmentSize;
+    private final @Nonnull Object appendSignal = new Object();
+
+    private volatile int     segment;
+    private volatile long    offset;
+    private          boolean fresh;
+
+    private @Nullable FileChannel channel;
+    private @Nonnull  ByteBuffer  buffer         = ByteBuffer.allocate(READ_BUFFER_SIZE).limit(0);
+    private           long        bufferPosition = 0;
+
+    EventSegmentLog(@Nonnull Path directory) throws IOException {
+        this(directory, MAX_SEGMENT_SIZE);
+    }
+
+    EventSegmentLog(@Nonnull Path directory, long maxSegmentSize) throws IOException {
+        this.directory      = directory;
+        this.lockFile       = directory.resolve(LOCK_FILE);
+        this.maxSegmentSize = maxSegmentSize;
+
+        var head = this.findHeadSegment();
+        if (head.isEmpty()) {
+            head = this.whileLocked(() -> {
+                var existing = this.findHeadSegment();
+                if (existing.isEmpty()) {
+                    Files.createFile(segmentPath(0));
+                    return Optional.of(0);
+                }
+                return existing;
+            });
+        }
+
+        // a new reader needs the snapshot at the beginning of the segment it starts with
+        this.openSegment(head.get(), true);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<StoredEvent> loadNext() throws LockException {
+        try {
+            Record record;
+            while ((record = this.nextRecord()) != null) {
+                var origin = segmentPath(this.segment);
+                this.offset += record.size();
+
+                if (record.type() == TYPE_SNAPSHOT && !this.fresh) {
+                    continue;
+                }
+
+                try {
+                    var event = BaseRepository.readFromString(
+                            Event.class,
+                            new String(record.payload(), StandardCharsets.UTF_8)
+                    );
+                    event.check();
+                    return Optional.of(new StoredEvent(origin, event));
+                } catch (IOException | RuntimeException e) {
+                    throw new LockException("Failed to parse event record in " + origin, e);
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new LockException("Failed to read from event segment " + this.segment, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return this.nextRecord() != null;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to check for the next event record", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean hasUnread() {
+        // records are stored without gaps, so there is nothing beyond the next record
+        return this.hasNext();
+    }
+
+    @Nonnull
+    @Override
+    public Path append(@Nonnull Event event) throws IOException {
+        var record = new Record(TYPE_EVENT, BaseRepository.writeToString(event).getBytes(StandardCharsets.UTF_8));
+
+        try {
+            return this.whileLocked(() -> {
+                this.ensureAtHeadWhileLocked();
+                var path = segmentPath(this.segment);
+                this.write(path, this.offset, record);
+                return path;
+            });
+        } finally {
+            synchronized (this.appendSignal) {
+                this.appendSignal.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void awaitChanges(long timeoutMs) throws InterruptedException {
+        // this is called without the guarantees of the other methods, so it must not touch the reader state
+        var deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            if (this.hasDataBeyond(this.segment, this.offset)) {
+                return;
+            }
+            var remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return;
+            }
+            synchronized (this.appendSignal) {
+                this.appendSignal.wait(Math.min(remaining, POLL_INTERVAL_MS));
+            }
+        }
+    }
+
+    @Override
+    public void cleanup(@Nonnull Collection<Event> liveLocks) {
+        try {
+            if (Files.size(segmentPath(this.segment)) >= this.maxSegmentSize) {
+                this.rotate(liveLocks);
+            }
+        } catch (NoSuchFileException e) {
+            LOG.fine("Segment " + this.segment + " is gone, it will be skipped on the next read");
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to rotate the event segment", e);
+        }
+    }
+
+    private void rotate(@Nonnull Collection<Event> liveLocks) throws IOException {
+        this.whileLocked(() -> {
+            try {
+                this.ensureAtHeadWhileLocked();
+            } catch (IOException e) {
+                // the given locks are not up-to-date, try again on the next invocation
+                LOG.fine("Postponing rotation: " + e.getMessage());
+                return null;
+            }
+
+            var next     = this.segment + 1;
+            var path     = segmentPath(next);
+            var position = 0L;
+
+            try (var out = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (var event : liveLocks) {
+                    var record = new Record(
+                            TYPE_SNAPSHOT,
+                            BaseRepository.writeToString(event).getBytes(StandardCharsets.UTF_8)
+                    );
+                    writeFully(out, record.encode(), position);
+                    position += record.size();
+                }
+            }
+
+            LOG.info("Rotated event segment " + this.segment + " -> " + next + " with " + liveLocks.size() + " live locks");
+            this.openSegment(next, false);
+            return null;
+        });
+
+        this.deleteOldSegments();
+    }
+
+    /**
+     * Runs the given action while holding the lock on the lock file, which excludes all other writers
+     * of this and of any other JVM.
+     */
+    private <T> T whileLocked(@Nonnull LockedAction<T> action) throws IOException {
+        synchronized (JVM_LOCK) {
+            try (var lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                var lock = lockChannel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ensures that the read position is the end of the head segment, by skipping irrelevant snapshot
+     * records and truncating a torn tail. Must only be called while holding the lock on the lock file.
+     *
+     * @throws IOException If there are unread records
+     */
+    private void ensureAtHeadWhileLocked() throws IOException {
+        Record record;
+        while ((record = this.nextRecord()) != null) {
+            if (record.type() == TYPE_SNAPSHOT && !this.fresh) {
+                this.offset += record.size();
+            } else {
+                throw new IOException("Position already taken in segment " + this.segment + " at " + this.offset);
+            }
+        }
+
+        var path = segmentPath(this.segment);
+        if (Files.size(path) > this.offset) {
+            // no other writer can be active, so this can only be the remains of a crashed one
+            LOG.warning("Truncating torn tail of " + path + " at " + this.offset);
+            try (var out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(this.offset);
+            }
+            this.invalidateBuffer();
+        }
+    }
+
+    private void write(@Nonnull Path path, long position, @Nonnull Record record) throws IOException {
+        try (var out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(out, record.encode(), position);
+        }
+        this.invalidateBuffer();
+    }
+
+    /**
+     * @return The record at the current read position, moving on to the next segment if the current one is complete
+     */
+    @Nullable
+    private Record nextRecord() throws IOException {
+        while (true) {
+            var record = this.readRecord(this.offset);
+            if (record != null) {
+                return record;
+            }
+
+            // the cached view on the file might be outdated (especially on NFS)
+            this.reopenChannel();
+            record = this.readRecord(this.offset);
+            if (record != null) {
+                return record;
+            }
+
+            if (!Files.exists(segmentPath(this.segment + 1))) {
+                return null;
+            }
+
+            // the next segment is only created once this one is complete, but do not miss its tail
+            this.reopenChannel();
+            record = this.readRecord(this.offset);
+            if (record != null) {
+                return record;
+            }
+
+            this.openSegment(this.segment + 1, false);
+        }
+    }
+
+    @Nullable
+    private Record readRecord(long position) throws IOException {
+        if (!this.fill(position, HEADER_SIZE)) {
+            return null;
+        }
+
+        var start    = (int) (position - this.bufferPosition);
+        var length   = this.buffer.getInt(start);
+        var checksum = this.buffer.getInt(start + Integer.BYTES);
+        var type     = this.buffer.get(start + Integer.BYTES + Integer.BYTES);
+
+        if (length < 0 || length > MAX_RECORD_SIZE || !this.fill(position, HEADER_SIZE + length)) {
+            return null;
+        }
+
+        start = (int) (position - this.bufferPosition);
+        var payload = new byte[length];
+        this.buffer.get(start + HEADER_SIZE, payload);
+
+        var record = new Record(type, payload);
+        if (record.checksum() != checksum) {
+            // not completely visible yet, re-read it the next time
+            this.invalidateBuffer();
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * @return Whether the buffer holds the requested range afterwards
+     */
+    private boolean fill(long position, int length) throws IOException {
+        if (position >= this.bufferPosition && position + length <= this.bufferPosition + this.buffer.limit()) {
+            return true;
+        }
+
+        if (this.buffer.capacity() < length) {
+            this.buffer = ByteBuffer.allocate(length);
+        }
+
+        var channel = this.channel();
+        if (channel == null) {
+            this.invalidateBuffer();
+            return false;
+        }
+
+        this.buffer.clear();
+        this.bufferPosition = position;
+
+        while (this.buffer.hasRemaining()) {
+            if (channel.read(this.buffer, position + this.buffer.position()) <= 0) {
+                break;
+            }
+        }
+
+        this.buffer.flip();
+        return this.buffer.limit() >= length;
+    }
+
+    @Nullable
+    private FileChannel channel() throws IOException {
+        if (this.channel == null) {
+            try {
+                this.channel = FileChannel.open(segmentPath(this.segment), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // deleted while this reader was lagging behind, continue with the most recent state
+                var head = this.findHeadSegment();
+                if (head.isPresent() && head.get() != this.segment) {
+                    LOG.warning("Segment " + this.segment + " vanished, continuing with segment " + head.get());
+                    this.openSegment(head.get(), true);
+                    return this.channel();
+                }
+                return null;
+            }
+        }
+        return this.channel;
+    }
+
+    private void reopenChannel() {
+        this.closeChannel();
+        this.invalidateBuffer();
+    }
+
+    private void openSegment(int segment, boolean fresh) {
+        this.closeChannel();
+        this.invalidateBuffer();
+        this.segment = segment;
+        this.offset  = 0;
+        this.fresh   = fresh;
+    }
+
+    private void closeChannel() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Failed to close segment channel", e);
+            }
+            this.channel = null;
+        }
+    }
+
+    private void invalidateBuffer() {
+        this.buffer.clear().limit(0);
+        this.bufferPosition = 0;
+    }
+
+    private boolean hasDataBeyond(int segment, long offset) {
+        // opening the file enforces a revalidation of cached attributes on NFS
+        try (var channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            return channel.size() > offset || Files.exists(segmentPath(segment + 1));
+        } catch (IOException e) {
+            // let the reader figure out what is going on
+            return true;
+        }
+    }
+
+    private void deleteOldSegments() {
+        try (var files = Files.list(directory)) {
+            var threshold = System.currentTimeMillis() - SEGMENT_RETENTION_MS;
+            files.filter(path -> parseSegmentNumber(path).map(n -> n < this.segment - 1).orElse(Boolean.FALSE))
+                 .filter(path -> path.toFile().lastModified() < threshold)
+                 .forEach(path -> {
+                     try {
+                         Files.deleteIfExists(path);
+                     } catch (IOException e) {
+                         LOG.log(Level.WARNING, "Failed to delete old event segment " + path, e);
+                     }
+                 });
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to list old event segments", e);
+        }
+    }
+
+    @Nonnull
+    private Optional<Integer> findHeadSegment() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files
+                    .flatMap(path -> parseSegmentNumber(path).stream())
+                    .max(Comparator.comparingInt(a -> a));
+        }
+    }
+
+    @Nonnull
+    private Path segmentPath(int segment) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%08d", segment) + SEGMENT_SUFFIX);
+    }
+
+    @Nonnull
+    private static Optional<Integer> parseSegmentNumber(@Nonnull Path path) {
+        var name = path.getFileName().toString();
+        if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+            try {
+                return Optional.of(Integer.parseInt(name.substring(
+                        SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()
+                )));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static void writeFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    private record Record(byte type, @Nonnull byte[] payload) {
+
+        long size() {
+            return HEADER_SIZE + payload.length;
+        }
+
+        int checksum() {
+            var crc = new CRC32();
+            crc.update(type);
+            crc.update(payload);
+            return (int) crc.getValue();
+        }
+
+        @Nonnull
+        ByteBuffer encode() {
+            return ByteBuffer
+                    .allocate(HEADER_SIZE + payload.length)
+                    .putInt(payload.length)
+                    .putInt(checksum())
+                    .put(type)
+                    .put(payload)
+                    .flip();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package de.itdesigners.winslow.fs;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * The persistence of the {@link LockBus}: an ordered, shared sequence of {@link Event}s that all nodes
+ * append to and read from. Each instance has a read position, which is advanced by {@link #loadNext()}.
+ * Implementations are not required to be thread-safe, the {@link LockBus} serializes all calls.
+ */
+interface EventStorage {
+
+    /**
+     * @return The next {@link Event} after the current read position, or nothing if there is none (yet)
+     * @throws LockException If the next {@link Event} is unreadable, the read position is moved beyond it
+     */
+    @Nonnull
+    Optional<StoredEvent> loadNext() throws LockException;
+
+    /**
+     * @return Whether an {@link Event} is known to exist right at the current read position
+     */
+    boolean hasNext();
+
+    /**
+     * @return Whether there are {@link Event}s at or beyond the current read position
+     */
+    boolean hasUnread();
+
+    /**
+     * Appends the given {@link Event} right at the current read position. This fails if another
+     * {@link Event} already occupies that position, in which case the caller is expected to
+     * catch up with {@link #loadNext()} and try again.
+     *
+     * @param event The {@link Event} to append
+     * @return Where the {@link Event} has been stored
+     * @throws IOException If the position is already taken or the {@link Event} could not be written
+     */
+    @Nonnull
+    Path append(@Nonnull Event event) throws IOException;
+
+    /**
+     * Blocks until new {@link Event}s might be available or the timeout elapsed
+     *
+     * @param timeoutMs The maximum time to wait
+     */
+    void awaitChanges(long timeoutMs) throws InterruptedException;
+
+    /**
+     * Deletes what is no longer needed. Invoked periodically and only while the read position
+     * is consistent with the given locks.
+     *
+     * @param liveLocks The locks that are currently held as seen from the current read position
+     */
+    void cleanup(@Nonnull Collection<Event> liveLocks);
+
+    record StoredEvent(@Nonnull Path origin, @Nonnull Event event) {
+    }
+}
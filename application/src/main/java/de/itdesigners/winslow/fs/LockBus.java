@@ -1,52 +1,40 @@
 package de.itdesigners.winslow.fs;
 
-
-
-import de.itdesigners.winslow.BaseRepository;
-
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
-
 public class LockBus {
 
     private static final Logger LOG = Logger.getLogger(LockBus.class.getSimpleName());
 
-    public static final int    LOCK_RETRY_READ_COOLDOWN_MS   = 100;
-    public static final int    LOCK_RETRY_READ_MAX_TRIALS    = 300; // with 100ms cooldown this is about 30s
-    public static final int    LOCK_RETRY_MIN_THRESHOLD      = LOCK_RETRY_READ_MAX_TRIALS / 20;
-    public static final int    LOCK_DURATION_OFFSET          = 1_000;
-    public static final int    DURATION_SURELY_OUT_OF_DATE   = 5_000;
-    public static final int    DURATION_FOR_UNREADABLE_FILES = 25_000;
-    public static final int    MAX_OLD_EVENT_FILE_COUNT      = 25;
-    public static final int    MIN_POLL_TIME_INTERVALL       = 10;
-    public static final String COMMON_LOCK_FILE              = ".lock";
+    public static final int LOCK_RETRY_READ_COOLDOWN_MS   = 100;
+    public static final int LOCK_RETRY_READ_MAX_TRIALS    = 300; // with 100ms cooldown this is about 30s
+    public static final int LOCK_RETRY_MIN_THRESHOLD      = LOCK_RETRY_READ_MAX_TRIALS / 20;
+    public static final int LOCK_DURATION_OFFSET          = 1_000;
+    public static final int DURATION_SURELY_OUT_OF_DATE   = 5_000;
+    public static final int DURATION_FOR_UNREADABLE_FILES = 25_000;
+    public static final int MIN_POLL_TIME_INTERVALL       = 10;
 
     private final String             name;
-    private final Path               eventDirectory;
-    private final Map<String, Event> locks = new HashMap<>();
+    private final EventStorage       storage;
+    private final LockTable          locks = new LockTable();
 
     private final Map<Event.Command, List<Consumer<Event>>> listener = new EnumMap<>(Event.Command.class);
 
-    private             int  eventCounter           = 0;
     public static final long MAX_POLL_TIME_INTERVAL = 1_000L;
 
     public LockBus(String name, Path eventDirectory) throws IOException, LockException {
-        this.name           = name;
-        this.eventDirectory = eventDirectory;
+        this(name, eventDirectory, StorageMode.EVENT_FILES);
+    }
+
+    public LockBus(String name, Path eventDirectory, StorageMode mode) throws IOException, LockException {
+        this.name = name;
         if (!eventDirectory.toFile().exists() && !eventDirectory.toFile().mkdirs()) {
             throw new IOException("Failed to create event directory at: " + eventDirectory);
         }
@@ -54,9 +42,13 @@ public class LockBus {
             throw new IOException("Path to event directory is not a directory: " + eventDirectory);
         }
 
-        this.initEventCounter();
+        this.storage = switch (mode) {
+            case EVENT_FILES -> new EventFileDirectory(eventDirectory);
+            case SEGMENTS -> new EventSegmentLog(eventDirectory);
+        };
+
         this.ensureLocksAreUpToDate();
-        this.startEventDirWatchService(eventDirectory);
+        this.startEventWatchThread();
     }
 
     public void registerEventListener(
@@ -91,19 +83,14 @@ public class LockBus {
                 .add(consumer);
     }
 
-    private void startEventDirWatchService(Path eventDirectory) throws IOException {
-        var fs = eventDirectory.getFileSystem();
-        var ws = fs.newWatchService();
-        eventDirectory.register(ws, ENTRY_MODIFY);
-
-
-        var thread = new Thread(() -> this.watchForNewEvents(ws));
+    private void startEventWatchThread() {
+        var thread = new Thread(this::watchForNewEvents);
         thread.setName(getClass().getSimpleName() + ".WatchService");
         thread.setDaemon(true);
         thread.start();
     }
 
-    private void watchForNewEvents(WatchService ws) {
+    private void watchForNewEvents() {
         while (true) {
             try {
                 var sleepTimeMillis = getMillisUntilNextLockExpires().orElse(MAX_POLL_TIME_INTERVAL);
@@ -112,39 +99,16 @@ public class LockBus {
                         Math.max(MIN_POLL_TIME_INTERVALL, sleepTimeMillis)
                 );
 
-                var key = ws.poll(pollTimeMillis, TimeUnit.MILLISECONDS);
-                if (key != null) {
-                    if (!key.reset() || !key.isValid()) {
-                        key.cancel();
-                        continue;
-                    }
-                    for (var event : key.pollEvents()) {
-                        try {
-                            var path = (Path) event.context();
-                            int id   = Integer.parseInt(path.getFileName().toString());
-
-                            while (id > eventCounter) {
-                                if (loadNextEvent().isEmpty()) {
-                                    break;
-                                }
-                            }
-
-                        } catch (RuntimeException | LockException e) {
-                            LOG.log(Level.WARNING, "Failed to react on watch event", e);
-                        }
-                    }
-                }
+                this.storage.awaitChanges(pollTimeMillis);
 
                 try {
-                    while (Files.exists(nextEventPath())) {
-                        loadNextEvent();
-                    }
+                    this.loadAvailableEvents();
                 } catch (LockException e) {
                     e.printStackTrace();
                 }
 
                 this.checkForExpiredLocks();
-                this.deleteOldEventFiles();
+                this.cleanupStorage();
             } catch (InterruptedException ignored) {
             } catch (ClosedWatchServiceException e) {
                 LOG.log(Level.SEVERE, "Watch service closed", e);
@@ -153,32 +117,31 @@ public class LockBus {
         }
     }
 
-    private synchronized Optional<Long> getMillisUntilNextLockExpires() {
-        var expiresNext = Optional.<Long>empty();
-        for (var entry : this.locks.entrySet()) {
-            var expiresAt = entry.getValue().getTime() + entry
-                    .getValue()
-                    .getDuration() + LOCK_DURATION_OFFSET + DURATION_SURELY_OUT_OF_DATE;
-            if (expiresAt < System.currentTimeMillis()) {
-                return Optional.of(0L);
-            } else {
-                if (expiresNext.isEmpty() || expiresNext.get() > expiresAt) {
-                    expiresNext = Optional.of(expiresAt);
-                }
-            }
+    private void loadAvailableEvents() throws LockException {
+        while (this.hasNextEvent()) {
+            loadNextEvent();
         }
-        return expiresNext.map(v -> Math.max(0, v - System.currentTimeMillis()));
     }
 
-    private synchronized void checkForExpiredLocks() {
-        var expired = new ArrayList<Event>(this.locks.size());
-        for (var entry : this.locks.entrySet()) {
-            if (isSurelyOutOfDate(entry.getValue())) {
-                LOG.warning("Detected surely expired " + entry.getValue());
-                expired.add(entry.getValue());
-            }
-        }
-        expired.forEach(event -> {
+    private synchronized boolean hasNextEvent() {
+        return this.storage.hasNext();
+    }
+
+    private synchronized boolean hasUnreadEvents() {
+        return this.storage.hasUnread();
+    }
+
+    private synchronized void cleanupStorage() {
+        this.storage.cleanup(this.locks.values());
+    }
+
+    private Optional<Long> getMillisUntilNextLockExpires() {
+        return this.locks.getNextExpiry().map(v -> Math.max(0, v - System.currentTimeMillis()));
+    }
+
+    private void checkForExpiredLocks() {
+        this.locks.pollSurelyOutOfDate(System.currentTimeMillis()).forEach(event -> {
+            LOG.warning("Detected surely expired " + event);
             try {
                 this.publishEvent(id -> new Event(
                         event.getId(),
@@ -190,6 +153,7 @@ public class LockBus {
                 ));
             } catch (LockException e) {
                 LOG.log(Level.WARNING, "Failed to publish command to release expired event", e);
+                this.locks.reschedule(event);
             }
         });
     }
@@ -229,7 +193,7 @@ public class LockBus {
     }
 
     private void ensureEventForTokenIsValid(Token token) throws LockException {
-        var event = this.locks.get(token.getSubject());
+        var event = this.locks.get(token.getSubject()).orElse(null);
         if (event == null) {
             throw new LockException("Lock for " + token + " is unknown");
         } else if (!event.getId().equals(token.getId())) {
@@ -249,9 +213,9 @@ public class LockBus {
         return getValidLock(subject).map(e -> !this.name.equals(e.getIssuer())).orElse(Boolean.FALSE);
     }
 
-    private synchronized Optional<Event> getValidLock(String subject) {
+    private Optional<Event> getValidLock(String subject) {
         ensureLocksAreUpToDate();
-        var lock = this.locks.get(subject);
+        var lock = this.locks.get(subject).orElse(null);
         LOG.fine("Lock lookup for the same subject: " + lock);
         if (lock != null && lock.getTime() + lock.getDuration() + LOCK_DURATION_OFFSET >= System.currentTimeMillis()) {
             return Optional.of(lock);
@@ -261,11 +225,10 @@ public class LockBus {
     }
 
     private void ensureLocksAreUpToDate() {
-        var maxEventCounter = getMaxEventCounterNoThrows();
         while (true) {
             try {
                 // ensure all events have been loaded
-                if (loadNextEvent().isEmpty() && maxEventCounter.map(c -> c < this.eventCounter).orElse(true)) {
+                if (loadNextEvent().isEmpty() && !this.hasUnreadEvents()) {
                     break;
                 }
             } catch (LockException e) {
@@ -281,8 +244,8 @@ public class LockBus {
         });
     }
 
-    private synchronized void ensureSubjectLockUnknown(String subject) throws LockAlreadyExistsException {
-        Event event = this.locks.get(subject);
+    private void ensureSubjectLockUnknown(String subject) throws LockAlreadyExistsException {
+        Event event = this.locks.get(subject).orElse(null);
         if (event != null) {
             var lockedUntil = event.getTime() + event.getDuration() + (event.getDuration() > 0
                                                                        ? LOCK_DURATION_OFFSET
@@ -306,34 +269,15 @@ public class LockBus {
 
     private synchronized Token publishEvent(@Nonnull EventSupplier supplier) throws LockException {
         try {
-            var path     = this.nextEventPath();
-            var pathLock = path.resolveSibling(COMMON_LOCK_FILE);
-            var event    = supplier.getCheckedEvent(UUID.randomUUID().toString());
-            var token    = new Token(event.getId(), path, event.getSubject(), event.getTime());
-
-            try (var channel = FileChannel.open(pathLock, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                try (var lock = channel.lock()) {
-                    if (Files.exists(path)) {
-                        throw new IOException("Target file already exists: " + path);
-                    }
-                    try {
-                        Files.write(
-                                path,
-                                Collections.singleton(BaseRepository.writeToString(event)),
-                                StandardCharsets.UTF_8,
-                                StandardOpenOption.CREATE_NEW
-                        );
-                    } finally {
-                        Files.deleteIfExists(pathLock);
-                    }
-                }
-            }
+            var event  = supplier.getCheckedEvent(UUID.randomUUID().toString());
+            var origin = this.storage.append(event);
+            var token  = new Token(event.getId(), origin, event.getSubject(), event.getTime());
 
             // always returns a valid event
             var read = this.loadNextEvent();
 
             if (read.isEmpty()) {
-                throw new LockException("Failed to read written event, path: " + path);
+                throw new LockException("Failed to read written event, origin: " + origin);
 
             } else if (read.get().equals(event)) {
                 // it was me all along!
@@ -357,19 +301,18 @@ public class LockBus {
         switch (event.getCommand()) {
             case LOCK:
             case EXTEND:
-                this.locks.put(event.getSubject(), event);
+                this.locks.put(event);
                 LOG.fine("ADD/UPDATE lock for subject " + event.getSubject()
                                  + ", time=" + event.getTime()
                                  + ", duration=" + event.getDuration()
                 );
                 break;
             case RELEASE:
-                var lock = this.locks.get(event.getSubject());
-                if (lock != null && Objects.equals(lock.getId(), event.getId())) {
-                    this.locks.remove(event.getSubject());
+                if (this.locks.remove(event.getSubject(), event.getId())) {
                     LOG.fine("REMOVE lock for subject " + event.getSubject());
                 } else {
-                    LOG.warning("RELEASE REFUSED for subject " + event.getSubject() + " because " + (lock != null
+                    var known = this.locks.get(event.getSubject()).isPresent();
+                    LOG.warning("RELEASE REFUSED for subject " + event.getSubject() + " because " + (known
                                                                                                      ? "id mismatch"
                                                                                                      : "unknown"));
                 }
@@ -390,109 +333,11 @@ public class LockBus {
               });
     }
 
-    private void initEventCounter() throws IOException {
-        getMinEventCounter()
-                .filter(a -> a >= this.eventCounter)
-                .ifPresent(next -> {
-                    this.eventCounter = next;
-                });
-    }
-
-    @Nonnull
-    private Optional<Integer> getMinEventCounter() throws IOException {
-        try (var stream = Files.list(eventDirectory)) {
-            return stream
-                    .flatMap(this::parseEventCounterFromPath)
-                    .min(Comparator.comparingInt(a -> a));
-        }
-    }
-
-    @Nonnull
-    private Optional<Integer> getMaxEventCounter() throws IOException {
-        try (var stream = Files.list(eventDirectory)) {
-            return stream
-                    .flatMap(this::parseEventCounterFromPath)
-                    .max(Comparator.comparingInt(a -> a));
-        }
-    }
-
-    @Nonnull
-    private Optional<Integer> getMaxEventCounterNoThrows() {
-        try {
-            return this.getMaxEventCounter();
-        } catch (IOException e) {
-            LOG.log(Level.WARNING, "Failed to determine the max event counter");
-            return Optional.empty();
-        }
-    }
-
-    private Stream<Integer> parseEventCounterFromPath(Path p) {
-        try {
-            return Stream.of(Integer.parseInt(p.getFileName().toString()));
-        } catch (NumberFormatException ee) {
-            return Stream.empty();
-        }
-    }
-
-    private Path nextEventPath() {
-        return this.nextEventPath(eventCounter);
-    }
-
-    private Path nextEventPath(int counter) {
-        return this.eventDirectory.resolve(this.getEventFileNameForCurrentCounter(counter));
-    }
-
-    private String getEventFileNameForCurrentCounter(int counter) {
-        return String.format("%08d", counter);
-    }
-
     @Nonnull
     private synchronized Optional<Event> loadNextEvent() throws LockException {
-
-        for (int i = 0; i < LOCK_RETRY_READ_MAX_TRIALS; ++i) {
-            Path  path  = null;
-            Event event = null;
-            try {
-                path  = this.nextEventPath();
-                event = loadEvent(path);
-
-                if (event.isIncomplete() && !Files.exists(nextEventPath(this.eventCounter + 1))) {
-                    if (i > LOCK_RETRY_READ_MAX_TRIALS / 20) {
-                        LOG.warning("Event " + path + " still seems incomplete, attempt " + i);
-                    }
-                    ensureSleepMs(LOCK_RETRY_READ_COOLDOWN_MS);
-                    continue;
-                } else {
-                    event.check();
-                }
-
-                this.processEvent(path, event);
-
-                this.eventCounter += 1;
-                return Optional.of(event);
-            } catch (NoSuchFileException | FileNotFoundException e) {
-                LOG.fine("Failed to read next event because there is none");
-                return Optional.empty();
-            } catch (Throwable e) {
-                var cooledDownAtLeastOnceAndHasNext = i > 0 && !fileJustModified(path) && Files.exists(nextEventPath(
-                        this.eventCounter + 1));
-                if (i > LOCK_RETRY_MIN_THRESHOLD && (i + 1 == LOCK_RETRY_READ_MAX_TRIALS || !fileJustModified(path) || cooledDownAtLeastOnceAndHasNext)) {
-                    // max retries exceeded or file probably not actively written to
-                    if (path != null && Files.exists(path)) {
-                        this.eventCounter += 1; // do not try again
-                    }
-                    LOG.warning("Aborting read attempt after " + i + " failures, " +
-                                        "justModified=" + fileJustModified(path) + ", " +
-                                        "hasNext=" + Files.exists(nextEventPath(this.eventCounter + 1))
-                    );
-                    throw new LockException("Failed to parse event file: " + path, e);
-                } else {
-                    LOG.warning("Failed to read event, retrying after cooldown");
-                    ensureSleepMs(LOCK_RETRY_READ_COOLDOWN_MS);
-                }
-            }
-        }
-        return Optional.empty();
+        var loaded = this.storage.loadNext();
+        loaded.ifPresent(stored -> this.processEvent(stored.origin(), stored.event()));
+        return loaded.map(EventStorage.StoredEvent::event);
     }
 
     public static void ensureSleepMs(long ms) {
@@ -511,69 +356,8 @@ public class LockBus {
         }
     }
 
-    private static boolean fileJustModified(@Nullable Path path) {
-        return path != null && System.currentTimeMillis() - path.toFile().lastModified() < 30_000;
-    }
-
-    private void deleteOldEventFiles() {
-        try {
-            this.tryDeleteOldEventFiles();
-        } catch (IOException e) {
-            LOG.log(Level.WARNING, "Failed to delete old events", e);
-        }
-    }
-
-    private void tryDeleteOldEventFiles() throws IOException {
-        var list = sortedEventFileList();
-        var diff = list.size() - MAX_OLD_EVENT_FILE_COUNT;
-
-        for (int i = 0; i < diff; ++i) {
-            Path path = list.get(i);
-
-            if (isEventFile(path)) {
-                try {
-                    if (isSurelyOutOfDate(loadEvent(path))) {
-                        Files.deleteIfExists(path);
-                    } else {
-                        break;
-                    }
-                } catch (NoSuchFileException | FileNotFoundException e) {
-                    // already gone, can be ignored
-                } catch (IOException e) {
-                    // probably corrupt file
-                    LOG.log(Level.WARNING, "Failed to load file to check for last usage", e);
-                    if (path.toFile().lastModified() + DURATION_FOR_UNREADABLE_FILES < System.currentTimeMillis()) {
-                        Files.deleteIfExists(path);
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean isEventFile(Path path) {
-        try {
-            Integer.parseInt(path.getFileName().toString());
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private List<Path> sortedEventFileList() throws IOException {
-        try (var files = Files.list(eventDirectory)) {
-            return files
-                    .sorted(Comparator.comparing(Path::getFileName))
-                    .collect(Collectors.toUnmodifiableList());
-        }
-    }
-
-    private static boolean isSurelyOutOfDate(@Nonnull Event event) {
-        return event.getTime() + event.getDuration() + LOCK_DURATION_OFFSET + DURATION_SURELY_OUT_OF_DATE < System.currentTimeMillis();
-    }
-
-    private static Event loadEvent(@Nonnull Path path) throws IOException {
-        var content = Files.readString(path);
-        return BaseRepository.readFromString(Event.class, content);
+    static boolean isSurelyOutOfDate(@Nonnull Event event) {
+        return LockTable.surelyOutOfDateAt(event) < System.currentTimeMillis();
     }
 
     private static void logEvent(@Nonnull Path path, @Nonnull Event event) {
@@ -584,6 +368,17 @@ public class LockBus {
         Event getCheckedEvent(String id) throws LockException;
     }
 
+    public enum StorageMode {
+        /**
+         * One file per {@link Event}, named after a consecutive counter
+         */
+        EVENT_FILES,
+        /**
+         * Append-only segment files with length-prefixed and checksummed records
+         */
+        SEGMENTS
+    }
+
     public enum RegistrationOption {
         NOTIFY_ONLY_IF_ISSUER_IS_NOT_US
     }
@@ -0,0 +1,110 @@
+package de.itdesigners.winslow.fs;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.itdesigners.winslow.fs.LockBus.DURATION_SURELY_OUT_OF_DATE;
+import static de.itdesigners.winslow.fs.LockBus.LOCK_DURATION_OFFSET;
+
+/**
+ * The locks currently known to a {@link LockBus}. Lookups are lock-free reads on a concurrent map,
+ * while modifications also maintain an index ordered by the point in time a lock is surely out of
+ * date. Therefore, determining the next or all expired locks only costs as much as there are expired
+ * locks, instead of iterating all of them.
+ * <p>
+ * Entries of the index are not removed on release or extension, but are discarded lazily once they
+ * are due and no longer match the current lock of their subject.
+ */
+class LockTable {
+
+    private final @Nonnull Map<String, Event> locks   = new ConcurrentHashMap<>();
+    private final @Nonnull Queue<Expiry>      expires = new PriorityQueue<>(Comparator.comparingLong(Expiry::time));
+
+    @Nonnull
+    public Optional<Event> get(@Nonnull String subject) {
+        return Optional.ofNullable(this.locks.get(subject));
+    }
+
+    public int size() {
+        return this.locks.size();
+    }
+
+    @Nonnull
+    public List<Event> values() {
+        return List.copyOf(this.locks.values());
+    }
+
+    public synchronized void put(@Nonnull Event event) {
+        this.locks.put(event.getSubject(), event);
+        this.expires.add(new Expiry(surelyOutOfDateAt(event), event));
+    }
+
+    /**
+     * @return Whether the lock of the subject had the given id and was therefore removed
+     */
+    public synchronized boolean remove(@Nonnull String subject, @Nonnull String id) {
+        var lock = this.locks.get(subject);
+        if (lock != null && Objects.equals(lock.getId(), id)) {
+            this.locks.remove(subject);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @return The point in time at which the next lock is surely out of date
+     */
+    @Nonnull
+    public synchronized Optional<Long> getNextExpiry() {
+        this.discardStaleHeads();
+        return Optional.ofNullable(this.expires.peek()).map(Expiry::time);
+    }
+
+    /**
+     * Removes all locks from the index, that are surely out of date at the given point in time.
+     * The locks themselves remain until they are released explicitly.
+     *
+     * @param now The current time in milliseconds
+     * @return All locks that are surely out of date
+     */
+    @Nonnull
+    public synchronized List<Event> pollSurelyOutOfDate(long now) {
+        var expired = new ArrayList<Event>();
+        while (true) {
+            this.discardStaleHeads();
+            var head = this.expires.peek();
+            if (head == null || head.time() >= now) {
+                return expired;
+            }
+            this.expires.poll();
+            expired.add(head.event());
+        }
+    }
+
+    /**
+     * Re-adds the lock to the index, if it is still the current lock of its subject. To be used
+     * if the lock was returned by {@link #pollSurelyOutOfDate(long)} but could not be released.
+     */
+    public synchronized void reschedule(@Nonnull Event event) {
+        if (this.locks.get(event.getSubject()) == event) {
+            this.expires.add(new Expiry(surelyOutOfDateAt(event), event));
+        }
+    }
+
+    private void discardStaleHeads() {
+        var head = this.expires.peek();
+        while (head != null && this.locks.get(head.event().getSubject()) != head.event()) {
+            this.expires.poll();
+            head = this.expires.peek();
+        }
+    }
+
+    static long surelyOutOfDateAt(@Nonnull Event event) {
+        return event.getTime() + event.getDuration() + LOCK_DURATION_OFFSET + DURATION_SURELY_OUT_OF_DATE;
+    }
+
+    private record Expiry(long time, @Nonnull Event event) {
+    }
+}
@@ -0,0 +1,409 @@
+package de.itdesigners.winslow.fs;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed store of workspace files. Taking a snapshot of a workspace hard links each of its files into the
+ * store, named by the SHA-256 of its content, and replaces files whose content is already stored by a hard link to
+ * the stored object. Other workspaces are then materialized from the {@link Manifest} of the snapshot by hard links
+ * as well, so that files are neither copied nor stored twice. Each workspace keeps its manifest in
+ * {@link #MANIFEST_FILE_NAME}, which allows the next snapshot to skip the files that are unchanged since.
+ * <p>
+ * The link count of an object is its reference count: an object only linked by the store itself is no longer part of
+ * any workspace and is deleted on {@link #release(Manifest)} or {@link #collectGarbage()}. Because the files are
+ * shared, stages must replace files instead of modifying them in place, which is why stored files are made
+ * read-only. A file that has been modified in place regardless (by the owner after changing its permissions, or by
+ * root) is detected and reported by the next snapshot, but the workspaces sharing it have seen the modification too
+ * and the stored object no longer matches its hash, so it is removed from the store.
+ * <p>
+ * Entries whose path relative to the workspace starts with a dot are ignored.
+ */
+public class SnapshotStore {
+
+    private static final Logger LOG = Logger.getLogger(SnapshotStore.class.getSimpleName());
+
+    public static final String MANIFEST_FILE_NAME = ".winslow-snapshot";
+
+    private static final int    MANIFEST_HEADER   = 0x574E5301;
+    private static final String OBJECTS_DIRECTORY = "objects";
+    private static final String TEMP_DIRECTORY    = "tmp";
+    private static final String TEMP_FILE_PREFIX  = ".winslow-snapshot-";
+    private static final int    HASH_BUFFER_SIZE  = 1024 * 1024;
+
+    private static final Set<PosixFilePermission> WRITE_PERMISSIONS = Set.of(
+            PosixFilePermission.OWNER_WRITE,
+            PosixFilePermission.GROUP_WRITE,
+            PosixFilePermission.OTHERS_WRITE
+    );
+
+    private final @Nonnull Path directory;
+
+    /**
+     * @param directory The directory to store the objects in, it must be on the same file system as the workspaces
+     */
+    public SnapshotStore(@Nonnull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stores all files of the given workspace that are not already stored and writes its manifest
+     *
+     * @param workspace The workspace to take the snapshot of
+     * @param log       Receives the names of the files being stored
+     * @param aborted   Whether to abort, polled before each file
+     * @return The manifest of the workspace
+     * @throws InterruptedIOException If aborted
+     */
+    @Nonnull
+    public Manifest snapshot(
+            @Nonnull Path workspace,
+            @Nonnull Consumer<String> log,
+            @Nonnull BooleanSupplier aborted) throws IOException {
+        var previous = new HashMap<String, Entry>();
+        readManifest(workspace).ifPresent(manifest -> manifest.entries().forEach(e -> previous.put(e.path(), e)));
+
+        var entries = new ArrayList<Entry>();
+        Files.walkFileTree(workspace, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                ensureNotAborted(aborted);
+                var relative = workspace.relativize(dir).toString();
+                if (relative.isEmpty()) {
+                    return FileVisitResult.CONTINUE;
+                } else if (isIgnored(relative)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                entries.add(new Entry(Type.DIRECTORY, relative, "", 0, 0));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                ensureNotAborted(aborted);
+                var relative = workspace.relativize(file).toString();
+                if (isIgnored(relative)) {
+                    return FileVisitResult.CONTINUE;
+                } else if (attrs.isSymbolicLink()) {
+                    entries.add(new Entry(Type.SYMBOLIC_LINK, relative, Files.readSymbolicLink(file).toString(), 0, 0));
+                } else if (attrs.isRegularFile()) {
+                    entries.add(store(file, relative, attrs, previous.get(relative), log));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        var manifest = new Manifest(entries);
+        writeManifest(workspace, manifest);
+        return manifest;
+    }
+
+    /**
+     * Creates the content described by the manifest in the given target through hard links to the stored objects
+     * and writes the manifest to it. Existing files in the target are replaced. The linked files are read-only.
+     *
+     * @param manifest The manifest of the snapshot to materialize
+     * @param source   The workspace the snapshot has been taken of, to link files whose object has vanished
+     * @param target   The directory to materialize the snapshot in
+     * @param aborted  Whether to abort, polled before each entry
+     * @throws InterruptedIOException If aborted
+     */
+    public void materialize(
+            @Nonnull Manifest manifest,
+            @Nonnull Path source,
+            @Nonnull Path target,
+            @Nonnull BooleanSupplier aborted) throws IOException {
+        Files.createDirectories(target);
+        for (var entry : manifest.entries()) {
+            ensureNotAborted(aborted);
+            var path = target.resolve(entry.path());
+            switch (entry.type()) {
+                case DIRECTORY -> Files.createDirectories(path);
+                case SYMBOLIC_LINK -> {
+                    Files.deleteIfExists(path);
+                    Files.createSymbolicLink(path, Path.of(entry.value()));
+                }
+                case FILE -> {
+                    Files.deleteIfExists(path);
+                    try {
+                        Files.createLink(path, getObjectPath(entry.value()));
+                    } catch (NoSuchFileException e) {
+                        // the object has been released meanwhile, but the source still shares the content
+                        Files.createLink(path, source.resolve(entry.path()));
+                    }
+                    // objects stored before they were made read-only
+                    makeReadOnly(path);
+                }
+            }
+        }
+        writeManifest(target, manifest);
+    }
+
+    /**
+     * Deletes the objects of the given manifest that are no longer part of any workspace
+     *
+     * @return The number of deleted objects
+     */
+    public int release(@Nonnull Manifest manifest) {
+        var deleted = 0;
+        for (var entry : manifest.entries()) {
+            if (entry.type() == Type.FILE && deleteIfUnreferenced(getObjectPath(entry.value()))) {
+                deleted += 1;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes all objects that are no longer part of any workspace
+     *
+     * @return The number of deleted objects
+     */
+    public int collectGarbage() throws IOException {
+        var objects = this.directory.resolve(OBJECTS_DIRECTORY);
+        if (!Files.isDirectory(objects)) {
+            return 0;
+        }
+        var deleted = new int[]{0};
+        Files.walkFileTree(objects, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (deleteIfUnreferenced(file)) {
+                    deleted[0] += 1;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return deleted[0];
+    }
+
+    @Nonnull
+    public static Optional<Manifest> readManifest(@Nonnull Path workspace) throws IOException {
+        var path = workspace.resolve(MANIFEST_FILE_NAME);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MANIFEST_HEADER) {
+                throw new IOException("Not a snapshot manifest: " + path);
+            }
+            var count   = input.readInt();
+            var types   = Type.values();
+            var entries = new ArrayList<Entry>(count);
+            for (int i = 0; i < count; ++i) {
+                entries.add(new Entry(
+                        types[input.readUnsignedByte()],
+                        input.readUTF(),
+                        input.readUTF(),
+                        input.readLong(),
+                        input.readLong()
+                ));
+            }
+            return Optional.of(new Manifest(entries));
+        }
+    }
+
+    private static void writeManifest(@Nonnull Path workspace, @Nonnull Manifest manifest) throws IOException {
+        var path = workspace.resolve(MANIFEST_FILE_NAME);
+        // unique, because snapshots of the same workspace might be written concurrently, also by other nodes
+        var temp = Files.createTempFile(workspace, TEMP_FILE_PREFIX, ".manifest");
+        try {
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(MANIFEST_HEADER);
+                output.writeInt(manifest.entries().size());
+                for (var entry : manifest.entries()) {
+                    output.writeByte(entry.type().ordinal());
+                    output.writeUTF(entry.path());
+                    output.writeUTF(entry.value());
+                    output.writeLong(entry.size());
+                    output.writeLong(entry.lastModified());
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Nonnull
+    private Entry store(
+            @Nonnull Path file,
+            @Nonnull String relative,
+            @Nonnull BasicFileAttributes attrs,
+            @Nullable Entry previous,
+            @Nonnull Consumer<String> log) throws IOException {
+        if (previous != null && previous.type() == Type.FILE) {
+            var object = getObjectPath(previous.value());
+            if (isSameFile(file, object)) {
+                if (previous.size() == attrs.size() && previous.lastModified() == attrs.lastModifiedTime().toMillis()) {
+                    return previous;
+                }
+                // the content of the object has been modified in place through this workspace
+                var sharedWith = getLinkCount(object) - 2;
+                var message    = "Shared file has been modified in place, which changed it in " + sharedWith
+                        + " other workspace(s) as well: " + relative;
+                LOG.severe(message + " in " + file);
+                log.accept(message);
+                Files.deleteIfExists(object);
+            }
+        }
+
+        log.accept("..." + file.getFileName());
+        var hash   = hash(file);
+        var object = getObjectPath(hash);
+
+        for (int attempt = 0; ; ++attempt) {
+            try {
+                if (Files.exists(object)) {
+                    if (!isSameFile(file, object)) {
+                        // not within the workspace, which is being walked
+                        // a unique name reserved by an empty file, which is replaced by the link
+                        var temp = Files.createTempFile(
+                                Files.createDirectories(this.directory.resolve(TEMP_DIRECTORY)),
+                                hash + "-",
+                                ".link"
+                        );
+                        try {
+                            Files.delete(temp);
+                            Files.createLink(temp, object);
+                            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        } finally {
+                            Files.deleteIfExists(temp);
+                        }
+                    }
+                } else {
+                    Files.createDirectories(object.getParent());
+                    Files.createLink(object, file);
+                }
+                makeReadOnly(object);
+                break;
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // the object has been released or stored concurrently
+                if (attempt >= 3) {
+                    throw e;
+                }
+            }
+        }
+
+        var stored = Files.readAttributes(file, BasicFileAttributes.class);
+        return new Entry(Type.FILE, relative, hash, stored.size(), stored.lastModifiedTime().toMillis());
+    }
+
+    private boolean deleteIfUnreferenced(@Nonnull Path object) {
+        try {
+            if (getLinkCount(object) <= 1) {
+                Files.deleteIfExists(object);
+                return true;
+            }
+        } catch (NoSuchFileException e) {
+            // already released
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            LOG.log(Level.WARNING, "Failed to release " + object, e);
+        }
+        return false;
+    }
+
+    private static int getLinkCount(@Nonnull Path file) throws IOException {
+        return ((Number) Files.getAttribute(file, "unix:nlink")).intValue();
+    }
+
+    /**
+     * Removes all write permissions from the file, which affects all of its links, so that modifying a shared file
+     * in place fails instead of changing it in all workspaces at once. Files that cannot be changed are left as is.
+     */
+    private static void makeReadOnly(@Nonnull Path file) {
+        try {
+            var view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+            if (view == null) {
+                if (!file.toFile().setWritable(false, false)) {
+                    LOG.warning("Failed to make stored file read-only: " + file);
+                }
+                return;
+            }
+            var permissions = new HashSet<>(view.readAttributes().permissions());
+            if (permissions.removeAll(WRITE_PERMISSIONS)) {
+                view.setPermissions(permissions);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to make stored file read-only: " + file, e);
+        }
+    }
+
+    @Nonnull
+    private Path getObjectPath(@Nonnull String hash) {
+        return this.directory.resolve(OBJECTS_DIRECTORY).resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    private static boolean isSameFile(@Nonnull Path a, @Nonnull Path b) throws IOException {
+        try {
+            return Files.isSameFile(a, b);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Nonnull
+    private static String hash(@Nonnull Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static boolean isIgnored(@Nonnull String relative) {
+        return relative.startsWith(".");
+    }
+
+    private static void ensureNotAborted(@Nonnull BooleanSupplier aborted) throws InterruptedIOException {
+        if (aborted.getAsBoolean()) {
+            throw new InterruptedIOException("Taking the snapshot has been aborted");
+        }
+    }
+
+    public enum Type {
+        FILE,
+        DIRECTORY,
+        SYMBOLIC_LINK,
+    }
+
+    /**
+     * @param type         The type of the entry
+     * @param path         The path relative to the workspace
+     * @param value        The hash of the content of a file or the target of a symbolic link
+     * @param size         The size of a file
+     * @param lastModified The modification time of a file in millis
+     */
+    public record Entry(@Nonnull Type type, @Nonnull String path, @Nonnull String value, long size, long lastModified) {
+    }
+
+    public record Manifest(@Nonnull List<Entry> entries) {
+    }
+}
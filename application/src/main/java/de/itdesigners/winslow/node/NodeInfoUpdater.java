@@ -1,17 +1,14 @@
 package de.itdesigners.winslow.node;
 
-import de.itdesigners.winslow.api.node.NodeInfo;
 import de.itdesigners.winslow.api.node.NodeUtilization;
+import de.itdesigners.winslow.api.node.NodeUtilizationAccumulator;
 import de.itdesigners.winslow.fs.LockBus;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class NodeInfoUpdater implements Runnable {
 
@@ -22,8 +19,8 @@ public class NodeInfoUpdater implements Runnable {
     @Nonnull private final NodeRepository repository;
     @Nonnull private final Node           node;
 
-    private @Nonnull List<NodeInfo> summedInfo = new ArrayList<>((int) SUM_DURATION.toSeconds() + 10);
-    private          long           waitUntil  = 0L;
+    private final @Nonnull NodeUtilizationAccumulator summedInfo = new NodeUtilizationAccumulator();
+    private                long                       waitUntil  = 0L;
 
     private NodeInfoUpdater(@Nonnull NodeRepository repository, @Nonnull Node node) {
         this.repository = repository;
@@ -44,18 +41,10 @@ public class NodeInfoUpdater implements Runnable {
         waitUntil = info.time() + SLEEP_TIME_MS;
         repository.updateNodeInfo(info);
 
-        summedInfo.add(info);
+        summedInfo.add(NodeUtilization.from(info));
 
-        var firstEntry = summedInfo.get(0);
-        var recentEntry= summedInfo.get(summedInfo.size() -1);
-
-        if (firstEntry.time() < (System.currentTimeMillis() - SUM_DURATION.toMillis())) {
-            var util = NodeUtilization.average(
-                    firstEntry.time(),
-                    recentEntry.uptime(),
-                    summedInfo.stream().map(NodeUtilization::from).collect(Collectors.toList())
-            );
-            repository.updateUtilizationLog(info.name(), util);
+        if (summedInfo.getFirstTime() < (System.currentTimeMillis() - SUM_DURATION.toMillis())) {
+            repository.updateUtilizationLog(info.name(), summedInfo.average());
             summedInfo.clear();
         }
 
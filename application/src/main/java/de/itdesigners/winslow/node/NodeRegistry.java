@@ -0,0 +1,144 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.NodeInfo;
+import de.itdesigners.winslow.web.websocket.ChangeEvent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory view of the active nodes. A node is active as long as its last heartbeat is younger than the configured
+ * maximum age. Each change increments the version of the registry and is passed to the listeners, in the order the
+ * changes were applied.
+ */
+public class NodeRegistry {
+
+    private final          long                                             maxAgeMs;
+    private final @Nonnull Map<String, Entry>                               entries   = new HashMap<>();
+    private final @Nonnull List<BiConsumer<ChangeEvent.ChangeType, String>> listeners = new ArrayList<>();
+
+    private long version = 0;
+
+    public NodeRegistry(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public void addChangeListener(@Nonnull BiConsumer<ChangeEvent.ChangeType, String> listener) {
+        synchronized (this.listeners) {
+            this.listeners.add(listener);
+        }
+    }
+
+    public void removeChangeListener(@Nonnull BiConsumer<ChangeEvent.ChangeType, String> listener) {
+        synchronized (this.listeners) {
+            this.listeners.remove(listener);
+        }
+    }
+
+    /**
+     * @param name     The name the node is registered with
+     * @param info     The latest {@link NodeInfo} of the node
+     * @param lastSeen The time in millis the node has sent its latest heartbeat
+     */
+    public void update(@Nonnull String name, @Nonnull NodeInfo info, long lastSeen) {
+        synchronized (this.listeners) {
+            ChangeEvent.ChangeType type;
+            synchronized (this) {
+                var previous = this.entries.put(name, new Entry(info, lastSeen));
+                this.version += 1;
+                type = previous != null ? ChangeEvent.ChangeType.UPDATE : ChangeEvent.ChangeType.CREATE;
+            }
+            notifyListeners(type, name);
+        }
+    }
+
+    /**
+     * Removes all nodes whose last heartbeat is older than the maximum age
+     */
+    public void expire() {
+        synchronized (this.listeners) {
+            var expired = new ArrayList<String>();
+            synchronized (this) {
+                var now      = System.currentTimeMillis();
+                var iterator = this.entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    var entry = iterator.next();
+                    if (!isActive(entry.getValue(), now)) {
+                        iterator.remove();
+                        expired.add(entry.getKey());
+                    }
+                }
+                if (!expired.isEmpty()) {
+                    this.version += 1;
+                }
+            }
+            expired.forEach(name -> notifyListeners(ChangeEvent.ChangeType.DELETE, name));
+        }
+    }
+
+    /**
+     * @return The time of the latest heartbeat of the node or null if the node is unknown
+     */
+    @Nullable
+    public synchronized Long getLastSeen(@Nonnull String name) {
+        var entry = this.entries.get(name);
+        return entry != null ? entry.lastSeen() : null;
+    }
+
+    /**
+     * @return A number that changes whenever a node is added, updated or removed
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    @Nonnull
+    public synchronized List<String> getActiveNodeNames() {
+        var now   = System.currentTimeMillis();
+        var names = new ArrayList<String>(this.entries.size());
+        this.entries.forEach((name, entry) -> {
+            if (isActive(entry, now)) {
+                names.add(name);
+            }
+        });
+        return names;
+    }
+
+    @Nonnull
+    public synchronized List<NodeInfo> getActiveNodes() {
+        var now   = System.currentTimeMillis();
+        var nodes = new ArrayList<NodeInfo>(this.entries.size());
+        for (var entry : this.entries.values()) {
+            if (isActive(entry, now)) {
+                nodes.add(entry.info());
+            }
+        }
+        return nodes;
+    }
+
+    @Nonnull
+    public synchronized Optional<NodeInfo> getActiveNode(@Nonnull String name) {
+        var now = System.currentTimeMillis();
+        return Optional
+                .ofNullable(this.entries.get(name))
+                .filter(entry -> isActive(entry, now))
+                .map(Entry::info);
+    }
+
+    private boolean isActive(@Nonnull Entry entry, long now) {
+        return now - entry.lastSeen() < this.maxAgeMs;
+    }
+
+    private void notifyListeners(@Nonnull ChangeEvent.ChangeType type, @Nonnull String name) {
+        this.listeners.forEach(listener -> listener.accept(type, name));
+    }
+
+    private record Entry(@Nonnull NodeInfo info, long lastSeen) {
+    }
+}
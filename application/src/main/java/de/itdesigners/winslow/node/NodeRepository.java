@@ -4,10 +4,10 @@ import de.itdesigners.winslow.BaseRepository;
 import de.itdesigners.winslow.api.node.NodeInfo;
 import de.itdesigners.winslow.api.node.NodeResourceUsageConfiguration;
 import de.itdesigners.winslow.api.node.NodeUtilization;
+import de.itdesigners.winslow.api.node.NodeUtilizationAccumulator;
 import de.itdesigners.winslow.fs.LockBus;
 import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
 import de.itdesigners.winslow.web.websocket.ChangeEvent;
-import org.javatuples.Pair;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -15,7 +15,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.util.*;
 import java.util.function.BiConsumer;
@@ -32,6 +32,8 @@ public class NodeRepository extends BaseRepository {
     public static final  String CSV_SUFFIX_SEPARATOR = ".";
     public static final  String CSV_SUFFIX           = ".csv";
 
+    private static final String RESOURCE_CONFIGURATION_SUFFIX = ".resource-configuration.yaml";
+
     private static final long ACTIVE_NODE_MAX_AGE_MS = Duration.ofSeconds(15).toMillis();
     public static final  long MAX_RETENTION_TIME_MS  = Duration.ofDays(31).toMillis();
 
@@ -41,69 +43,41 @@ public class NodeRepository extends BaseRepository {
     public static final long CSV_MAGIC_FILE_SIZE_LIMIT = (12 + 128) * 4 * 1024;
 
 
-    private final @Nonnull List<BiConsumer<ChangeEvent.ChangeType, String>> listeners       = new ArrayList<>();
-    private final @Nonnull Map<String, Path>                                utilizationPath = new HashMap<>();
+    private final @Nonnull NodeRegistry     registry         = new NodeRegistry(ACTIVE_NODE_MAX_AGE_MS);
+    private final @Nonnull UtilizationStore utilizationStore = new UtilizationStore(
+            this::getNodeUtilizationLogDirectory,
+            CSV_MAGIC_FILE_SIZE_LIMIT,
+            MAX_RETENTION_TIME_MS
+    );
 
 
     public NodeRepository(LockBus lockBus, WorkDirectoryConfiguration workDirectoryConfiguration) throws IOException {
         super(lockBus, workDirectoryConfiguration);
+        this.refreshRegistry();
         this.startWatcherDaemon();
     }
 
     public void addChangeListener(@Nonnull BiConsumer<ChangeEvent.ChangeType, String> listener) {
-        synchronized (listeners) {
-            this.listeners.add(listener);
-        }
+        this.registry.addChangeListener(listener);
     }
 
     public void removeChangeListener(@Nonnull BiConsumer<ChangeEvent.ChangeType, String> listener) {
-        synchronized (listeners) {
-            this.listeners.remove(listener);
-        }
+        this.registry.removeChangeListener(listener);
+    }
+
+    /**
+     * @return A number that changes whenever a node is added, updated or removed
+     */
+    public long getActiveNodesVersion() {
+        return this.registry.getVersion();
     }
 
     private void startWatcherDaemon() {
         var thread = new Thread(() -> {
-            try {
-                // NFS does not support WatchServices... ... ... ... y tho :/
-                var lastModified = new HashMap<String, Long>();
-                var directory    = getRepositoryDirectory();
-                var queue        = new LinkedList<String>();
-
-                while (true) {
-                    try (var stream = Files.list(directory)) {
-                        stream
-                                .filter(p -> !p.getFileName().toString().startsWith(TEMP_FILE_PREFIX))
-                                .map(p -> new Pair<>(p.getFileName().toString(), p.toFile().lastModified()))
-                                .filter(p -> !lastModified.containsKey(p.getValue0()) || p.getValue1() > lastModified.get(
-                                        p.getValue0()))
-                                .forEach(p -> {
-                                    queue.remove(p.getValue0());
-                                    queue.push(p.getValue0()); // move it to the end
-
-                                    var type = lastModified.containsKey(p.getValue0())
-                                               ? ChangeEvent.ChangeType.CREATE
-                                               : ChangeEvent.ChangeType.UPDATE;
-                                    notifyListeners(type, p.getValue0());
-                                    lastModified.put(p.getValue0(), p.getValue1());
-                                });
-
-                    }
-
-
-                    while (Optional
-                            .ofNullable(queue.peek())
-                            .filter(e -> System.currentTimeMillis() - lastModified.get(e) >= ACTIVE_NODE_MAX_AGE_MS)
-                            .isPresent()) {
-                        var node = queue.pop();
-                        lastModified.remove(node);
-                        notifyListeners(ChangeEvent.ChangeType.DELETE, node);
-                    }
-                    LockBus.ensureSleepMs(1000);
-                }
-
-            } catch (IOException e) {
-                LOG.log(Level.SEVERE, "Watcher thread failed", e);
+            // NFS does not support WatchServices... ... ... ... y tho :/
+            while (true) {
+                LockBus.ensureSleepMs(1000);
+                refreshRegistry();
             }
         });
         thread.setName(getClass().getSimpleName());
@@ -111,10 +85,40 @@ public class NodeRepository extends BaseRepository {
         thread.start();
     }
 
-    private void notifyListeners(@Nonnull ChangeEvent.ChangeType type, @Nonnull String node) {
-        synchronized (listeners) {
-            listeners.forEach(listener -> listener.accept(type, node));
+    /**
+     * Reads the files of nodes that have been modified since the last refresh into the {@link NodeRegistry} and
+     * removes the nodes that have not sent a heartbeat for too long. The files of the other nodes are only stat'ed.
+     */
+    void refreshRegistry() {
+        try (var files = Files.list(getRepositoryDirectory())) {
+            var now = System.currentTimeMillis();
+            files.forEach(path -> {
+                var name = path.getFileName().toString();
+                if (!isNodeInfoFileName(name)) {
+                    return;
+                }
+                try {
+                    var attributes   = Files.readAttributes(path, BasicFileAttributes.class);
+                    var lastModified = attributes.lastModifiedTime().toMillis();
+                    if (attributes.isRegularFile()
+                            && now - lastModified < ACTIVE_NODE_MAX_AGE_MS
+                            && !Objects.equals(this.registry.getLastSeen(name), lastModified)) {
+                        readNode(path).ifPresent(info -> this.registry.update(name, info, lastModified));
+                    }
+                } catch (IOException e) {
+                    LOG.log(Level.FINE, "Node file vanished while refreshing " + path, e);
+                }
+            });
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to list nodes", e);
         }
+        this.registry.expire();
+    }
+
+    private static boolean isNodeInfoFileName(@Nonnull String fileName) {
+        return !fileName.startsWith(TEMP_FILE_PREFIX)
+                && !fileName.endsWith(CSV_SUFFIX)
+                && !fileName.endsWith(RESOURCE_CONFIGURATION_SUFFIX);
     }
 
 
@@ -124,40 +128,19 @@ public class NodeRepository extends BaseRepository {
         return workDirectoryConfiguration.getNodesDirectory();
     }
 
-    private Stream<Path> listActiveNodePaths() {
-        try (var files = Files.list(getRepositoryDirectory())) {
-            return files
-                    .filter(p -> {
-                        var fileName = p.getFileName().toString();
-                        return Files.isRegularFile(p)
-                                && !fileName.startsWith(TEMP_FILE_PREFIX)
-                                && !fileName.endsWith(CSV_SUFFIX);
-                    })
-                    .filter(p -> System.currentTimeMillis() - p.toFile().lastModified() < ACTIVE_NODE_MAX_AGE_MS)
-                    .collect(Collectors.toList())
-                    .stream();
-        } catch (IOException e) {
-            LOG.log(Level.WARNING, "Failed to list nodes", e);
-            return Stream.empty();
-        }
-    }
-
     @Nonnull
     public Stream<String> listActiveNodes() {
-        return listActiveNodePaths().map(Path::getFileName).map(Path::toString);
+        return this.registry.getActiveNodeNames().stream();
     }
 
     @Nonnull
     public Stream<NodeInfo> loadActiveNodes() {
-        return listActiveNodePaths().flatMap(p -> this.readNode(p).stream());
+        return this.registry.getActiveNodes().stream();
     }
 
     @Nonnull
     public Optional<NodeInfo> getNodeInfo(@Nonnull String name) {
-        return listActiveNodePaths()
-                .filter(p -> p.getFileName().toString().equals(name))
-                .findFirst()
-                .flatMap(this::readNode);
+        return this.registry.getActiveNode(name);
     }
 
     @Nonnull
@@ -182,16 +165,15 @@ public class NodeRepository extends BaseRepository {
         } finally {
             Files.deleteIfExists(temp);
         }
+
+        // the local node needs not to wait for the next refresh to see its own update
+        this.registry.update(name, node, Files.getLastModifiedTime(path).toMillis());
     }
 
     private Path getNodeUtilizationLogDirectory(@Nonnull String nodeName) {
         return getRepositoryDirectory().resolve(nodeName + "-log");
     }
 
-    private Path getUtilizationLogPath(@Nonnull String nodeName, long time) {
-        return getNodeUtilizationLogDirectory(nodeName).resolve(nodeName + CSV_SUFFIX_SEPARATOR + time + CSV_SUFFIX);
-    }
-
     public void updateUtilizationLog(@Nonnull NodeInfo info) throws IOException {
         updateUtilizationLog(info.name(), NodeUtilization.from(info));
     }
@@ -199,84 +181,42 @@ public class NodeRepository extends BaseRepository {
     public synchronized void updateUtilizationLog(
             @Nonnull String nodeName,
             @Nonnull NodeUtilization utilization) throws IOException {
-        var line = (utilization.toCsvLine() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
-        var path = Optional
-                .ofNullable(this.utilizationPath.get(nodeName))
-                .filter(p -> {
-                    try {
-                        if (Files.size(p) + line.length <= CSV_MAGIC_FILE_SIZE_LIMIT) {
-                            return true;
-                        }
-                    } catch (Throwable t) {
-                        LOG.log(Level.FINE, "Failed to retrieve file size for " + p, t);
-                    }
-                    return false;
-                })
-                .orElseGet(() -> {
-                    var p = getUtilizationLogPath(nodeName, utilization.time());
-                    try {
-                        Files.createDirectories(p.getParent());
-                    } catch (IOException e) {
-                        LOG.log(Level.SEVERE, "Failed to create directory for utilization log file: " + p, e);
-                    }
-                    LOG.info("New utilization log path: " + p);
-                    return p;
-                });
-
-
-        Files.write(
-                path,
-                line,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND,
-                StandardOpenOption.SYNC,
-                StandardOpenOption.DSYNC
-        );
-
-        this.utilizationPath.put(nodeName, path);
+        this.utilizationStore.append(nodeName, utilization);
         deleteOldUtilizationLogs(nodeName);
     }
 
+    /**
+     * The utilization used to be logged in CSV files, which are only read until they have expired
+     */
     private void deleteOldUtilizationLogs(@Nonnull String nodeName) {
-        var logs = listNodeUtilizationLogs(nodeName);
-        var retainedElementCount = logs
-                .stream()
-                .sorted(Comparator.reverseOrder())
-                .takeWhile(path -> {
-                    try {
-                        return Files.getLastModifiedTime(path).toMillis()
-                                + MAX_RETENTION_TIME_MS
-                                > System.currentTimeMillis();
-                    } catch (IOException e) {
-                        LOG.log(Level.WARNING, "Failed to get last modified time for " + path, e);
-                        return true;
-                    }
-                })
-                .peek(p -> logs.remove(logs.size() - 1))
-                .count();
-
-        if (retainedElementCount > 0) {
-            logs.forEach(p -> {
-                try {
-                    LOG.info("Deleting utilization log " + p);
-                    Files.deleteIfExists(p);
-                } catch (IOException e) {
-                    LOG.log(Level.WARNING, "Failed to delete log file " + p, e);
+        listNodeUtilizationLogs(nodeName).forEach(path -> {
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() + MAX_RETENTION_TIME_MS < System.currentTimeMillis()) {
+                    LOG.info("Deleting utilization log " + path);
+                    Files.deleteIfExists(path);
                 }
-            });
-        }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to delete log file " + path, e);
+            }
+        });
     }
 
     @Nonnull
     private List<Path> listNodeUtilizationLogs(@Nonnull String nodeName) {
         try (var files = Files.list(getNodeUtilizationLogDirectory(nodeName))) {
-            return files.collect(Collectors.toList());
+            return files
+                    .filter(p -> p.getFileName().toString().endsWith(CSV_SUFFIX))
+                    .collect(Collectors.toList());
         } catch (IOException e) {
             LOG.log(Level.WARNING, "Failed to list nodes", e);
             return Collections.emptyList();
         }
     }
 
+    /**
+     * @param chunkSpanMillis The time span to average the values of, the values are read from the coarsest
+     *                        rollup that is not coarser than this
+     */
     @Nonnull
     public Stream<NodeUtilization> getNodeUtilizationBetween(
             @Nonnull String nodeName,
@@ -284,7 +224,40 @@ public class NodeRepository extends BaseRepository {
             long timeEnd,
             long chunkSpanMillis
     ) {
-        var stream = listNodeUtilizationLogsBetween(nodeName, timeStart, timeEnd)
+        var values = this.utilizationStore.read(
+                nodeName,
+                UtilizationStore.Resolution.coarsestWithin(chunkSpanMillis),
+                timeStart,
+                timeEnd,
+                (start, end) -> getNodeUtilizationFromLogsBetween(nodeName, start, end)
+        );
+        if (chunkSpanMillis > 1) {
+            var chunked     = new ArrayList<NodeUtilization>();
+            var accumulator = new NodeUtilizationAccumulator();
+
+            for (var value : values) {
+                if (accumulator.getCount() > 0 && value.time() >= accumulator.getFirstTime() + chunkSpanMillis) {
+                    chunked.add(accumulator.average());
+                    accumulator.clear();
+                }
+                accumulator.add(value);
+            }
+            if (accumulator.getCount() > 0) {
+                chunked.add(accumulator.average());
+            }
+
+            return chunked.stream();
+        } else {
+            return values.stream();
+        }
+    }
+
+    @Nonnull
+    private List<NodeUtilization> getNodeUtilizationFromLogsBetween(
+            @Nonnull String nodeName,
+            long timeStart,
+            long timeEnd) {
+        return listNodeUtilizationLogsBetween(nodeName, timeStart, timeEnd)
                 .flatMap(path -> {
                     try {
                         return Files.lines(path, StandardCharsets.UTF_8);
@@ -296,39 +269,8 @@ public class NodeRepository extends BaseRepository {
                 .map(NodeUtilization::fromCsvLineNoThrows)
                 .flatMap(Optional::stream)
                 .filter(u -> u.time() >= timeStart && u.time() <= timeEnd)
-                .sorted(Comparator.comparingLong(NodeUtilization::time));
-        if (chunkSpanMillis > 1) {
-            var raw     = stream.collect(Collectors.toUnmodifiableList());
-            var chunked = new ArrayList<List<NodeUtilization>>();
-
-            if (!raw.isEmpty()) {
-                long chunkStart = raw.get(0).time();
-                var  chunkList  = new ArrayList<NodeUtilization>();
-                chunked.add(chunkList);
-
-                for (var value : raw) {
-                    if (value.time() < chunkStart + chunkSpanMillis) {
-                        chunkList.add(value);
-                    } else {
-                        chunkStart = value.time();
-                        chunkList  = new ArrayList<>();
-                        chunkList.add(value);
-                        chunked.add(chunkList);
-                    }
-                }
-            }
-
-            return chunked
-                    .stream()
-                    .filter(list -> !list.isEmpty())
-                    .map(list -> {
-                        var first = list.get(0);
-                        var last  = list.get(list.size() - 1);
-                        return NodeUtilization.average(first.time(), last.uptime(), list);
-                    });
-        } else {
-            return stream;
-        }
+                .sorted(Comparator.comparingLong(NodeUtilization::time))
+                .collect(Collectors.toList());
     }
 
     @Nonnull
@@ -393,6 +335,6 @@ public class NodeRepository extends BaseRepository {
 
     @Nonnull
     private Path getNodeResourceLimitConfigurationPath(@Nonnull String nodeName) {
-        return getRepositoryDirectory().resolve(nodeName + ".resource-configuration.yaml");
+        return getRepositoryDirectory().resolve(nodeName + RESOURCE_CONFIGURATION_SUFFIX);
     }
 }
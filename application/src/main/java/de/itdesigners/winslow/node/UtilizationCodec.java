@@ -0,0 +1,212 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of a series of {@link NodeUtilization}s. Each field is stored relative to the same field of the
+ * previous record: the time and uptime as the delta of their deltas, all other integers as their delta and floats
+ * as the XOR of their bits, each as (zig-zag encoded) varint. Unchanged fields take a single byte, changed floats
+ * usually four to five. Encoding and decoding share the state of the previous record, so that appending can continue
+ * once an existing series has been decoded.
+ */
+class UtilizationCodec {
+
+    private static final NodeUtilization ZERO = new NodeUtilization(
+            0,
+            0,
+            List.of(),
+            new MemInfo(0, 0, 0, 0, 0),
+            new NetInfo(0, 0),
+            new DiskInfo(0, 0, 0, 0),
+            List.of()
+    );
+
+    private static final GpuUtilization ZERO_GPU = new GpuUtilization(0, 0, 0, 0);
+
+    private @Nullable NodeUtilization previous            = null;
+    private           long            previousTimeDelta   = 0;
+    private           long            previousUptimeDelta = 0;
+
+    /**
+     * @return The last encoded or decoded record
+     */
+    @Nullable
+    NodeUtilization getPrevious() {
+        return this.previous;
+    }
+
+    void encode(@Nonnull NodeUtilization utilization, @Nonnull OutputStream output) throws IOException {
+        var p = this.previous != null ? this.previous : ZERO;
+
+        var timeDelta   = utilization.time() - p.time();
+        var uptimeDelta = utilization.uptime() - p.uptime();
+        writeSigned(output, timeDelta - this.previousTimeDelta);
+        writeSigned(output, uptimeDelta - this.previousUptimeDelta);
+
+        writeFloats(output, utilization.cpuUtilization(), p.cpuUtilization());
+
+        var mem  = utilization.memoryInfo();
+        var pMem = p.memoryInfo();
+        writeSigned(output, mem.memoryTotal() - pMem.memoryTotal());
+        writeSigned(output, mem.memoryFree() - pMem.memoryFree());
+        writeSigned(output, mem.systemCache() - pMem.systemCache());
+        writeSigned(output, mem.swapTotal() - pMem.swapTotal());
+        writeSigned(output, mem.swapFree() - pMem.swapFree());
+
+        writeSigned(output, utilization.netInfo().receiving() - p.netInfo().receiving());
+        writeSigned(output, utilization.netInfo().transmitting() - p.netInfo().transmitting());
+
+        var disk  = utilization.diskInfo();
+        var pDisk = p.diskInfo();
+        writeSigned(output, disk.reading() - pDisk.reading());
+        writeSigned(output, disk.writing() - pDisk.writing());
+        writeSigned(output, disk.free() - pDisk.free());
+        writeSigned(output, disk.used() - pDisk.used());
+
+        var gpus = utilization.gpuUtilization();
+        writeUnsigned(output, gpus.size());
+        for (int i = 0; i < gpus.size(); ++i) {
+            var gpu  = gpus.get(i);
+            var pGpu = i < p.gpuUtilization().size() ? p.gpuUtilization().get(i) : ZERO_GPU;
+            writeFloat(output, gpu.computeUtilization(), pGpu.computeUtilization());
+            writeFloat(output, gpu.memoryUtilization(), pGpu.memoryUtilization());
+            writeSigned(output, gpu.memoryUsedMegabytes() - pGpu.memoryUsedMegabytes());
+            writeSigned(output, gpu.memoryTotalMegabytes() - pGpu.memoryTotalMegabytes());
+        }
+
+        this.previous            = utilization;
+        this.previousTimeDelta   = timeDelta;
+        this.previousUptimeDelta = uptimeDelta;
+    }
+
+    /**
+     * @throws EOFException If the input ends before the record is complete
+     */
+    @Nonnull
+    NodeUtilization decode(@Nonnull InputStream input) throws IOException {
+        var p = this.previous != null ? this.previous : ZERO;
+
+        var timeDelta   = readSigned(input) + this.previousTimeDelta;
+        var uptimeDelta = readSigned(input) + this.previousUptimeDelta;
+
+        var cpu = readFloats(input, p.cpuUtilization());
+
+        var pMem = p.memoryInfo();
+        var mem  = new MemInfo(
+                pMem.memoryTotal() + readSigned(input),
+                pMem.memoryFree() + readSigned(input),
+                pMem.systemCache() + readSigned(input),
+                pMem.swapTotal() + readSigned(input),
+                pMem.swapFree() + readSigned(input)
+        );
+
+        var net = new NetInfo(
+                p.netInfo().receiving() + readSigned(input),
+                p.netInfo().transmitting() + readSigned(input)
+        );
+
+        var pDisk = p.diskInfo();
+        var disk  = new DiskInfo(
+                pDisk.reading() + readSigned(input),
+                pDisk.writing() + readSigned(input),
+                pDisk.free() + readSigned(input),
+                pDisk.used() + readSigned(input)
+        );
+
+        var count = (int) readUnsigned(input);
+        var gpus  = new ArrayList<GpuUtilization>(count);
+        for (int i = 0; i < count; ++i) {
+            var pGpu = i < p.gpuUtilization().size() ? p.gpuUtilization().get(i) : ZERO_GPU;
+            gpus.add(new GpuUtilization(
+                    readFloat(input, pGpu.computeUtilization()),
+                    readFloat(input, pGpu.memoryUtilization()),
+                    pGpu.memoryUsedMegabytes() + readSigned(input),
+                    pGpu.memoryTotalMegabytes() + readSigned(input)
+            ));
+        }
+
+        var utilization = new NodeUtilization(
+                p.time() + timeDelta,
+                p.uptime() + uptimeDelta,
+                cpu,
+                mem,
+                net,
+                disk,
+                gpus
+        );
+
+        this.previous            = utilization;
+        this.previousTimeDelta   = timeDelta;
+        this.previousUptimeDelta = uptimeDelta;
+        return utilization;
+    }
+
+    private static void writeFloats(
+            @Nonnull OutputStream output,
+            @Nonnull List<Float> values,
+            @Nonnull List<Float> previous) throws IOException {
+        writeUnsigned(output, values.size());
+        for (int i = 0; i < values.size(); ++i) {
+            writeFloat(output, values.get(i), i < previous.size() ? previous.get(i) : 0f);
+        }
+    }
+
+    @Nonnull
+    private static List<Float> readFloats(@Nonnull InputStream input, @Nonnull List<Float> previous) throws IOException {
+        var count  = (int) readUnsigned(input);
+        var values = new ArrayList<Float>(count);
+        for (int i = 0; i < count; ++i) {
+            values.add(readFloat(input, i < previous.size() ? previous.get(i) : 0f));
+        }
+        return values;
+    }
+
+    private static void writeFloat(@Nonnull OutputStream output, float value, float previous) throws IOException {
+        writeUnsigned(output, Integer.toUnsignedLong(Float.floatToIntBits(value) ^ Float.floatToIntBits(previous)));
+    }
+
+    private static float readFloat(@Nonnull InputStream input, float previous) throws IOException {
+        return Float.intBitsToFloat((int) readUnsigned(input) ^ Float.floatToIntBits(previous));
+    }
+
+    private static void writeSigned(@Nonnull OutputStream output, long value) throws IOException {
+        writeUnsigned(output, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSigned(@Nonnull InputStream input) throws IOException {
+        var value = readUnsigned(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeUnsigned(@Nonnull OutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readUnsigned(@Nonnull InputStream input) throws IOException {
+        var value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,414 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.NodeUtilization;
+import de.itdesigners.winslow.api.node.NodeUtilizationAccumulator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores the {@link NodeUtilization}s of the nodes as binary series (see {@link UtilizationCodec}), one per
+ * {@link Resolution}. The rollups average the records of the next finer series per time bucket, a bucket is
+ * written once the first record of the following bucket arrives. Each series is split into segments, which are
+ * named after the time of their first record and deleted once all their records are older than the retention time.
+ * A new segment is started once the size limit or the end of the {@link Resolution#segmentSpan} is reached, so that
+ * reading the latest records of a series needs not to decode more than the records of one segment span.
+ */
+class UtilizationStore {
+
+    private static final Logger LOG = Logger.getLogger(UtilizationStore.class.getSimpleName());
+
+    static final String FILE_SUFFIX = ".series";
+
+    private static final int HEADER = 0x574E5501; // "WNU" and the version of the format
+
+    private final @Nonnull Function<String, Path> directories;
+    private final          long                   segmentSizeLimit;
+    private final          long                   retentionMs;
+    private final @Nonnull Map<String, Series[]>  series = new HashMap<>();
+
+    /**
+     * @param directories      Resolves the directory to store the series of a node in
+     * @param segmentSizeLimit The size in bytes after which a new segment is started
+     * @param retentionMs      The time after which records are deleted
+     */
+    UtilizationStore(@Nonnull Function<String, Path> directories, long segmentSizeLimit, long retentionMs) {
+        this.directories      = directories;
+        this.segmentSizeLimit = segmentSizeLimit;
+        this.retentionMs      = retentionMs;
+    }
+
+    /**
+     * Appends the given record to the raw series of the node and to all rollups whose bucket it completes
+     */
+    public synchronized void append(@Nonnull String nodeName, @Nonnull NodeUtilization utilization) throws IOException {
+        var series = this.series.get(nodeName);
+        if (series == null) {
+            series = recover(nodeName);
+            this.series.put(nodeName, series);
+        }
+        append(series, 0, utilization);
+    }
+
+    private void append(@Nonnull Series[] series, int level, @Nonnull NodeUtilization utilization) throws IOException {
+        series[level].write(utilization);
+        if (level + 1 < series.length) {
+            var rollup = series[level + 1].addToBucket(utilization);
+            if (rollup != null) {
+                append(series, level + 1, rollup);
+            }
+        }
+    }
+
+    /**
+     * Continues the last segment of each series and restores the unfinished buckets of the rollups
+     */
+    @Nonnull
+    private Series[] recover(@Nonnull String nodeName) throws IOException {
+        var resolutions = Resolution.values();
+        var series      = new Series[resolutions.length];
+
+        for (int i = 0; i < resolutions.length; ++i) {
+            series[i] = new Series(getDirectory(nodeName, resolutions[i]), resolutions[i]);
+            series[i].recover();
+
+            var finer = i > 0 ? series[i - 1].codec.getPrevious() : null;
+            var last  = series[i].codec.getPrevious();
+            if (finer != null) {
+                var bucketStart = resolutions[i].bucketOf(finer.time());
+                if (last == null || last.time() < bucketStart) {
+                    for (var utilization : read(nodeName, resolutions[i - 1], bucketStart, Long.MAX_VALUE)) {
+                        series[i].addToBucket(utilization);
+                    }
+                }
+            }
+        }
+
+        return series;
+    }
+
+    /**
+     * Reads the records of the given resolution. Where the series does not cover the requested time range, because
+     * it only starts later or the last bucket is not finished yet, the records of the next finer series are used
+     * instead and the records before the raw series are provided by the given fallback.
+     *
+     * @param fallback Provides the records between the given start and end time (both inclusive) that have
+     *                 been recorded before the raw series
+     * @return The records between the given start and end time (both inclusive), ordered by time
+     */
+    @Nonnull
+    public List<NodeUtilization> read(
+            @Nonnull String nodeName,
+            @Nonnull Resolution resolution,
+            long timeStart,
+            long timeEnd,
+            @Nonnull BiFunction<Long, Long, List<NodeUtilization>> fallback) {
+        var records = read(nodeName, resolution, timeStart, timeEnd);
+        var finer   = resolution.ordinal() > 0 ? Resolution.values()[resolution.ordinal() - 1] : null;
+
+        if (records.isEmpty()) {
+            return readFiner(nodeName, finer, timeStart, timeEnd, fallback);
+        }
+
+        var result = new ArrayList<NodeUtilization>(records.size());
+        var first  = records.get(0).time();
+        var last   = records.get(records.size() - 1).time();
+
+        if (timeStart < first) {
+            result.addAll(readFiner(nodeName, finer, timeStart, first - 1, fallback));
+        }
+        result.addAll(records);
+        if (finer != null && last + resolution.span <= timeEnd) {
+            result.addAll(readFiner(nodeName, finer, last + resolution.span, timeEnd, fallback));
+        }
+        return result;
+    }
+
+    @Nonnull
+    private List<NodeUtilization> readFiner(
+            @Nonnull String nodeName,
+            @Nullable Resolution finer,
+            long timeStart,
+            long timeEnd,
+            @Nonnull BiFunction<Long, Long, List<NodeUtilization>> fallback) {
+        return finer != null
+               ? read(nodeName, finer, timeStart, timeEnd, fallback)
+               : fallback.apply(timeStart, timeEnd);
+    }
+
+    /**
+     * @return The records of only the given series between the given start and end time (both inclusive)
+     */
+    @Nonnull
+    List<NodeUtilization> read(@Nonnull String nodeName, @Nonnull Resolution resolution, long timeStart, long timeEnd) {
+        var segments = listSegments(getDirectory(nodeName, resolution));
+        var result   = new ArrayList<NodeUtilization>();
+
+        for (int i = 0; i < segments.size(); ++i) {
+            var segment = segments.get(i);
+            var next    = i + 1 < segments.size() ? segments.get(i + 1).start : Long.MAX_VALUE;
+            if (segment.start > timeEnd || next <= timeStart) {
+                continue;
+            }
+            try {
+                decode(segment.path, new UtilizationCodec(), utilization -> {
+                    if (utilization.time() >= timeStart && utilization.time() <= timeEnd) {
+                        result.add(utilization);
+                    }
+                    return utilization.time() <= timeEnd;
+                });
+            } catch (NoSuchFileException e) {
+                // has just been deleted
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to read utilization series " + segment.path, e);
+            }
+        }
+
+        result.sort(Comparator.comparingLong(NodeUtilization::time));
+        return result;
+    }
+
+    @Nonnull
+    private Path getDirectory(@Nonnull String nodeName, @Nonnull Resolution resolution) {
+        return this.directories.apply(nodeName).resolve(resolution.directory);
+    }
+
+    @Nonnull
+    private static List<Segment> listSegments(@Nonnull Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var files = Files.list(directory)) {
+            return files
+                    .filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .flatMap(p -> {
+                        var name = p.getFileName().toString();
+                        try {
+                            var start = Long.parseLong(name.substring(0, name.length() - FILE_SUFFIX.length()));
+                            return Stream.of(new Segment(start, p));
+                        } catch (NumberFormatException e) {
+                            return Stream.empty();
+                        }
+                    })
+                    .sorted(Comparator.comparingLong(Segment::start))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to list utilization series in " + directory, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Decodes the records of the given segment until the consumer returns false or the segment ends. An incomplete
+     * record at the end, because it is still being written or writing it failed, is ignored.
+     *
+     * @return The number of bytes of the complete records including the header
+     * @throws IOException If the segment could not be read or does not start with the expected header
+     */
+    private static long decode(
+            @Nonnull Path segment,
+            @Nonnull UtilizationCodec codec,
+            @Nonnull Predicate<NodeUtilization> consumer) throws IOException {
+        var bytes = Files.readAllBytes(segment);
+        var input = new ByteArrayInputStream(bytes);
+
+        if (bytes.length < Integer.BYTES || new DataInputStream(input).readInt() != HEADER) {
+            throw new IOException("Not a utilization series or of an unknown version: " + segment);
+        }
+
+        var valid = (long) Integer.BYTES;
+        try {
+            while (input.available() > 0) {
+                var utilization = codec.decode(input);
+                valid = bytes.length - input.available();
+                if (!consumer.test(utilization)) {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // incomplete record at the end
+        }
+        return valid;
+    }
+
+    private class Series {
+        private final @Nonnull Path                       directory;
+        private final @Nonnull Resolution                 resolution;
+        private final @Nonnull NodeUtilizationAccumulator bucket = new NodeUtilizationAccumulator();
+
+        private @Nonnull  UtilizationCodec codec        = new UtilizationCodec();
+        private @Nullable Path             segment      = null;
+        private           long             segmentStart = 0;
+        private           long             segmentSize  = 0;
+        private           long             bucketStart  = 0;
+
+        private Series(@Nonnull Path directory, @Nonnull Resolution resolution) {
+            this.directory  = directory;
+            this.resolution = resolution;
+        }
+
+        private void recover() throws IOException {
+            var segments = listSegments(this.directory);
+            if (segments.isEmpty()) {
+                return;
+            }
+
+            var last = segments.get(segments.size() - 1).path;
+            var time = segments.get(segments.size() - 1).start;
+            try {
+                var codec = new UtilizationCodec();
+                var valid = decode(last, codec, utilization -> true);
+                if (valid < Files.size(last)) {
+                    LOG.warning("Discarding incomplete record at the end of " + last);
+                    try (var channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                        channel.truncate(valid);
+                    }
+                }
+                this.codec        = codec;
+                this.segment      = last;
+                this.segmentStart = time;
+                this.segmentSize  = valid;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to continue utilization series " + last + ", starting a new one", e);
+            }
+        }
+
+        private void write(@Nonnull NodeUtilization utilization) throws IOException {
+            var buffer = new ByteArrayOutputStream(128);
+            if (this.segment == null
+                    || this.segmentSize >= segmentSizeLimit
+                    || this.resolution.segmentOf(utilization.time()) != this.resolution.segmentOf(this.segmentStart)) {
+                startSegment(utilization.time());
+                new DataOutputStream(buffer).writeInt(HEADER);
+            }
+            this.codec.encode(utilization, buffer);
+
+            Files.write(
+                    this.segment,
+                    buffer.toByteArray(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND,
+                    StandardOpenOption.DSYNC
+            );
+            this.segmentSize += buffer.size();
+        }
+
+        private void startSegment(long time) throws IOException {
+            Files.createDirectories(this.directory);
+
+            var segment = this.directory.resolve(time + FILE_SUFFIX);
+            while (Files.exists(segment)) {
+                segment = this.directory.resolve(++time + FILE_SUFFIX);
+            }
+
+            this.codec        = new UtilizationCodec();
+            this.segment      = segment;
+            this.segmentStart = time;
+            this.segmentSize  = 0;
+            deleteExpiredSegments();
+        }
+
+        private void deleteExpiredSegments() {
+            var segments = listSegments(this.directory);
+            var expired  = System.currentTimeMillis() - retentionMs;
+            for (int i = 0; i + 1 < segments.size() && segments.get(i + 1).start < expired; ++i) {
+                try {
+                    LOG.info("Deleting utilization series " + segments.get(i).path);
+                    Files.deleteIfExists(segments.get(i).path);
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to delete utilization series " + segments.get(i).path, e);
+                }
+            }
+        }
+
+        /**
+         * @return The average of the previous bucket, if the given record is the first one of a new bucket
+         */
+        @Nullable
+        private NodeUtilization addToBucket(@Nonnull NodeUtilization utilization) {
+            var             start  = this.resolution.bucketOf(utilization.time());
+            NodeUtilization rollup = null;
+            if (this.bucket.getCount() > 0 && start != this.bucketStart) {
+                rollup = this.bucket.average(this.bucketStart, this.bucket.getLastUptime());
+                this.bucket.clear();
+            }
+            this.bucketStart = start;
+            this.bucket.add(utilization);
+            return rollup;
+        }
+    }
+
+    private record Segment(long start, @Nonnull Path path) {
+    }
+
+    enum Resolution {
+        RAW(0, Duration.ofDays(1).toMillis(), "raw"),
+        MINUTE(Duration.ofMinutes(1).toMillis(), Duration.ofDays(1).toMillis(), "1m"),
+        QUARTER_HOUR(Duration.ofMinutes(15).toMillis(), Duration.ofDays(7).toMillis(), "15m"),
+        HOUR(Duration.ofHours(1).toMillis(), Duration.ofDays(30).toMillis(), "1h");
+
+        /**
+         * The time span each record covers, starting at its time
+         */
+        final long span;
+
+        /**
+         * The time span after which a new segment is started
+         */
+        final long segmentSpan;
+
+        private final @Nonnull String directory;
+
+        Resolution(long span, long segmentSpan, @Nonnull String directory) {
+            this.span        = span;
+            this.segmentSpan = segmentSpan;
+            this.directory   = directory;
+        }
+
+        private long segmentOf(long time) {
+            return Math.floorDiv(time, this.segmentSpan);
+        }
+
+        private long bucketOf(long time) {
+            return this.span > 0 ? time - Math.floorMod(time, this.span) : time;
+        }
+
+        /**
+         * @return The coarsest resolution whose records do not span more than the given time span
+         */
+        @Nonnull
+        static Resolution coarsestWithin(long span) {
+            var values = values();
+            for (int i = values.length - 1; i > 0; --i) {
+                if (values[i].span <= span) {
+                    return values[i];
+                }
+            }
+            return RAW;
+        }
+    }
+}
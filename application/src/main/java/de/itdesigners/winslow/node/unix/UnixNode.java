@@ -159,7 +159,7 @@ public class UnixNode implements Node {
         var diskInfo = loadDiskInfo();
         var gpuInfo  = hasGpus ? UnixGpuInfoParser.loadGpuInfo() : Collections.<GpuInfo>emptyList();
         this.hasGpus = this.hasGpus && !gpuInfo.isEmpty();
-        var allocInfo = loadAllocInfo();
+        var allocInfo = this.resourceAllocationMonitor.getAllocInfo();
         return new NodeInfo(name, time, uptime, cpuInfo, memInfo, netInfo, diskInfo, gpuInfo, allocInfo);
     }
 
@@ -267,18 +267,4 @@ public class UnixNode implements Node {
             return UnixDiskIoParser.getDiskInfoConsiderOnlyPhysicalInterfaces(lines).toList();
         }
     }
-
-    @Nonnull
-    private List<AllocInfo> loadAllocInfo() {
-        var result = new ArrayList<AllocInfo>();
-        for (var entry : this.resourceAllocationMonitor.getAllocationReport().entrySet()) {
-            result.add(new AllocInfo(
-                    entry.getKey(),
-                    entry.getValue().getOrDefault(ResourceAllocationMonitor.StandardResources.CPU, 0L),
-                    entry.getValue().getOrDefault(ResourceAllocationMonitor.StandardResources.RAM, 0L),
-                    entry.getValue().getOrDefault(ResourceAllocationMonitor.StandardResources.GPU, 0L)
-            ));
-        }
-        return result;
-    }
 }
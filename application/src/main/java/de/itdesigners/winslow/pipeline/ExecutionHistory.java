@@ -0,0 +1,241 @@
+package de.itdesigners.winslow.pipeline;
+
+import de.itdesigners.winslow.config.ExecutionGroup;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The archived {@link ExecutionGroup}s of a {@link Pipeline}. Those that have already been persisted
+ * are provided by a {@link Storage} and are only loaded once they are accessed, while newly archived
+ * and removed {@link ExecutionGroup}s are tracked until the {@link Pipeline} is stored the next time.
+ * Therefore, updating a {@link Pipeline} no longer requires loading and storing its whole history.
+ */
+public class ExecutionHistory {
+
+    private final @Nonnull  List<ExecutionGroup> appended = new ArrayList<>();
+    private final @Nonnull  Set<Integer>         removed  = new HashSet<>();
+    private       @Nullable Storage              storage;
+
+    public ExecutionHistory() {
+        this((Storage) null);
+    }
+
+    public ExecutionHistory(@Nullable Storage storage) {
+        this.storage = storage;
+    }
+
+    public ExecutionHistory(@Nonnull Collection<ExecutionGroup> groups) {
+        this((Storage) null);
+        this.appended.addAll(groups);
+    }
+
+    /**
+     * @return All {@link ExecutionGroup}s in the order they have been archived
+     * @throws UncheckedIOException If loading the persisted {@link ExecutionGroup}s failed
+     */
+    @Nonnull
+    public synchronized Stream<ExecutionGroup> stream() throws UncheckedIOException {
+        return Stream.concat(loadPersisted().stream(), List.copyOf(this.appended).stream());
+    }
+
+    public synchronized int size() throws UncheckedIOException {
+        return persistedSize() - this.removed.size() + this.appended.size();
+    }
+
+    public synchronized boolean isEmpty() throws UncheckedIOException {
+        return size() == 0;
+    }
+
+    /**
+     * @return The most recently archived {@link ExecutionGroup}, without loading all the others
+     * @throws UncheckedIOException If loading the persisted {@link ExecutionGroup} failed
+     */
+    @Nonnull
+    public synchronized Optional<ExecutionGroup> last() throws UncheckedIOException {
+        if (!this.appended.isEmpty()) {
+            return Optional.of(this.appended.get(this.appended.size() - 1));
+        }
+        for (int i = persistedSize() - 1; i >= 0; --i) {
+            if (!this.removed.contains(i)) {
+                final var index = i;
+                return Optional.of(unchecked(() -> this.storage.load(index, index + 1).get(0)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Only loads the {@link ExecutionGroup}s within the range, see {@link List#subList(int, int)}
+     *
+     * @return The {@link ExecutionGroup}s within the range in the order they have been archived
+     * @throws UncheckedIOException If loading the persisted {@link ExecutionGroup}s failed
+     */
+    @Nonnull
+    public synchronized List<ExecutionGroup> subList(int fromIndex, int toIndex) throws UncheckedIOException {
+        var persisted = persistedIndices();
+        Objects.checkFromToIndex(fromIndex, toIndex, persisted.length + this.appended.size());
+
+        var result = new ArrayList<ExecutionGroup>(toIndex - fromIndex);
+        var to     = Math.min(toIndex, persisted.length);
+        if (fromIndex < to) {
+            var first  = persisted[fromIndex];
+            var loaded = unchecked(() -> this.storage.load(first, persisted[to - 1] + 1));
+            for (int i = fromIndex; i < to; ++i) {
+                result.add(loaded.get(persisted[i] - first));
+            }
+        }
+        for (int i = Math.max(fromIndex, persisted.length); i < toIndex; ++i) {
+            result.add(this.appended.get(i - persisted.length));
+        }
+        return result;
+    }
+
+    /**
+     * @return The index of the {@link ExecutionGroup} with the given id, without loading all the others
+     * @throws UncheckedIOException If loading the persisted {@link ExecutionGroup} failed
+     */
+    @Nonnull
+    public synchronized OptionalInt indexOf(@Nonnull String fullyQualifiedId) throws UncheckedIOException {
+        var persisted = persistedIndices();
+        if (this.storage != null) {
+            var index = unchecked(() -> this.storage.indexOf(fullyQualifiedId));
+            if (index.isPresent()) {
+                var position = Arrays.binarySearch(persisted, index.getAsInt());
+                return position >= 0 ? OptionalInt.of(position) : OptionalInt.empty();
+            }
+        }
+        for (int i = 0; i < this.appended.size(); ++i) {
+            if (this.appended.get(i).getFullyQualifiedId().equals(fullyQualifiedId)) {
+                return OptionalInt.of(persisted.length + i);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    public synchronized void add(@Nonnull ExecutionGroup group) {
+        this.appended.add(group);
+    }
+
+    /**
+     * @param fullyQualifiedId The fully qualified id of the {@link ExecutionGroup} to remove
+     * @return The removed {@link ExecutionGroup} or {@link Optional#empty()} if not found
+     * @throws UncheckedIOException If loading the persisted {@link ExecutionGroup} failed
+     */
+    @Nonnull
+    public synchronized Optional<ExecutionGroup> remove(@Nonnull String fullyQualifiedId) throws UncheckedIOException {
+        if (this.storage != null) {
+            var index = unchecked(() -> this.storage.indexOf(fullyQualifiedId));
+            if (index.isPresent() && !this.removed.contains(index.getAsInt())) {
+                var group = unchecked(() -> this.storage.load(index.getAsInt(), index.getAsInt() + 1).get(0));
+                this.removed.add(index.getAsInt());
+                return Optional.of(group);
+            }
+        }
+        for (int i = 0; i < this.appended.size(); ++i) {
+            if (this.appended.get(i).getFullyQualifiedId().equals(fullyQualifiedId)) {
+                return Optional.of(this.appended.remove(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The {@link Storage} of the already persisted {@link ExecutionGroup}s, if any
+     */
+    @Nonnull
+    public synchronized Optional<Storage> getStorage() {
+        return Optional.ofNullable(this.storage);
+    }
+
+    /**
+     * @return The {@link ExecutionGroup}s archived since the last time the history has been persisted
+     */
+    @Nonnull
+    public synchronized List<ExecutionGroup> getAppended() {
+        return List.copyOf(this.appended);
+    }
+
+    /**
+     * @return The indices (of the {@link Storage}) of the persisted {@link ExecutionGroup}s that were removed
+     */
+    @Nonnull
+    public synchronized Set<Integer> getRemoved() {
+        return Set.copyOf(this.removed);
+    }
+
+    /**
+     * To be called once all changes have been persisted to the given {@link Storage}
+     */
+    public synchronized void persisted(@Nonnull Storage storage) {
+        this.storage = storage;
+        this.appended.clear();
+        this.removed.clear();
+    }
+
+    /**
+     * @return The {@link Storage} indices of the persisted {@link ExecutionGroup}s that were not removed
+     */
+    @Nonnull
+    private int[] persistedIndices() throws UncheckedIOException {
+        return IntStream.range(0, persistedSize()).filter(i -> !this.removed.contains(i)).toArray();
+    }
+
+    private int persistedSize() throws UncheckedIOException {
+        return this.storage != null ? unchecked(this.storage::size) : 0;
+    }
+
+    @Nonnull
+    private List<ExecutionGroup> loadPersisted() throws UncheckedIOException {
+        if (this.storage == null) {
+            return Collections.emptyList();
+        }
+        var loaded = unchecked(() -> this.storage.load(0, this.storage.size()));
+        if (this.removed.isEmpty()) {
+            return loaded;
+        } else {
+            return IntStream
+                    .range(0, loaded.size())
+                    .filter(i -> !this.removed.contains(i))
+                    .mapToObj(loaded::get)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static <T> T unchecked(@Nonnull IOSupplier<T> supplier) throws UncheckedIOException {
+        try {
+            return supplier.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the execution history", e);
+        }
+    }
+
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    /**
+     * The persisted {@link ExecutionGroup}s, addressed by their index in the order they have been archived.
+     * Loading the same index again must return the same instance, so that modifications can be detected.
+     */
+    public interface Storage {
+
+        int size() throws IOException;
+
+        /**
+         * @param fromIndex Index of the first {@link ExecutionGroup} to load (inclusive)
+         * @param toIndex   Index of the last {@link ExecutionGroup} to load (exclusive)
+         */
+        @Nonnull
+        List<ExecutionGroup> load(int fromIndex, int toIndex) throws IOException;
+
+        @Nonnull
+        OptionalInt indexOf(@Nonnull String fullyQualifiedId) throws IOException;
+    }
+}
@@ -17,7 +17,7 @@ import java.util.stream.Stream;
 public class Pipeline {
 
     private final @Nonnull String               projectId;
-    private final @Nonnull List<ExecutionGroup> executionHistory;
+    private final @Nonnull ExecutionHistory     executionHistory;
     private final @Nonnull List<ExecutionGroup> executionQueue;
     private final @Nonnull List<ExecutionGroup> activeExecutions;
 
@@ -33,7 +33,7 @@ public class Pipeline {
         this.projectId        = projectId;
         this.executionCounter = 0;
         this.activeExecutions = new ArrayList<>();
-        this.executionHistory = new ArrayList<>();
+        this.executionHistory = new ExecutionHistory();
         this.executionQueue   = new ArrayList<>();
     }
 
@@ -60,8 +60,33 @@ public class Pipeline {
             @Nullable DeletionPolicy deletionPolicy,
             @Nullable WorkspaceConfiguration.WorkspaceMode workspaceConfigurationMode,
             int executionCounter) {
+        this(
+                projectId,
+                new ExecutionHistory(Optional.ofNullable(executionHistory).orElseGet(Collections::emptyList)),
+                enqueuedExecutions,
+                activeExecutionGroups,
+                pauseRequested,
+                pauseReason,
+                resumeNotification,
+                deletionPolicy,
+                workspaceConfigurationMode,
+                executionCounter
+        );
+    }
+
+    public Pipeline(
+            @Nonnull String projectId,
+            @Nonnull ExecutionHistory executionHistory,
+            @Nullable List<ExecutionGroup> enqueuedExecutions,
+            @Nullable List<ExecutionGroup> activeExecutionGroups,
+            boolean pauseRequested,
+            @Nullable PauseReason pauseReason,
+            @Nullable ResumeNotification resumeNotification,
+            @Nullable DeletionPolicy deletionPolicy,
+            @Nullable WorkspaceConfiguration.WorkspaceMode workspaceConfigurationMode,
+            int executionCounter) {
         this.projectId                  = projectId;
-        this.executionHistory           = Optional.ofNullable(executionHistory).orElseGet(ArrayList::new);
+        this.executionHistory           = executionHistory;
         this.executionQueue             = Optional.ofNullable(enqueuedExecutions).orElseGet(ArrayList::new);
         this.activeExecutions           = Optional.ofNullable(activeExecutionGroups).orElseGet(ArrayList::new);
         this.pauseRequested             = pauseRequested;
@@ -119,13 +144,7 @@ public class Pipeline {
             }
         }
 
-        for (int i = 0; i < this.executionHistory.size(); ++i) {
-            if (this.executionHistory.get(i).getFullyQualifiedId().equals(id)) {
-                return Optional.of(this.executionHistory.remove(i));
-            }
-        }
-
-        return Optional.empty();
+        return this.executionHistory.remove(id);
     }
 
     @Nonnull
@@ -133,6 +152,15 @@ public class Pipeline {
         return this.executionHistory.stream();
     }
 
+    /**
+     * @return The {@link ExecutionHistory} itself, which allows to access parts of it without loading all of it
+     */
+    @Nonnull
+    @Transient
+    public ExecutionHistory getHistory() {
+        return this.executionHistory;
+    }
+
     @Nonnull
     public Stream<ExecutionGroup> getActiveExecutionGroups() {
         return this.activeExecutions.stream();
@@ -163,11 +191,7 @@ public class Pipeline {
     @Nonnull
     @Transient
     public Optional<ExecutionGroup> getPreviousExecutionGroup() {
-        if (!this.executionHistory.isEmpty()) {
-            return Optional.of(this.executionHistory.get(this.executionHistory.size() - 1));
-        } else {
-            return Optional.empty();
-        }
+        return this.executionHistory.last();
     }
 
     @Nonnull
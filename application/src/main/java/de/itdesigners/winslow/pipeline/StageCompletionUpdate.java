@@ -93,6 +93,7 @@ public class StageCompletionUpdate implements PipelineUpdater.NoAccessUpdater, P
                             stage.finishNow(State.FAILED);
                         }
                         cleanupAfterStageExecution(orchestrator, stage.getFullyQualifiedId());
+                        invalidateSizeOfWorkspace(orchestrator, stage);
                         discardObsoleteWorkspaces(orchestrator, projectId, pipeline);
                     })
                     .count();
@@ -122,6 +123,13 @@ public class StageCompletionUpdate implements PipelineUpdater.NoAccessUpdater, P
         }
     }
 
+    public static void invalidateSizeOfWorkspace(@Nonnull Orchestrator orchestrator, @Nonnull Stage stage) {
+        stage
+                .getWorkspace()
+                .flatMap(workspace -> orchestrator.getResourceManager().getWorkspace(Path.of(workspace)))
+                .ifPresent(workspace -> orchestrator.getResourceManager().invalidateDirectoryIndex(workspace));
+    }
+
     public static void discardObsoleteWorkspaces(
             @Nonnull Orchestrator orchestrator,
             @Nonnull String projectId,
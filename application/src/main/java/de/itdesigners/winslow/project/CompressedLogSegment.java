@@ -0,0 +1,251 @@
+package de.itdesigners.winslow.project;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A finished log segment, compressed in blocks of whole lines. Each block is a gzip member of its own,
+ * so the file as a whole is still a valid gzip file, but decompressing can start at any block. The
+ * index next to it contains an entry for each block with the compressed size, the uncompressed size
+ * and the number of lines up to and including that block, each as big-endian long.
+ */
+class CompressedLogSegment {
+
+    static final String FILE_SUFFIX       = ".gz";
+    static final String INDEX_FILE_SUFFIX = FILE_SUFFIX + LogLineIndex.FILE_SUFFIX;
+    static final int    BLOCK_SIZE        = 256 * 1024;
+
+    private static final String TMP_SUFFIX  = ".tmp";
+    private static final int    ENTRY_BYTES = 3 * Long.BYTES;
+
+    private CompressedLogSegment() {
+    }
+
+    /**
+     * Compresses the given plain log. The compressed files are written to temporary files first
+     * and the segment only exists once it is complete.
+     *
+     * @param plain  The plain log to compress
+     * @param target The path of the compressed segment, the index is stored next to it
+     */
+    static void compress(@Nonnull Path plain, @Nonnull Path target) throws IOException {
+        var index    = getIndexFile(target);
+        var tmp      = target.resolveSibling(target.getFileName() + TMP_SUFFIX);
+        var tmpIndex = index.resolveSibling(index.getFileName() + TMP_SUFFIX);
+
+        try (var input = new FileInputStream(plain.toFile());
+             var output = new FileOutputStream(tmp.toFile());
+             var indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpIndex.toFile())))) {
+            var block        = new byte[BLOCK_SIZE];
+            var blockSize    = 0;
+            var blockLines   = 0L;
+            var uncompressed = 0L;
+            var lines        = 0L;
+
+            while (true) {
+                if (blockSize == block.length) {
+                    // a single line longer than a block
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                var read = input.read(block, blockSize, block.length - blockSize);
+                if (read < 0) {
+                    break;
+                }
+
+                // only cut the block after the last complete line once it is full
+                var end = blockSize + read;
+                var cut = -1;
+                for (int i = blockSize; i < end; ++i) {
+                    if (block[i] == '\n') {
+                        blockLines += 1;
+                        if (i + 1 >= BLOCK_SIZE) {
+                            cut = i + 1;
+                            break;
+                        }
+                    }
+                }
+                blockSize = end;
+
+                if (cut > 0) {
+                    writeBlock(output, block, cut);
+                    uncompressed += cut;
+                    lines += blockLines;
+                    writeEntry(indexOutput, output.getChannel().position(), uncompressed, lines);
+
+                    blockLines = countLineBreaks(block, cut, blockSize);
+                    System.arraycopy(block, cut, block, 0, blockSize - cut);
+                    blockSize -= cut;
+                }
+            }
+
+            if (blockSize > 0) {
+                writeBlock(output, block, blockSize);
+                uncompressed += blockSize;
+                lines += blockLines;
+                writeEntry(indexOutput, output.getChannel().position(), uncompressed, lines);
+            }
+        }
+
+        // the segment must not exist without its index
+        Files.move(tmpIndex, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBlock(@Nonnull OutputStream output, @Nonnull byte[] block, int length) throws IOException {
+        var gzip = new GZIPOutputStream(output, LogLineIndex.READ_BUFFER_SIZE);
+        gzip.write(block, 0, length);
+        // finish but do not close the underlying stream
+        gzip.finish();
+    }
+
+    private static void writeEntry(
+            @Nonnull DataOutputStream output,
+            long compressed,
+            long uncompressed,
+            long lines) throws IOException {
+        output.writeLong(compressed);
+        output.writeLong(uncompressed);
+        output.writeLong(lines);
+    }
+
+    private static int countLineBreaks(@Nonnull byte[] data, int from, int to) {
+        var count = 0;
+        for (int i = from; i < to; ++i) {
+            if (data[i] == '\n') {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The blocks of the given compressed segment in order
+     */
+    @Nonnull
+    static List<Block> readIndex(@Nonnull Path segment) throws IOException {
+        try {
+            var bytes  = Files.readAllBytes(getIndexFile(segment));
+            var buffer = ByteBuffer.wrap(bytes);
+            var blocks = new ArrayList<Block>(bytes.length / ENTRY_BYTES);
+            var prev   = Block.EMPTY;
+            while (buffer.remaining() >= ENTRY_BYTES) {
+                var block = new Block(
+                        prev.compressedEnd,
+                        buffer.getLong(),
+                        prev.uncompressedEnd,
+                        buffer.getLong(),
+                        prev.linesEnd,
+                        buffer.getLong()
+                );
+                blocks.add(block);
+                prev = block;
+            }
+            return blocks;
+        } catch (NoSuchFileException e) {
+            // not expected to happen, but it can be rebuilt as a single block by decompressing everything
+            var compressed = Files.size(segment);
+            var size       = 0L;
+            var lines      = 0L;
+            try (var input = open(segment, new Block(0, compressed, 0, 0, 0, 0))) {
+                var buffer = new byte[LogLineIndex.READ_BUFFER_SIZE];
+                int read;
+                while ((read = input.read(buffer)) >= 0) {
+                    size += read;
+                    lines += countLineBreaks(buffer, 0, read);
+                }
+            }
+            return List.of(new Block(0, compressed, 0, size, 0, lines));
+        }
+    }
+
+    /**
+     * @return The uncompressed size of the given segment
+     */
+    static long size(@Nonnull List<Block> blocks) {
+        return blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).uncompressedEnd;
+    }
+
+    /**
+     * @return The number of lines of the given segment
+     */
+    static long lines(@Nonnull List<Block> blocks) {
+        return blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).linesEnd;
+    }
+
+    /**
+     * @param offset The uncompressed byte offset to position the returned {@link InputStream} at
+     * @return An {@link InputStream} of the uncompressed content, positioned at the given offset
+     */
+    @Nonnull
+    static InputStream openAtByte(@Nonnull Path segment, @Nonnull List<Block> blocks, long offset) throws IOException {
+        for (var block : blocks) {
+            if (offset < block.uncompressedEnd) {
+                var input = open(segment, block);
+                input.skipNBytes(offset - block.uncompressedStart);
+                return input;
+            }
+        }
+        return InputStream.nullInputStream();
+    }
+
+    /**
+     * @param line The number of lines to skip
+     * @return An {@link InputStream} of the uncompressed content, positioned at the start of the given line
+     */
+    @Nonnull
+    static InputStream openAtLine(@Nonnull Path segment, @Nonnull List<Block> blocks, long line) throws IOException {
+        for (var block : blocks) {
+            // the last block may end with an incomplete line
+            if (line < block.linesEnd || block == blocks.get(blocks.size() - 1)) {
+                var input = open(segment, block);
+                LogLineIndex.skipLines(input, line - block.linesStart);
+                return input;
+            }
+        }
+        return InputStream.nullInputStream();
+    }
+
+    @Nonnull
+    private static InputStream open(@Nonnull Path segment, @Nonnull Block block) throws IOException {
+        var fis = new FileInputStream(segment.toFile());
+        try {
+            fis.getChannel().position(block.compressedStart);
+            // the following gzip members are decompressed as well
+            return new BufferedInputStream(
+                    new GZIPInputStream(
+                            new BufferedInputStream(fis, LogLineIndex.READ_BUFFER_SIZE),
+                            LogLineIndex.READ_BUFFER_SIZE
+                    ),
+                    LogLineIndex.READ_BUFFER_SIZE
+            );
+        } catch (IOException e) {
+            fis.close();
+            throw e;
+        }
+    }
+
+    @Nonnull
+    static Path getIndexFile(@Nonnull Path segment) {
+        return segment.resolveSibling(segment.getFileName() + LogLineIndex.FILE_SUFFIX);
+    }
+
+    record Block(
+            long compressedStart,
+            long compressedEnd,
+            long uncompressedStart,
+            long uncompressedEnd,
+            long linesStart,
+            long linesEnd) {
+        private static final Block EMPTY = new Block(0, 0, 0, 0, 0, 0);
+    }
+}
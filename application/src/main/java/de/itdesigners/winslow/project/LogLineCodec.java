@@ -0,0 +1,227 @@
+package de.itdesigners.winslow.project;
+
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.api.pipeline.LogSource;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Encodes a {@link LogEntry} to a line of the log file and decodes it again, in the format
+ * {@code <date> <source><stream> <message>}. The date is formatted according to {@link LogWriter#DATE_FORMAT}
+ * in the default time zone. Because a log usually has many lines per second, the formatted and parsed
+ * seconds are cached, so that only the message itself needs to be converted per line.
+ * <p>
+ * Instances keep these caches and are therefore not thread-safe.
+ */
+class LogLineCodec {
+
+    private static final DateTimeFormatter SECONDS_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH:mm:ss.");
+    private static final DateTimeFormatter DATE_FORMATTER    = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH:mm:ss.SSS");
+
+    private static final int SECONDS_LENGTH = 20; // yyyy-MM-dd_HH:mm:ss.
+    private static final int DATE_LENGTH    = SECONDS_LENGTH + 3;
+
+    private static final byte[] STD     = bytes(LogWriter.TRIPLE_STANDARD_IO);
+    private static final byte[] ERR     = bytes("err");
+    private static final byte[] STD_OUT = bytes(LogWriter.TRIPLE_STANDARD_IO + "out");
+    private static final byte[] STD_ERR = bytes(LogWriter.TRIPLE_STANDARD_IO + "err");
+    private static final byte[] EVT_OUT = bytes(LogWriter.TRIPLE_MANAGEMENT_EVENT + "out");
+    private static final byte[] EVT_ERR = bytes(LogWriter.TRIPLE_MANAGEMENT_EVENT + "err");
+
+    private final @Nonnull ZoneId zone;
+
+    private long   encodedSecond = Long.MIN_VALUE;
+    private byte[] encodedPrefix = new byte[0];
+
+    private final byte[] decodedPrefix       = new byte[SECONDS_LENGTH];
+    private       long   decodedSecondMillis = Long.MIN_VALUE;
+
+    LogLineCodec() {
+        this(ZoneId.systemDefault());
+    }
+
+    LogLineCodec(@Nonnull ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @return The number of bytes {@link #encode(LogEntry, byte[], int)} needs at most for the given entry
+     */
+    static int maxEncodedLength(@Nonnull LogEntry entry) {
+        // a char needs at most three bytes in UTF-8, surrogate pairs need four bytes for two chars
+        return DATE_LENGTH + 1 + STD_OUT.length + 1 + entry.message().length() * 3 + 1;
+    }
+
+    /**
+     * Encodes the entry including the line separator
+     *
+     * @param target The array to write to, must provide at least {@link #maxEncodedLength(LogEntry)} bytes
+     * @param offset The offset to start writing at
+     * @return The offset after the encoded line
+     */
+    int encode(@Nonnull LogEntry entry, @Nonnull byte[] target, int offset) {
+        var second = Math.floorDiv(entry.time(), 1_000L);
+        var millis = (int) Math.floorMod(entry.time(), 1_000L);
+        if (second != this.encodedSecond) {
+            this.encodedSecond = second;
+            this.encodedPrefix = bytes(SECONDS_FORMATTER.format(Instant.ofEpochSecond(second).atZone(this.zone)));
+        }
+
+        System.arraycopy(this.encodedPrefix, 0, target, offset, this.encodedPrefix.length);
+        offset += this.encodedPrefix.length;
+        target[offset++] = (byte) ('0' + millis / 100);
+        target[offset++] = (byte) ('0' + millis / 10 % 10);
+        target[offset++] = (byte) ('0' + millis % 10);
+        target[offset++] = ' ';
+
+        var stream = switch (entry.source()) {
+            case STANDARD_IO -> entry.error() ? STD_ERR : STD_OUT;
+            case MANAGEMENT_EVENT -> entry.error() ? EVT_ERR : EVT_OUT;
+        };
+        System.arraycopy(stream, 0, target, offset, stream.length);
+        offset += stream.length;
+        target[offset++] = ' ';
+
+        offset = encodeUtf8(entry.message(), target, offset);
+        target[offset++] = '\n';
+        return offset;
+    }
+
+    private static int encodeUtf8(@Nonnull String value, @Nonnull byte[] target, int offset) {
+        var length = value.length();
+        for (int i = 0; i < length; ++i) {
+            var c = value.charAt(i);
+            if (c < 0x80) {
+                target[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                target[offset++] = (byte) (0xC0 | (c >> 6));
+                target[offset++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                target[offset++] = (byte) (0xF0 | (codePoint >> 18));
+                target[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                target[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                target[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // like String#getBytes for malformed input
+                target[offset++] = '?';
+            } else {
+                target[offset++] = (byte) (0xE0 | (c >> 12));
+                target[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                target[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * @param line   The array containing the line
+     * @param offset The offset of the line
+     * @param length The length of the line without the line separator
+     * @return The decoded {@link LogEntry}
+     * @throws RuntimeException If the date cannot be parsed
+     */
+    @Nonnull
+    LogEntry decode(@Nonnull byte[] line, int offset, int length) throws RuntimeException {
+        var end         = offset + length;
+        var dateEnd     = indexOf(line, offset, end, (byte) ' ');
+        var streamStart = Math.min(end, dateEnd + 1);
+        var streamEnd   = indexOf(line, streamStart, end, (byte) ' ');
+        var message     = Math.min(end, streamEnd + 1);
+
+        return new LogEntry(
+                decodeTime(line, offset, dateEnd),
+                contains(line, streamStart, streamEnd, STD) ? LogSource.STANDARD_IO : LogSource.MANAGEMENT_EVENT,
+                contains(line, streamStart, streamEnd, ERR),
+                new String(line, message, end - message, StandardCharsets.UTF_8)
+        );
+    }
+
+    private long decodeTime(@Nonnull byte[] line, int offset, int end) throws RuntimeException {
+        if (end - offset == DATE_LENGTH && line[offset + SECONDS_LENGTH - 1] == '.') {
+            var millis = parseDigits(line, offset + SECONDS_LENGTH, 3);
+            if (millis >= 0) {
+                if (!Arrays.equals(line, offset, offset + SECONDS_LENGTH, this.decodedPrefix, 0, SECONDS_LENGTH)) {
+                    var secondMillis = parseSecondMillis(line, offset);
+                    if (secondMillis == Long.MIN_VALUE) {
+                        return parseTime(line, offset, end);
+                    }
+                    System.arraycopy(line, offset, this.decodedPrefix, 0, SECONDS_LENGTH);
+                    this.decodedSecondMillis = secondMillis;
+                }
+                return this.decodedSecondMillis + millis;
+            }
+        }
+        return parseTime(line, offset, end);
+    }
+
+    private long parseSecondMillis(@Nonnull byte[] line, int offset) {
+        var year   = parseDigits(line, offset, 4);
+        var month  = parseDigits(line, offset + 5, 2);
+        var day    = parseDigits(line, offset + 8, 2);
+        var hour   = parseDigits(line, offset + 11, 2);
+        var minute = parseDigits(line, offset + 14, 2);
+        var second = parseDigits(line, offset + 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0
+                || line[offset + 4] != '-' || line[offset + 7] != '-' || line[offset + 10] != '_'
+                || line[offset + 13] != ':' || line[offset + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second).atZone(this.zone).toEpochSecond() * 1_000L;
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private long parseTime(@Nonnull byte[] line, int offset, int end) throws RuntimeException {
+        var text = new String(line, offset, end - offset, StandardCharsets.UTF_8);
+        try {
+            return LocalDateTime.parse(text, DATE_FORMATTER).atZone(this.zone).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            throw new RuntimeException("Failed to parse date: " + text, e);
+        }
+    }
+
+    private static int parseDigits(@Nonnull byte[] data, int offset, int count) {
+        var value = 0;
+        for (int i = offset; i < offset + count; ++i) {
+            var digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(@Nonnull byte[] data, int from, int to, byte value) {
+        for (int i = from; i < to; ++i) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean contains(@Nonnull byte[] data, int from, int to, @Nonnull byte[] needle) {
+        for (int i = from; i + needle.length <= to; ++i) {
+            if (Arrays.equals(data, i, i + needle.length, needle, 0, needle.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nonnull
+    private static byte[] bytes(@Nonnull String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
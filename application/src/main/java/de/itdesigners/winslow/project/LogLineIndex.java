@@ -0,0 +1,178 @@
+package de.itdesigners.winslow.project;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sparse index of a log file, stored next to it. It contains the byte offset of every
+ * {@link #LINES_PER_ENTRY}th line as big-endian long, so entry k is the offset of line
+ * (k + 1) * {@link #LINES_PER_ENTRY}. This allows to seek close to any line without reading
+ * the log from its start, the remaining lines are skipped by only looking for line breaks.
+ * <p>
+ * A missing or inconsistent index is not an error, the log is then skipped from its start.
+ */
+public class LogLineIndex {
+
+    private static final Logger LOG = Logger.getLogger(LogLineIndex.class.getSimpleName());
+
+    public static final String FILE_SUFFIX      = ".idx";
+    public static final int    LINES_PER_ENTRY  = 1024;
+    public static final int    READ_BUFFER_SIZE = 64 * 1024;
+
+    private LogLineIndex() {
+    }
+
+    /**
+     * @param log   The log file to open
+     * @param index The index of the log file
+     * @param line  The number of lines to skip
+     * @return An {@link InputStream} of the log positioned at the start of the given line or at its end,
+     * if there are less lines
+     */
+    @Nonnull
+    public static InputStream openAtLine(@Nonnull Path log, @Nonnull Path index, long line) throws IOException {
+        var fis = new FileInputStream(log.toFile());
+        try {
+            var start = lookup(index, fis.getChannel(), line);
+            fis.getChannel().position(start.offset);
+
+            var bis = new BufferedInputStream(fis, READ_BUFFER_SIZE);
+            skipLines(bis, line - start.line);
+            return bis;
+        } catch (IOException e) {
+            fis.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param log   The log file to count the lines of
+     * @param index The index of the log file
+     * @return The number of complete lines in the log, only the lines after the last index entry are read
+     */
+    public static long countLines(@Nonnull Path log, @Nonnull Path index) throws IOException {
+        try (var fis = new FileInputStream(log.toFile())) {
+            var start = lookup(index, fis.getChannel(), Long.MAX_VALUE);
+            fis.getChannel().position(start.offset);
+            return start.line + skipLines(new BufferedInputStream(fis, READ_BUFFER_SIZE), Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Reads the given {@link InputStream} until the given number of line breaks has been read or it ended
+     *
+     * @return The number of lines that have been skipped
+     */
+    static long skipLines(@Nonnull InputStream inputStream, long lines) throws IOException {
+        var skipped = 0L;
+        while (skipped < lines) {
+            int read = inputStream.read();
+            if (read < 0) {
+                break;
+            } else if (read == '\n') {
+                skipped += 1;
+            }
+        }
+        return skipped;
+    }
+
+    @Nonnull
+    private static Position lookup(@Nonnull Path index, @Nonnull FileChannel log, long line) throws IOException {
+        var entry = line / LINES_PER_ENTRY - 1;
+        if (entry < 0) {
+            return Position.START;
+        }
+
+        try (var channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            // the last entry might be incomplete while it is being written
+            entry = Math.min(entry, channel.size() / Long.BYTES - 1);
+            if (entry < 0) {
+                return Position.START;
+            }
+
+            var buffer = ByteBuffer.allocate(Long.BYTES);
+            var read   = channel.read(buffer, entry * Long.BYTES);
+            var offset = read == Long.BYTES ? buffer.getLong(0) : -1;
+            var lines  = (entry + 1) * LINES_PER_ENTRY;
+            // every line consists of at least its line break
+            if (offset >= lines && offset <= log.size() && isLineBreakAt(log, offset - 1)) {
+                return new Position(lines, offset);
+            } else {
+                LOG.warning("Ignoring inconsistent index " + index);
+                return Position.START;
+            }
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            return Position.START;
+        }
+    }
+
+    private static boolean isLineBreakAt(@Nonnull FileChannel channel, long position) throws IOException {
+        var buffer = ByteBuffer.allocate(1);
+        return channel.read(buffer, position) == 1 && buffer.get(0) == '\n';
+    }
+
+    private record Position(long line, long offset) {
+        private static final Position START = new Position(0, 0);
+    }
+
+    /**
+     * Appends an entry to the index for every {@link #LINES_PER_ENTRY}th line written to the log. The entries
+     * are buffered until {@link #flush()}, which must therefore only be called once the log itself was flushed.
+     */
+    public static class Writer implements Closeable, Flushable {
+
+        private final @Nonnull Path             path;
+        private final @Nonnull DataOutputStream outputStream;
+
+        private long    lines  = 0;
+        private boolean failed = false;
+
+        /**
+         * Replaces any existing index, which must therefore only be created for a new log file
+         */
+        public Writer(@Nonnull Path path) throws IOException {
+            this.path         = path;
+            this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())));
+        }
+
+        /**
+         * @param offset The size of the log after the line has been written to it
+         */
+        public void lineWritten(long offset) {
+            this.lines += 1;
+            if (this.lines % LINES_PER_ENTRY == 0 && !this.failed) {
+                try {
+                    this.outputStream.writeLong(offset);
+                } catch (IOException e) {
+                    // the log itself is more important, readers skip the remaining lines without the index
+                    LOG.log(Level.WARNING, "Failed to update index " + this.path, e);
+                    this.failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (!this.failed) {
+                try {
+                    this.outputStream.flush();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to update index " + this.path, e);
+                    this.failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.outputStream.close();
+        }
+    }
+}
@@ -1,39 +1,45 @@
 package de.itdesigners.winslow.project;
 
 import de.itdesigners.winslow.LogEntry;
-import de.itdesigners.winslow.api.pipeline.LogSource;
 
 import javax.annotation.Nonnull;
-import java.io.BufferedReader;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Reads the {@link LogEntry}s of a log file as written by the {@link LogWriter}. Lines are only separated by
+ * {@link LogWriter#LINE_SEPARATOR}, like the {@link LogLineIndex} counts them, and are decoded directly from
+ * the read buffer unless they span multiple reads.
+ */
 public class LogReader implements Iterator<LogEntry> {
 
-    @Nonnull private final SimpleDateFormat dateFormat;
-    @Nonnull private final BufferedReader   reader;
-    private                String           currentLine;
+    @Nonnull private final InputStream  inputStream;
+    @Nonnull private final LogLineCodec codec  = new LogLineCodec();
+    @Nonnull private final byte[]       buffer = new byte[LogLineIndex.READ_BUFFER_SIZE];
 
-    private LogReader(@Nonnull InputStream inputStream) {
-        this(inputStream, StandardCharsets.UTF_8);
-    }
+    private int      position = 0;
+    private int      limit    = 0;
+    private byte[]   line     = new byte[256];
+    private int      lineSize = 0;
+    private boolean  ended    = false;
+    private LogEntry next     = null;
 
-    private LogReader(@Nonnull InputStream inputStream, Charset charset) {
-        this.reader     = new BufferedReader(new InputStreamReader(inputStream, charset));
-        this.dateFormat = new SimpleDateFormat(LogWriter.DATE_FORMAT);
+    private LogReader(@Nonnull InputStream inputStream) {
+        this.inputStream = inputStream;
     }
 
     @Override
     public synchronized boolean hasNext() {
         try {
-            return currentLine != null || (currentLine = reader.readLine()) != null;
+            return next != null || (next = readNext()) != null;
         } catch (IOException e) {
             e.printStackTrace();
             return false;
@@ -42,31 +48,63 @@ public class LogReader implements Iterator<LogEntry> {
 
     @Override
     public synchronized LogEntry next() {
-        var split = currentLine.split(LogWriter.LOG_SEPARATOR, 3);
-        try {
-            var entry = new LogEntry(
-                    dateFormat.parse(split[0]).getTime(),
-                    split[1].contains("std")
-                    ? LogSource.STANDARD_IO
-                    : LogSource.MANAGEMENT_EVENT,
-                    split[1].contains("err"),
-                    split[2]
-            );
-            this.currentLine = null;
-            return entry;
-        } catch (ParseException e) {
-            throw new RuntimeException("Failed to parse date", e);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
         }
+        var entry = this.next;
+        this.next = null;
+        return entry;
     }
 
-    public static Stream<LogEntry> stream(@Nonnull InputStream inputStream) {
-        var reader = new LogReader(inputStream);
-        return Stream.<LogEntry>iterate(null, p -> reader.hasNext() || p != null, v -> {
-            if (reader.currentLine != null) {
-                return reader.next();
-            } else {
-                return null;
+    @Nullable
+    private LogEntry readNext() throws IOException {
+        while (!this.ended) {
+            for (int i = this.position; i < this.limit; ++i) {
+                if (this.buffer[i] == '\n') {
+                    var start = this.position;
+                    this.position = i + 1;
+                    if (this.lineSize == 0) {
+                        return this.codec.decode(this.buffer, start, i - start);
+                    } else {
+                        appendToLine(start, i);
+                        var size = this.lineSize;
+                        this.lineSize = 0;
+                        return this.codec.decode(this.line, 0, size);
+                    }
+                }
             }
-        }).skip(1);
+
+            appendToLine(this.position, this.limit);
+            this.position = 0;
+            this.limit    = Math.max(0, this.inputStream.read(this.buffer));
+            this.ended    = this.limit == 0;
+        }
+
+        if (this.lineSize > 0) {
+            // an incomplete last line
+            var size = this.lineSize;
+            this.lineSize = 0;
+            return this.codec.decode(this.line, 0, size);
+        }
+        return null;
+    }
+
+    private void appendToLine(int from, int to) {
+        var length = to - from;
+        if (this.lineSize + length > this.line.length) {
+            this.line = Arrays.copyOf(this.line, Math.max(this.lineSize + length, this.line.length * 2));
+        }
+        System.arraycopy(this.buffer, from, this.line, this.lineSize, length);
+        this.lineSize += length;
+    }
+
+    public static Stream<LogEntry> stream(@Nonnull InputStream inputStream) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(
+                        new LogReader(inputStream),
+                        Spliterator.ORDERED | Spliterator.NONNULL
+                ),
+                false
+        );
     }
 }
@@ -8,6 +8,7 @@ import de.itdesigners.winslow.fs.LockedOutputStream;
 import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -22,10 +23,20 @@ public class LogRepository extends BaseRepository {
     private static final int  LOCK_DURATION_MS        = Env.LOCK_DURATION_LOGS_MS;
     public static final  char PROJECT_STAGE_SEPARATOR = '.';
 
+    private final @Nonnull StorageMode storageMode;
+
     public LogRepository(
             @Nonnull LockBus lockBus,
             @Nonnull WorkDirectoryConfiguration workDirectoryConfiguration) throws IOException {
+        this(lockBus, workDirectoryConfiguration, StorageMode.PLAIN);
+    }
+
+    public LogRepository(
+            @Nonnull LockBus lockBus,
+            @Nonnull WorkDirectoryConfiguration workDirectoryConfiguration,
+            @Nonnull StorageMode storageMode) throws IOException {
         super(lockBus, workDirectoryConfiguration);
+        this.storageMode = storageMode;
     }
 
     @Nonnull
@@ -44,7 +55,51 @@ public class LogRepository extends BaseRepository {
             @Nonnull String stageId) throws LockException, FileNotFoundException {
         var path = getLogFile(projectId, stageId);
         var lock = getLockForPath(path, LOCK_DURATION_MS);
-        return new LockedOutputStream(path.toFile(), lock);
+
+        if (this.storageMode == StorageMode.COMPRESSED) {
+            try {
+                Files.deleteIfExists(getLineIndexFile(path));
+                Files.deleteIfExists(path);
+                return new LockedOutputStream(
+                        new SegmentedLog(path).openOutput(SegmentedLog.DEFAULT_SEGMENT_SIZE),
+                        lock
+                );
+            } catch (IOException e) {
+                lock.close();
+                var fnf = new FileNotFoundException("Failed to open log segments of " + path);
+                fnf.initCause(e);
+                throw fnf;
+            }
+        }
+
+        var os = new LockedOutputStream(path.toFile(), lock);
+        try {
+            // the log has just been truncated, so any previous index or segment is invalid
+            Files.deleteIfExists(getLineIndexFile(path));
+            new SegmentedLog(path).delete();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to delete outdated line index of " + path, e);
+        }
+        return os;
+    }
+
+    /**
+     * @return A {@link LogLineIndex.Writer} for the log that has just been opened by
+     * {@link #getRawOutputStream(String, String)} or {@link Optional#empty()} if it cannot be created
+     * or is not needed, because the segments of {@link StorageMode#COMPRESSED} are indexed on their own
+     */
+    @Nonnull
+    public Optional<LogLineIndex.Writer> getLineIndexWriter(@Nonnull String projectId, @Nonnull String stageId) {
+        if (this.storageMode == StorageMode.COMPRESSED) {
+            return Optional.empty();
+        }
+        var path = getLineIndexFile(getLogFile(projectId, stageId));
+        try {
+            return Optional.of(new LogLineIndex.Writer(path));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to create line index " + path, e);
+            return Optional.empty();
+        }
     }
 
     public boolean deleteLogsIfExistsNoThrows(@Nonnull String projectId, @Nonnull String stageId) {
@@ -58,45 +113,98 @@ public class LogRepository extends BaseRepository {
 
     public boolean deleteLogsIfExists(@Nonnull String projectId, @Nonnull String stageId) throws IOException {
         var path = getLogFile(projectId, stageId);
-        return Files.deleteIfExists(path);
+        Files.deleteIfExists(getLineIndexFile(path));
+        var deletedSegments = new SegmentedLog(path).delete();
+        return Files.deleteIfExists(path) || deletedSegments;
     }
 
+    /**
+     * @return The uncompressed size of the log
+     */
     public long getLogSize(
             @Nonnull String projectId,
             @Nonnull String stageId) {
         var path = getLogFile(projectId, stageId);
         var file = path.toFile();
+        if (!file.exists()) {
+            var segments = new SegmentedLog(path);
+            try {
+                if (segments.exists()) {
+                    return segments.size();
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to determine the size of the log segments of " + path, e);
+            }
+        }
         return file.length();
     }
 
+    /**
+     * Logs are read transparently, regardless of whether they are stored plain or in (compressed) segments
+     *
+     * @param skipBytesLineAligned The number of (uncompressed) bytes to skip, continuing to the next line start
+     */
     @Nonnull
     public InputStream getRawInputStreamNonExclusive(
             @Nonnull String projectId,
             @Nonnull String stageId,
             long skipBytesLineAligned) throws IOException {
-        var path = getLogFile(projectId, stageId);
-        var fis  = new FileInputStream(path.toFile());
+        var path     = getLogFile(projectId, stageId);
+        var segments = new SegmentedLog(path);
+        var skip     = Math.max(0, skipBytesLineAligned - 1);
+        var is = !Files.exists(path) && segments.exists()
+                 ? segments.openAtByte(skip)
+                 : new FileInputStream(path.toFile());
         if (skipBytesLineAligned >= 1) {
             try {
-                fis.skip(skipBytesLineAligned - 1);
-                while (true) {
-                    int read = fis.read();
-                    if (read < 0 || read == '\n') {
-                        break;
-                    }
+                if (is instanceof FileInputStream fis) {
+                    fis.getChannel().position(skip);
+                    is = new BufferedInputStream(fis, LogLineIndex.READ_BUFFER_SIZE);
                 }
+                LogLineIndex.skipLines(is, 1);
             } catch (IOException e) {
-                fis.close();
+                is.close();
                 throw e;
             }
         }
-        return fis;
+        return is;
+    }
+
+    /**
+     * Uses the {@link LogLineIndex} to seek close to the given line and then skips the remaining lines
+     * without parsing them.
+     *
+     * @param skipLines The number of lines to skip
+     * @return An {@link InputStream} positioned at the start of the line after the skipped lines
+     */
+    @Nonnull
+    public InputStream getRawInputStreamNonExclusiveAtLine(
+            @Nonnull String projectId,
+            @Nonnull String stageId,
+            long skipLines) throws IOException {
+        var path     = getLogFile(projectId, stageId);
+        var segments = new SegmentedLog(path);
+        if (!Files.exists(path) && segments.exists()) {
+            return segments.openAtLine(skipLines);
+        } else {
+            return LogLineIndex.openAtLine(path, getLineIndexFile(path), skipLines);
+        }
+    }
+
+    @Nonnull
+    private static Path getLineIndexFile(@Nonnull Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + LogLineIndex.FILE_SUFFIX);
     }
 
     private Path getLogFile(@Nonnull String projectId, @Nonnull String stageId) {
         return getRepositoryFile(projectId + PROJECT_STAGE_SEPARATOR + stageId);
     }
 
+    @Nonnull
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
     @Nonnull
     public Optional<String> getProjectIdForLogPath(@Nonnull Path path) {
         var rootDir = this.workDirectoryConfiguration.getPath();
@@ -111,4 +219,15 @@ public class LogRepository extends BaseRepository {
             return Optional.empty();
         }
     }
+
+    public enum StorageMode {
+        /**
+         * A single plain text file per log
+         */
+        PLAIN,
+        /**
+         * Size-capped segments, which are compressed in seekable blocks once finished, see {@link SegmentedLog}
+         */
+        COMPRESSED,
+    }
 }
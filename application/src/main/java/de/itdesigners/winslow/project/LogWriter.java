@@ -5,35 +5,61 @@ import de.itdesigners.winslow.fs.LockedOutputStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.PrintStream;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
+/**
+ * Writes the {@link LogEntry}s of a {@link Stream} to a log file. Lines are encoded into a buffer and
+ * written with group commit: the buffer is flushed once {@link #FLUSH_SIZE} bytes are pending, the oldest
+ * pending line is {@link #FLUSH_INTERVAL_MS} old or the source provides a {@code null} element, which
+ * signals that it is idle. Flush consumers receive the lines of each flush once they have been written.
+ */
 public class LogWriter implements Runnable {
 
+    private static final Logger LOG = Logger.getLogger(LogWriter.class.getSimpleName());
+
     static final @Nonnull String DATE_FORMAT             = "yyy-MM-dd_HH:mm:ss.SSS";
     static final @Nonnull String LOG_SEPARATOR           = " ";
+    static final @Nonnull String LINE_SEPARATOR          = "\n";
     static final @Nonnull String TRIPLE_STANDARD_IO      = "std";
     static final @Nonnull String TRIPLE_MANAGEMENT_EVENT = "evt";
 
-    @Nonnull private final SimpleDateFormat         dateFormat;
-    @Nonnull private final Stream<LogEntry>         streamSource;
-    @Nonnull private final LockedOutputStream       outputStream;
-    @Nonnull private final List<Consumer<LogEntry>> consumers;
+    public static final long FLUSH_INTERVAL_MS = 50;
+    public static final int  FLUSH_SIZE        = 64 * 1024;
+
+    @Nonnull private final  LogLineCodec                   codec     = new LogLineCodec();
+    @Nonnull private final  Stream<LogEntry>               streamSource;
+    @Nonnull private final  OutputStream                   outputStream;
+    @Nullable private final LogLineIndex.Writer            lineIndex;
+    @Nonnull private final  List<Consumer<LogEntry>>       consumers;
+    @Nonnull private final  List<Consumer<List<LogEntry>>> flushConsumers;
+    @Nonnull private final  List<LogEntry>                 unflushed = new ArrayList<>();
+
+    private byte[]  buffer       = new byte[2 * FLUSH_SIZE];
+    private int     pending      = 0;
+    private long    pendingSince = 0;
+    private long    bytesWritten = 0;
+    private boolean writeFailed  = false;
 
     private LogWriter(
             @Nonnull Stream<LogEntry> streamSource,
-            @Nonnull LockedOutputStream target,
-            @Nonnull List<Consumer<LogEntry>> consumers) {
-        this.streamSource = streamSource;
-        this.outputStream = target;
-        this.consumers    = consumers;
-        this.dateFormat   = new SimpleDateFormat(DATE_FORMAT);
+            @Nonnull OutputStream target,
+            @Nullable LogLineIndex.Writer lineIndex,
+            @Nonnull List<Consumer<LogEntry>> consumers,
+            @Nonnull List<Consumer<List<LogEntry>>> flushConsumers) {
+        this.streamSource   = streamSource;
+        this.outputStream   = target;
+        this.lineIndex      = lineIndex;
+        this.consumers      = consumers;
+        this.flushConsumers = flushConsumers;
     }
 
     public static Builder writeTo(@Nonnull LockedOutputStream outputStream) {
@@ -42,34 +68,89 @@ public class LogWriter implements Runnable {
 
     @Override
     public void run() {
-        try (PrintStream ps = new PrintStream(outputStream)) {
+        try (outputStream) {
             this.streamSource.forEach(element -> {
                 if (element != null) {
-                    var stream   = element.error() ? "err" : "out";
-                    var dateTime = dateFormat.format(new Date(element.time()));
-                    var source = switch (element.source()) {
-                        case STANDARD_IO -> TRIPLE_STANDARD_IO;
-                        case MANAGEMENT_EVENT -> TRIPLE_MANAGEMENT_EVENT;
-                    };
-
-                    ps.println(String.join(LOG_SEPARATOR, dateTime, source + stream, element.message()));
-                    ps.flush();
+                    writeLine(element);
                     notifyConsumers(element);
                 }
+                if (element == null || this.pending >= FLUSH_SIZE || isFlushDue()) {
+                    flush();
+                }
             });
+            flush();
         } catch (Throwable t) {
             t.printStackTrace();
         }
     }
 
+    private boolean isFlushDue() {
+        return this.pending > 0 && System.currentTimeMillis() - this.pendingSince >= FLUSH_INTERVAL_MS;
+    }
+
+    private void writeLine(@Nonnull LogEntry entry) {
+        var required = this.pending + LogLineCodec.maxEncodedLength(entry);
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+        if (this.pending == 0) {
+            this.pendingSince = System.currentTimeMillis();
+        }
+        this.pending = this.codec.encode(entry, this.buffer, this.pending);
+        if (this.lineIndex != null && !this.writeFailed) {
+            this.lineIndex.lineWritten(this.bytesWritten + this.pending);
+        }
+        if (!this.flushConsumers.isEmpty()) {
+            this.unflushed.add(entry);
+        }
+    }
+
+    private void flush() {
+        if (this.pending == 0) {
+            return;
+        }
+        try {
+            if (!this.writeFailed) {
+                this.outputStream.write(this.buffer, 0, this.pending);
+                this.outputStream.flush();
+                this.bytesWritten += this.pending;
+                if (this.lineIndex != null) {
+                    // only after the log, so that the index never points beyond its end
+                    this.lineIndex.flush();
+                }
+            }
+        } catch (IOException e) {
+            // like the PrintStream before, keep on consuming the source, but the offsets are unknown from now on
+            LOG.log(Level.WARNING, "Failed to write log lines", e);
+            this.writeFailed = true;
+        } finally {
+            this.pending = 0;
+            if (this.buffer.length > 2 * FLUSH_SIZE) {
+                // do not keep the memory of a single huge line
+                this.buffer = new byte[2 * FLUSH_SIZE];
+            }
+            notifyFlushConsumers();
+        }
+    }
+
     private void notifyConsumers(LogEntry element) {
         consumers.forEach(c -> c.accept(element));
     }
 
+    private void notifyFlushConsumers() {
+        if (!this.unflushed.isEmpty()) {
+            var flushed = List.copyOf(this.unflushed);
+            this.unflushed.clear();
+            flushConsumers.forEach(c -> c.accept(flushed));
+        }
+    }
+
     public static class Builder {
-        @Nonnull final List<Consumer<LogEntry>> additionalConsumer = new ArrayList<>();
-        @Nonnull final LockedOutputStream       os;
-        @Nullable      Stream<LogEntry>         streamSource;
+        @Nonnull final List<Consumer<LogEntry>>       additionalConsumer = new ArrayList<>();
+        @Nonnull final List<Consumer<List<LogEntry>>> flushConsumer      = new ArrayList<>();
+        @Nonnull final LockedOutputStream             os;
+        @Nullable      Stream<LogEntry>               streamSource;
+        @Nullable      LogLineIndex.Writer            lineIndex;
 
         private Builder(@Nonnull LockedOutputStream os) {
             this.os = os;
@@ -80,14 +161,33 @@ public class LogWriter implements Runnable {
             return this;
         }
 
+        public Builder lineIndex(@Nullable LogLineIndex.Writer lineIndex) {
+            this.lineIndex = lineIndex;
+            return this;
+        }
+
         public Builder addConsumer(@Nonnull Consumer<LogEntry> consumer) {
             this.additionalConsumer.add(consumer);
             return this;
         }
 
+        /**
+         * @param consumer Receives the lines of each flush, in order, after they have been written
+         */
+        public Builder addFlushConsumer(@Nonnull Consumer<List<LogEntry>> consumer) {
+            this.flushConsumer.add(consumer);
+            return this;
+        }
+
         public void runInForeground() {
             Objects.requireNonNull(this.streamSource);
-            new LogWriter(this.streamSource, this.os, this.additionalConsumer).run();
+            new LogWriter(
+                    this.streamSource,
+                    this.os,
+                    this.lineIndex,
+                    this.additionalConsumer,
+                    this.flushConsumer
+            ).run();
         }
     }
 }
@@ -0,0 +1,382 @@
+package de.itdesigners.winslow.project;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A log that is split into size-capped segments, which are named after the log with the
+ * number of the segment appended. The last segment is written as plain text with a
+ * {@link LogLineIndex}, while all finished segments are replaced by a {@link CompressedLogSegment}.
+ * A segment is finished once its successor exists, the content of a log is the concatenation
+ * of all its segments. Finished segments are compressed in the background, one after another
+ * per log, so that writing the log is not held up by it. A compressed segment is complete once it
+ * is visible and the plain segment is only deleted afterwards, so that readers look for the plain
+ * segment first and fall back to the compressed one if it has vanished.
+ */
+class SegmentedLog {
+
+    private static final Logger LOG = Logger.getLogger(SegmentedLog.class.getSimpleName());
+
+    static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private static final AtomicInteger      COMPRESSION_THREAD_COUNTER = new AtomicInteger();
+    private static final long               COMPRESSION_KEEP_ALIVE_MS  = 60_000;
+    private static final int                COMPRESSION_THREADS        = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final ThreadPoolExecutor COMPRESSION_POOL           = new ThreadPoolExecutor(
+            COMPRESSION_THREADS,
+            COMPRESSION_THREADS,
+            COMPRESSION_KEEP_ALIVE_MS,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                var thread = new Thread(runnable);
+                thread.setName("LogSegmentCompression-" + COMPRESSION_THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    /**
+     * The latest pending compression per log, each compression of a log is chained onto its predecessor
+     */
+    private static final Map<Path, CompletableFuture<Void>> COMPRESSIONS = new ConcurrentHashMap<>();
+
+    static {
+        COMPRESSION_POOL.allowCoreThreadTimeOut(true);
+    }
+
+    private final @Nonnull Path base;
+
+    SegmentedLog(@Nonnull Path base) {
+        this.base = base;
+    }
+
+    boolean exists() {
+        return exists(0);
+    }
+
+    private boolean exists(int segment) {
+        // in this order, so that a segment being compressed in between is not missed
+        return Files.exists(getPlainFile(segment)) || Files.exists(getCompressedFile(segment));
+    }
+
+    /**
+     * @return The uncompressed size of all segments
+     */
+    long size() throws IOException {
+        var size = 0L;
+        for (int segment = 0; exists(segment); ++segment) {
+            size += size(segment);
+        }
+        return size;
+    }
+
+    private long size(int segment) throws IOException {
+        try {
+            return Files.size(getPlainFile(segment));
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            var compressed = getCompressedFile(segment);
+            return CompressedLogSegment.size(CompressedLogSegment.readIndex(compressed));
+        }
+    }
+
+    private long lines(int segment) throws IOException {
+        try {
+            var plain = getPlainFile(segment);
+            return LogLineIndex.countLines(plain, getLineIndexFile(plain));
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            var compressed = getCompressedFile(segment);
+            return CompressedLogSegment.lines(CompressedLogSegment.readIndex(compressed));
+        }
+    }
+
+    /**
+     * @param offset The uncompressed byte offset to start at
+     * @return An {@link InputStream} of the whole log, starting at the given offset
+     */
+    @Nonnull
+    InputStream openAtByte(long offset) throws IOException {
+        var segment = 0;
+        while (exists(segment + 1)) {
+            var size = size(segment);
+            if (offset < size) {
+                break;
+            }
+            offset -= size;
+            segment += 1;
+        }
+        return new SegmentsInputStream(segment, openAtByte(segment, offset));
+    }
+
+    /**
+     * @throws NoSuchFileException If the segment does not exist, neither plain nor compressed
+     */
+    @Nonnull
+    private InputStream openAtByte(int segment, long offset) throws IOException {
+        try {
+            var fis = new FileInputStream(getPlainFile(segment).toFile());
+            fis.getChannel().position(offset);
+            return new BufferedInputStream(fis, LogLineIndex.READ_BUFFER_SIZE);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            var compressed = getCompressedFile(segment);
+            return CompressedLogSegment.openAtByte(compressed, CompressedLogSegment.readIndex(compressed), offset);
+        }
+    }
+
+    /**
+     * @param line The number of lines to skip
+     * @return An {@link InputStream} of the whole log, starting at the given line
+     */
+    @Nonnull
+    InputStream openAtLine(long line) throws IOException {
+        var segment = 0;
+        while (exists(segment + 1)) {
+            var lines = lines(segment);
+            if (line < lines) {
+                break;
+            }
+            line -= lines;
+            segment += 1;
+        }
+        return new SegmentsInputStream(segment, openAtLine(segment, line));
+    }
+
+    @Nonnull
+    private InputStream openAtLine(int segment, long line) throws IOException {
+        try {
+            var plain = getPlainFile(segment);
+            return LogLineIndex.openAtLine(plain, getLineIndexFile(plain), line);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            var compressed = getCompressedFile(segment);
+            return CompressedLogSegment.openAtLine(compressed, CompressedLogSegment.readIndex(compressed), line);
+        }
+    }
+
+    /**
+     * Deletes all segments and their indices
+     *
+     * @return Whether there was any segment to delete
+     */
+    boolean delete() throws IOException {
+        // otherwise a pending compression might recreate a deleted segment
+        awaitCompression();
+
+        var deleted = false;
+        for (int segment = 0; exists(segment); ++segment) {
+            var plain      = getPlainFile(segment);
+            var compressed = getCompressedFile(segment);
+            Files.deleteIfExists(getLineIndexFile(plain));
+            Files.deleteIfExists(plain);
+            Files.deleteIfExists(compressed);
+            Files.deleteIfExists(CompressedLogSegment.getIndexFile(compressed));
+            deleted = true;
+        }
+        return deleted;
+    }
+
+    /**
+     * Replaces any existing segments
+     *
+     * @param segmentSize The size after which a new segment is started, at the next line break
+     */
+    @Nonnull
+    OutputStream openOutput(long segmentSize) throws IOException {
+        delete();
+        return new SegmentsOutputStream(segmentSize);
+    }
+
+    /**
+     * Waits until all finished segments of this log have been compressed
+     */
+    void awaitCompression() {
+        var pending = COMPRESSIONS.get(this.base);
+        if (pending != null) {
+            pending.join();
+        }
+    }
+
+    private void compressInBackground(int segment) {
+        var plain  = getPlainFile(segment);
+        var target = getCompressedFile(segment);
+        var future = COMPRESSIONS.compute(
+                this.base,
+                (path, previous) -> (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                        .thenRunAsync(() -> compress(plain, target), COMPRESSION_POOL)
+        );
+        future.whenComplete((result, throwable) -> COMPRESSIONS.remove(this.base, future));
+    }
+
+    private static void compress(@Nonnull Path plain, @Nonnull Path target) {
+        try {
+            CompressedLogSegment.compress(plain, target);
+            Files.delete(getLineIndexFile(plain));
+            Files.delete(plain);
+        } catch (IOException e) {
+            // the plain segment is still readable
+            LOG.log(Level.WARNING, "Failed to compress log segment " + plain, e);
+        }
+    }
+
+    @Nonnull
+    private Path getPlainFile(int segment) {
+        return base.resolveSibling(base.getFileName() + "." + segment);
+    }
+
+    @Nonnull
+    private Path getCompressedFile(int segment) {
+        return base.resolveSibling(base.getFileName() + "." + segment + CompressedLogSegment.FILE_SUFFIX);
+    }
+
+    @Nonnull
+    private static Path getLineIndexFile(@Nonnull Path plain) {
+        return plain.resolveSibling(plain.getFileName() + LogLineIndex.FILE_SUFFIX);
+    }
+
+    /**
+     * Continues with the next segment once the current one has been read and is finished. Because a
+     * segment is finished once its successor exists, it has to be read to its end once more after the
+     * successor appeared.
+     */
+    private class SegmentsInputStream extends InputStream {
+
+        private           int         segment;
+        private @Nullable InputStream current;
+        private           boolean     finished = false;
+
+        private SegmentsInputStream(int segment, @Nonnull InputStream current) {
+            this.segment = segment;
+            this.current = current;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (this.current != null) {
+                var read = this.current.read();
+                if (read >= 0 || !this.nextSegment()) {
+                    return read;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+            while (this.current != null) {
+                var read = this.current.read(b, off, len);
+                if (read >= 0 || !this.nextSegment()) {
+                    return read;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return Whether reading shall continue, false if the current segment is still being written to
+         */
+        private boolean nextSegment() throws IOException {
+            if (!this.finished) {
+                this.finished = exists(this.segment + 1);
+                return this.finished;
+            }
+
+            this.close();
+            this.segment += 1;
+            this.finished = false;
+            // known to exist, failing to open it must not look like the end of the log
+            this.current = openAtByte(this.segment, 0);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.current != null) {
+                this.current.close();
+                this.current = null;
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment after a line break once the current one has reached the size limit
+     * and then has the finished segment compressed. The last segment is compressed when closed,
+     * which returns once all segments have been compressed.
+     */
+    private class SegmentsOutputStream extends OutputStream {
+
+        private final long segmentSize;
+
+        private int                 segment = 0;
+        private OutputStream        output;
+        private LogLineIndex.Writer lineIndex;
+        private long                written = 0;
+        private boolean             closed  = false;
+
+        private SegmentsOutputStream(long segmentSize) throws IOException {
+            this.segmentSize = segmentSize;
+            this.open();
+        }
+
+        private void open() throws IOException {
+            var plain = getPlainFile(this.segment);
+            this.output    = new FileOutputStream(plain.toFile());
+            this.lineIndex = new LogLineIndex.Writer(getLineIndexFile(plain));
+            this.written   = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+            this.output.write(b, off, len);
+            for (int i = off; i < off + len; ++i) {
+                if (b[i] == '\n') {
+                    this.lineIndex.lineWritten(this.written + i - off + 1);
+                }
+            }
+            this.written += len;
+
+            if (this.written >= this.segmentSize && len > 0 && b[off + len - 1] == '\n') {
+                this.finishSegment();
+                this.segment += 1;
+                this.open();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.output.flush();
+            this.lineIndex.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!this.closed) {
+                this.closed = true;
+                this.finishSegment();
+                awaitCompression();
+            }
+        }
+
+        private void finishSegment() throws IOException {
+            this.output.close();
+            this.lineIndex.close();
+            compressInBackground(this.segment);
+        }
+    }
+}
@@ -1,20 +1,50 @@
 package de.itdesigners.winslow.resource;
 
+import de.itdesigners.winslow.fs.DirectoryIndex;
+
 import javax.annotation.Nonnull;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceManager {
 
-    private final Path              workDirectory;
-    private final PathConfiguration configuration;
+    private static final String SNAPSHOTS_DIRECTORY = ".snapshots";
+
+    private final Path                      workDirectory;
+    private final PathConfiguration         configuration;
+    private final Map<Path, DirectoryIndex> indices = new ConcurrentHashMap<>();
 
     public ResourceManager(Path workDirectory, PathConfiguration configuration) {
         this.workDirectory = workDirectory;
         this.configuration = configuration;
     }
 
+    /**
+     * @param root The resources or the workspaces directory
+     * @return The index of the sizes of the directories within the given directory, shared by all users
+     */
+    @Nonnull
+    public DirectoryIndex getDirectoryIndex(@Nonnull Path root) {
+        return indices.computeIfAbsent(root, DirectoryIndex::new);
+    }
+
+    /**
+     * Must be called whenever a file or directory within the resources or workspaces directory has been changed,
+     * created or deleted, so that the sizes cached for it are dropped
+     *
+     * @param path The absolute path to the file or directory that has been changed
+     */
+    public void invalidateDirectoryIndex(@Nonnull Path path) {
+        indices.forEach((root, index) -> {
+            if (path.startsWith(root)) {
+                index.invalidate(path);
+            }
+        });
+    }
+
     public Optional<Path> getWorkspacesDirectory() {
         Path path = configuration.resolvePathOfWorkspaces(workDirectory);
         if (!path.toFile().exists() && !path.toFile().mkdirs()) {
@@ -24,6 +54,17 @@ public class ResourceManager {
         }
     }
 
+    /**
+     * @return The directory of the snapshot store, within the workspaces directory so that its files can be hard
+     * linked into the workspaces
+     */
+    @Nonnull
+    public Optional<Path> getSnapshotsDirectory() {
+        return getWorkspacesDirectory()
+                .map(dir -> dir.resolve(SNAPSHOTS_DIRECTORY))
+                .filter(p -> p.toFile().exists() || p.toFile().mkdirs());
+    }
+
     /**
      * @param path Path within the directory to resolve
      * @return The path to the workspace for the given job id if it exists
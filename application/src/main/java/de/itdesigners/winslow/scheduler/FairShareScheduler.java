@@ -0,0 +1,261 @@
+package de.itdesigners.winslow.scheduler;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps the projects that are ready to have their next stage placed and hands them out in fair-share order: the
+ * accounting group with the lowest share of its resources in use goes first, within an accounting group the project
+ * with the highest priority and then the one that has been waiting the longest. Projects that could not be placed
+ * because of missing resources are parked, they keep their age once they are re-queued.
+ */
+public class FairShareScheduler {
+
+    public static final int PRIORITY_NORMAL  = 0;
+    public static final int PRIORITY_RESUMED = 1;
+
+    private static final int PLACEMENT_WINDOW_SECONDS = 60;
+
+    private static final Comparator<Ready> ORDER_WITHIN_ACCOUNT = Comparator
+            .comparingInt(Ready::priority)
+            .reversed()
+            .thenComparingLong(Ready::since)
+            .thenComparing(Ready::projectId);
+
+    private final @Nonnull LongSupplier clock;
+
+    private final @Nonnull Map<String, Ready>                queued     = new HashMap<>();
+    private final @Nonnull Map<String, PriorityQueue<Ready>> accounts   = new HashMap<>();
+    private final @Nonnull Map<String, Ready>                dispatched = new HashMap<>();
+    private final @Nonnull Map<String, Ready>                parked     = new HashMap<>();
+    private final @Nonnull Map<String, Double>               shares     = new TreeMap<>();
+    private final @Nonnull long[]                            placements = new long[PLACEMENT_WINDOW_SECONDS];
+
+    private long placementsSecond = 0;
+    private long placementsTotal  = 0;
+    private long waitCount        = 0;
+    private long waitTotalMs      = 0;
+    private long waitMaxMs        = 0;
+
+    public FairShareScheduler() {
+        this(System::currentTimeMillis);
+    }
+
+    FairShareScheduler(@Nonnull LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Queues the given project unless it is already queued, in which case it keeps its age and the higher priority.
+     * A parked project is queued with the age it had when it was parked.
+     *
+     * @param projectId       The project to check for the next stage to place
+     * @param accountingGroup The accounting group of the project
+     * @param priority        Higher priorities go first within the accounting group
+     */
+    public synchronized void enqueue(@Nonnull String projectId, @Nonnull String accountingGroup, int priority) {
+        var since    = this.clock.getAsLong();
+        var resumed  = this.parked.remove(projectId);
+        var previous = this.queued.get(projectId);
+        if (resumed != null) {
+            since    = resumed.since();
+            priority = Math.max(priority, resumed.priority());
+        }
+        if (previous != null) {
+            if (previous.priority() >= priority && previous.accountingGroup().equals(accountingGroup)) {
+                return;
+            }
+            remove(previous);
+            since    = Math.min(since, previous.since());
+            priority = Math.max(priority, previous.priority());
+        }
+        add(new Ready(projectId, accountingGroup, priority, since));
+    }
+
+    /**
+     * Takes the next project in fair-share order from the queue.
+     *
+     * @param shareOfAccount The share of its resources an accounting group is currently using, from zero upwards
+     * @return The project that should have its next stage placed now
+     */
+    @Nonnull
+    public synchronized Optional<Ready> poll(@Nonnull ToDoubleFunction<String> shareOfAccount) {
+        if (this.accounts.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Ready  next      = null;
+        double nextShare = 0;
+
+        this.shares.clear();
+        for (var entry : this.accounts.entrySet()) {
+            var head  = entry.getValue().peek();
+            var share = shareOfAccount.applyAsDouble(entry.getKey());
+            this.shares.put(entry.getKey(), share);
+
+            if (head != null && (next == null || share < nextShare || (share == nextShare && isBefore(head, next)))) {
+                next      = head;
+                nextShare = share;
+            }
+        }
+
+        if (next != null) {
+            remove(next);
+            this.dispatched.put(next.projectId(), next);
+
+            var waited = Math.max(0, this.clock.getAsLong() - next.since());
+            this.waitCount   += 1;
+            this.waitTotalMs += waited;
+            this.waitMaxMs    = Math.max(this.waitMaxMs, waited);
+        }
+        return Optional.ofNullable(next);
+    }
+
+    /**
+     * Notifies that the project returned by {@link #poll(ToDoubleFunction)} has been dealt with
+     */
+    public synchronized void done(@Nonnull String projectId) {
+        this.dispatched.remove(projectId);
+    }
+
+    /**
+     * Parks the given project until {@link #requeueParked()}, because there are not enough resources to place its next
+     * stage. If it is currently being dispatched, it keeps the age it had in the queue.
+     */
+    public synchronized void park(@Nonnull String projectId, @Nonnull String accountingGroup) {
+        var since = Optional
+                .ofNullable(this.dispatched.remove(projectId))
+                .or(() -> Optional.ofNullable(this.queued.get(projectId)))
+                .map(Ready::since)
+                .orElseGet(this.clock::getAsLong);
+        this.parked.merge(
+                projectId,
+                new Ready(projectId, accountingGroup, PRIORITY_RESUMED, since),
+                (a, b) -> a.since() <= b.since() ? a : b
+        );
+    }
+
+    /**
+     * Moves all parked projects back into the queue, with {@link #PRIORITY_RESUMED} and their original age.
+     *
+     * @return Whether any project has been moved
+     */
+    public synchronized boolean requeueParked() {
+        if (this.parked.isEmpty()) {
+            return false;
+        }
+        for (var ready : this.parked.values()) {
+            var previous = this.queued.get(ready.projectId());
+            if (previous != null) {
+                remove(previous);
+            }
+            add(ready);
+        }
+        this.parked.clear();
+        return true;
+    }
+
+    /**
+     * Records that the given number of stages of a project of the given accounting group have been placed
+     */
+    public synchronized void onPlaced(@Nonnull String accountingGroup, int stages) {
+        var second = this.clock.getAsLong() / 1_000;
+        advancePlacementWindow(second);
+        this.placements[(int) (second % PLACEMENT_WINDOW_SECONDS)] += stages;
+        this.placementsTotal += stages;
+    }
+
+    @Nonnull
+    public synchronized Metrics getMetrics() {
+        advancePlacementWindow(this.clock.getAsLong() / 1_000);
+        return new Metrics(
+                this.queued.size(),
+                this.parked.size(),
+                this.placementsTotal,
+                (double) Arrays.stream(this.placements).sum() / PLACEMENT_WINDOW_SECONDS,
+                this.waitCount > 0 ? (double) this.waitTotalMs / this.waitCount : 0,
+                this.waitMaxMs,
+                getFairnessIndex(this.shares.values()),
+                new TreeMap<>(this.shares)
+        );
+    }
+
+    /**
+     * @return Jain's fairness index of the given shares, 1 if all are equal and down to 1/n if a single one takes all
+     */
+    static double getFairnessIndex(@Nonnull Collection<Double> shares) {
+        var sum        = 0.0;
+        var sumSquares = 0.0;
+        for (var share : shares) {
+            sum        += share;
+            sumSquares += share * share;
+        }
+        return sumSquares > 0 ? (sum * sum) / (shares.size() * sumSquares) : 1.0;
+    }
+
+    private void advancePlacementWindow(long second) {
+        if (second - this.placementsSecond >= PLACEMENT_WINDOW_SECONDS) {
+            Arrays.fill(this.placements, 0);
+        } else {
+            for (var s = this.placementsSecond + 1; s <= second; ++s) {
+                this.placements[(int) (s % PLACEMENT_WINDOW_SECONDS)] = 0;
+            }
+        }
+        this.placementsSecond = Math.max(this.placementsSecond, second);
+    }
+
+    private static boolean isBefore(@Nonnull Ready a, @Nonnull Ready b) {
+        return ORDER_WITHIN_ACCOUNT.compare(a, b) < 0;
+    }
+
+    private void add(@Nonnull Ready ready) {
+        this.queued.put(ready.projectId(), ready);
+        this.accounts
+                .computeIfAbsent(ready.accountingGroup(), a -> new PriorityQueue<>(ORDER_WITHIN_ACCOUNT))
+                .add(ready);
+    }
+
+    private void remove(@Nonnull Ready ready) {
+        this.queued.remove(ready.projectId());
+        var queue = this.accounts.get(ready.accountingGroup());
+        if (queue != null) {
+            queue.remove(ready);
+            if (queue.isEmpty()) {
+                this.accounts.remove(ready.accountingGroup());
+            }
+        }
+    }
+
+    /**
+     * @param projectId       The project to place the next stage of
+     * @param accountingGroup The accounting group the project belongs to
+     * @param priority        Higher priorities go first within the accounting group
+     * @param since           Since when the project is waiting, in milliseconds since the epoch
+     */
+    public record Ready(@Nonnull String projectId, @Nonnull String accountingGroup, int priority, long since) {
+    }
+
+    /**
+     * @param queued              The number of projects currently queued
+     * @param parked              The number of projects currently waiting for resources
+     * @param placements          The number of stages placed so far
+     * @param placementsPerSecond The number of stages placed per second, averaged over the last minute
+     * @param averageWaitMs       The average time a project waited in the queue
+     * @param maxWaitMs           The longest time a project waited in the queue
+     * @param fairnessIndex       Jain's fairness index of the account shares
+     * @param accountShares       The shares of the accounting groups with queued projects, as of the last poll that
+     *                            found any project in the queue
+     */
+    public record Metrics(
+            int queued,
+            int parked,
+            long placements,
+            double placementsPerSecond,
+            double averageWaitMs,
+            long maxWaitMs,
+            double fairnessIndex,
+            @Nonnull Map<String, Double> accountShares) {
+    }
+}
@@ -0,0 +1,220 @@
+package de.itdesigners.winslow.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a gzip stream whose blocks are compressed in parallel, like pigz does: the input is split into blocks that
+ * are deflated independently on the given {@link Executor}, each primed with the last 32 KiB of the preceding block as
+ * dictionary, and ended on a byte boundary so that the concatenated blocks form a single valid deflate stream. The
+ * checksum is calculated on the writing thread, the compressed blocks are written in order by the writing thread as
+ * well. At most twice as many blocks as the parallelism are buffered.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final int    DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER          = new byte[]{
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // compression method
+            0, // flags
+            0, 0, 0, 0, // modification time
+            0, // extra flags
+            (byte) 0xff, // unknown operating system
+    };
+
+    private final @Nonnull OutputStream               out;
+    private final @Nonnull Executor                   executor;
+    private final          int                        level;
+    private final          int                        maxPending;
+    private final @Nonnull ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final @Nonnull CRC32                      crc     = new CRC32();
+
+    private @Nonnull  byte[]  block;
+    private           int     blockLength   = 0;
+    private @Nullable byte[]  dictionary    = null;
+    private           long    totalLength   = 0;
+    private           boolean headerWritten = false;
+    private           boolean closed        = false;
+
+    /**
+     * @param out         The stream to write the gzip stream to
+     * @param executor    The executor to compress the blocks on
+     * @param parallelism The number of blocks to compress at once, should match the threads of the executor
+     */
+    public ParallelGzipOutputStream(@Nonnull OutputStream out, @Nonnull Executor executor, int parallelism) {
+        this(out, executor, parallelism, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelGzipOutputStream(
+            @Nonnull OutputStream out,
+            @Nonnull Executor executor,
+            int parallelism,
+            int level,
+            int blockSize) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("The block size must be at least " + DICTIONARY_SIZE + " bytes");
+        }
+        this.out        = out;
+        this.executor   = executor;
+        this.level      = level;
+        this.maxPending = 2 * Math.max(1, parallelism);
+        this.block      = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            var count = Math.min(length, this.block.length - this.blockLength);
+            System.arraycopy(bytes, offset, this.block, this.blockLength, count);
+            this.crc.update(bytes, offset, count);
+            this.blockLength += count;
+            this.totalLength += count;
+            offset += count;
+            length -= count;
+
+            if (this.blockLength == this.block.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Writes all blocks that have been compressed already, without waiting for the others
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeCompressedBlocks(false);
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            try {
+                submitBlock(true);
+                writeCompressedBlocks(true);
+                writeTrailer();
+                this.out.flush();
+            } finally {
+                this.closed = true;
+                this.pending.forEach(future -> future.cancel(true));
+                this.pending.clear();
+                this.out.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        var input      = this.block;
+        var length     = this.blockLength;
+        var dictionary = this.dictionary;
+        var future     = new CompletableFuture<byte[]>();
+
+        this.executor.execute(() -> {
+            try {
+                future.complete(deflate(input, length, dictionary, last));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        this.pending.addLast(future);
+
+        if (length >= DICTIONARY_SIZE) {
+            this.dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+        }
+        this.block       = new byte[input.length];
+        this.blockLength = 0;
+
+        while (this.pending.size() >= this.maxPending) {
+            writeNextCompressedBlock();
+        }
+    }
+
+    @Nonnull
+    private byte[] deflate(@Nonnull byte[] input, int length, @Nullable byte[] dictionary, boolean last) {
+        var deflater = new Deflater(this.level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+
+            var output = new byte[length + length / 1000 + 64];
+            var size   = 0;
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                if (size == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                // a sync flush ends the block on a byte boundary, so that the next block can simply be appended
+                var flush = last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+                var count = deflater.deflate(output, size, output.length - size, flush);
+                size += count;
+                if (last ? deflater.finished() : size < output.length && deflater.needsInput()) {
+                    return Arrays.copyOf(output, size);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeCompressedBlocks(boolean wait) throws IOException {
+        while (!this.pending.isEmpty() && (wait || this.pending.peekFirst().isDone())) {
+            writeNextCompressedBlock();
+        }
+    }
+
+    private void writeNextCompressedBlock() throws IOException {
+        if (!this.headerWritten) {
+            this.out.write(HEADER);
+            this.headerWritten = true;
+        }
+        try {
+            this.out.write(this.pending.peekFirst().get());
+            this.pending.removeFirst();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress", e.getCause());
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        var crc    = this.crc.getValue();
+        var length = this.totalLength;
+        this.out.write(new byte[]{
+                (byte) crc, (byte) (crc >> 8), (byte) (crc >> 16), (byte) (crc >> 24),
+                (byte) length, (byte) (length >> 8), (byte) (length >> 16), (byte) (length >> 24),
+        });
+    }
+}
@@ -1,16 +1,17 @@
 package de.itdesigners.winslow.web.api;
 
+import de.itdesigners.winslow.Env;
 import de.itdesigners.winslow.Winslow;
 import de.itdesigners.winslow.api.file.FileInfo;
 import de.itdesigners.winslow.auth.User;
+import de.itdesigners.winslow.fs.DirectoryIndex;
 import de.itdesigners.winslow.resource.ResourceManager;
+import de.itdesigners.winslow.util.ParallelGzipOutputStream;
 import de.itdesigners.winslow.web.FileAccessChecker;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.fileupload2.jakarta.JakartaServletFileUpload;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
@@ -20,6 +21,7 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -34,11 +36,18 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.*;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -49,9 +58,15 @@ public class FilesController {
     public static final String PARAM_DOWNLOAD_HANDLER               = "handler";
     public static final String DOWNLOAD_HANDLER_CSV_LINE_AGGREGATOR = "line-aggregator/csv";
     public static final String DOWNLOAD_HANDLER_DEFAULT             = "default";
+    public static final String ARCHIVE_FORMAT_TAR                   = "tar";
+    public static final String ARCHIVE_FORMAT_TAR_GZ                = "tar.gz";
 
-    private final ResourceManager   resourceManager;
-    private final FileAccessChecker checker;
+    private static final long          COMPRESSION_THREAD_KEEP_ALIVE_MS = 30_000;
+    private static final AtomicInteger COMPRESSION_THREAD_COUNTER       = new AtomicInteger();
+
+    private final ResourceManager    resourceManager;
+    private final FileAccessChecker  checker;
+    private final ThreadPoolExecutor compressionPool;
 
     @Autowired
     public FilesController(Winslow winslow) {
@@ -63,8 +78,32 @@ public class FilesController {
     }
 
     public FilesController(@Nonnull ResourceManager resourceManager, @Nonnull FileAccessChecker checker) {
+        this(resourceManager, checker, Env.getDownloadCompressionThreads());
+    }
+
+    /**
+     * @param compressionThreads The number of threads to compress downloads with, shared by all downloads
+     */
+    public FilesController(
+            @Nonnull ResourceManager resourceManager,
+            @Nonnull FileAccessChecker checker,
+            int compressionThreads) {
         this.resourceManager = resourceManager;
         this.checker         = checker;
+        this.compressionPool = new ThreadPoolExecutor(
+                Math.max(1, compressionThreads),
+                Math.max(1, compressionThreads),
+                COMPRESSION_THREAD_KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable);
+                    thread.setName("DownloadCompression-" + COMPRESSION_THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.compressionPool.allowCoreThreadTimeOut(true);
     }
 
     @DeleteMapping(value = {"/files/resources/**"})
@@ -98,6 +137,7 @@ public class FilesController {
                 .filter(p -> checker.isAllowedToAccessPath(user, p))).map(path -> {
             try {
                 FileUtils.forceDelete(path.toFile());
+                resourceManager.invalidateDirectoryIndex(path);
                 return true;
             } catch (IOException e) {
                 // TODO: add logging? / spams the test cases and no option for disabling it
@@ -126,7 +166,11 @@ public class FilesController {
         return normalizedPath(request).flatMap(path -> Optional
                 .of(directory.resolve(path))
                 .filter(p -> checker.isAllowedToAccessPath(user, p))
-                .filter(p -> p.toFile().exists() || p.toFile().mkdirs()));
+                .filter(p -> p.toFile().exists() || p.toFile().mkdirs())
+                .map(p -> {
+                    resourceManager.invalidateDirectoryIndex(p);
+                    return p;
+                }));
     }
 
     @PutMapping(value = {"/files/resources/**"})
@@ -224,6 +268,8 @@ public class FilesController {
                         } catch (IOException e) {
                             e.printStackTrace();
                             return false;
+                        } finally {
+                            resourceManager.invalidateDirectoryIndex(decompressArchive ? parent : path);
                         }
                     } else {
                         return false;
@@ -288,109 +334,208 @@ public class FilesController {
     public ResponseEntity<StreamingResponseBody> downloadResourceFile(
             HttpServletRequest request,
             User user,
-            @RequestParam(value = "compressToArchive", required = false, defaultValue = "false") boolean compress) {
-        return downloadFileOrDirectoryAsTarGz(request,
-                                              user,
-                                              resourceManager.getResourceDirectory().orElseThrow(),
-                                              compress
+            @RequestParam(value = "compressToArchive", required = false, defaultValue = "false") boolean compress,
+            @RequestParam(value = "archiveFormat", required = false, defaultValue = ARCHIVE_FORMAT_TAR_GZ) String format) {
+        return downloadFileOrDirectory(request,
+                                       user,
+                                       resourceManager.getResourceDirectory().orElseThrow(),
+                                       compress,
+                                       format
         );
     }
 
+    public ResponseEntity<StreamingResponseBody> downloadResourceFile(
+            HttpServletRequest request,
+            User user,
+            boolean compress) {
+        return downloadResourceFile(request, user, compress, ARCHIVE_FORMAT_TAR_GZ);
+    }
+
     @RequestMapping(value = {"/files/workspaces/**"}, method = RequestMethod.GET)
     public ResponseEntity<StreamingResponseBody> downloadWorkspaceFile(
             HttpServletRequest request,
             User user,
-            @RequestParam(value = "compressToArchive", required = false, defaultValue = "false") boolean compress) {
-        return downloadFileOrDirectoryAsTarGz(request,
-                                              user,
-                                              resourceManager.getWorkspacesDirectory().orElseThrow(),
-                                              compress
+            @RequestParam(value = "compressToArchive", required = false, defaultValue = "false") boolean compress,
+            @RequestParam(value = "archiveFormat", required = false, defaultValue = ARCHIVE_FORMAT_TAR_GZ) String format) {
+        return downloadFileOrDirectory(request,
+                                       user,
+                                       resourceManager.getWorkspacesDirectory().orElseThrow(),
+                                       compress,
+                                       format
         );
     }
 
-    public ResponseEntity<StreamingResponseBody> downloadFileOrDirectoryAsTarGz(
-            HttpServletRequest request, User user, @Nonnull Path directory, boolean compress) {
+    public ResponseEntity<StreamingResponseBody> downloadWorkspaceFile(
+            HttpServletRequest request,
+            User user,
+            boolean compress) {
+        return downloadWorkspaceFile(request, user, compress, ARCHIVE_FORMAT_TAR_GZ);
+    }
+
+    /**
+     * @param compress Whether to archive a single file as well, directories are always archived
+     * @param format   Either {@link #ARCHIVE_FORMAT_TAR_GZ} or {@link #ARCHIVE_FORMAT_TAR}
+     */
+    public ResponseEntity<StreamingResponseBody> downloadFileOrDirectory(
+            HttpServletRequest request,
+            User user,
+            @Nonnull Path directory,
+            boolean compress,
+            @Nonnull String format) {
+        if (!ARCHIVE_FORMAT_TAR_GZ.equals(format) && !ARCHIVE_FORMAT_TAR.equals(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        var gzip = ARCHIVE_FORMAT_TAR_GZ.equals(format);
         return normalizedPath(request)
                 .map(directory::resolve)
                 .filter(path -> checker.isAllowedToAccessPath(user, path))
                 .filter(Files::exists)
                 .map(Path::toFile)
                 .map(file -> {
-                    var name = (file.isFile() && !compress ? file.getName() : file.getName() + ".tar.gz").replaceAll("\"",
-                                                                                                                     ""
+                    var name = (file.isFile() && !compress ? file.getName() : file.getName() + "." + format).replaceAll(
+                            "\"",
+                            ""
                     );
-                    var responseEntity = ResponseEntity.ok()
-                                                       // Otherwise the download might result in a "f.txt" named file
-                                                       // https://stackoverflow.com/questions/41364732/zip-file-downloaded-as-f-txt-file-springboot
-                                                       // https://pivotal.io/security/cve-2015-5211
-                                                       .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                               "inline; filename=\"" + name + "\""
-                                                       );
-
+                    // Otherwise the download might result in a "f.txt" named file
+                    // https://stackoverflow.com/questions/41364732/zip-file-downloaded-as-f-txt-file-springboot
+                    // https://pivotal.io/security/cve-2015-5211
+                    var disposition = "inline; filename=\"" + name + "\"";
 
                     if (file.isFile()) {
                         var handler = request.getParameter(PARAM_DOWNLOAD_HANDLER);
                         switch (handler == null ? DOWNLOAD_HANDLER_DEFAULT : handler) {
                             case DOWNLOAD_HANDLER_CSV_LINE_AGGREGATOR:
                                 return new StreamingCsvLineAggregatorAdapter(request, file).buildResponseEntity(
-                                        responseEntity);
+                                        ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION, disposition));
                             case DOWNLOAD_HANDLER_DEFAULT:
                             default:
-                                return responseEntity
-                                        .contentLength(file.length())
-                                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                        .body((StreamingResponseBody) outputStream -> {
-                                            if (compress) {
-                                                try (GzipCompressorOutputStream gcos = new GzipCompressorOutputStream(
-                                                        outputStream)) {
-                                                    try (TarArchiveOutputStream taos = new TarArchiveOutputStream(gcos)) {
-                                                        appendArchiveEntry(taos, file, file.getName());
-                                                    }
-                                                }
-                                            } else {
-                                                Files.copy(file.toPath(), outputStream);
-                                            }
-                                        });
+                                if (compress) {
+                                    return ResponseEntity
+                                            .ok()
+                                            .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                                            // the archive is larger than the file, its length is not known upfront
+                                            .header("X-Content-Length-Hint", String.valueOf(file.length()))
+                                            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                            .body((StreamingResponseBody) outputStream -> writeArchive(
+                                                    file.toPath(),
+                                                    outputStream,
+                                                    gzip
+                                            ));
+                                } else {
+                                    return downloadFile(request, file, disposition);
+                                }
                         }
                     } else {
-                        return responseEntity
-                                .header("X-Content-Length-Hint", String.valueOf(aggregateSize(file)))
-                                .contentType(new MediaType("application", "tar+gzip"))
-                                .body((StreamingResponseBody) outputStream -> {
-                                    try (GzipCompressorOutputStream gcos = new GzipCompressorOutputStream(outputStream)) {
-                                        try (TarArchiveOutputStream taos = new TarArchiveOutputStream(gcos)) {
-                                            aggregateTarGzEntries(file.toPath(), file, taos);
-                                        }
-                                    }
-                                });
+                        return ResponseEntity
+                                .ok()
+                                .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                                .header(
+                                        "X-Content-Length-Hint",
+                                        String.valueOf(resourceManager
+                                                               .getDirectoryIndex(directory)
+                                                               .getSize(file.toPath()))
+                                )
+                                .contentType(gzip
+                                             ? new MediaType("application", "tar+gzip")
+                                             : new MediaType("application", "x-tar"))
+                                .body((StreamingResponseBody) outputStream -> writeArchive(
+                                        file.toPath(),
+                                        outputStream,
+                                        gzip
+                                ));
                     }
                 })
                 .orElse(null);
     }
 
-    private void aggregateTarGzEntries(Path root, File current, TarArchiveOutputStream taos) throws IOException {
-        var files = current.listFiles();
-        if (files != null) {
-            for (var file : files) {
-                if (file.isFile()) {
-                    appendArchiveEntry(taos, file, root.relativize(file.toPath()).toString());
-                } else if (file.isDirectory()) {
-                    aggregateTarGzEntries(root, file, taos);
-                }
+    /**
+     * Responds with the content of the given file or, to resume a download, with a single range of it
+     */
+    @Nonnull
+    private ResponseEntity<StreamingResponseBody> downloadFile(
+            @Nonnull HttpServletRequest request,
+            @Nonnull File file,
+            @Nonnull String disposition) {
+        var length       = file.length();
+        var lastModified = file.lastModified();
+        var ranges       = getRequestedRanges(request, lastModified);
+
+        if (ranges.size() == 1) {
+            var start = ranges.get(0).getRangeStart(length);
+            var end   = ranges.get(0).getRangeEnd(length);
+            if (start >= length || start > end) {
+                return ResponseEntity
+                        .status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            return ResponseEntity
+                    .status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length)
+                    .lastModified(lastModified)
+                    .contentLength(end - start + 1)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(outputStream -> transferTo(file.toPath(), start, end - start + 1, outputStream));
+        } else {
+            // multiple ranges are allowed to be answered with the whole content
+            return ResponseEntity
+                    .ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .lastModified(lastModified)
+                    .contentLength(length)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(outputStream -> Files.copy(file.toPath(), outputStream));
+        }
+    }
+
+    @Nonnull
+    private static List<HttpRange> getRequestedRanges(@Nonnull HttpServletRequest request, long lastModified) {
+        var range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return Collections.emptyList();
+        }
+        try {
+            // only resume if the file has not been modified since, an entity tag never matches
+            if (request.getHeader(HttpHeaders.IF_RANGE) != null
+                    && request.getDateHeader(HttpHeaders.IF_RANGE) / 1_000 != lastModified / 1_000) {
+                return Collections.emptyList();
             }
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // an invalid header is to be ignored
+            return Collections.emptyList();
         }
     }
 
-    private void appendArchiveEntry(
-            @Nonnull TarArchiveOutputStream taos, @Nonnull File file, @Nonnull String entryName) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            taos.putArchiveEntry(taos.createArchiveEntry(file, entryName));
-            fis.transferTo(taos);
-        } finally {
-            taos.closeArchiveEntry();
+    private static void transferTo(
+            @Nonnull Path path,
+            long position,
+            long count,
+            @Nonnull OutputStream outputStream) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var target = Channels.newChannel(outputStream);
+            while (count > 0) {
+                var transferred = channel.transferTo(position, count, target);
+                if (transferred <= 0) {
+                    break; // the file has been truncated meanwhile
+                }
+                position += transferred;
+                count -= transferred;
+            }
         }
     }
 
+    private void writeArchive(@Nonnull Path path, @Nonnull OutputStream outputStream, boolean gzip) throws IOException {
+        new TarArchiveStreamer(path).writeTo(
+                gzip
+                ? new ParallelGzipOutputStream(outputStream, compressionPool, compressionPool.getMaximumPoolSize())
+                : outputStream
+        );
+    }
+
     @RequestMapping(value = {"/files/resources/**"}, method = RequestMethod.OPTIONS)
     public Iterable<FileInfo> listResourceDirectory(
             HttpServletRequest request,
@@ -423,6 +568,7 @@ public class FilesController {
             @Nonnull Path directory,
             @Nonnull Path resolveTo,
             boolean aggregateSizeForDirectories) {
+        var index = resourceManager.getDirectoryIndex(directory);
         return normalizedPath(request).map(path -> Optional
                 .of(directory.resolve(path))
                 .filter(p -> checker.isAllowedToAccessPath(user, p))
@@ -434,45 +580,26 @@ public class FilesController {
                                           resolveTo.resolve(directory.relativize(file.toPath())).toString(),
                                           Optional.of(file).filter(File::isFile).map(File::length).orElseGet(() -> {
                                               if (aggregateSizeForDirectories && user.hasSuperPrivileges()) {
-                                                  return aggregateSize(file);
+                                                  return index.getSize(file.toPath());
                                               } else {
                                                   return null;
                                               }
                                           }),
-                                          getFileInfoAttributes(file)
+                                          getFileInfoAttributes(index, file)
                 ))
                 .toList()).orElse(Collections.emptyList());
     }
 
     @Nonnull
-    private Map<String, Object> getFileInfoAttributes(@Nonnull File file) {
+    private Map<String, Object> getFileInfoAttributes(@Nonnull DirectoryIndex index, @Nonnull File file) {
         var attributes = new HashMap<String, Object>();
-        if (Files.isDirectory(file.toPath().resolve(".git"))) {
-            try (var git = Git.open(file)) {
-                attributes.put("git-branch", git.getRepository().getBranch());
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        if (file.isDirectory()) {
+            index.getGitBranch(file.toPath()).ifPresent(branch -> attributes.put("git-branch", branch));
         }
         attributes.put(ATTR_LAST_MODIFIED, file.lastModified());
         return attributes;
     }
 
-    private long aggregateSize(@Nonnull File directory) {
-        var entries = directory.listFiles();
-        var size    = 0L;
-        if (entries != null) {
-            for (var entry : entries) {
-                if (entry.isFile()) {
-                    size += entry.length();
-                } else if (entry.isDirectory()) {
-                    size += aggregateSize(entry);
-                }
-            }
-        }
-        return size;
-    }
-
     @PatchMapping(value = {"/files/resources/**"})
     public ResponseEntity<String> patchResources(
             @Nonnull HttpServletRequest request,
@@ -512,6 +639,8 @@ public class FilesController {
                 var target   = path.resolveSibling(renameTo);
                 if (target.getParent().equals(path.getParent())) {
                     Files.move(path, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    resourceManager.invalidateDirectoryIndex(path);
+                    resourceManager.invalidateDirectoryIndex(target);
                 } else {
                     return ResponseEntity.badRequest().body("");
                 }
@@ -540,15 +669,19 @@ public class FilesController {
                     }
                 };
                 handle.join(10_000);
+                // a clone that is still running is picked up by the reconciliation of the index
+                resourceManager.invalidateDirectoryIndex(path);
                 if (handle.exception != null) {
                     throw handle.exception;
                 }
                 return ResponseEntity.ok("");
             } else if (optionGitPull instanceof String) {
                 pullGitRepo(path);
+                resourceManager.invalidateDirectoryIndex(path);
                 return ResponseEntity.ok("");
             } else if (optionGitCheckout instanceof String) {
                 checkoutGitRepo(path, (String) optionGitCheckout);
+                resourceManager.invalidateDirectoryIndex(path);
                 return ResponseEntity.ok("");
             } else {
                 return ResponseEntity.notFound().build();
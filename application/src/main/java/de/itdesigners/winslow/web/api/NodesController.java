@@ -34,9 +34,7 @@ public class NodesController {
         try {
             return winslow
                     .getNodeRepository()
-                    .listActiveNodes()
-                    .map(winslow.getNodeRepository()::getNodeInfo)
-                    .flatMap(Optional::stream);
+                    .loadActiveNodes();
         } catch (Throwable t) {
             t.printStackTrace();
             return Stream.empty();
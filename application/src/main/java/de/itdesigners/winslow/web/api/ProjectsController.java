@@ -36,6 +36,8 @@ public class ProjectsController {
 
     private static final Logger LOG = Logger.getLogger(ProjectsController.class.getSimpleName());
 
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+
     private final Winslow winslow;
 
     public ProjectsController(Winslow winslow) {
@@ -131,20 +133,7 @@ public class ProjectsController {
         return getProjectIfAllowedToAccess(user, projectId)
                 .stream()
                 .flatMap(project -> winslow.getOrchestrator().getPipeline(project).stream())
-                .flatMap(pipeline -> {
-                    var history = pipeline
-                            .getExecutionHistory()
-                            .sequential()
-                            .collect(Collectors.toList());
-
-                    Collections.reverse(history);
-
-                    return history
-                            .stream()
-                            .limit(count)
-                            .map(g -> ExecutionGroupInfoConverter.convert(g, false, false));
-
-                });
+                .flatMap(pipeline -> getReversedHistoryBefore(pipeline, null, count).stream());
     }
 
     @GetMapping("/projects/{projectId}/history/reversed/{startGroupId}/{count}")
@@ -153,26 +142,75 @@ public class ProjectsController {
             @PathVariable("projectId") String projectId,
             @PathVariable("startGroupId") String startGroupId,
             @PathVariable("count") int count) {
+        // resolved eagerly, so that an unknown group id fails the request before the response is written
         return getProjectIfAllowedToAccess(user, projectId)
-                .stream()
-                .flatMap(project -> winslow.getOrchestrator().getPipeline(project).stream())
-                .flatMap(pipeline -> {
-                    var history = pipeline
-                            .getExecutionHistory()
-                            .sequential()
-                            .takeWhile(g -> !Objects.equals(g.getFullyQualifiedId(), startGroupId))
-                            .collect(Collectors.toList());
-
-                    Collections.reverse(history);
-
-                    return history
-                            .stream()
-                            .limit(count)
-                            .map(g -> ExecutionGroupInfoConverter.convert(g, false, false));
-
+                .flatMap(project -> winslow.getOrchestrator().getPipeline(project))
+                .map(pipeline -> getReversedHistoryBefore(pipeline, startGroupId, count))
+                .orElseGet(Collections::emptyList)
+                .stream();
+    }
+
+    /**
+     * Cursor based pagination of the history, starting with the most recent {@link ExecutionGroupInfo}.
+     *
+     * @param cursor The {@link ExecutionGroupInfoPage#nextCursor()} of the previous page or none for the first page,
+     *               an unknown cursor is answered with {@link HttpStatus#NOT_FOUND}
+     * @param count  The maximum number of {@link ExecutionGroupInfo}s per page
+     */
+    @GetMapping("/projects/{projectId}/history/page")
+    public Optional<ExecutionGroupInfoPage> getHistoryPage(
+            User user,
+            @PathVariable("projectId") String projectId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "count", defaultValue = "" + DEFAULT_HISTORY_PAGE_SIZE) int count) {
+        if (count <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The count must be positive");
+        }
+        return getProjectIfAllowedToAccess(user, projectId)
+                .flatMap(project -> winslow.getOrchestrator().getPipeline(project))
+                .map(pipeline -> {
+                    var page = getReversedHistoryBefore(pipeline, cursor, count);
+                    var more = !page.isEmpty() && pipeline
+                            .getHistory()
+                            .indexOf(page.get(page.size() - 1).id())
+                            .orElse(0) > 0;
+                    return new ExecutionGroupInfoPage(page, more ? page.get(page.size() - 1).id() : null);
                 });
     }
 
+    /**
+     * Only loads the requested {@link ExecutionGroup}s instead of the whole history.
+     *
+     * @param beforeGroupId The id of the {@link ExecutionGroup} to start before (exclusive), the most
+     *                      recent one if null
+     * @return At most count {@link ExecutionGroupInfo}s, the most recent one first
+     * @throws ResponseStatusException With {@link HttpStatus#NOT_FOUND} if there is no {@link ExecutionGroup} with the
+     *                                 given id in the history, instead of silently restarting at the most recent one
+     */
+    @Nonnull
+    private static List<ExecutionGroupInfo> getReversedHistoryBefore(
+            @Nonnull Pipeline pipeline,
+            @Nullable String beforeGroupId,
+            int count) {
+        var history = pipeline.getHistory();
+        var end = beforeGroupId == null
+                  ? history.size()
+                  : history
+                          .indexOf(beforeGroupId)
+                          .orElseThrow(() -> new ResponseStatusException(
+                                  HttpStatus.NOT_FOUND,
+                                  "There is no execution group " + beforeGroupId + " in the history"
+                          ));
+
+        var groups = history.subList(Math.max(0, end - Math.max(0, count)), end);
+        Collections.reverse(groups);
+
+        return groups
+                .stream()
+                .map(g -> ExecutionGroupInfoConverter.convert(g, false, false))
+                .collect(Collectors.toList());
+    }
+
     @PostMapping("/projects/{projectId}/history/prune")
     public Stream<ExecutionGroupInfo> pruneProjectHistory(
             User user,
@@ -515,16 +553,23 @@ public class ProjectsController {
                                     .orElse(0L);
 
                             var line = new AtomicLong(skip);
+                            var tail = winslow
+                                    .getOrchestrator()
+                                    .getLogTailCache()
+                                    .getFrom(stage.getFullyQualifiedId(), skip);
 
                             return Stream.concat(
-                                    winslow
-                                            .getOrchestrator()
-                                            .getLogs(
-                                                    project,
-                                                    stage.getFullyQualifiedId()
-                                            )  // do not stream in parallel!
+                                    tail
+                                            .map(lines -> lines.stream().map(LogTailCache.Line::entry))
+                                            .orElseGet(() -> winslow
+                                                    .getOrchestrator()
+                                                    .getLogsSkipLines(
+                                                            project,
+                                                            stage.getFullyQualifiedId(),
+                                                            skip
+                                                    ))
+                                            // do not stream in parallel!
                                             .sequential()
-                                            .skip(skip)
                                             .map(entry -> LogEntryInfoConverter.from(
                                                     entry,
                                                     line.incrementAndGet(),
@@ -873,7 +918,7 @@ public class ProjectsController {
                                         new WorkspaceConfiguration(
                                                 pipeline
                                                         .getWorkspaceConfigurationMode()
-                                                        .filter(m -> m == WorkspaceConfiguration.WorkspaceMode.STANDALONE || m == WorkspaceConfiguration.WorkspaceMode.INCREMENTAL)
+                                                        .filter(m -> m == WorkspaceConfiguration.WorkspaceMode.STANDALONE || m == WorkspaceConfiguration.WorkspaceMode.INCREMENTAL || m == WorkspaceConfiguration.WorkspaceMode.SNAPSHOT)
                                                         .orElse(WorkspaceConfiguration.WorkspaceMode.INCREMENTAL)
                                         ),
                                         null,
@@ -1,8 +1,11 @@
 package de.itdesigners.winslow.web.api;
 
+import de.itdesigners.winslow.DelayedExecutor;
+import de.itdesigners.winslow.LogTailCache;
 import de.itdesigners.winslow.Winslow;
 import de.itdesigners.winslow.api.settings.ResourceLimitation;
 import de.itdesigners.winslow.auth.User;
+import de.itdesigners.winslow.scheduler.FairShareScheduler;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -51,6 +54,30 @@ public class SettingsController {
         }
     }
 
+    @GetMapping("/settings/log-tail-cache")
+    public Optional<LogTailCache.Metrics> getLogTailCacheMetrics(@Nonnull User user) {
+        return Optional
+                .of(user)
+                .filter(User::hasSuperPrivileges)
+                .map(u -> winslow.getOrchestrator().getLogTailCache().getMetrics());
+    }
+
+    @GetMapping("/settings/scheduler")
+    public Optional<FairShareScheduler.Metrics> getSchedulerMetrics(@Nonnull User user) {
+        return Optional
+                .of(user)
+                .filter(User::hasSuperPrivileges)
+                .map(u -> winslow.getOrchestrator().getScheduler().getMetrics());
+    }
+
+    @GetMapping("/settings/delayed-executor")
+    public Optional<DelayedExecutor.Metrics> getDelayedExecutorMetrics(@Nonnull User user) {
+        return Optional
+                .of(user)
+                .filter(User::hasSuperPrivileges)
+                .map(u -> winslow.getOrchestrator().getDelayedExecutor().getMetrics());
+    }
+
     @GetMapping("/settings/user-res-limit")
     public Optional<ResourceLimitation> getUserResourceLimitation(@Nonnull User user) {
         return Optional
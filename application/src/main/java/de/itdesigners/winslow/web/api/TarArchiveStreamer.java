@@ -0,0 +1,150 @@
+package de.itdesigners.winslow.web.api;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes all regular files of a directory, or a single file, as tar archive. The files are read ahead on a separate
+ * thread, so that reading the next files overlaps with archiving (and compressing) the current one. At most
+ * {@link #READ_AHEAD_CHUNKS} chunks of {@link #CHUNK_SIZE} bytes are buffered. Directories are not archived by
+ * themselves, symbolic links are followed.
+ */
+public class TarArchiveStreamer {
+
+    public static final int CHUNK_SIZE        = 1024 * 1024;
+    public static final int READ_AHEAD_CHUNKS = 16;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final @Nonnull Path root;
+
+    /**
+     * @param root The directory to archive the files of or the single file to archive
+     */
+    public TarArchiveStreamer(@Nonnull Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @param out The stream to write the archive to, closed afterwards
+     * @throws IOException If a file could not be read or the archive could not be written
+     */
+    public void writeTo(@Nonnull OutputStream out) throws IOException {
+        var files  = collectFiles();
+        var filled = new ArrayBlockingQueue<Chunk>(READ_AHEAD_CHUNKS);
+        var free   = new ArrayBlockingQueue<byte[]>(READ_AHEAD_CHUNKS);
+        var reader = new Thread(() -> readAhead(files, filled, free));
+        reader.setName(getClass().getSimpleName() + "-" + THREAD_COUNTER.incrementAndGet());
+        reader.setDaemon(true);
+        reader.start();
+
+        try (var taos = new TarArchiveOutputStream(out)) {
+            taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            taos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+            for (var file : files) {
+                var entry = new TarArchiveEntry(file.name());
+                entry.setSize(file.size());
+                entry.setModTime(file.lastModified());
+                taos.putArchiveEntry(entry);
+
+                while (true) {
+                    var chunk = filled.take();
+                    if (chunk.failure() != null) {
+                        throw chunk.failure();
+                    } else if (chunk.data() == null) {
+                        break;
+                    }
+                    taos.write(chunk.data(), 0, chunk.length());
+                    free.offer(chunk.data());
+                }
+
+                taos.closeArchiveEntry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while archiving " + root);
+        } finally {
+            reader.interrupt();
+        }
+    }
+
+    @Nonnull
+    private List<FileToArchive> collectFiles() throws IOException {
+        var files   = new ArrayList<FileToArchive>();
+        var options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+        Files.walkFileTree(root, options, Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    var name = file.equals(root) ? file.getFileName().toString() : root.relativize(file).toString();
+                    files.add(new FileToArchive(file, name, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // deleted meanwhile, not accessible or a loop through symbolic links
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static void readAhead(
+            @Nonnull List<FileToArchive> files,
+            @Nonnull BlockingQueue<Chunk> filled,
+            @Nonnull BlockingQueue<byte[]> free) {
+        try {
+            for (var file : files) {
+                try (var channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                    var remaining = file.size();
+                    while (remaining > 0) {
+                        var data   = free.poll();
+                        var buffer = ByteBuffer.wrap(data != null ? data : new byte[CHUNK_SIZE]);
+                        buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer) < 0) {
+                                throw new IOException("File has been truncated while archiving " + file.path());
+                            }
+                        }
+                        remaining -= buffer.position();
+                        filled.put(new Chunk(buffer.array(), buffer.position(), null));
+                    }
+                } catch (IOException e) {
+                    filled.put(new Chunk(null, 0, e));
+                    return;
+                }
+                filled.put(new Chunk(null, 0, null));
+            }
+        } catch (InterruptedException e) {
+            // the archive is no longer being written
+        }
+    }
+
+    private record FileToArchive(@Nonnull Path path, @Nonnull String name, long size, long lastModified) {
+    }
+
+    /**
+     * A chunk of the content of a file, the end of the file if without data, or the failure to read it
+     */
+    private record Chunk(@Nullable byte[] data, int length, @Nullable IOException failure) {
+    }
+}
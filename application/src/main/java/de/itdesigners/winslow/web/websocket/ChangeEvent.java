@@ -32,6 +32,10 @@ public class ChangeEvent<T, V> {
     public enum ChangeType {
         CREATE,
         UPDATE,
-        DELETE
+        DELETE,
+        /**
+         * The value contains only the elements that have been appended to the previously published list
+         */
+        APPEND
     }
 }
@@ -85,6 +85,20 @@ public class MessageSender {
         );
     }
 
+    public void publishProjectUpdate(
+            @Nonnull Winslow winslow,
+            @Nonnull String destination,
+            @Nonnull String projectId,
+            @Nullable Object value,
+            @Nullable Project project,
+            @Nonnull ChangeEvent.ChangeType type) {
+        this.convertAndSend(
+                destination,
+                Collections.singletonList(new ChangeEvent<>(type, projectId, value)),
+                getPermissionChecker(winslow, project)
+        );
+    }
+
     public static class IndividualEvents<T> {
         protected final T value;
 
@@ -49,11 +49,15 @@ public class ProjectsEndpointController {
     private final @Nonnull MessageSender      sender;
     private final @Nonnull Winslow            winslow;
     private final @Nonnull ProjectsController projects;
+    private final @Nonnull TopicCache         cache = new TopicCache();
 
-    private final @Nonnull Map<String, CoolDownWrapper<RunningProjectsEndpointPublisher>> runningPublishers = new ConcurrentHashMap<>();
+    /**
+     * Not part of the evicting {@link TopicCache}, because the subscribers append the published history to what they
+     * already have, so the size must never be forgotten while the project exists
+     */
+    private final @Nonnull Map<String, Integer> historySizes = new ConcurrentHashMap<>();
 
-    // TODO missing cache cleanup
-    private final @Nonnull Map<String, Object> cache = new ConcurrentHashMap<>();
+    private final @Nonnull Map<String, CoolDownWrapper<RunningProjectsEndpointPublisher>> runningPublishers = new ConcurrentHashMap<>();
 
     public ProjectsEndpointController(
             @Nonnull SimpMessagingTemplate simp,
@@ -98,7 +102,7 @@ public class ProjectsEndpointController {
                                     .anyMatch(g -> g.getStages().anyMatch(stage -> stage.getState() == State.RUNNING))
                             )
                     )
-                    .forEach(project -> createOrStopProjectPublisher(project.getId(), project, true));
+                    .forEach(project -> createOrStopProjectPublisher(project.getId(), project, null, true));
 
             while (true) {
                 var last = System.currentTimeMillis();
@@ -134,46 +138,43 @@ public class ProjectsEndpointController {
         this.sender.publishProjectUpdate(winslow, topic, projectId, value, project);
     }
 
-    private void publishProjectUpdateCached(
-            @Nonnull String topic,
-            @Nonnull String projectId,
-            @Nullable Object value,
-            @Nullable Project project) {
-        var prev = this.cache.put(topic, value);
-        if (!Objects.equals(prev, value)) {
-            this.sender.publishProjectUpdate(winslow, topic, projectId, value, project);
-        }
-
-    }
-
-    private void publishProjectUpdateCachedDelta(
+    /**
+     * Publishes the given {@link ExecutionGroupInfo}s, unless they equal the previously published ones. If
+     * {@link ExecutionGroupInfo}s have only been appended, only these are published as
+     * {@link ChangeType#APPEND}. Only {@link TopicCache.Fingerprint}s of the published values are cached.
+     */
+    private void publishExecutionGroupsDelta(
             @Nonnull String topic,
             @Nonnull String projectId,
-            @Nullable Object value,
-            @Nullable Project project) {
-        var prev = this.cache.put(topic, value);
-        if (prev instanceof Collection<?> && value instanceof Collection<?>) {
-            var prevSize = ((Collection<?>) prev).size();
-            var currSize = ((Collection<?>) value).size();
-            if (prevSize <= currSize) {
+            @Nonnull List<ExecutionGroupInfo> groups,
+            @Nonnull Project project) {
+        var fingerprints = fingerprint(groups);
+        var prev         = this.cache.put(topic, fingerprints);
+        if (prev instanceof List<?> prevFingerprints
+                && prevFingerprints.size() <= fingerprints.size()
+                && prevFingerprints.equals(fingerprints.subList(0, prevFingerprints.size()))) {
+            if (prevFingerprints.size() < fingerprints.size()) {
                 // send only then new entries
                 this.sender.publishProjectUpdate(
                         winslow,
                         topic,
                         projectId,
-                        ((Collection<?>) value)
-                                .stream()
-                                .skip(prevSize)
-                                .collect(Collectors.toList()),
-                        project
+                        groups.subList(prevFingerprints.size(), groups.size()),
+                        project,
+                        ChangeType.APPEND
                 );
-            } else {
-                this.sender.publishProjectUpdate(winslow, topic, projectId, value, project);
             }
-        } else if (!Objects.equals(prev, value)) {
-            this.sender.publishProjectUpdate(winslow, topic, projectId, value, project);
+        } else {
+            this.sender.publishProjectUpdate(winslow, topic, projectId, groups, project);
         }
+    }
 
+    @Nonnull
+    private static List<TopicCache.Fingerprint> fingerprint(@Nonnull List<ExecutionGroupInfo> groups) {
+        return groups
+                .stream()
+                .map(group -> new TopicCache.Fingerprint(group.id(), group.hashCode()))
+                .toList();
     }
 
     private void onProjectRelease(@Nonnull String projectId, @Nullable Project project) {
@@ -195,42 +196,29 @@ public class ProjectsEndpointController {
         if (pipeline == null) {
             stopProjectPublisher(projectId);
             publishProjectUpdate(TOPIC_PROJECT_STATES, projectId, null, null);
-            publishProjectUpdateCachedDelta(
-                    String.format(TOPIC_PROJECT_SPECIFIC_HISTORY, projectId),
-                    projectId,
-                    Collections.singletonList(null),
-                    null
-            );
-            publishProjectUpdateCached(
-                    String.format(TOPIC_PROJECT_SPECIFIC_EXECUTING, projectId),
-                    projectId,
-                    Collections.singletonList(null),
-                    null
-            );
-            publishProjectUpdateCached(
-                    String.format(TOPIC_PROJECT_SPECIFIC_ENQUEUED, projectId),
-                    projectId,
-                    Collections.singletonList(null),
-                    null
-            );
+            for (var topic : List.of(
+                    TOPIC_PROJECT_SPECIFIC_HISTORY,
+                    TOPIC_PROJECT_SPECIFIC_EXECUTING,
+                    TOPIC_PROJECT_SPECIFIC_ENQUEUED
+            )) {
+                var projectTopic = String.format(topic, projectId);
+                publishProjectUpdate(projectTopic, projectId, Collections.singletonList(null), null);
+                this.cache.remove(projectTopic);
+            }
+            this.historySizes.remove(projectId);
         } else {
             this.winslow.getProjectRepository().getProject(projectId).unsafe().ifPresent(project -> {
                 var info = projects.getStateInfo(pipeline);
-                createOrStopProjectPublisher(projectId, project, State.RUNNING == info.state());
+                createOrStopProjectPublisher(projectId, project, pipeline, State.RUNNING == info.state());
                 publishProjectUpdate(TOPIC_PROJECT_STATES, projectId, info, project);
-                publishProjectUpdateCachedDelta(
-                        String.format(TOPIC_PROJECT_SPECIFIC_HISTORY, projectId),
-                        projectId,
-                        getHistoryInfo(pipeline),
-                        project
-                );
-                publishProjectUpdateCached(
+                publishProjectHistoryDelta(projectId, pipeline, project);
+                publishExecutionGroupsDelta(
                         String.format(TOPIC_PROJECT_SPECIFIC_EXECUTING, projectId),
                         projectId,
                         getExecutionInfo(pipeline),
                         project
                 );
-                publishProjectUpdateCached(
+                publishExecutionGroupsDelta(
                         String.format(TOPIC_PROJECT_SPECIFIC_ENQUEUED, projectId),
                         projectId,
                         getEnqueuedInfo(pipeline),
@@ -257,16 +245,40 @@ public class ProjectsEndpointController {
     }
 
     @Nonnull
-    private List<ExecutionGroupInfo> getHistoryInfo(@Nonnull Pipeline pipeline) {
-        return pipeline
-                .getExecutionHistory()
+    private List<ExecutionGroupInfo> getHistoryInfo(@Nonnull Pipeline pipeline, int fromIndex) {
+        var history = pipeline.getHistory();
+        return history
+                .subList(Math.max(0, fromIndex), history.size())
+                .stream()
                 .map(g -> ExecutionGroupInfoConverter.convert(g, false, false))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Publishes the {@link ExecutionGroupInfo}s that have been added to the history. Only the size of the
+     * history is remembered, so that only the new {@link ExecutionGroupInfo}s need to be loaded.
+     */
+    private void publishProjectHistoryDelta(
+            @Nonnull String projectId,
+            @Nonnull Pipeline pipeline,
+            @Nonnull Project project) {
+        var topic = String.format(TOPIC_PROJECT_SPECIFIC_HISTORY, projectId);
+        var size  = pipeline.getHistory().size();
+        var prev  = this.historySizes.put(projectId, size);
+        if (prev != null && prev <= size) {
+            if (prev < size) {
+                // send only then new entries
+                this.sender.publishProjectUpdate(winslow, topic, projectId, getHistoryInfo(pipeline, prev), project);
+            }
+        } else {
+            this.sender.publishProjectUpdate(winslow, topic, projectId, getHistoryInfo(pipeline, 0), project);
+        }
+    }
+
     private void createOrStopProjectPublisher(
             @Nonnull String projectId,
             @Nonnull Project project,
+            @Nullable Pipeline pipeline,
             boolean shouldBeRunning) {
         if (shouldBeRunning) {
             this.runningPublishers
@@ -285,6 +297,11 @@ public class ProjectsEndpointController {
             stopProjectPublisher(projectId);
             LOG.info("Publisher for " + projectId + " has been requested to stop");
         }
+        if (pipeline != null) {
+            Optional
+                    .ofNullable(this.runningPublishers.get(projectId))
+                    .ifPresent(publisher -> publisher.value.updatePipeline(pipeline));
+        }
     }
 
     private void stopProjectPublisher(@Nonnull String projectId) {
@@ -371,13 +388,12 @@ public class ProjectsEndpointController {
                 .filter(user -> projects.getProject(user, projectId).isPresent())
                 .flatMap(user -> winslow.getOrchestrator().getPipeline(projectId))
                 .map(pipeline -> {
-                    var historyInfo = getHistoryInfo(pipeline);
-                    this.cache.put(String.format(TOPIC_PROJECT_SPECIFIC_HISTORY, projectId), historyInfo);
-                    var length = Math.max(0, historyInfo.size() - ON_SUBSCRIBE_HISTORY_COUNT);
+                    var size = pipeline.getHistory().size();
+                    this.historySizes.put(projectId, size);
                     return new ChangeEvent<>(
                             ChangeType.CREATE,
                             projectId,
-                            historyInfo.stream().skip(length).collect(Collectors.toList())
+                            getHistoryInfo(pipeline, size - ON_SUBSCRIBE_HISTORY_COUNT)
                     );
                 })
                 .stream();
@@ -393,7 +409,7 @@ public class ProjectsEndpointController {
                 .flatMap(user -> winslow.getOrchestrator().getPipeline(projectId))
                 .map(pipeline -> {
                     var execInfo = getExecutionInfo(pipeline);
-                    this.cache.put(String.format(TOPIC_PROJECT_SPECIFIC_EXECUTING, projectId), execInfo);
+                    this.cache.put(String.format(TOPIC_PROJECT_SPECIFIC_EXECUTING, projectId), fingerprint(execInfo));
                     return new ChangeEvent<>(ChangeType.CREATE, projectId, execInfo);
                 })
                 .stream();
@@ -409,7 +425,7 @@ public class ProjectsEndpointController {
                 .flatMap(user -> winslow.getOrchestrator().getPipeline(projectId))
                 .map(pipeline -> {
                     var enqueuedInfo = getEnqueuedInfo(pipeline);
-                    this.cache.put(String.format(TOPIC_PROJECT_SPECIFIC_ENQUEUED, projectId), enqueuedInfo);
+                    this.cache.put(String.format(TOPIC_PROJECT_SPECIFIC_ENQUEUED, projectId), fingerprint(enqueuedInfo));
                     return new ChangeEvent<>(ChangeType.CREATE, projectId, enqueuedInfo);
                 })
                 .stream();
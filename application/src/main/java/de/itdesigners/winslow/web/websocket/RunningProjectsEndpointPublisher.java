@@ -1,10 +1,14 @@
 package de.itdesigners.winslow.web.websocket;
 
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.StageEventHub;
 import de.itdesigners.winslow.Winslow;
 import de.itdesigners.winslow.api.pipeline.LogEntryInfo;
+import de.itdesigners.winslow.api.pipeline.State;
 import de.itdesigners.winslow.api.pipeline.StateInfo;
 import de.itdesigners.winslow.api.pipeline.StatsInfo;
 import de.itdesigners.winslow.config.ExecutionGroup;
+import de.itdesigners.winslow.pipeline.Pipeline;
 import de.itdesigners.winslow.pipeline.Stage;
 import de.itdesigners.winslow.pipeline.StageId;
 import de.itdesigners.winslow.project.Project;
@@ -21,14 +25,23 @@ import java.util.stream.Collectors;
 
 import static de.itdesigners.winslow.web.websocket.ProjectsEndpointController.*;
 
-public class RunningProjectsEndpointPublisher implements Pollable {
+/**
+ * Publishes the logs, stats and state of a running project. The logs and stats of stages executed on this node
+ * are pushed by their {@link de.itdesigners.winslow.Executor} through the {@link StageEventHub}, one update per
+ * written batch of log lines. Only the stages executed on other nodes are polled from the files on {@link #poll()}.
+ */
+public class RunningProjectsEndpointPublisher implements Pollable, StageEventHub.Listener {
 
     private final @Nonnull Map<String, LogFileInfo> logFileSize = new HashMap<>();
 
     private final @Nonnull MessageSender sender;
     private final @Nonnull Winslow       winslow;
+    private final @Nonnull Runnable      unsubscribe;
 
-    private @Nonnull Project project;
+    private @Nonnull           Project  project;
+    private @Nullable volatile Pipeline pipeline;
+    private @Nullable          String   latestStageId;
+    private volatile           boolean  stateChanged = true;
 
     private @Nullable StateInfo prevStateInfo;
 
@@ -37,15 +50,21 @@ public class RunningProjectsEndpointPublisher implements Pollable {
             @Nonnull MessageSender sender,
             @Nonnull Winslow winslow,
             @Nonnull Project project) {
-        this.sender  = sender;
-        this.winslow = winslow;
-        this.project = project;
+        this.sender      = sender;
+        this.winslow     = winslow;
+        this.project     = project;
+        this.unsubscribe = winslow.getOrchestrator().getStageEventHub().subscribe(project.getId(), this);
     }
 
     public void updateProject(@Nonnull Project project) {
         this.project = project;
     }
 
+    public void updatePipeline(@Nonnull Pipeline pipeline) {
+        this.pipeline     = pipeline;
+        this.stateChanged = true;
+    }
+
 
     private void publishProjectUpdate(@Nonnull String topic, @Nullable Object value) {
         this.sender.publishProjectUpdate(winslow, topic, project.getId(), value, project);
@@ -70,38 +89,101 @@ public class RunningProjectsEndpointPublisher implements Pollable {
         }
     }
 
+    @Override
+    public synchronized void onLogs(@Nonnull StageId stageId, long firstLine, @Nonnull List<LogEntry> entries) {
+        var id   = stageId.getFullyQualified();
+        var info = getLogFileInfo(id);
+        info.pushed = true;
+
+        // lines might already have been published by polling the log file before the first push
+        var skip = (int) Math.max(0, Math.min(entries.size(), info.lines - firstLine));
+        if (skip < entries.size()) {
+            var logs = new ArrayList<LogEntryInfo>(entries.size() - skip);
+            for (int i = skip; i < entries.size(); ++i) {
+                logs.add(LogEntryInfoConverter.from(entries.get(i), firstLine + i, id));
+            }
+            info.lines = firstLine + entries.size();
+
+            publishUpdate(logs, id);
+            if (id.equals(this.latestStageId)) {
+                publishUpdate(logs);
+            }
+        }
+
+        // progress hints are parsed from the logs
+        this.stateChanged = true;
+    }
+
+    @Override
+    public void onStats(@Nonnull StageId stageId, @Nonnull StatsInfo stats) {
+        publishUpdate(stats);
+    }
+
     @Override
     public void poll() {
-        winslow.getOrchestrator().getRunningStageStats(project).forEach(this::publishUpdate);
-        winslow.getOrchestrator().getPipeline(project).ifPresent(pipeline -> {
-            pipeline
-                    .getActiveExecutionGroups()
-                    .flatMap(ExecutionGroup::getStages)
-                    .sequential()
-                    .map(stage -> this
-                            .getLogEntryLatestAfterHead(stage)
-                            .map(logs -> {
-                                publishUpdate(logs, stage.getFullyQualifiedId());
-                                return logs;
-                            })
-                    )
-                    .reduce((first, second) -> second)
-                    .flatMap(s -> s)
-                    .ifPresent(this::publishUpdate);
+        var orchestrator = winslow.getOrchestrator();
+        var pipeline     = this.pipeline;
+        if (pipeline == null) {
+            pipeline      = orchestrator.getPipeline(project).orElse(null);
+            this.pipeline = pipeline;
+        }
+        if (pipeline == null) {
+            return;
+        }
 
+        // as fallback for the stages that are not executed on this node and therefore not pushed
+        var remoteStages = pipeline
+                .getActiveExecutionGroups()
+                .flatMap(ExecutionGroup::getStages)
+                .filter(stage -> !orchestrator.isExecutingLocally(stage.getFullyQualifiedId()))
+                .filter(stage -> !hasBeenPushed(stage.getFullyQualifiedId()))
+                .toList();
+
+        remoteStages
+                .stream()
+                .filter(stage -> stage.getState() == State.RUNNING)
+                .map(Stage::getFullyQualifiedId)
+                .map(orchestrator.getRunInfoRepository()::getStatsIfStillRelevant)
+                .flatMap(Optional::stream)
+                .forEach(this::publishUpdate);
+
+        remoteStages
+                .stream()
+                .sequential()
+                .map(stage -> this
+                        .getLogEntryLatestAfterHead(stage)
+                        .map(logs -> {
+                            publishUpdate(logs, stage.getFullyQualifiedId());
+                            return logs;
+                        })
+                )
+                .reduce((first, second) -> second)
+                .flatMap(s -> s)
+                .ifPresent(this::publishUpdate);
+
+        if (this.stateChanged || !remoteStages.isEmpty()) {
+            this.stateChanged = false;
             // TODO
             publishStateInfoUpdate(ProjectsController.getStateInfo(winslow, pipeline));
-        });
+        }
+    }
 
+    private synchronized boolean hasBeenPushed(@Nonnull String stageId) {
+        var info = this.logFileSize.get(stageId);
+        return info != null && info.pushed;
+    }
 
+    @Nonnull
+    private LogFileInfo getLogFileInfo(@Nonnull String stageId) {
+        return this.logFileSize.computeIfAbsent(stageId, id -> {
+            this.latestStageId = id;
+            return new LogFileInfo();
+        });
     }
 
     private synchronized Optional<List<LogEntryInfo>> getLogEntryLatestAfterHead(@Nonnull Stage stage) {
         var stageId = stage.getId().getFullyQualified();
-        var info = this.logFileSize.computeIfAbsent(
-                stage.getProjectRelativeId(),
-                id -> new LogFileInfo()
-        );
+        var info    = getLogFileInfo(stageId);
 
         var previousSize = info.fileSize;
         if (info.checkIfLargerAndUpdate(winslow.getOrchestrator().getLogSize(project, stageId))) {
@@ -192,8 +274,20 @@ public class RunningProjectsEndpointPublisher implements Pollable {
             return Collections.emptyList();
         }
 
-        var line  = new AtomicLong(0L);
         var limit = logFileLimitCallback.apply(stage.getId());
+        var tail = winslow
+                .getOrchestrator()
+                .getLogTailCache()
+                .getLast(stage.getFullyQualifiedId(), limit, maxEntries != null ? maxEntries : 0);
+        if (tail.isPresent()) {
+            return tail
+                    .get()
+                    .stream()
+                    .map(l -> LogEntryInfoConverter.from(l.entry(), l.line(), stage.getFullyQualifiedId()))
+                    .collect(Collectors.toList());
+        }
+
+        var line  = new AtomicLong(0L);
         var stream = winslow
                 .getOrchestrator()
                 .getLogs(projectId, stage.getFullyQualifiedId())
@@ -230,12 +324,14 @@ public class RunningProjectsEndpointPublisher implements Pollable {
 
     @Override
     public void close() {
+        this.unsubscribe.run();
         this.publishUpdate((StatsInfo) null);
     }
 
     private static class LogFileInfo {
-        public long fileSize;
-        public long lines;
+        public long    fileSize;
+        public long    lines;
+        public boolean pushed;
 
         public boolean checkIfLargerAndUpdate(long fileSize) {
             var larger = fileSize > this.fileSize;
@@ -0,0 +1,113 @@
+package de.itdesigners.winslow.web.websocket;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * Remembers what has last been published on a topic, so that only changes need to be published. The cache is
+ * bounded by an estimate of the memory its values need, the least recently used topics are evicted first.
+ * A topic that has been evicted behaves as if nothing had been published on it yet.
+ */
+class TopicCache {
+
+    public static final long DEFAULT_MAX_WEIGHT = 8L * 1024 * 1024;
+
+    private static final int OBJECT_WEIGHT    = 16;
+    private static final int REFERENCE_WEIGHT = 8;
+
+    private final          long                           maxWeight;
+    private final @Nonnull LinkedHashMap<String, Weighed> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight    = 0;
+    private long evictions = 0;
+
+    TopicCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    TopicCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return The previous value of the topic or null
+     */
+    @Nullable
+    public synchronized Object put(@Nonnull String topic, @Nonnull Object value) {
+        var entry    = new Weighed(value, weigh(topic) + weigh(value));
+        var previous = this.entries.put(topic, entry);
+        this.weight += entry.weight - (previous != null ? previous.weight : 0);
+
+        var iterator = this.entries.values().iterator();
+        while (this.weight > this.maxWeight && iterator.hasNext()) {
+            var eldest = iterator.next();
+            if (eldest != entry) {
+                iterator.remove();
+                this.weight -= eldest.weight;
+                this.evictions += 1;
+            }
+        }
+
+        return previous != null ? previous.value : null;
+    }
+
+    @Nullable
+    public synchronized Object get(@Nonnull String topic) {
+        var entry = this.entries.get(topic);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void remove(@Nonnull String topic) {
+        var entry = this.entries.remove(topic);
+        if (entry != null) {
+            this.weight -= entry.weight;
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * @return A rough estimate of the bytes the given value occupies on the heap
+     */
+    static long weigh(@Nullable Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String string) {
+            return OBJECT_WEIGHT * 2 + string.length();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return OBJECT_WEIGHT;
+        } else if (value instanceof Collection<?> collection) {
+            var weight = OBJECT_WEIGHT * 2L;
+            for (var element : collection) {
+                weight += REFERENCE_WEIGHT + weigh(element);
+            }
+            return weight;
+        } else if (value instanceof Fingerprint fingerprint) {
+            return OBJECT_WEIGHT + REFERENCE_WEIGHT + weigh(fingerprint.id()) + Integer.BYTES;
+        } else {
+            return OBJECT_WEIGHT * 4;
+        }
+    }
+
+    /**
+     * Identifies a published element of a list by its id and the hash of its content, so that the element
+     * needs not to be kept to detect changes
+     */
+    record Fingerprint(@Nonnull String id, int hash) {
+    }
+
+    private record Weighed(@Nonnull Object value, long weight) {
+    }
+}
@@ -0,0 +1,126 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.auth.Link;
+import de.itdesigners.winslow.api.node.AllocInfo;
+import de.itdesigners.winslow.api.settings.ResourceLimitation;
+import de.itdesigners.winslow.project.Project;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationLedgerTest {
+
+    private static final List<String> NODES    = List.of("node-a", "node-b", "node-c", "node-d");
+    private static final List<String> ACCOUNTS = List.of("account-a", "account-b", "account-c");
+
+    @Test
+    void staysConsistentWithTheFullRecalculation() {
+        var random   = new Random(42);
+        var projects = new HashMap<String, Project>();
+        for (int i = 0; i < 9; ++i) {
+            var id = "project-" + i;
+            projects.put(id, getProject(id, ACCOUNTS.get(i % ACCOUNTS.size())));
+        }
+        var projectIds = new ArrayList<>(projects.keySet());
+        projectIds.add("project-unknown");
+
+        var ledger = new AllocationLedger(id -> Optional.ofNullable(projects.get(id)).map(Project::getAccountingGroup));
+        var active = new HashMap<String, List<AllocInfo>>();
+
+        for (int step = 0; step < 2_000; ++step) {
+            var node = NODES.get(random.nextInt(NODES.size()));
+            if (random.nextInt(5) == 0) {
+                ledger.remove(node);
+                active.remove(node);
+            } else {
+                var allocations = new ArrayList<AllocInfo>();
+                for (var projectId : projectIds) {
+                    if (random.nextInt(3) == 0) {
+                        allocations.add(new AllocInfo(
+                                projectId,
+                                random.nextInt(8),
+                                random.nextInt(4) * 1024L,
+                                random.nextInt(2)
+                        ));
+                    }
+                }
+                ledger.update(node, allocations);
+                active.put(node, allocations);
+            }
+
+            var total = new AllocInfo("", 0, 0, 0);
+            for (var projectId : projectIds) {
+                var account = Optional.ofNullable(projects.get(projectId)).map(Project::getAccountingGroup);
+                var full    = new DistributedAllocationView(account.orElse("no-account"), projectId);
+                full.loadAllocInfo(
+                        active.values().stream().flatMap(List::stream),
+                        id -> Optional.ofNullable(projects.get(id))
+                );
+
+                var incremental = new DistributedAllocationView(account.orElse("no-account"), projectId);
+                incremental.loadAllocInfo(ledger, null);
+
+                assertEquals(full.getProjectAllocation(), incremental.getProjectAllocation());
+                assertEquals(full.getAccountAllocation(), incremental.getAccountAllocation());
+
+                if (account.isPresent()) {
+                    total = total.add(full.getProjectAllocation());
+                }
+            }
+            assertEquals(total, ledger.getTotalAccountAllocation());
+        }
+    }
+
+    @Test
+    void resolvesTheAccountingGroupOfAProjectOnlyOnce() {
+        var lookups = new AtomicInteger();
+        var ledger  = new AllocationLedger(id -> {
+            lookups.incrementAndGet();
+            return Optional.of("account-a");
+        });
+
+        ledger.update("node-a", List.of(new AllocInfo("project-a", 1, 1024, 0)));
+        ledger.update("node-a", List.of(new AllocInfo("project-a", 2, 1024, 0)));
+        ledger.update("node-b", List.of(new AllocInfo("project-a", 1, 0, 1)));
+        assertEquals(1, lookups.get());
+        assertEquals(new AllocInfo("account-a", 3, 1024, 1), ledger.getAccountAllocation("account-a"));
+
+        ledger.remove("node-a");
+        ledger.remove("node-b");
+        assertEquals(new AllocInfo("project-a", 0, 0, 0), ledger.getProjectAllocation("project-a"));
+        assertEquals(new AllocInfo("account-a", 0, 0, 0), ledger.getAccountAllocation("account-a"));
+        assertEquals(new AllocInfo("", 0, 0, 0), ledger.getTotalAccountAllocation());
+    }
+
+    @Test
+    void appliesTheProjectLimitWithoutAllocations() {
+        var ledger = new AllocationLedger(id -> Optional.of("account-a"));
+        var view   = new DistributedAllocationView("account-a", "project-a");
+        view.loadAllocInfo(ledger, new ResourceLimitation(null, null, 1L));
+
+        assertTrue(view.wouldResourcesExceedLimit(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.GPU, 2L)
+        ));
+        assertFalse(view.wouldResourcesExceedLimit(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.GPU, 1L)
+        ));
+    }
+
+    private static Project getProject(String projectId, String accountingGroup) {
+        return new Project(
+                projectId,
+                accountingGroup,
+                (Iterable<Link>) null,
+                null,
+                "name-of-" + projectId,
+                null,
+                "pipeline-definition-of-" + projectId,
+                null
+        );
+    }
+}
@@ -0,0 +1,49 @@
+package de.itdesigners.winslow;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans {@link Runnable}s far in the future on a {@link DelayedExecutor} that already holds {@link #queued} plans, the
+ * scores are plans accepted per second.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DelayedExecutorBenchmark {
+
+    @Param({"1000", "10000"})
+    public int queued;
+
+    private DelayedExecutor executor;
+    private long            counter;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        this.executor = new DelayedExecutor();
+        for (int i = 0; i < queued; ++i) {
+            this.executor.executeDelayed("queued-" + i, TimeUnit.HOURS.toMillis(1), () -> {});
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        this.executor.close();
+    }
+
+    @Benchmark
+    public boolean schedule() {
+        return this.executor.executeDelayed("scheduled-" + (counter++), TimeUnit.HOURS.toMillis(1), () -> {});
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DelayedExecutorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package de.itdesigners.winslow;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelayedExecutorTest {
+
+    private final DelayedExecutor executor = new DelayedExecutor(2);
+
+    @AfterEach
+    void close() {
+        executor.close();
+    }
+
+    @Test
+    void runsPlansNotBeforeTheyAreDue() throws InterruptedException {
+        var ran     = new CountDownLatch(1);
+        var planned = System.nanoTime();
+        assertTrue(executor.executeDelayed("plan", 200, ran::countDown));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - planned >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void runsPlansInTheOrderTheyAreDue() throws InterruptedException {
+        var order = new CopyOnWriteArrayList<String>();
+        var ran   = new CountDownLatch(3);
+        var block = new CountDownLatch(1);
+
+        // keeps one worker busy, so that the others run one after another
+        executor.executeDelayed("block", 0, () -> awaitQuietly(block));
+        executor.executeDelayed("c", 150, () -> ranAs(order, ran, "c"));
+        executor.executeDelayed("a", 50, () -> ranAs(order, ran, "a"));
+        executor.executeDelayed("b", 100, () -> ranAs(order, ran, "b"));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), order);
+        block.countDown();
+    }
+
+    @Test
+    void acceptsOnlyOnePlanPerIdentifierUntilItStarts() throws InterruptedException {
+        var runs    = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        assertTrue(executor.executeDelayed("plan", 50, () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertFalse(executor.executeDelayed("plan", 0, runs::incrementAndGet));
+        assertTrue(executor.executeDelayed("other", 0, () -> {}));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        var again = new CountDownLatch(1);
+        assertTrue(executor.executeDelayed("plan", 0, again::countDown));
+        assertFalse(executor.executeDelayed("plan", 0, again::countDown));
+
+        // does not run while the previous plan of the same identifier is still running
+        assertFalse(again.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(again.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void slowPlansDoNotHoldBackOthers() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var ran     = new CountDownLatch(1);
+
+        executor.executeDelayed("slow", 0, () -> awaitQuietly(release));
+        executor.executeDelayed("fast", 20, ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void reportsQueueSizeLagAndFailures() throws InterruptedException {
+        var ran = new CountDownLatch(2);
+        executor.executeDelayed("later", 60_000, () -> {});
+        executor.executeDelayed("fails", 0, () -> {
+            ran.countDown();
+            throw new IllegalStateException("expected");
+        });
+        executor.executeDelayed("succeeds", 0, ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (executor.getMetrics().executed() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        var metrics = executor.getMetrics();
+        assertEquals(1, metrics.planned());
+        assertEquals(0, metrics.running());
+        assertEquals(2, metrics.workers());
+        assertEquals(2, metrics.executed());
+        assertEquals(1, metrics.failed());
+        assertTrue(metrics.averageLagMs() >= 0);
+        assertTrue(metrics.maxLagMs() >= 0);
+    }
+
+    private static void ranAs(List<String> order, CountDownLatch ran, String identifier) {
+        order.add(identifier);
+        ran.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -291,6 +291,41 @@ public class DistributedAllocationViewTests {
         ));
     }
 
+    @Test
+    public void testAllocatableCountWithinLimit() {
+        var view = new DistributedAllocationView(USER_ID, PROJECT_ID);
+        view.loadAllocInfo(getAllocations(), projectId -> {
+            if (PROJECT_ID.equals(projectId)) {
+                return Optional.of(getBasicProject(USER_ID, projectId, new ResourceLimitation(10L, null, 8L)));
+            } else {
+                return Optional.empty();
+            }
+        });
+
+        var stage = new ResourceAllocationMonitor.ResourceSet<Long>()
+                .with(ResourceAllocationMonitor.StandardResources.CPU, 1L)
+                .with(ResourceAllocationMonitor.StandardResources.RAM, 1024L)
+                .with(ResourceAllocationMonitor.StandardResources.GPU, 1L);
+
+        // the project has already allocated 2 CPUs, the memory is not limited
+        assertEquals(8L, view.getAllocatableCountWithinLimit(stage));
+        assertEquals(4L, view.getAllocatableCountWithinLimit(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.CPU, 2L)
+        ));
+
+        view.setAccountLimit(new ResourceLimitation(null, null, 3L));
+        assertEquals(3L, view.getAllocatableCountWithinLimit(stage));
+
+        view.setAccountLimit(new ResourceLimitation(1L, null, null));
+        assertEquals(0L, view.getAllocatableCountWithinLimit(stage));
+
+        assertEquals(Long.MAX_VALUE, view.getAllocatableCountWithinLimit(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.RAM, 1024L)
+        ));
+    }
+
     @Nonnull
     private Project getBasicProject(
             @Nonnull String ownerId,
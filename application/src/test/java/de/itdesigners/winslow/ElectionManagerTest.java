@@ -0,0 +1,117 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.fs.Event;
+import de.itdesigners.winslow.fs.LockBus;
+import de.itdesigners.winslow.fs.LockException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElectionManagerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void runsElectionsOfDifferentProjectsConcurrently() throws IOException, LockException, InterruptedException {
+        var manager = createManager(3);
+
+        assertTrue(manager.maybeStartElection("project-a", 10_000));
+        assertTrue(manager.maybeStartElection("project-b", 10_000));
+        assertEquals(2, manager.getRunningElectionCount());
+
+        // counted as running before and after the start events have been received
+        awaitElection(manager, "project-a", true);
+        awaitElection(manager, "project-b", true);
+        assertEquals(2, manager.getRunningElectionCount());
+    }
+
+    @Test
+    void startsAtMostOneElectionPerProject() throws IOException, LockException, InterruptedException {
+        var manager = createManager(3);
+
+        assertTrue(manager.maybeStartElection("project-a", 10_000));
+        assertFalse(manager.maybeStartElection("project-a", 10_000));
+        awaitElection(manager, "project-a", true);
+        assertFalse(manager.maybeStartElection("project-a", 10_000));
+
+        manager.closeElection("project-a");
+        awaitElection(manager, "project-a", false);
+        assertTrue(manager.maybeStartElection("project-a", 10_000));
+    }
+
+    @Test
+    void startsNoFurtherElectionOnceTheLimitIsReached() throws IOException, LockException, InterruptedException {
+        var manager = createManager(2);
+        var closed  = new CopyOnWriteArrayList<String>();
+        manager.registerOnElectionClosed(election -> closed.add(election.getProjectId()));
+
+        assertTrue(manager.maybeStartElection("project-a", 10_000));
+        assertTrue(manager.maybeStartElection("project-b", 10_000));
+        assertFalse(manager.maybeStartElection("project-c", 10_000));
+
+        awaitElection(manager, "project-b", true);
+        manager.closeElection("project-b");
+        awaitElection(manager, "project-b", false);
+        assertEquals(List.of("project-b"), closed);
+        assertTrue(manager.maybeStartElection("project-c", 10_000));
+    }
+
+    @Test
+    void runsOnlyASingleElectionAtOnceWithoutConcurrency() throws IOException, LockException, InterruptedException {
+        var manager = createManager(1);
+
+        assertTrue(manager.maybeStartElection("project-a", 10_000));
+        assertFalse(manager.maybeStartElection("project-b", 10_000));
+
+        awaitElection(manager, "project-a", true);
+        assertFalse(manager.maybeStartElection("project-b", 10_000));
+
+        manager.closeElection("project-a");
+        awaitElection(manager, "project-a", false);
+        assertTrue(manager.maybeStartElection("project-b", 10_000));
+    }
+
+    private static void awaitElection(
+            ElectionManager manager,
+            String projectId,
+            boolean present) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (manager.getElection(projectId).isPresent() != present && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(present, manager.getElection(projectId).isPresent());
+    }
+
+    private ElectionManager createManager(int maxConcurrentElections) throws IOException, LockException {
+        var lockBus = new LockBus("test", directory);
+        var manager = new ElectionManager(lockBus, maxConcurrentElections);
+        lockBus.registerEventListener(Event.Command.ELECTION_START, event -> {
+            try {
+                manager.onElectionStarted(
+                        event.getSubject(),
+                        event.getIssuer(),
+                        event.getTime(),
+                        event.getDuration()
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        lockBus.registerEventListener(Event.Command.ELECTION_STOP, event -> {
+            try {
+                manager.onElectionClosed(event.getSubject());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return manager;
+    }
+}
@@ -0,0 +1,133 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.fs.Event;
+import de.itdesigners.winslow.fs.LockBus;
+import de.itdesigners.winslow.fs.LockException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Places the next stage of {@link #PROJECTS} projects through elections of {@link #ELECTION_DURATION_MS} each on a
+ * real {@link LockBus}, with resources reserved and freed like the {@link LockBusElectionManagerAdapter} does. With a
+ * single election at once, like before, the projects have to wait for each other, with concurrent elections they are
+ * placed at the same time. Multiply the scores, which are rounds per second, by {@link #PROJECTS} for stages placed
+ * per second.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ElectionThroughputBenchmark {
+
+    private static final int  PROJECTS             = 40;
+    private static final long ELECTION_DURATION_MS = 20;
+
+    @Param({"1", "64"})
+    public int maxConcurrentElections;
+
+    private final AtomicInteger placed = new AtomicInteger();
+
+    private Path                      directory;
+    private ElectionManager           manager;
+    private ResourceAllocationMonitor monitor;
+    private ExecutorService           executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LockException {
+        this.directory = Files.createTempDirectory(ElectionThroughputBenchmark.class.getSimpleName());
+        this.executor  = Executors.newFixedThreadPool(PROJECTS);
+        this.monitor   = new ResourceAllocationMonitor().withResourcesAvailable(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.GPU, (long) PROJECTS)
+        );
+
+        var lockBus = new LockBus("benchmark", directory);
+        this.manager = new ElectionManager(lockBus, maxConcurrentElections);
+        this.manager.registerOnElectionStarted(election -> {
+            var required = new ResourceAllocationMonitor.ResourceSet<Long>()
+                    .with(ResourceAllocationMonitor.StandardResources.GPU, 1L);
+            if (monitor.tryReserve(election.getProjectId(), required)) {
+                election.setReservedResources(required);
+            }
+        });
+        this.manager.registerOnElectionClosed(election -> election.takeReservedResources().ifPresent(reserved -> {
+            monitor.free(election.getProjectId(), reserved);
+            placed.incrementAndGet();
+        }));
+
+        lockBus.registerEventListener(Event.Command.ELECTION_START, event -> {
+            try {
+                manager.onElectionStarted(event.getSubject(), event.getIssuer(), event.getTime(), event.getDuration());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        lockBus.registerEventListener(Event.Command.ELECTION_STOP, event -> {
+            try {
+                manager.onElectionClosed(event.getSubject());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.executor.shutdownNow();
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int placeStages() throws InterruptedException, ExecutionException {
+        var before  = placed.get();
+        var futures = new ArrayList<Future<?>>(PROJECTS);
+        for (int i = 0; i < PROJECTS; ++i) {
+            var projectId = "project-" + i;
+            futures.add(executor.submit(() -> {
+                runElection(projectId);
+                return null;
+            }));
+        }
+        for (var future : futures) {
+            future.get();
+        }
+        return placed.get() - before;
+    }
+
+    private void runElection(String projectId) throws LockException, IOException, InterruptedException {
+        while (!manager.maybeStartElection(projectId, ELECTION_DURATION_MS + 500)) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(ELECTION_DURATION_MS);
+        while (manager.getElection(projectId).isEmpty()) {
+            Thread.sleep(1);
+        }
+        manager.closeElection(projectId);
+        while (manager.getElection(projectId).isPresent()) {
+            Thread.sleep(1);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ElectionThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,5 +1,6 @@
 package de.itdesigners.winslow;
 
+import de.itdesigners.winslow.asblr.WorkspaceCloner;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junitpioneer.jupiter.SetEnvironmentVariable;
@@ -106,6 +107,63 @@ class EnvTest {
         }
     }
 
+    @Nested
+    class LogQueueTests {
+
+        @Test
+        void whenLogQueueNotConfiguredThenReturnDefaults() {
+            assertEquals(LogQueue.DEFAULT_CAPACITY, Env.getLogQueueCapacity());
+            assertEquals(LogQueue.DEFAULT_POLICY, Env.getLogQueueOverflowPolicy());
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_LOG_QUEUE_CAPACITY", value = "500")
+        @SetEnvironmentVariable(key = "WINSLOW_LOG_QUEUE_OVERFLOW", value = "drop")
+        void whenLogQueueConfiguredThenReturnIt() {
+            assertEquals(500, Env.getLogQueueCapacity());
+            assertEquals(LogQueue.OverflowPolicy.DROP, Env.getLogQueueOverflowPolicy());
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_LOG_QUEUE_CAPACITY", value = "lots")
+        void whenLogQueueCapacityIsNotANumberThenThrow() {
+            assertThrows(NumberFormatException.class, Env::getLogQueueCapacity);
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_LOG_QUEUE_CAPACITY", value = "0")
+        void whenLogQueueCapacityIsNotPositiveThenThrow() {
+            assertThrows(NumberFormatException.class, Env::getLogQueueCapacity);
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_LOG_QUEUE_OVERFLOW", value = "ignore")
+        void whenLogQueueOverflowPolicyIsUnknownThenThrow() {
+            assertThrows(IllegalArgumentException.class, Env::getLogQueueOverflowPolicy);
+        }
+    }
+
+    @Nested
+    class WorkspaceCloneModeTests {
+
+        @Test
+        void whenWorkspaceCloneModeNotConfiguredThenReturnDefault() {
+            assertEquals(WorkspaceCloner.DEFAULT_MODE, Env.getWorkspaceCloneMode());
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_WORKSPACE_CLONE_MODE", value = "link")
+        void whenWorkspaceCloneModeConfiguredThenReturnIt() {
+            assertEquals(WorkspaceCloner.Mode.LINK, Env.getWorkspaceCloneMode());
+        }
+
+        @Test
+        @SetEnvironmentVariable(key = "WINSLOW_WORKSPACE_CLONE_MODE", value = "reflink")
+        void whenWorkspaceCloneModeIsUnknownThenThrow() {
+            assertThrows(IllegalArgumentException.class, Env::getWorkspaceCloneMode);
+        }
+    }
+
     @Test
     void whenGetRootUsersGivenRootUsersNotSetThenReturnEmptyList() {
         assertEquals(0, Env.getRootUsers().length);
@@ -0,0 +1,273 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.config.ExecutionGroup;
+import de.itdesigners.winslow.config.Image;
+import de.itdesigners.winslow.config.StageWorkerDefinition;
+import de.itdesigners.winslow.fs.DockerVolumeTargetConfiguration;
+import de.itdesigners.winslow.fs.LockBus;
+import de.itdesigners.winslow.fs.LockException;
+import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
+import de.itdesigners.winslow.pipeline.ExecutionGroupId;
+import de.itdesigners.winslow.pipeline.ExecutionHistory;
+import de.itdesigners.winslow.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionHistoryLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedRemovedAndModifiedGroupsArePersisted() throws IOException {
+        var log     = log();
+        var history = new ExecutionHistory(List.of(group(1), group(2), group(3)));
+        log.rewrite(history);
+
+        var loaded = new ExecutionHistory(log.snapshot());
+        assertEquals(3, loaded.size());
+        assertEquals(id(3), loaded.last().orElseThrow().getFullyQualifiedId());
+
+        assertEquals(id(2), loaded.remove(id(2)).orElseThrow().getFullyQualifiedId());
+        loaded.stream().findFirst().orElseThrow().setComment("modified");
+        loaded.add(group(4));
+        log.append(loaded, (ExecutionHistoryLog.Snapshot) loaded.getStorage().orElseThrow());
+
+        // the history must be usable after it has been persisted
+        assertEquals(List.of(id(1), id(3), id(4)), ids(loaded));
+        assertTrue(loaded.getAppended().isEmpty());
+
+        var reloaded = new ExecutionHistory(log.snapshot());
+        assertEquals(List.of(id(1), id(3), id(4)), ids(reloaded));
+        assertEquals(Optional.of("modified"), reloaded.stream().findFirst().orElseThrow().getComment());
+    }
+
+    @Test
+    void subListAndIndexOfSkipRemovedAndIncludeAppendedGroups() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1), group(2), group(3), group(4))));
+
+        var history = new ExecutionHistory(log.snapshot());
+        history.remove(id(2));
+        history.add(group(5));
+
+        assertEquals(4, history.size());
+        assertEquals(OptionalInt.of(1), history.indexOf(id(3)));
+        assertEquals(OptionalInt.of(3), history.indexOf(id(5)));
+        assertEquals(OptionalInt.empty(), history.indexOf(id(2)));
+        assertEquals(
+                List.of(id(1), id(3), id(4), id(5)),
+                history.subList(0, 4).stream().map(ExecutionGroup::getFullyQualifiedId).toList()
+        );
+        assertEquals(
+                List.of(id(4), id(5)),
+                history.subList(2, 4).stream().map(ExecutionGroup::getFullyQualifiedId).toList()
+        );
+    }
+
+    @Test
+    void snapshotDoesNotSeeLaterAppends() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1))));
+
+        var reader = new ExecutionHistory(log.snapshot());
+        var writer = new ExecutionHistory(log.snapshot());
+        writer.add(group(2));
+        writer.remove(id(1));
+        log.append(writer, (ExecutionHistoryLog.Snapshot) writer.getStorage().orElseThrow());
+
+        assertEquals(List.of(id(1)), ids(reader));
+        assertEquals(List.of(id(2)), ids(new ExecutionHistory(log.snapshot())));
+    }
+
+    @Test
+    void tornTailIsIgnoredAndTruncated() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1))));
+        Files.write(directory.resolve("p.history.log"), new byte[]{0, 0, 1}, StandardOpenOption.APPEND);
+        Files.write(directory.resolve("p.history.idx"), new byte[]{0, 0}, StandardOpenOption.APPEND);
+
+        var history = new ExecutionHistory(log.snapshot());
+        assertEquals(List.of(id(1)), ids(history));
+
+        history.add(group(2));
+        log.append(history, (ExecutionHistoryLog.Snapshot) history.getStorage().orElseThrow());
+        assertEquals(List.of(id(1), id(2)), ids(new ExecutionHistory(log.snapshot())));
+    }
+
+    @Test
+    void missingIndexIsRebuiltFromLog() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1), group(2))));
+        Files.delete(directory.resolve("p.history.idx"));
+
+        var history = new ExecutionHistory(log.snapshot());
+        assertEquals(List.of(id(1), id(2)), ids(history));
+
+        history.add(group(3));
+        log.append(history, (ExecutionHistoryLog.Snapshot) history.getStorage().orElseThrow());
+        assertTrue(Files.exists(directory.resolve("p.history.idx")));
+        assertEquals(List.of(id(1), id(2), id(3)), ids(new ExecutionHistory(log.snapshot())));
+    }
+
+    @Test
+    void logIsCompactedOnceDeadRecordsOutnumberLiveOnes() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1), group(2))));
+
+        var history    = new ExecutionHistory(log.snapshot());
+        var maxRecords = 0L;
+        for (int i = 0; i < 3 * ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS; ++i) {
+            history.stream().findFirst().orElseThrow().setComment("modified " + i);
+            history.add(group(3 + i));
+            history.remove(id(2 + i));
+            log.append(history, (ExecutionHistoryLog.Snapshot) history.getStorage().orElseThrow());
+            maxRecords = Math.max(maxRecords, records());
+        }
+
+        // two live groups, compacted before the dead records exceed the threshold
+        assertTrue(maxRecords <= 2 + ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS + 3, "records=" + maxRecords);
+        assertTrue(records() < maxRecords);
+
+        var last     = 3 * ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS + 1;
+        var reloaded = new ExecutionHistory(log.snapshot());
+        assertEquals(List.of(id(1), id(last + 1)), ids(reloaded));
+        assertEquals(ids(reloaded), ids(history));
+        assertEquals(
+                Optional.of("modified " + (3 * ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS - 1)),
+                reloaded.stream().findFirst().orElseThrow().getComment()
+        );
+
+        // the history stays usable after it has been compacted
+        history.add(group(last + 2));
+        log.append(history, (ExecutionHistoryLog.Snapshot) history.getStorage().orElseThrow());
+        assertEquals(List.of(id(1), id(last + 1), id(last + 2)), ids(new ExecutionHistory(log.snapshot())));
+    }
+
+    @Test
+    void resolvedSnapshotIsReadableAfterCompaction() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1), group(2), group(3))));
+
+        var reader = new ExecutionHistory(log.snapshot());
+        assertEquals(3, reader.size());
+        compactByModifyingFirstGroup(log);
+
+        // the groups are only loaded now, at positions that changed with the compaction
+        assertEquals(List.of(id(1), id(2), id(3)), ids(reader));
+    }
+
+    @Test
+    void unresolvedSnapshotCoversTheWholeCompactedLog() throws IOException {
+        var log = log();
+        log.rewrite(new ExecutionHistory(List.of(group(1), group(2), group(3))));
+
+        var reader = new ExecutionHistory(log.snapshot());
+        var writer = compactByModifyingFirstGroup(log);
+        writer.add(group(4));
+        log.append(writer, (ExecutionHistoryLog.Snapshot) writer.getStorage().orElseThrow());
+
+        assertEquals(List.of(id(1), id(2), id(3), id(4)), ids(reader));
+        assertEquals(
+                Optional.of("modified " + (ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS - 1)),
+                reader.stream().findFirst().orElseThrow().getComment()
+        );
+    }
+
+    @Test
+    void legacyHistoryIsMigratedOnStore()throws IOException, LockException {
+        var config = new WorkDirectoryConfiguration() {
+            @Nonnull
+            @Override
+            public Path getPath() {
+                return directory;
+            }
+
+            @Nonnull
+            @Override
+            public Optional<DockerVolumeTargetConfiguration> getDockerVolumeConfiguration(@Nonnull Path path) {
+                return Optional.empty();
+            }
+        };
+        var repository = new PipelineRepository(new LockBus("test", config.getEventsDirectory()), config);
+        var projects   = directory.resolve("projects");
+        var legacy     = projects.resolve("p.pipeline.history.yml");
+
+        BaseRepository.writeToFile(new Pipeline("p"), projects.resolve("p.pipeline.yml").toFile());
+        BaseRepository.writeToFile(new ExecutionGroup[]{group(1), group(2)}, legacy.toFile());
+
+        try (var container = repository.getPipeline("p").exclusive().orElseThrow()) {
+            var pipeline = container.get().orElseThrow();
+            assertEquals(List.of(id(1), id(2)), ids(pipeline.getHistory()));
+            pipeline.getHistory().add(group(3));
+            container.update(pipeline);
+        }
+
+        assertFalse(Files.exists(legacy));
+        assertTrue(Files.exists(projects.resolve("p.pipeline.history.log")));
+
+        var pipeline = repository.getPipeline("p").unsafe().orElseThrow();
+        assertEquals(List.of(id(1), id(2), id(3)), ids(pipeline.getHistory()));
+        assertEquals(id(3), pipeline.getPreviousExecutionGroup().orElseThrow().getFullyQualifiedId());
+    }
+
+    private ExecutionHistory compactByModifyingFirstGroup(@Nonnull ExecutionHistoryLog log) throws IOException {
+        var writer = new ExecutionHistory(log.snapshot());
+        for (int i = 0; i < ExecutionHistoryLog.COMPACTION_MIN_DEAD_RECORDS; ++i) {
+            writer.stream().findFirst().orElseThrow().setComment("modified " + i);
+            log.append(writer, (ExecutionHistoryLog.Snapshot) writer.getStorage().orElseThrow());
+        }
+        assertEquals(writer.size(), records());
+        return writer;
+    }
+
+    private long records() throws IOException {
+        return Files.size(directory.resolve("p.history.idx")) / ExecutionHistoryLog.INDEX_ENTRY_SIZE;
+    }
+
+    private ExecutionHistoryLog log() {
+        return new ExecutionHistoryLog(directory.resolve("p.history.log"), directory.resolve("p.history.idx"));
+    }
+
+    private static List<String> ids(@Nonnull ExecutionHistory history) {
+        return history.stream().map(ExecutionGroup::getFullyQualifiedId).toList();
+    }
+
+    private static String id(int number) {
+        return new ExecutionGroupId("p", number, "group").getFullyQualified();
+    }
+
+    private static ExecutionGroup group(int number) {
+        return new ExecutionGroup(
+                new ExecutionGroupId("p", number, "group"),
+                new StageWorkerDefinition(
+                        UUID.randomUUID(),
+                        "group",
+                        null,
+                        null,
+                        new Image("hello-world"),
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        false,
+                        false,
+                        false
+                ),
+                null
+        );
+    }
+}
@@ -0,0 +1,117 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogQueueTest {
+
+    @Test
+    void blocksTheProducerUntilThereIsSpace() throws InterruptedException {
+        var queue = new LogQueue(2, LogQueue.OverflowPolicy.BLOCK);
+        assertTrue(queue.offer(entry(0)));
+        assertTrue(queue.offer(entry(1)));
+
+        var offered  = new CountDownLatch(1);
+        var producer = new Thread(() -> {
+            queue.offer(entry(2));
+            offered.countDown();
+        });
+        producer.start();
+
+        assertFalse(offered.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(entry(0), queue.poll());
+        assertTrue(offered.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(entry(1), entry(2)), drain(queue));
+        assertEquals(new LogQueue.Metrics(2, 0, 2, 0, 0), queue.getMetrics());
+    }
+
+    @Test
+    void reportsDroppedEntries() {
+        var queue = new LogQueue(2, LogQueue.OverflowPolicy.DROP);
+        for (int i = 0; i < 5; ++i) {
+            queue.offer(entry(i));
+        }
+
+        var notice = queue.poll();
+        assertNotNull(notice);
+        assertEquals(LogSource.MANAGEMENT_EVENT, notice.source());
+        assertTrue(notice.error());
+        assertTrue(notice.message().contains("Dropped 3 log lines"));
+        assertEquals(List.of(entry(0), entry(1)), drain(queue));
+        assertEquals(3, queue.getMetrics().dropped());
+    }
+
+    @Test
+    void spillsInOrder() {
+        var queue = new LogQueue(3, LogQueue.OverflowPolicy.SPILL);
+        var expected = new ArrayList<LogEntry>();
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(queue.offer(entry(i)));
+            expected.add(entry(i));
+        }
+
+        // entries offered while spilled entries are pending must not overtake them
+        var actual = new ArrayList<LogEntry>();
+        actual.add(queue.poll());
+        assertTrue(queue.offer(entry(10)));
+        expected.add(entry(10));
+        actual.addAll(drain(queue));
+
+        assertEquals(expected, actual);
+        assertEquals(new LogQueue.Metrics(3, 0, 10, 0, 8), queue.getMetrics());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void notifiesTheListenerOnceNotEmpty() {
+        var queue    = new LogQueue(10, LogQueue.OverflowPolicy.BLOCK);
+        var notified = new AtomicInteger();
+        queue.setListener(notified::incrementAndGet);
+
+        queue.offer(entry(0));
+        queue.offer(entry(1));
+        assertEquals(1, notified.get());
+
+        drain(queue);
+        queue.offer(entry(2));
+        assertEquals(2, notified.get());
+    }
+
+    @Test
+    void closingReleasesBlockedProducers() throws InterruptedException {
+        var queue = new LogQueue(1, LogQueue.OverflowPolicy.BLOCK);
+        queue.offer(entry(0));
+
+        var offered  = new CountDownLatch(1);
+        var producer = new Thread(() -> {
+            queue.offer(entry(1));
+            offered.countDown();
+        });
+        producer.start();
+
+        queue.close();
+        assertTrue(offered.await(1, TimeUnit.SECONDS));
+        assertFalse(queue.offer(entry(2)));
+    }
+
+    private static LogEntry entry(int index) {
+        return new LogEntry(1_678_900_000_000L + index, LogSource.STANDARD_IO, false, "line " + index);
+    }
+
+    private static List<LogEntry> drain(LogQueue queue) {
+        var entries = new ArrayList<LogEntry>();
+        LogEntry entry;
+        while ((entry = queue.poll()) != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
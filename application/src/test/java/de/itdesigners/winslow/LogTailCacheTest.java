@@ -0,0 +1,85 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import de.itdesigners.winslow.pipeline.StageId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTailCacheTest {
+
+    private static final StageId STAGE = new StageId("project", 1, null, 0);
+
+    @Test
+    void servesTheLastLinesOnceTheyAreCached() {
+        var cache = new LogTailCache(4, 10, 1_000, () -> 0L);
+        cache.onLogs(STAGE, 0, entries(0, 3));
+
+        assertEquals(List.of(0L, 1L, 2L), lines(cache.getLast(STAGE.getFullyQualified(), Long.MAX_VALUE, 10)));
+        assertEquals(List.of(1L), lines(cache.getLast(STAGE.getFullyQualified(), 2, 1)));
+
+        cache.onLogs(STAGE, 3, entries(3, 3));
+        assertEquals(List.of(2L, 3L, 4L, 5L), lines(cache.getLast(STAGE.getFullyQualified(), Long.MAX_VALUE, 4)));
+        assertEquals(List.of(4L, 5L), lines(cache.getFrom(STAGE.getFullyQualified(), 4)));
+        assertEquals(List.of(), lines(cache.getFrom(STAGE.getFullyQualified(), 6)));
+
+        // the first lines have been overwritten
+        assertTrue(cache.getLast(STAGE.getFullyQualified(), Long.MAX_VALUE, 5).isEmpty());
+        assertTrue(cache.getLast(STAGE.getFullyQualified(), Long.MAX_VALUE, 0).isEmpty());
+        assertTrue(cache.getFrom(STAGE.getFullyQualified(), 1).isEmpty());
+        assertTrue(cache.getFrom("unknown", 0).isEmpty());
+
+        var metrics = cache.getMetrics();
+        assertEquals(new LogTailCache.Metrics(1, 4, 5, 4, 0), metrics);
+    }
+
+    @Test
+    void restartsAfterMissingLines() {
+        var cache = new LogTailCache(4, 10, 1_000, () -> 0L);
+        cache.onLogs(STAGE, 0, entries(0, 2));
+        cache.onLogs(STAGE, 5, entries(5, 2));
+
+        assertEquals(List.of(5L, 6L), lines(cache.getFrom(STAGE.getFullyQualified(), 5)));
+        assertTrue(cache.getFrom(STAGE.getFullyQualified(), 1).isEmpty());
+    }
+
+    @Test
+    void evictsIdleAndLeastRecentlyUsedStages() {
+        var time  = new AtomicLong();
+        var cache = new LogTailCache(4, 2, 1_000, time::get);
+        var other = new StageId("project", 2, null, 0);
+        var third = new StageId("project", 3, null, 0);
+
+        cache.onLogs(STAGE, 0, entries(0, 1));
+        cache.onLogs(other, 0, entries(0, 1));
+        assertTrue(cache.getFrom(STAGE.getFullyQualified(), 0).isPresent());
+        cache.onLogs(third, 0, entries(0, 1));
+        assertTrue(cache.getFrom(other.getFullyQualified(), 0).isEmpty());
+        assertEquals(1, cache.getMetrics().evictions());
+
+        time.set(900);
+        assertTrue(cache.getFrom(STAGE.getFullyQualified(), 0).isPresent());
+        time.set(1_500);
+        assertTrue(cache.getFrom(STAGE.getFullyQualified(), 0).isPresent());
+        assertTrue(cache.getFrom(third.getFullyQualified(), 0).isEmpty());
+        assertEquals(2, cache.getMetrics().evictions());
+    }
+
+    private static List<LogEntry> entries(long first, int count) {
+        return LongStream
+                .range(first, first + count)
+                .mapToObj(line -> new LogEntry(line, LogSource.STANDARD_IO, false, "line " + line))
+                .toList();
+    }
+
+    private static List<Long> lines(Optional<List<LogTailCache.Line>> lines) {
+        var list = lines.orElseThrow();
+        list.forEach(line -> assertEquals("line " + line.line(), line.entry().message()));
+        return list.stream().map(LogTailCache.Line::line).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package de.itdesigners.winslow;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import de.itdesigners.winslow.api.pipeline.WorkspaceConfiguration;
+import de.itdesigners.winslow.config.*;
+import de.itdesigners.winslow.pipeline.ExecutionGroupId;
+import de.itdesigners.winslow.pipeline.Pipeline;
+import de.itdesigners.winslow.pipeline.Stage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Loads and stores a {@link Pipeline} with the given number of {@link ExecutionGroup}s in its history through
+ * the shared {@link YamlMapper} and, for comparison, through an {@link com.fasterxml.jackson.databind.ObjectMapper}
+ * that is created for each operation, as {@link BaseRepository} did before.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineSerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int historySize;
+
+    private Pipeline pipeline;
+    private byte[]   yaml;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.pipeline = new Pipeline(
+                "benchmark-project",
+                IntStream.range(0, historySize).mapToObj(PipelineSerializationBenchmark::finishedGroup).collect(
+                        Collectors.toList()),
+                null,
+                null,
+                false,
+                null,
+                null,
+                null,
+                null,
+                historySize
+        );
+        this.yaml = BaseRepository.writeToString(pipeline).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Pipeline loadShared() throws IOException {
+        return BaseRepository.defaultReader(Pipeline.class).load(new ByteArrayInputStream(yaml));
+    }
+
+    @Benchmark
+    public Pipeline loadNewObjectMapper() throws IOException {
+        var upgradeLoader = new SimpleModule();
+        upgradeLoader.addDeserializer(ExecutionGroup.class, new ExecutionGroupUpgrade());
+        upgradeLoader.addDeserializer(Pipeline.class, new PipelineUpgrade());
+
+        return BaseRepository
+                .defaultObjectMapper()
+                .registerModule(new ParameterNamesModule())
+                .registerModule(upgradeLoader)
+                .readValue(new ByteArrayInputStream(yaml), Pipeline.class);
+    }
+
+    @Benchmark
+    public byte[] storeShared() throws IOException {
+        var output = new ByteArrayOutputStream(yaml.length);
+        BaseRepository.defaultWriter().store(output, pipeline);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] storeNewObjectMapper() throws IOException {
+        var output = new ByteArrayOutputStream(yaml.length);
+        BaseRepository.defaultObjectMapper().writeValue(output, pipeline);
+        return output.toByteArray();
+    }
+
+    private static ExecutionGroup finishedGroup(int number) {
+        var group = new ExecutionGroup(
+                new ExecutionGroupId("benchmark-project", number, "group-" + number),
+                false,
+                new StageWorkerDefinition(
+                        UUID.randomUUID(),
+                        "some-definition",
+                        null,
+                        null,
+                        new Image("hello-world"),
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        false,
+                        false,
+                        false
+                ),
+                null,
+                new WorkspaceConfiguration(WorkspaceConfiguration.WorkspaceMode.INCREMENTAL),
+                Collections.emptyList(),
+                0,
+                null,
+                null
+        );
+        group.addStage(new Stage(
+                group.getId().generateStageId(0),
+                new Date(0),
+                "workspace-" + number,
+                new Date(),
+                de.itdesigners.winslow.api.pipeline.State.SUCCEEDED,
+                null,
+                null,
+                null,
+                null,
+                null
+        ));
+        return group;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PipelineSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -2,6 +2,9 @@ package de.itdesigners.winslow;
 
 import org.junit.Test;
 
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -81,6 +84,61 @@ public class ResourceAllocationMonitorTest {
         ));
     }
 
+    @Test
+    public void testTryReserveDoesNotExceedAvailableResourcesOfConcurrentElections() {
+        var monitor = createGpuNode();
+        var set = new ResourceAllocationMonitor.ResourceSet<Long>()
+                .with(ResourceAllocationMonitor.StandardResources.GPU, 40L);
+
+        assertTrue(monitor.tryReserve("project-a", set));
+        assertTrue(monitor.tryReserve("project-b", set));
+        assertFalse(monitor.tryReserve("project-c", set));
+        assertEquals(Set.of("project-a", "project-b"), monitor.getAllocationReport().keySet());
+
+        monitor.free("project-a", set);
+        assertTrue(monitor.tryReserve("project-c", set));
+    }
+
+    @Test
+    public void testFreeKeepsRemainingReservationOfSameToken() {
+        var monitor = createGpuNode();
+        var election = new ResourceAllocationMonitor.ResourceSet<Long>()
+                .with(ResourceAllocationMonitor.StandardResources.GPU, 60L);
+        var stage = new ResourceAllocationMonitor.ResourceSet<Long>()
+                .with(ResourceAllocationMonitor.StandardResources.GPU, 60L);
+
+        // the stage is started while the reservation of the election is still held
+        assertTrue(monitor.tryReserve("project", election));
+        monitor.reserve("project", stage);
+        monitor.free("project", election);
+
+        assertTrue(monitor.getAllocationReport().containsKey("project"));
+        assertFalse(monitor.couldReserveConsideringReservations(
+                new ResourceAllocationMonitor.ResourceSet<Long>()
+                        .with(ResourceAllocationMonitor.StandardResources.GPU, 41L)
+        ));
+
+        monitor.free("project", stage);
+        assertTrue(monitor.getAllocationReport().isEmpty());
+    }
+
+    @Test
+    public void testReservableCountConsidersReservations() {
+        var monitor = createGpuNode();
+        var stage = new ResourceAllocationMonitor.ResourceSet<Long>()
+                .with(ResourceAllocationMonitor.StandardResources.CPU, 1L)
+                .with(ResourceAllocationMonitor.StandardResources.GPU, 8L);
+
+        assertEquals(4L, monitor.getReservableCount(stage));
+
+        monitor.reserve("the-token", ResourceAllocationMonitor.multiply(stage, 3));
+        assertEquals(1L, monitor.getReservableCount(stage));
+
+        monitor.reserve("the-token", stage);
+        assertEquals(0L, monitor.getReservableCount(stage));
+        assertEquals(Long.MAX_VALUE, monitor.getReservableCount(new ResourceAllocationMonitor.ResourceSet<>()));
+    }
+
     @Test
     public void testAversionOfGpuNodeIsHigherThanWithoutGpuNodeOnJobWithoutGpuRequirement() {
         var node    = createComputeNode();
@@ -0,0 +1,54 @@
+package de.itdesigners.winslow;
+
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import de.itdesigners.winslow.pipeline.StageId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageEventHubTest {
+
+    @Test
+    void publishesToTheListenersOfTheProject() {
+        var hub      = new StageEventHub();
+        var received = new ArrayList<String>();
+        var stage    = new StageId("project", 1, null, null);
+        var other    = new StageId("other", 1, null, null);
+        var entries  = List.of(new LogEntry(0, LogSource.STANDARD_IO, false, "line"));
+
+        hub.subscribe("project", new StageEventHub.Listener() {
+            @Override
+            public void onLogs(StageId stageId, long firstLine, List<LogEntry> logs) {
+                throw new IllegalStateException("must not affect the other listeners");
+            }
+        });
+        var unsubscribe = hub.subscribe("project", new StageEventHub.Listener() {
+            @Override
+            public void onLogs(StageId stageId, long firstLine, List<LogEntry> logs) {
+                received.add(stageId.getProjectId() + ":" + firstLine + ":" + logs.size());
+            }
+        });
+
+        hub.publishLogs(stage, 7, entries);
+        hub.publishLogs(other, 3, entries);
+        assertEquals(List.of("project:7:1"), received);
+        assertTrue(hub.hasListeners("project"));
+        assertFalse(hub.hasListeners("other"));
+
+        unsubscribe.run();
+        hub.publishLogs(stage, 8, entries);
+        assertEquals(List.of("project:7:1"), received);
+    }
+
+    @Test
+    void forgetsProjectsWithoutListeners() {
+        var hub         = new StageEventHub();
+        var unsubscribe = hub.subscribe("project", new StageEventHub.Listener() {});
+        assertTrue(hub.hasListeners("project"));
+        unsubscribe.run();
+        assertFalse(hub.hasListeners("project"));
+    }
+}
@@ -0,0 +1,143 @@
+package de.itdesigners.winslow.asblr;
+
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Passes 1M lines of training output through 10 log parsers, through the {@link LogParserEngine} and, for
+ * comparison, like {@link LogParserRegisterer} did before: joining the window of each parser per line and
+ * opening the destination per match. The scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogParserBenchmark {
+
+    private static final int LINES = 1_000_000;
+
+    private static final String[][] PARSERS = {
+            {"loss: ([0-9.]+)", "1"},
+            {"accuracy: ([0-9.]+)", "1"},
+            {"^epoch (\\d+)/\\d+$", "1"},
+            {"val_loss: ([0-9.]+) - val_accuracy: ([0-9.]+)", "1"},
+            {"lr=([0-9.e-]+)", "1"},
+            {"^epoch (\\d+)/\\d+\\R.*loss: ([0-9.]+)", "2"},
+            {"WARNING: (.*)", "1"},
+            {"checkpoint saved to (\\S+)", "1"},
+            {"step (\\d+) .*\\R.*\\R.*gpu=(\\d+)%", "3"},
+            {"throughput: (\\d+) samples/s", "1"},
+    };
+
+    private LogEntry[] entries;
+    private Path       directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var random = new Random(42);
+        this.entries   = new LogEntry[LINES];
+        this.directory = Files.createTempDirectory(LogParserBenchmark.class.getSimpleName());
+
+        for (int i = 0; i < LINES; ++i) {
+            var message = switch (random.nextInt(20)) {
+                case 0 -> String.format("epoch %d/100", i / 10_000);
+                case 1 -> String.format("val_loss: %.4f - val_accuracy: %.4f", random.nextDouble(), random.nextDouble());
+                case 2 -> String.format("lr=%.2e", random.nextDouble() / 1000);
+                case 3 -> String.format("gpu=%d%% mem=%dMiB", random.nextInt(100), random.nextInt(16_000));
+                case 4 -> "WARNING: the input pipeline is slower than the model";
+                default -> String.format(
+                        "step %d - loss: %.4f - accuracy: %.4f - throughput: %d samples/s",
+                        i,
+                        random.nextDouble(),
+                        random.nextDouble(),
+                        random.nextInt(5_000)
+                );
+            };
+            this.entries[i] = new LogEntry(i, LogSource.STANDARD_IO, false, message);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void engine() {
+        var parsers = Stream.of(PARSERS).map(parser -> {
+            var destination = Optional.of(directory.resolve("engine-" + parser[1] + "-" + parser[0].hashCode()));
+            return new LogParserEngine.Parser(
+                    Pattern.compile(parser[0]),
+                    Integer.parseInt(parser[1]),
+                    (e, m) -> destination,
+                    (e, m) -> e.time() + "," + m.group(1)
+            );
+        }).toList();
+
+        try (var engine = new LogParserEngine(parsers, (level, message) -> {})) {
+            for (var entry : entries) {
+                engine.accept(entry);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void joinAndOpenPerMatch() {
+        var parsers = Stream.of(PARSERS).map(parser -> {
+            var pattern     = Pattern.compile(parser[0]);
+            var lineAmount  = Integer.parseInt(parser[1]);
+            var lineBuffer  = new ArrayDeque<String>(lineAmount);
+            var destination = directory.resolve("join-" + parser[1] + "-" + parser[0].hashCode());
+            return (Consumer<LogEntry>) entry -> {
+                while (lineBuffer.size() >= lineAmount) {
+                    lineBuffer.removeFirst();
+                }
+                lineBuffer.add(entry.message());
+
+                var matcher = pattern.matcher(String.join(System.lineSeparator(), lineBuffer));
+                if (matcher.find()) {
+                    try {
+                        Files.write(
+                                destination,
+                                List.of(entry.time() + "," + matcher.group(1)),
+                                StandardCharsets.UTF_8,
+                                StandardOpenOption.APPEND,
+                                StandardOpenOption.CREATE
+                        );
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+        }).toList();
+
+        for (var entry : entries) {
+            parsers.forEach(parser -> parser.accept(entry));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
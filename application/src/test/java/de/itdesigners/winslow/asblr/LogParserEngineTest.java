@@ -0,0 +1,141 @@
+package de.itdesigners.winslow.asblr;
+
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogParserEngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesTheSameWindowsAsJoiningTheLastLines() throws IOException {
+        var messages = List.of("a", "", "b 1", "c", "", "", "b 2", "c", "d", "b 3", "c", "c");
+        var patterns = List.of("^b (\\d)$", "b (\\d)\\R+c", "^\\R", "c\\Rc$", "(?s)^a.*d$", "^$");
+
+        for (int lines = 1; lines <= 4; ++lines) {
+            var parsers = new ArrayList<LogParserEngine.Parser>();
+            for (int i = 0; i < patterns.size(); ++i) {
+                var destination = Optional.of(directory.resolve(lines + "-" + i));
+                parsers.add(new LogParserEngine.Parser(
+                        Pattern.compile(patterns.get(i)),
+                        lines,
+                        (e, m) -> destination,
+                        (e, m) -> e.time() + ":" + m.group().length()
+                ));
+            }
+
+            try (var engine = new LogParserEngine(parsers, (level, message) -> fail(message))) {
+                for (int time = 0; time < messages.size(); ++time) {
+                    engine.accept(entry(time, messages.get(time)));
+                }
+            }
+
+            for (int i = 0; i < patterns.size(); ++i) {
+                var pattern  = Pattern.compile(patterns.get(i));
+                var window   = new ArrayDeque<String>();
+                var expected = new ArrayList<String>();
+                for (int time = 0; time < messages.size(); ++time) {
+                    while (window.size() >= lines) {
+                        window.removeFirst();
+                    }
+                    window.add(messages.get(time));
+                    var matcher = pattern.matcher(String.join(System.lineSeparator(), window));
+                    if (matcher.find()) {
+                        expected.add(time + ":" + matcher.group().length());
+                    }
+                }
+
+                var destination = directory.resolve(lines + "-" + i);
+                var actual      = Files.exists(destination) ? Files.readAllLines(destination) : List.<String>of();
+                assertEquals(expected, actual, "lines=" + lines + ", pattern=" + patterns.get(i));
+            }
+        }
+    }
+
+    @Test
+    void writesOnFlushAndKeepsAppending() throws IOException {
+        var destination = directory.resolve("sub").resolve("out.csv");
+        Files.createDirectories(destination.getParent());
+        Files.writeString(destination, "existing" + System.lineSeparator());
+
+        var engine = new LogParserEngine(
+                List.of(new LogParserEngine.Parser(
+                        Pattern.compile("loss: (\\S+)"),
+                        1,
+                        (e, m) -> Optional.of(destination),
+                        (e, m) -> m.group(1)
+                )),
+                (level, message) -> fail(message)
+        );
+
+        engine.accept(entry(0, "loss: 0.5"));
+        engine.accept(entry(1, "something else"));
+        engine.accept(entry(2, "loss: 0.25"));
+        engine.flush();
+        assertEquals(List.of("existing", "0.5", "0.25"), Files.readAllLines(destination));
+
+        engine.close();
+        engine.accept(entry(3, "loss: 0.125"));
+        assertEquals(List.of("existing", "0.5", "0.25"), Files.readAllLines(destination));
+    }
+
+    @Test
+    void closesTheLeastRecentlyUsedDestinations() throws IOException {
+        var engine = new LogParserEngine(
+                List.of(new LogParserEngine.Parser(
+                        Pattern.compile("(\\d+)"),
+                        1,
+                        (e, m) -> Optional.of(directory.resolve(m.group(1) + ".csv")),
+                        (e, m) -> m.group(1)
+                )),
+                (level, message) -> fail(message)
+        );
+
+        var count = LogParserEngine.MAX_OPEN_WRITERS * 2;
+        for (int i = 0; i < count; ++i) {
+            engine.accept(entry(i, String.valueOf(i)));
+        }
+        // the evicted writers have been closed and therefore flushed
+        assertEquals(List.of("0"), Files.readAllLines(directory.resolve("0.csv")));
+        engine.close();
+        for (int i = 0; i < count; ++i) {
+            assertEquals(List.of(String.valueOf(i)), Files.readAllLines(directory.resolve(i + ".csv")));
+        }
+    }
+
+    @Test
+    void reportsInvalidDestinations() {
+        var messages = new ArrayList<String>();
+        try (var engine = new LogParserEngine(
+                List.of(new LogParserEngine.Parser(
+                        Pattern.compile("x"),
+                        1,
+                        (e, m) -> Optional.empty(),
+                        (e, m) -> m.group()
+                )),
+                (level, message) -> messages.add(message)
+        )) {
+            engine.accept(entry(0, "x"));
+            engine.accept(entry(1, "y"));
+        }
+        assertEquals(1, messages.size());
+    }
+
+    private static LogEntry entry(long time, String message) {
+        return new LogEntry(time, LogSource.STANDARD_IO, false, message);
+    }
+}
@@ -0,0 +1,130 @@
+package de.itdesigners.winslow.asblr;
+
+import de.itdesigners.winslow.fs.SnapshotStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Clones a workspace of 64 files with 4 MiB each (256 MiB in total), through the {@link WorkspaceCloner} and, for
+ * comparison, like {@link WorkspaceCreator} did before: on a single thread with a new 512 KiB buffer and a flush per
+ * chunk. The snapshot stores the source on its first invocation and afterwards only checks that it is unchanged.
+ * The target is deleted before each clone. The scores are clones per second.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WorkspaceClonerBenchmark {
+
+    private static final int FILES     = 64;
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    @Param({"legacy", "copy-1", "copy-4", "link-4", "snapshot"})
+    public String cloner;
+
+    private Path directory;
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory(WorkspaceClonerBenchmark.class.getSimpleName());
+        this.source    = Files.createDirectories(directory.resolve("source"));
+        this.target    = directory.resolve("target");
+
+        var random = new Random(42);
+        var bytes  = new byte[FILE_SIZE];
+        for (int i = 0; i < FILES; ++i) {
+            random.nextBytes(bytes);
+            Files.write(Files.createDirectories(source.resolve("dir-" + (i % 8))).resolve("file-" + i), bytes);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteTarget() throws IOException {
+        delete(target);
+    }
+
+    @Benchmark
+    public Object cloneWorkspace() throws IOException {
+        return switch (cloner) {
+            case "legacy" -> cloneLegacy();
+            case "copy-1" -> cloneWith(WorkspaceCloner.Mode.COPY, 1);
+            case "copy-4" -> cloneWith(WorkspaceCloner.Mode.COPY, 4);
+            case "link-4" -> cloneWith(WorkspaceCloner.Mode.LINK, 4);
+            case "snapshot" -> cloneSnapshot();
+            default -> throw new IllegalStateException("Unknown cloner " + cloner);
+        };
+    }
+
+    private WorkspaceCloner.Result cloneWith(WorkspaceCloner.Mode mode, int threads) throws IOException {
+        return new WorkspaceCloner(mode, threads).clone(source, target, message -> {}, () -> false);
+    }
+
+    private Path cloneSnapshot() throws IOException {
+        var store    = new SnapshotStore(directory.resolve(".snapshots"));
+        var manifest = store.snapshot(source, message -> {}, () -> false);
+        store.materialize(manifest, source, target, () -> false);
+        return target;
+    }
+
+    private Path cloneLegacy() throws IOException {
+        try (var walk = Files.walk(source)) {
+            for (var path : (Iterable<Path>) walk::iterator) {
+                var dst = target.resolve(source.relativize(path));
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(dst);
+                } else {
+                    try (var fis = new FileInputStream(path.toFile())) {
+                        try (var fos = new FileOutputStream(dst.toFile())) {
+                            while (true) {
+                                var chunk = new byte[512 * 1024];
+                                var read  = fis.read(chunk, 0, chunk.length);
+                                if (read >= 0) {
+                                    fos.write(chunk, 0, read);
+                                    fos.flush();
+                                } else {
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return target;
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.exists(path)) {
+            try (Stream<Path> walk = Files.walk(path)) {
+                for (var p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(p);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WorkspaceClonerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package de.itdesigners.winslow.asblr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceClonerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void copiesAllButHiddenEntries() throws IOException {
+        var source = createSource();
+        var target = directory.resolve("target");
+        var log    = new ArrayList<String>();
+
+        var result = new WorkspaceCloner(WorkspaceCloner.Mode.COPY, 3).clone(source, target, log::add, () -> false);
+
+        assertEquals(new WorkspaceCloner.Result(3, 0, 0, 3 + 1024 * 1024 + 5), result);
+        assertArrayEquals(Files.readAllBytes(source.resolve("big")), Files.readAllBytes(target.resolve("big")));
+        assertEquals("abc", Files.readString(target.resolve("a.txt")));
+        assertEquals("hello", Files.readString(target.resolve("dir/nested/b.txt")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertFalse(Files.exists(target.resolve(".hidden")));
+        assertFalse(Files.exists(target.resolve(".git")));
+        assertFalse(Files.isSameFile(source.resolve("a.txt"), target.resolve("a.txt")));
+        assertEquals(
+                Files.getLastModifiedTime(source.resolve("a.txt")),
+                Files.getLastModifiedTime(target.resolve("a.txt"))
+        );
+        assertTrue(log.contains("...b.txt"));
+    }
+
+    @Test
+    void skipsUnchangedFiles() throws IOException {
+        var source = createSource();
+        var target = directory.resolve("target");
+        var cloner = new WorkspaceCloner(WorkspaceCloner.Mode.COPY, 2);
+        cloner.clone(source, target, message -> {}, () -> false);
+
+        Files.writeString(source.resolve("a.txt"), "xyz");
+        Files.setLastModifiedTime(source.resolve("a.txt"), FileTime.fromMillis(0));
+
+        var result = cloner.clone(source, target, message -> {}, () -> false);
+
+        assertEquals(new WorkspaceCloner.Result(1, 0, 2, 3), result);
+        assertEquals("xyz", Files.readString(target.resolve("a.txt")));
+    }
+
+    @Test
+    void linksInLinkMode() throws IOException {
+        var source = createSource();
+        var target = directory.resolve("target");
+
+        var cloner = new WorkspaceCloner(WorkspaceCloner.Mode.LINK, 2);
+        var result = cloner.clone(source, target, message -> {}, () -> false);
+
+        assertEquals(new WorkspaceCloner.Result(0, 3, 0, 0), result);
+        assertTrue(Files.isSameFile(source.resolve("big"), target.resolve("big")));
+
+        // copying over a linked file must not modify the content of the source workspace
+        var other = Files.createDirectories(directory.resolve("other"));
+        Files.writeString(other.resolve("a.txt"), "other");
+        new WorkspaceCloner(WorkspaceCloner.Mode.COPY, 1).clone(other, target, message -> {}, () -> false);
+
+        assertEquals("other", Files.readString(target.resolve("a.txt")));
+        assertEquals("abc", Files.readString(source.resolve("a.txt")));
+    }
+
+    @Test
+    void abortsWhenRequested() throws IOException {
+        var source = createSource();
+        var target = directory.resolve("target");
+
+        assertThrows(
+                InterruptedIOException.class,
+                () -> new WorkspaceCloner().clone(source, target, message -> {}, () -> true)
+        );
+        assertFalse(Files.exists(target.resolve("big")));
+    }
+
+    private Path createSource() throws IOException {
+        var source = directory.resolve("source");
+        var big    = new byte[1024 * 1024];
+        new Random(42).nextBytes(big);
+
+        Files.createDirectories(source.resolve("dir/nested"));
+        Files.createDirectories(source.resolve("empty"));
+        Files.createDirectories(source.resolve(".git"));
+        Files.writeString(source.resolve("a.txt"), "abc");
+        Files.writeString(source.resolve("dir/nested/b.txt"), "hello");
+        Files.writeString(source.resolve(".hidden"), "secret");
+        Files.writeString(source.resolve(".git/config"), "secret");
+        Files.write(source.resolve("big"), big);
+        return source;
+    }
+}
@@ -0,0 +1,115 @@
+package de.itdesigners.winslow.fs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void aggregatesSizesOfAllFiles() throws IOException {
+        createTree();
+        var index = new DirectoryIndex(directory);
+
+        assertEquals(3 + 5 + 7, index.getSize(directory));
+        assertEquals(5 + 7, index.getSize(directory.resolve("a")));
+        assertEquals(7, index.getSize(directory.resolve("a/nested")));
+        assertEquals(0, index.getSize(directory.resolve("empty")));
+        assertEquals(0, index.getSize(directory.resolve("missing")));
+    }
+
+    @Test
+    void answersFromTheIndexUntilInvalidated() throws IOException {
+        createTree();
+        var index = new DirectoryIndex(directory);
+        assertEquals(15, index.getSize(directory));
+
+        Files.writeString(directory.resolve("a/nested/d.txt"), "1234567890");
+        Files.writeString(directory.resolve("b/e.txt"), "12");
+        assertEquals(15, index.getSize(directory));
+        assertEquals(12, index.getSize(directory.resolve("a")));
+
+        // the size of the sibling is still taken from the index
+        index.invalidate(directory.resolve("a/nested/d.txt"));
+        assertEquals(25, index.getSize(directory));
+        assertEquals(22, index.getSize(directory.resolve("a")));
+        assertEquals(17, index.getSize(directory.resolve("a/nested")));
+        assertEquals(3, index.getSize(directory.resolve("b")));
+
+        assertEquals(27, index.reconcile(directory));
+        assertEquals(5, index.getSize(directory.resolve("b")));
+    }
+
+    @Test
+    void dropsDeletedDirectories() throws IOException {
+        createTree();
+        var index = new DirectoryIndex(directory);
+        assertEquals(12, index.getSize(directory.resolve("a")));
+
+        Files.delete(directory.resolve("a/nested/c.txt"));
+        Files.delete(directory.resolve("a/nested"));
+        index.invalidate(directory.resolve("a/nested"));
+
+        assertEquals(5, index.getSize(directory.resolve("a")));
+        assertEquals(0, index.getSize(directory.resolve("a/nested")));
+    }
+
+    @Test
+    void reconcilesOutdatedSizesInTheBackground() throws IOException, InterruptedException {
+        createTree();
+        var index = new DirectoryIndex(directory, 0);
+        assertEquals(15, index.getSize(directory));
+        Thread.sleep(5);
+
+        Files.writeString(directory.resolve("b/e.txt"), "12");
+        assertEquals(15, index.getSize(directory));
+
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (index.getSize(directory) != 17 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(17, index.getSize(directory));
+    }
+
+    @Test
+    void cachesGitBranchUntilHeadIsModified() throws IOException {
+        var repository = Files.createDirectories(directory.resolve("repository"));
+        var head       = Files.createDirectories(repository.resolve(".git")).resolve("HEAD");
+        var index      = new DirectoryIndex(directory);
+
+        Files.writeString(head, "ref: refs/heads/main\n");
+        Files.setLastModifiedTime(head, FileTime.fromMillis(1_000_000));
+        assertEquals(Optional.of("main"), index.getGitBranch(repository));
+
+        Files.writeString(head, "ref: refs/heads/feature/x\n");
+        Files.setLastModifiedTime(head, FileTime.fromMillis(1_000_000));
+        assertEquals(Optional.of("main"), index.getGitBranch(repository));
+
+        Files.setLastModifiedTime(head, FileTime.fromMillis(2_000_000));
+        assertEquals(Optional.of("feature/x"), index.getGitBranch(repository));
+
+        Files.writeString(head, "0123456789abcdef0123456789abcdef01234567\n");
+        assertEquals(Optional.of("0123456789abcdef0123456789abcdef01234567"), index.getGitBranch(repository));
+
+        assertEquals(Optional.empty(), index.getGitBranch(directory));
+    }
+
+    private void createTree() throws IOException {
+        Files.createDirectories(directory.resolve("a/nested"));
+        Files.createDirectories(directory.resolve("b"));
+        Files.createDirectories(directory.resolve("empty"));
+        Files.writeString(directory.resolve("b/a.txt"), "abc");
+        Files.writeString(directory.resolve("a/b.txt"), "hello");
+        Files.writeString(directory.resolve("a/nested/c.txt"), "1234567");
+    }
+}
@@ -0,0 +1,110 @@
+package de.itdesigners.winslow.fs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void lockIsVisibleToOtherInstance() throws IOException, LockException {
+        var first  = new LockBus("first", directory, LockBus.StorageMode.SEGMENTS);
+        var second = new LockBus("second", directory, LockBus.StorageMode.SEGMENTS);
+
+        var token = first.lock("subject", 10_000);
+        assertTrue(second.isLocked("subject"));
+        assertTrue(second.isLockedByAnotherInstance("subject"));
+        assertThrows(LockAlreadyExistsException.class, () -> second.lock("subject", 10_000));
+
+        assertTrue(first.release(token));
+        assertFalse(second.isLocked("subject"));
+        assertNotNull(second.lock("subject", 10_000));
+    }
+
+    @Test
+    void appendedEventIsReadBack() throws IOException, LockException {
+        var log   = new EventSegmentLog(directory);
+        var event = event("subject");
+
+        log.append(event);
+        assertTrue(log.hasNext());
+        assertEquals(event, log.loadNext().orElseThrow().event());
+        assertFalse(log.hasNext());
+        assertTrue(log.loadNext().isEmpty());
+    }
+
+    @Test
+    void appendFailsIfPositionIsAlreadyTaken() throws IOException, LockException {
+        var first  = new EventSegmentLog(directory);
+        var second = new EventSegmentLog(directory);
+
+        first.append(event("first"));
+        assertThrows(IOException.class, () -> second.append(event("second")));
+
+        assertEquals("first", second.loadNext().orElseThrow().event().getSubject());
+        second.append(event("second"));
+        assertEquals("first", first.loadNext().orElseThrow().event().getSubject());
+        assertEquals("second", first.loadNext().orElseThrow().event().getSubject());
+    }
+
+    @Test
+    void tornTailIsIgnoredByReadersAndTruncatedByNextWriter() throws IOException, LockException {
+        var log   = new EventSegmentLog(directory);
+        var first = event("first");
+        log.append(first);
+        assertEquals(first, log.loadNext().orElseThrow().event());
+
+        // a crashed writer left an incomplete record behind
+        var segment = directory.resolve(EventSegmentLog.SEGMENT_PREFIX + "00000000" + EventSegmentLog.SEGMENT_SUFFIX);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        assertFalse(log.hasNext());
+
+        var second = event("second");
+        log.append(second);
+        assertEquals(second, log.loadNext().orElseThrow().event());
+
+        var reader = new EventSegmentLog(directory);
+        assertEquals(first, reader.loadNext().orElseThrow().event());
+        assertEquals(second, reader.loadNext().orElseThrow().event());
+        assertTrue(reader.loadNext().isEmpty());
+    }
+
+    @Test
+    void rotationStartsNextSegmentWithSnapshotOfLiveLocks() throws IOException, LockException {
+        var log      = new EventSegmentLog(directory, 1);
+        var lock     = event("locked");
+        var released = event("released");
+
+        log.append(lock);
+        log.loadNext().orElseThrow();
+        log.append(released);
+        log.loadNext().orElseThrow();
+        log.cleanup(List.of(lock));
+
+        // the snapshot is only of interest to new readers
+        assertTrue(log.loadNext().isEmpty());
+
+        var reader = new EventSegmentLog(directory, 1);
+        assertEquals(lock, reader.loadNext().orElseThrow().event());
+        assertTrue(reader.loadNext().isEmpty());
+
+        var next = event("next");
+        log.append(next);
+        assertEquals(next, log.loadNext().orElseThrow().event());
+        assertEquals(next, reader.loadNext().orElseThrow().event());
+    }
+
+    private static Event event(String subject) {
+        return new Event(subject + "-id", Event.Command.LOCK, System.currentTimeMillis(), 10_000, subject, "test");
+    }
+}
@@ -0,0 +1,81 @@
+package de.itdesigners.winslow.fs;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link LockBus.StorageMode}s by the throughput of lock/release cycles of a single
+ * instance and by the latency until an {@link Event} published by one instance reaches the
+ * listener of another instance that shares the same event directory.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LockBusBenchmark {
+
+    @Param({"EVENT_FILES", "SEGMENTS"})
+    public LockBus.StorageMode mode;
+
+    private final BlockingQueue<String> observed = new LinkedBlockingQueue<>();
+
+    private Path    directory;
+    private LockBus publisher;
+    private int     counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LockException {
+        this.directory = Files.createTempDirectory("lock-bus-benchmark");
+        this.publisher = new LockBus("publisher", directory, mode);
+
+        var observer = new LockBus("observer", directory, mode);
+        observer.registerEventListener(
+                Event.Command.KILL,
+                event -> observed.add(event.getSubject()),
+                LockBus.RegistrationOption.NOTIFY_ONLY_IF_ISSUER_IS_NOT_US
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void lockAndRelease() throws LockException {
+        var token = publisher.lock("subject-" + (counter++ % 100), 10_000);
+        publisher.release(token);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String propagateToOtherInstance() throws LockException, InterruptedException {
+        var subject = "kill-" + (counter++);
+        publisher.publishCommand(Event.Command.KILL, subject);
+
+        String received;
+        do {
+            received = observed.poll(10, TimeUnit.SECONDS);
+        } while (received != null && !received.equals(subject));
+        return received;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LockBusBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package de.itdesigners.winslow.fs;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work of one iteration of the {@link LockBus} watch loop (next expiry and expired locks)
+ * and of lock lookups with 10k live locks. The {@code *ByScan} variants replicate the former full
+ * iteration of a {@link HashMap} for comparison.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LockTableBenchmark {
+
+    private static final int LOCKS = 10_000;
+
+    private final LockTable          table = new LockTable();
+    private final Map<String, Event> map   = new HashMap<>();
+
+    private long now;
+    private int  counter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.now = System.currentTimeMillis();
+        for (int i = 0; i < LOCKS; ++i) {
+            var event = new Event("id-" + i, Event.Command.LOCK, now + i, 60_000, "subject-" + i, "benchmark");
+            this.table.put(event);
+            this.map.put(event.getSubject(), event);
+        }
+    }
+
+    @Benchmark
+    public Object watchLoopIterationByIndex() {
+        var next    = this.table.getNextExpiry();
+        var expired = this.table.pollSurelyOutOfDate(now);
+        return next.isPresent() ? expired : null;
+    }
+
+    @Benchmark
+    public Object watchLoopIterationByScan() {
+        var expiresNext = Optional.<Long>empty();
+        for (var entry : this.map.entrySet()) {
+            var expiresAt = LockTable.surelyOutOfDateAt(entry.getValue());
+            if (expiresNext.isEmpty() || expiresNext.get() > expiresAt) {
+                expiresNext = Optional.of(expiresAt);
+            }
+        }
+        List<Event> expired = new ArrayList<>(this.map.size());
+        for (var entry : this.map.entrySet()) {
+            if (LockTable.surelyOutOfDateAt(entry.getValue()) < now) {
+                expired.add(entry.getValue());
+            }
+        }
+        return expiresNext.isPresent() ? expired : null;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Event> lookup() {
+        return this.table.get("subject-" + (counter++ % LOCKS));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public synchronized Optional<Event> lookupSynchronized() {
+        return Optional.ofNullable(this.map.get("subject-" + (counter++ % LOCKS)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LockTableBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package de.itdesigners.winslow.fs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockTableTest {
+
+    @Test
+    void removeRequiresMatchingId() {
+        var table = new LockTable();
+        table.put(lock("a", "subject", 0, 1_000));
+
+        assertFalse(table.remove("subject", "b"));
+        assertTrue(table.get("subject").isPresent());
+        assertTrue(table.remove("subject", "a"));
+        assertTrue(table.get("subject").isEmpty());
+        assertFalse(table.remove("subject", "a"));
+    }
+
+    @Test
+    void nextExpiryIgnoresReleasedAndExtendedLocks() {
+        var table    = new LockTable();
+        var first    = lock("a", "first", 1_000, 1_000);
+        var second   = lock("b", "second", 2_000, 1_000);
+        var extended = lock("b", "second", 5_000, 1_000);
+
+        table.put(first);
+        table.put(second);
+        assertEquals(LockTable.surelyOutOfDateAt(first), table.getNextExpiry().orElseThrow());
+
+        table.remove("first", "a");
+        assertEquals(LockTable.surelyOutOfDateAt(second), table.getNextExpiry().orElseThrow());
+
+        table.put(extended);
+        assertEquals(LockTable.surelyOutOfDateAt(extended), table.getNextExpiry().orElseThrow());
+
+        table.remove("second", "b");
+        assertTrue(table.getNextExpiry().isEmpty());
+    }
+
+    @Test
+    void pollReturnsOnlySurelyOutOfDateLocks() {
+        var table   = new LockTable();
+        var expired = lock("a", "expired", 1_000, 1_000);
+        var valid   = lock("b", "valid", 100_000, 1_000);
+
+        table.put(valid);
+        table.put(expired);
+
+        var now = LockTable.surelyOutOfDateAt(expired) + 1;
+        assertEquals(List.of(expired), table.pollSurelyOutOfDate(now));
+        assertEquals(List.of(), table.pollSurelyOutOfDate(now));
+
+        // still locked until released explicitly, but can be scheduled again
+        assertEquals(expired, table.get("expired").orElseThrow());
+        table.reschedule(expired);
+        assertEquals(List.of(expired), table.pollSurelyOutOfDate(now));
+    }
+
+    private static Event lock(String id, String subject, long time, long duration) {
+        return new Event(id, Event.Command.LOCK, time, duration, subject, "test");
+    }
+}
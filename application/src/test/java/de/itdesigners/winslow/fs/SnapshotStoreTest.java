@@ -0,0 +1,189 @@
+package de.itdesigners.winslow.fs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void materializesSnapshotThroughLinks() throws IOException {
+        var store  = new SnapshotStore(directory.resolve(".snapshots"));
+        var source = createWorkspace("source");
+        var target = directory.resolve("target");
+
+        var manifest = store.snapshot(source, message -> {}, () -> false);
+        store.materialize(manifest, source, target, () -> false);
+
+        assertEquals("abc", Files.readString(target.resolve("a.txt")));
+        assertEquals("hello", Files.readString(target.resolve("dir/nested/b.txt")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertEquals(Path.of("a.txt"), Files.readSymbolicLink(target.resolve("link")));
+        assertFalse(Files.exists(target.resolve(".hidden")));
+        assertTrue(Files.isSameFile(source.resolve("a.txt"), target.resolve("a.txt")));
+        assertEquals(manifest, SnapshotStore.readManifest(target).orElseThrow());
+        assertEquals(manifest, SnapshotStore.readManifest(source).orElseThrow());
+    }
+
+    @Test
+    void sharedFilesAreReadOnly() throws IOException {
+        var store  = new SnapshotStore(directory.resolve(".snapshots"));
+        var source = createWorkspace("source");
+        var target = directory.resolve("target");
+        store.materialize(store.snapshot(source, message -> {}, () -> false), source, target, () -> false);
+
+        for (var file : List.of(source.resolve("a.txt"), target.resolve("a.txt"), target.resolve("dir/nested/b.txt"))) {
+            var permissions = Files.getPosixFilePermissions(file);
+            assertTrue(permissions.contains(PosixFilePermission.OWNER_READ), file + ": " + permissions);
+            assertFalse(permissions.contains(PosixFilePermission.OWNER_WRITE), file + ": " + permissions);
+            assertFalse(permissions.contains(PosixFilePermission.GROUP_WRITE), file + ": " + permissions);
+            assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE), file + ": " + permissions);
+        }
+
+        // replacing a shared file is still possible
+        Files.delete(target.resolve("a.txt"));
+        Files.writeString(target.resolve("a.txt"), "replaced");
+        assertEquals("abc", Files.readString(source.resolve("a.txt")));
+    }
+
+    @Test
+    void storesEqualContentOnce() throws IOException {
+        var store  = new SnapshotStore(directory.resolve(".snapshots"));
+        var first  = createWorkspace("first");
+        var second = createWorkspace("second");
+
+        store.snapshot(first, message -> {}, () -> false);
+        store.snapshot(second, message -> {}, () -> false);
+
+        assertTrue(Files.isSameFile(first.resolve("a.txt"), second.resolve("a.txt")));
+        assertTrue(Files.isSameFile(first.resolve("dir/nested/b.txt"), second.resolve("dir/nested/b.txt")));
+        assertEquals(2, countObjects());
+    }
+
+    @Test
+    void onlyStoresChangedFilesAgain() throws IOException {
+        var store  = new SnapshotStore(directory.resolve(".snapshots"));
+        var source = createWorkspace("source");
+        var target = directory.resolve("target");
+        store.materialize(store.snapshot(source, message -> {}, () -> false), source, target, () -> false);
+
+        // a stage replaces one file and modifies another one in place, which the source sees as well
+        Files.delete(target.resolve("a.txt"));
+        Files.writeString(target.resolve("a.txt"), "replaced");
+        modifyInPlace(target.resolve("dir/nested/b.txt"), "modified");
+        Files.writeString(target.resolve("c.txt"), "new");
+
+        var stored = new ArrayList<String>();
+        store.snapshot(target, stored::add, () -> false);
+
+        assertEquals(
+                List.of(
+                        "...a.txt",
+                        "...b.txt",
+                        "...c.txt",
+                        "Shared file has been modified in place, which changed it in 1 other workspace(s) as well: dir/nested/b.txt"
+                ),
+                stored.stream().sorted().toList()
+        );
+        assertEquals("abc", Files.readString(source.resolve("a.txt")));
+        assertEquals("modified", Files.readString(source.resolve("dir/nested/b.txt")));
+        assertEquals(4, countObjects());
+
+        stored.clear();
+        store.snapshot(target, stored::add, () -> false);
+        assertEquals(List.of(), stored);
+    }
+
+    @Test
+    void snapshotsTheSameWorkspaceConcurrently() throws Exception {
+        var store    = new SnapshotStore(directory.resolve(".snapshots"));
+        var source   = createWorkspace("source");
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<SnapshotStore.Manifest>>();
+            for (int i = 0; i < 8; ++i) {
+                futures.add(executor.submit(() -> store.snapshot(source, message -> {}, () -> false)));
+            }
+            for (var future : futures) {
+                assertEquals(futures.get(0).get(), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (var files = Files.list(source)) {
+            assertEquals(List.of(), files.filter(f -> f.getFileName().toString().startsWith(".winslow-snapshot-")).toList());
+        }
+        assertTrue(SnapshotStore.readManifest(source).isPresent());
+    }
+
+    @Test
+    void releasesObjectsNoLongerReferenced() throws IOException {
+        var store  = new SnapshotStore(directory.resolve(".snapshots"));
+        var source = createWorkspace("source");
+        var target = directory.resolve("target");
+        store.materialize(store.snapshot(source, message -> {}, () -> false), source, target, () -> false);
+        Files.delete(target.resolve("a.txt"));
+        Files.writeString(target.resolve("a.txt"), "replaced");
+        var manifest = store.snapshot(target, message -> {}, () -> false);
+
+        delete(target);
+        assertEquals(1, store.release(manifest));
+        assertEquals(2, countObjects());
+
+        delete(source);
+        assertEquals(2, store.collectGarbage());
+        assertEquals(0, countObjects());
+    }
+
+    private Path createWorkspace(String name) throws IOException {
+        var workspace = directory.resolve(name);
+        Files.createDirectories(workspace.resolve("dir/nested"));
+        Files.createDirectories(workspace.resolve("empty"));
+        Files.writeString(workspace.resolve("a.txt"), "abc");
+        Files.writeString(workspace.resolve("dir/nested/b.txt"), "hello");
+        Files.writeString(workspace.resolve(".hidden"), "secret");
+        Files.createSymbolicLink(workspace.resolve("link"), Path.of("a.txt"));
+        return workspace;
+    }
+
+    /**
+     * Like a stage that ignores the read-only permission of a shared file
+     */
+    private static void modifyInPlace(Path file, String content) throws IOException {
+        var permissions = new HashSet<>(Files.getPosixFilePermissions(file));
+        permissions.add(PosixFilePermission.OWNER_WRITE);
+        Files.setPosixFilePermissions(file, permissions);
+        Files.writeString(file, content);
+    }
+
+    private long countObjects() throws IOException {
+        try (var files = Files.walk(directory.resolve(".snapshots").resolve("objects"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (var p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
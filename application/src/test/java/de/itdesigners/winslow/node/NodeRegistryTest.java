@@ -0,0 +1,153 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.*;
+import de.itdesigners.winslow.fs.DockerVolumeTargetConfiguration;
+import de.itdesigners.winslow.fs.LockBus;
+import de.itdesigners.winslow.fs.LockException;
+import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
+import de.itdesigners.winslow.web.websocket.ChangeEvent;
+import org.javatuples.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeRegistryTest {
+
+    private static final long MAX_AGE_MS = 15_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void notifiesCreateUpdateAndDelete() {
+        var registry = new NodeRegistry(MAX_AGE_MS);
+        var events   = new ArrayList<Pair<ChangeEvent.ChangeType, String>>();
+        registry.addChangeListener((type, name) -> events.add(new Pair<>(type, name)));
+
+        var now = System.currentTimeMillis();
+        registry.update("node", info("node", 1), now);
+        registry.update("node", info("node", 2), now);
+        registry.update("stale", info("stale", 1), now - MAX_AGE_MS);
+        registry.expire();
+
+        assertEquals(
+                List.of(
+                        new Pair<>(ChangeEvent.ChangeType.CREATE, "node"),
+                        new Pair<>(ChangeEvent.ChangeType.UPDATE, "node"),
+                        new Pair<>(ChangeEvent.ChangeType.CREATE, "stale"),
+                        new Pair<>(ChangeEvent.ChangeType.DELETE, "stale")
+                ),
+                events
+        );
+        assertEquals(Optional.of(info("node", 2)), registry.getActiveNode("node"));
+        assertEquals(Optional.empty(), registry.getActiveNode("stale"));
+        assertNull(registry.getLastSeen("stale"));
+    }
+
+    @Test
+    void versionChangesWithEachChange() {
+        var registry = new NodeRegistry(MAX_AGE_MS);
+        var initial  = registry.getVersion();
+
+        registry.update("node", info("node", 1), System.currentTimeMillis());
+        var updated = registry.getVersion();
+        assertNotEquals(initial, updated);
+
+        registry.expire();
+        assertEquals(updated, registry.getVersion());
+
+        registry.update("stale", info("stale", 1), 0);
+        var added = registry.getVersion();
+        registry.expire();
+        assertNotEquals(added, registry.getVersion());
+    }
+
+    @Test
+    void staleNodesAreNotActiveBeforeBeingExpired() {
+        var registry = new NodeRegistry(MAX_AGE_MS);
+        registry.update("node", info("node", 1), System.currentTimeMillis());
+        registry.update("stale", info("stale", 1), System.currentTimeMillis() - MAX_AGE_MS);
+
+        assertEquals(List.of("node"), registry.getActiveNodeNames());
+        assertEquals(List.of(info("node", 1)), registry.getActiveNodes());
+    }
+
+    @Test
+    void repositorySeesNodesOfOtherInstances() throws IOException, LockException, InterruptedException {
+        var config = configuration();
+        var local  = new NodeRepository(new LockBus("local", config.getEventsDirectory()), config);
+        local.updateNodeInfo(info("local", 1));
+        local.setNodeResourceLimitConfiguration("local", NodeResourceLimitFinder.ONLY_FOR_PRIVILEGED);
+        local.updateUtilizationLog(info("local", 1));
+
+        assertEquals(Optional.of(info("local", 1)), local.getNodeInfo("local"));
+
+        var remote = new NodeRepository(new LockBus("remote", config.getEventsDirectory()), config);
+        var events = new ArrayList<Pair<ChangeEvent.ChangeType, String>>();
+        remote.addChangeListener((type, name) -> events.add(new Pair<>(type, name)));
+
+        assertEquals(List.of("local"), remote.listActiveNodes().toList());
+        assertEquals(List.of(info("local", 1)), remote.loadActiveNodes().toList());
+
+        var file = config.getNodesDirectory().resolve("local");
+        local.updateNodeInfo(info("local", 2));
+        // pretend the last heartbeat is about to time out
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - MAX_AGE_MS + 1_000));
+        remote.refreshRegistry();
+        assertEquals(Optional.of(info("local", 2)), remote.getNodeInfo("local"));
+
+        Thread.sleep(1_000);
+        remote.refreshRegistry();
+        assertEquals(Optional.empty(), remote.getNodeInfo("local"));
+
+        assertEquals(
+                List.of(
+                        new Pair<>(ChangeEvent.ChangeType.UPDATE, "local"),
+                        new Pair<>(ChangeEvent.ChangeType.DELETE, "local")
+                ),
+                events
+        );
+    }
+
+    @Nonnull
+    private WorkDirectoryConfiguration configuration() {
+        return new WorkDirectoryConfiguration() {
+            @Nonnull
+            @Override
+            public Path getPath() {
+                return directory;
+            }
+
+            @Nonnull
+            @Override
+            public Optional<DockerVolumeTargetConfiguration> getDockerVolumeConfiguration(@Nonnull Path path) {
+                return Optional.empty();
+            }
+        };
+    }
+
+    @Nonnull
+    private static NodeInfo info(@Nonnull String name, long time) {
+        return new NodeInfo(
+                name,
+                time,
+                time,
+                new CpuInfo("cpu", List.of(0.5f)),
+                new MemInfo(1024, 512, 0, 0, 0),
+                new NetInfo(0, 0),
+                new DiskInfo(0, 0, 1024, 0),
+                List.of(),
+                List.of()
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Averages 10k samples of a node with 128 cores and 8 GPUs, as done per chunk of a utilization query, at once
+ * and by merging the partial results of both halves
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NodeUtilizationAverageBenchmark {
+
+    private static final int SAMPLES = 10_000;
+    private static final int CORES   = 128;
+    private static final int GPUS    = 8;
+
+    private List<NodeUtilization> samples;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new Random(42);
+        this.samples = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; ++i) {
+            var cpus = new ArrayList<Float>(CORES);
+            for (int c = 0; c < CORES; ++c) {
+                cpus.add(random.nextFloat() * 100);
+            }
+            var gpus = new ArrayList<GpuUtilization>(GPUS);
+            for (int g = 0; g < GPUS; ++g) {
+                gpus.add(new GpuUtilization(random.nextFloat(), random.nextFloat(), random.nextInt(80_000), 80_000));
+            }
+            this.samples.add(new NodeUtilization(
+                    i * 1000L,
+                    i,
+                    cpus,
+                    new MemInfo(1L << 40, random.nextLong(1L << 40), 1L << 30, 0, 0),
+                    new NetInfo(random.nextInt(), random.nextInt()),
+                    new DiskInfo(random.nextInt(), random.nextInt(), 1L << 42, 1L << 41),
+                    gpus
+            ));
+        }
+    }
+
+    @Benchmark
+    public NodeUtilization average() {
+        return NodeUtilization.average(0, SAMPLES, samples);
+    }
+
+    @Benchmark
+    public NodeUtilization mergeHalves() {
+        var first  = new NodeUtilizationAccumulator();
+        var second = new NodeUtilizationAccumulator();
+        for (int i = 0; i < SAMPLES; ++i) {
+            (i < SAMPLES / 2 ? first : second).add(samples.get(i));
+        }
+        first.merge(second);
+        return first.average();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NodeUtilizationAverageBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,140 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.fs.DockerVolumeTargetConfiguration;
+import de.itdesigners.winslow.api.node.*;
+import de.itdesigners.winslow.fs.LockBus;
+import de.itdesigners.winslow.fs.LockException;
+import de.itdesigners.winslow.fs.WorkDirectoryConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Queries the utilization of a node for a month of samples taken once per minute, as stored by
+ * {@link NodeRepository} in the legacy CSV files or in the binary series of {@link UtilizationStore}.
+ * The size of the stored files is printed on setup.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NodeUtilizationBenchmark {
+
+    private static final String NODE    = "node";
+    private static final long   MINUTE  = Duration.ofMinutes(1).toMillis();
+    private static final int    SAMPLES = (int) (NodeRepository.MAX_RETENTION_TIME_MS / MINUTE);
+
+    @Param({"csv", "series"})
+    public String storage;
+
+    @Param({"60000", "3600000"})
+    public long chunkSpanMillis;
+
+    private Path           directory;
+    private NodeRepository repository;
+    private long           end;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LockException {
+        this.directory = Files.createTempDirectory(NodeUtilizationBenchmark.class.getSimpleName());
+        var config = new WorkDirectoryConfiguration() {
+            @Nonnull
+            @Override
+            public Path getPath() {
+                return directory;
+            }
+
+            @Nonnull
+            @Override
+            public Optional<DockerVolumeTargetConfiguration> getDockerVolumeConfiguration(@Nonnull Path path) {
+                return Optional.empty();
+            }
+        };
+        this.repository = new NodeRepository(new LockBus("benchmark", config.getEventsDirectory()), config);
+        this.end        = System.currentTimeMillis();
+
+        var  random = new Random(42);
+        var  logs   = config.getNodesDirectory().resolve(NODE + "-log");
+        Path csv    = null;
+        for (int i = 0; i < SAMPLES; ++i) {
+            var utilization = utilization(random, end - (long) (SAMPLES - i) * MINUTE);
+            if ("csv".equals(storage)) {
+                var line = (utilization.toCsvLine() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+                if (csv == null || Files.size(csv) + line.length > NodeRepository.CSV_MAGIC_FILE_SIZE_LIMIT) {
+                    csv = logs.resolve(NODE + NodeRepository.CSV_SUFFIX_SEPARATOR + utilization.time() + NodeRepository.CSV_SUFFIX);
+                    Files.createDirectories(logs);
+                }
+                Files.write(csv, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } else {
+                repository.updateUtilizationLog(NODE, utilization);
+            }
+        }
+
+        try (var files = Files.walk(logs)) {
+            System.out.printf(
+                    "%n%s=%d bytes for %d samples%n",
+                    storage,
+                    files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum(),
+                    SAMPLES
+            );
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<NodeUtilization> queryMonth() {
+        return repository
+                .getNodeUtilizationBetween(NODE, end - NodeRepository.MAX_RETENTION_TIME_MS, end, chunkSpanMillis)
+                .collect(Collectors.toList());
+    }
+
+    private static NodeUtilization utilization(@Nonnull Random random, long time) {
+        var cpus = new ArrayList<Float>();
+        for (int i = 0; i < 16; ++i) {
+            cpus.add(random.nextFloat() * 100);
+        }
+        var gpus = new ArrayList<GpuUtilization>();
+        for (int i = 0; i < 2; ++i) {
+            gpus.add(new GpuUtilization(random.nextFloat() * 100, random.nextFloat() * 100, random.nextInt(24_000), 24_000));
+        }
+        return new NodeUtilization(
+                time,
+                time / 1000,
+                cpus,
+                new MemInfo(64L << 30, random.nextLong(64L << 30), 4L << 30, 8L << 30, 8L << 30),
+                new NetInfo(random.nextInt(1 << 20), random.nextInt(1 << 20)),
+                new DiskInfo(random.nextInt(1 << 24), random.nextInt(1 << 24), 1L << 40, 1L << 39),
+                gpus
+        );
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NodeUtilizationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
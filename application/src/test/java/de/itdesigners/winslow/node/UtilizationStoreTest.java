@@ -0,0 +1,155 @@
+package de.itdesigners.winslow.node;
+
+import de.itdesigners.winslow.api.node.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilizationStoreTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR   = Duration.ofHours(1).toMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void codecRestoresChangingRecords() throws IOException {
+        var records = List.of(
+                utilization(MINUTE, 1.5f, 1),
+                utilization(2 * MINUTE, 99.25f, 2),
+                new NodeUtilization(
+                        3 * MINUTE,
+                        3 * MINUTE,
+                        List.of(0.1f),
+                        new MemInfo(1, 2, 3, 4, 5),
+                        new NetInfo(-1, Long.MAX_VALUE),
+                        new DiskInfo(0, 0, 0, 0),
+                        List.of()
+                )
+        );
+
+        var output  = new ByteArrayOutputStream();
+        var encoder = new UtilizationCodec();
+        for (var record : records) {
+            encoder.encode(record, output);
+        }
+
+        var bytes   = output.toByteArray();
+        var input   = new ByteArrayInputStream(bytes);
+        var decoder = new UtilizationCodec();
+        for (var record : records) {
+            assertEquals(record, decoder.decode(input));
+        }
+
+        var incomplete = new ByteArrayInputStream(bytes, 0, bytes.length - 1);
+        var truncated  = new UtilizationCodec();
+        truncated.decode(incomplete);
+        truncated.decode(incomplete);
+        assertThrows(EOFException.class, () -> truncated.decode(incomplete));
+    }
+
+    @Test
+    void readsTheCoarsestRollupAndTheUnfinishedBucketsFromFinerSeries() throws IOException {
+        var store = store();
+        for (int i = 0; i < 150; ++i) {
+            store.append("node", utilization(i * MINUTE, i, 1));
+        }
+
+        var raw = store.read("node", UtilizationStore.Resolution.RAW, 0, Long.MAX_VALUE);
+        assertEquals(150, raw.size());
+
+        var hours = store.read("node", UtilizationStore.Resolution.HOUR, 0, Long.MAX_VALUE);
+        assertEquals(List.of(0L, HOUR), hours.stream().map(NodeUtilization::time).toList());
+        assertEquals(29.5f, hours.get(0).cpuUtilization().get(0), 0.01f);
+        assertEquals(89.5f, hours.get(1).cpuUtilization().get(0), 0.01f);
+
+        var quarters = store.read("node", UtilizationStore.Resolution.QUARTER_HOUR, 0, Long.MAX_VALUE);
+        assertEquals(9, quarters.size());
+
+        // two hours, the first quarter of the third hour, the minutes of the unfinished quarter and the last raw record
+        var result = store.read("node", UtilizationStore.Resolution.HOUR, 0, Long.MAX_VALUE, (start, end) -> fail());
+        assertEquals(2 + 1 + 14 + 1, result.size());
+        assertEquals(149 * MINUTE, result.get(result.size() - 1).time());
+        for (int i = 1; i < result.size(); ++i) {
+            assertTrue(result.get(i - 1).time() < result.get(i).time());
+        }
+    }
+
+    @Test
+    void readsRecordsBeforeTheRawSeriesFromTheFallback() throws IOException {
+        var store = store();
+        store.append("node", utilization(10 * MINUTE, 1, 1));
+
+        var requested = new ArrayList<Long>();
+        var result = store.read("node", UtilizationStore.Resolution.RAW, MINUTE, 20 * MINUTE, (start, end) -> {
+            requested.add(start);
+            requested.add(end);
+            return List.of(utilization(MINUTE, 0, 1));
+        });
+
+        assertEquals(List.of(MINUTE, 10 * MINUTE - 1), requested);
+        assertEquals(List.of(MINUTE, 10 * MINUTE), result.stream().map(NodeUtilization::time).toList());
+    }
+
+    @Test
+    void continuesAfterRestartAndDiscardsIncompleteRecords() throws IOException {
+        var store = store();
+        for (int i = 0; i < 20; ++i) {
+            store.append("node", utilization(i * MINUTE, i, 1));
+        }
+
+        try (var segments = Files.list(directory.resolve("node").resolve("raw"))) {
+            var segment = segments.findFirst().orElseThrow();
+            Files.write(segment, new byte[]{(byte) 0x80}, StandardOpenOption.APPEND);
+        }
+
+        var restarted = store();
+        for (int i = 20; i < 40; ++i) {
+            restarted.append("node", utilization(i * MINUTE, i, 1));
+        }
+
+        var raw = restarted.read("node", UtilizationStore.Resolution.RAW, 0, Long.MAX_VALUE);
+        assertEquals(40, raw.size());
+        for (int i = 0; i < raw.size(); ++i) {
+            assertEquals(utilization(i * MINUTE, i, 1), raw.get(i));
+        }
+
+        // the bucket of the second quarter spans the restart
+        var quarters = restarted.read("node", UtilizationStore.Resolution.QUARTER_HOUR, 0, Long.MAX_VALUE);
+        assertEquals(2, quarters.size());
+        assertEquals(22f, quarters.get(1).cpuUtilization().get(0), 0.01f);
+    }
+
+    private UtilizationStore store() {
+        return new UtilizationStore(directory::resolve, 1024, Long.MAX_VALUE);
+    }
+
+    private static NodeUtilization utilization(long time, float cpu, int gpus) {
+        var gpuUtilization = new ArrayList<GpuUtilization>();
+        for (int i = 0; i < gpus; ++i) {
+            gpuUtilization.add(new GpuUtilization(cpu / 2, cpu / 4, 1024 + i, 8192));
+        }
+        return new NodeUtilization(
+                time,
+                time + 1000,
+                List.of(cpu, 100 - cpu),
+                new MemInfo(16L << 30, (8L << 30) - (long) cpu, 1L << 30, 0, 0),
+                new NetInfo(1000 + (long) cpu, 500),
+                new DiskInfo(0, 4096, 1L << 40, 1L << 39),
+                gpuUtilization
+        );
+    }
+}
@@ -0,0 +1,126 @@
+package de.itdesigners.winslow.project;
+
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes log lines through the {@link LogLineCodec} and, for comparison, through
+ * {@link SimpleDateFormat} and {@link String} operations, as {@link LogWriter} and {@link LogReader} did before.
+ * The scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogCodecBenchmark {
+
+    private static final int LINES = 10_000;
+
+    private LogEntry[]   entries;
+    private byte[]       encoded;
+    private byte[]       buffer;
+    private LogLineCodec codec;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new Random(42);
+        var time   = 1_678_900_000_000L;
+
+        this.entries = new LogEntry[LINES];
+        for (int i = 0; i < LINES; ++i) {
+            time += random.nextInt(40);
+            this.entries[i] = new LogEntry(
+                    time,
+                    LogSource.STANDARD_IO,
+                    random.nextInt(50) == 0,
+                    String.format("%d/10000 - loss: %.4f - accuracy: %.4f", i, random.nextDouble(), random.nextDouble())
+            );
+        }
+
+        this.codec  = new LogLineCodec();
+        this.buffer = new byte[LogWriter.FLUSH_SIZE * 2];
+
+        var output = new ByteArrayOutputStream();
+        for (var entry : entries) {
+            var line = new byte[LogLineCodec.maxEncodedLength(entry)];
+            output.write(line, 0, codec.encode(entry, line, 0));
+        }
+        this.encoded = output.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int encode() {
+        var position = 0;
+        var written  = 0;
+        for (var entry : entries) {
+            if (position + LogLineCodec.maxEncodedLength(entry) > buffer.length) {
+                written += position;
+                position = 0;
+            }
+            position = codec.encode(entry, buffer, position);
+        }
+        return written + position;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int encodeSimpleDateFormat() {
+        var format  = new SimpleDateFormat(LogWriter.DATE_FORMAT);
+        var written = 0;
+        for (var entry : entries) {
+            var line = String.join(
+                    LogWriter.LOG_SEPARATOR,
+                    format.format(new Date(entry.time())),
+                    LogWriter.TRIPLE_STANDARD_IO + (entry.error() ? "err" : "out"),
+                    entry.message()
+            ) + LogWriter.LINE_SEPARATOR;
+            written += line.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return written;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long decode() {
+        return LogReader.stream(new ByteArrayInputStream(encoded)).mapToLong(LogEntry::time).sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long decodeSimpleDateFormat() throws IOException, ParseException {
+        var format = new SimpleDateFormat(LogWriter.DATE_FORMAT);
+        var reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(encoded), StandardCharsets.UTF_8));
+        var sum    = 0L;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var split = line.split(LogWriter.LOG_SEPARATOR, 3);
+            var entry = new LogEntry(
+                    format.parse(split[0]).getTime(),
+                    split[1].contains("std") ? LogSource.STANDARD_IO : LogSource.MANAGEMENT_EVENT,
+                    split[1].contains("err"),
+                    split[2]
+            );
+            sum += entry.time();
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
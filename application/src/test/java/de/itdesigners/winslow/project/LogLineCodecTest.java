@@ -0,0 +1,77 @@
+package de.itdesigners.winslow.project;
+
+import de.itdesigners.winslow.LogEntry;
+import de.itdesigners.winslow.api.pipeline.LogSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogLineCodecTest {
+
+    @Test
+    void encodesLikeSimpleDateFormat() {
+        var format = new SimpleDateFormat(LogWriter.DATE_FORMAT);
+        var codec  = new LogLineCodec();
+        for (var time : new long[]{0L, 1_678_900_000_007L, 1_678_900_000_999L, 1_678_900_001_000L, 1_700_000_000_123L}) {
+            for (var entry : List.of(
+                    new LogEntry(time, LogSource.STANDARD_IO, false, "some output"),
+                    new LogEntry(time, LogSource.STANDARD_IO, true, "äöü € 𝄞"),
+                    new LogEntry(time, LogSource.MANAGEMENT_EVENT, false, ""),
+                    new LogEntry(time, LogSource.MANAGEMENT_EVENT, true, "with  spaces ")
+            )) {
+                var expected = String.join(
+                        LogWriter.LOG_SEPARATOR,
+                        format.format(new Date(time)),
+                        (entry.source() == LogSource.STANDARD_IO ? "std" : "evt") + (entry.error() ? "err" : "out"),
+                        entry.message()
+                ) + LogWriter.LINE_SEPARATOR;
+                assertEquals(expected, encode(codec, entry));
+            }
+        }
+    }
+
+    @Test
+    void decodesWhatWasEncoded() {
+        var codec = new LogLineCodec();
+        var entries = List.of(
+                new LogEntry(1_678_900_000_007L, LogSource.STANDARD_IO, false, "some output"),
+                new LogEntry(1_678_900_000_999L, LogSource.STANDARD_IO, true, "äöü € 𝄞"),
+                new LogEntry(1_678_900_001_000L, LogSource.MANAGEMENT_EVENT, false, ""),
+                new LogEntry(1_678_986_400_000L, LogSource.MANAGEMENT_EVENT, true, "with  spaces \r progress")
+        );
+        var log = entries.stream().map(entry -> encode(codec, entry)).collect(Collectors.joining());
+        assertEquals(entries, read(log));
+    }
+
+    @Test
+    void readsLinesLongerThanTheBufferAndAnIncompleteLastLine() {
+        var codec   = new LogLineCodec();
+        var long1   = new LogEntry(1_678_900_000_000L, LogSource.STANDARD_IO, false, "a".repeat(200_000));
+        var short1  = new LogEntry(1_678_900_000_001L, LogSource.STANDARD_IO, false, "b");
+        var long2   = new LogEntry(1_678_900_000_002L, LogSource.STANDARD_IO, true, "c".repeat(70_000));
+        var encoded = encode(codec, long1) + encode(codec, short1) + encode(codec, long2);
+        assertEquals(List.of(long1, short1, long2), read(encoded.substring(0, encoded.length() - 1)));
+    }
+
+    @Test
+    void rejectsInvalidDates() {
+        assertThrows(RuntimeException.class, () -> read("2023-13-01_00:00:00.000 stdout message\n"));
+        assertThrows(RuntimeException.class, () -> read("yesterday stdout message\n"));
+    }
+
+    private static String encode(LogLineCodec codec, LogEntry entry) {
+        var buffer = new byte[LogLineCodec.maxEncodedLength(entry)];
+        return new String(buffer, 0, codec.encode(entry, buffer, 0), StandardCharsets.UTF_8);
+    }
+
+    private static List<LogEntry> read(String log) {
+        return LogReader.stream(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8))).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package de.itdesigners.winslow.project;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogLineIndexTest {
+
+    private static final int LINES = 3 * LogLineIndex.LINES_PER_ENTRY + 17;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void seeksToAnyLine() throws IOException {
+        var log   = writeLog(true);
+        var index = directory.resolve("log.idx");
+        assertEquals(3 * Long.BYTES, Files.size(index));
+
+        for (var line : new long[]{0, 1, 1023, 1024, 1025, 2048, 3000, LINES - 1}) {
+            assertEquals("line " + line, firstLine(log, index, line));
+        }
+        assertNull(firstLine(log, index, LINES));
+        assertNull(firstLine(log, index, LINES + 5_000));
+    }
+
+    @Test
+    void worksWithoutIndex() throws IOException {
+        var log = writeLog(false);
+        assertEquals("line 2500", firstLine(log, directory.resolve("log.idx"), 2500));
+    }
+
+    @Test
+    void ignoresInconsistentIndex() throws IOException {
+        var log   = writeLog(true);
+        var index = directory.resolve("log.idx");
+        try (var writer = new LogLineIndex.Writer(index)) {
+            for (int i = 0; i < LogLineIndex.LINES_PER_ENTRY; ++i) {
+                // not the offset of a line start
+                writer.lineWritten(5);
+            }
+        }
+        assertEquals("line 2500", firstLine(log, index, 2500));
+    }
+
+    private Path writeLog(boolean withIndex) throws IOException {
+        var log    = directory.resolve("log");
+        var index  = directory.resolve("log.idx");
+        var offset = 0L;
+        try (var os = Files.newOutputStream(log); var writer = withIndex ? new LogLineIndex.Writer(index) : null) {
+            for (int i = 0; i < LINES; ++i) {
+                var bytes = ("line " + i + "\n").getBytes(StandardCharsets.UTF_8);
+                os.write(bytes);
+                offset += bytes.length;
+                if (writer != null) {
+                    writer.lineWritten(offset);
+                }
+            }
+        }
+        return log;
+    }
+
+    private static String firstLine(Path log, Path index, long line) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(
+                LogLineIndex.openAtLine(log, index, line),
+                StandardCharsets.UTF_8
+        ))) {
+            return reader.readLine();
+        }
+    }
+}
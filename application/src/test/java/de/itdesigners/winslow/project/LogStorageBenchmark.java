@@ -0,0 +1,147 @@
+package de.itdesigners.winslow.project;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reads a corpus of typical training output stored as single plain log with a {@link LogLineIndex}
+ * and as {@link SegmentedLog} with compressed segments. The compression ratio is printed on setup.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogStorageBenchmark {
+
+    private static final int LINES = 1_000_000;
+
+    @Param({"plain", "compressed"})
+    public String storage;
+
+    private Path   directory;
+    private Path   plain;
+    private byte[] buffer;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory(LogStorageBenchmark.class.getSimpleName());
+        this.plain     = directory.resolve("plain");
+        this.buffer    = new byte[LogLineIndex.READ_BUFFER_SIZE];
+        this.random    = new Random(42);
+
+        var corpus    = new Random(42);
+        var segmented = new SegmentedLog(directory.resolve("segmented"));
+        try (var plainOutput = new BufferedOutputStream(new FileOutputStream(plain.toFile()));
+             var plainIndex = new LogLineIndex.Writer(directory.resolve("plain" + LogLineIndex.FILE_SUFFIX));
+             var segmentedOutput = new BufferedOutputStream(
+                     segmented.openOutput(SegmentedLog.DEFAULT_SEGMENT_SIZE),
+                     LogLineIndex.READ_BUFFER_SIZE
+             )) {
+            var offset = 0L;
+            for (int i = 0; i < LINES; ++i) {
+                var line = (line(corpus, i) + "\n").getBytes(StandardCharsets.UTF_8);
+                plainOutput.write(line);
+                segmentedOutput.write(line);
+                plainIndex.lineWritten(offset += line.length);
+            }
+        }
+
+        segmented.awaitCompression();
+
+        var compressed = 0L;
+        try (var files = Files.list(directory)) {
+            for (var file : files.filter(f -> f.getFileName().toString().endsWith(CompressedLogSegment.FILE_SUFFIX)).toList()) {
+                compressed += Files.size(file);
+            }
+        }
+        System.out.printf(
+                "%nplain=%d bytes, compressed=%d bytes, ratio=%.2f%n",
+                Files.size(plain),
+                compressed,
+                (double) Files.size(plain) / compressed
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long readAll() throws IOException {
+        try (var input = openAtLine(0)) {
+            var total = 0L;
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                total += read;
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public String readLineAtRandom() throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(
+                openAtLine(random.nextInt(LINES)),
+                StandardCharsets.UTF_8
+        ))) {
+            return reader.readLine();
+        }
+    }
+
+    private InputStream openAtLine(long line) throws IOException {
+        if ("plain".equals(storage)) {
+            return LogLineIndex.openAtLine(plain, directory.resolve("plain" + LogLineIndex.FILE_SUFFIX), line);
+        } else {
+            return new SegmentedLog(directory.resolve("segmented")).openAtLine(line);
+        }
+    }
+
+    private static String line(Random random, int number) {
+        var epoch = number / 10_000;
+        var step  = number % 10_000;
+        var time  = String.format("2023-03-%02d_%02d:%02d:%02d.%03d", 1 + epoch / 24, epoch % 24, step / 200, step % 60, random.nextInt(1000));
+        if (step == 0) {
+            return String.join(" ", time, "evtout", "Starting epoch " + epoch);
+        } else if (random.nextInt(50) == 0) {
+            return String.join(" ", time, "stderr", "WARNING: tensorflow: Callback method `on_train_batch_end` is slow compared to the batch time");
+        } else {
+            return String.join(
+                    " ",
+                    time,
+                    "stdout",
+                    String.format(
+                            "%d/10000 [%s>%s] - ETA: %ds - loss: %.4f - accuracy: %.4f",
+                            step,
+                            "=".repeat(step / 400),
+                            ".".repeat(25 - step / 400),
+                            random.nextInt(600),
+                            random.nextDouble(),
+                            random.nextDouble()
+                    )
+            );
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogStorageBenchmark.class.getSimpleName()).build()).run();
+    }
+}
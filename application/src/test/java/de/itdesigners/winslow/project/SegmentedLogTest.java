@@ -0,0 +1,162 @@
+package de.itdesigners.winslow.project;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLogTest {
+
+    private static final int  LINES        = 20_000;
+    private static final long SEGMENT_SIZE = 50_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void finishedSegmentsAreCompressedAndReadTransparently() throws IOException {
+        var log      = new SegmentedLog(directory.resolve("log"));
+        var expected = new StringBuilder();
+        try (var output = log.openOutput(SEGMENT_SIZE)) {
+            for (int i = 0; i < LINES; ++i) {
+                var line = "line " + i + "\n";
+                output.write(line.getBytes(StandardCharsets.UTF_8));
+                expected.append(line);
+            }
+        }
+
+        assertTrue(Files.exists(directory.resolve("log.1.gz")));
+        assertFalse(Files.exists(directory.resolve("log.0")));
+        assertFalse(Files.exists(directory.resolve("log.1")));
+        assertTrue(Files.size(directory.resolve("log.0.gz")) < SEGMENT_SIZE);
+
+        // each segment is still a valid gzip file
+        try (var gzip = new GZIPInputStream(Files.newInputStream(directory.resolve("log.0.gz")))) {
+            assertTrue(new String(gzip.readAllBytes(), StandardCharsets.UTF_8).startsWith("line 0\nline 1\n"));
+        }
+
+        var bytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+        assertEquals(bytes.length, log.size());
+        try (var input = log.openAtByte(0)) {
+            assertEquals(expected.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        for (var line : new long[]{0, 1, 5_000, 8_888, 10_000, 12_345, LINES - 1}) {
+            assertEquals("line " + line, firstLine(log.openAtLine(line)));
+        }
+        assertNull(firstLine(log.openAtLine(LINES)));
+
+        var offset = expected.indexOf("line 15000\n");
+        assertEquals("line 15000", firstLine(log.openAtByte(offset)));
+        assertEquals("ine 15000", firstLine(log.openAtByte(offset + 1)));
+
+        assertTrue(log.delete());
+        assertFalse(log.exists());
+    }
+
+    @Test
+    void activeSegmentIsReadWhileWritten() throws IOException {
+        var log = new SegmentedLog(directory.resolve("log"));
+        try (var output = log.openOutput(SEGMENT_SIZE)) {
+            for (int i = 0; i < LINES / 2; ++i) {
+                output.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            output.flush();
+            log.awaitCompression();
+
+            assertTrue(Files.exists(directory.resolve("log.0.gz")));
+            assertTrue(Files.exists(directory.resolve("log.1")));
+
+            try (var reader = reader(log.openAtLine(1_000))) {
+                assertEquals(LINES / 2 - 1_000, reader.lines().count());
+            }
+            assertEquals("line " + (LINES / 2 - 1), firstLine(log.openAtLine(LINES / 2 - 1)));
+
+            var input = log.openAtLine(LINES / 2);
+            assertEquals(-1, input.read());
+
+            // the stream continues once more has been written, even into a new segment
+            for (int i = LINES / 2; i < LINES; ++i) {
+                output.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            try (var reader = reader(input)) {
+                assertEquals("line " + (LINES / 2), reader.readLine());
+                assertEquals(LINES / 2 - 1, reader.lines().count());
+            }
+        }
+    }
+
+    @Test
+    void readsWhileFinishedSegmentsAreBeingCompressed() throws IOException {
+        var log      = new SegmentedLog(directory.resolve("log"));
+        var expected = new StringBuilder();
+        try (var output = log.openOutput(SEGMENT_SIZE)) {
+            for (int i = 0; i < LINES; ++i) {
+                var line = "line " + i + "\n";
+                output.write(line.getBytes(StandardCharsets.UTF_8));
+                expected.append(line);
+
+                if (i % 1_000 == 999) {
+                    // whether plain, being compressed or already compressed, the segments are read the same
+                    try (var input = log.openAtByte(0)) {
+                        assertEquals(expected.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                    assertEquals("line " + i / 2, firstLine(log.openAtLine(i / 2)));
+                }
+            }
+        }
+
+        // closing waits until all segments have been compressed
+        try (var files = Files.list(directory)) {
+            assertTrue(files.allMatch(file -> file.getFileName().toString().matches("log\\.\\d+\\.gz(\\.idx)?")));
+        }
+        try (var input = log.openAtByte(0)) {
+            assertEquals(expected.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void compressedSegmentSeeksWithinBlocks() throws IOException {
+        var plain    = directory.resolve("plain");
+        var segment  = directory.resolve("plain.gz");
+        var expected = new StringBuilder();
+        for (int i = 0; i < 100_000; ++i) {
+            expected.append("line ").append(i).append('\n');
+        }
+        expected.append("incomplete");
+        Files.writeString(plain, expected);
+        CompressedLogSegment.compress(plain, segment);
+
+        var blocks = CompressedLogSegment.readIndex(segment);
+        assertTrue(blocks.size() > 1);
+        assertEquals(expected.length(), CompressedLogSegment.size(blocks));
+        assertEquals(100_000, CompressedLogSegment.lines(blocks));
+
+        for (var line : new long[]{0, 23_456, 99_999}) {
+            assertEquals("line " + line, firstLine(CompressedLogSegment.openAtLine(segment, blocks, line)));
+        }
+        assertEquals("incomplete", firstLine(CompressedLogSegment.openAtLine(segment, blocks, 100_000)));
+
+        var offset = expected.indexOf("line 77777\n");
+        assertEquals("line 77777", firstLine(CompressedLogSegment.openAtByte(segment, blocks, offset)));
+    }
+
+    private static BufferedReader reader(InputStream input) {
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    private static String firstLine(InputStream input) throws IOException {
+        try (var reader = reader(input)) {
+            return reader.readLine();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.itdesigners.winslow.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairShareSchedulerTest {
+
+    private final AtomicLong         clock     = new AtomicLong(1_000_000);
+    private final FairShareScheduler scheduler = new FairShareScheduler(clock::get);
+
+    @Test
+    void accountWithLowestShareGoesFirst() {
+        scheduler.enqueue("a-1", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        scheduler.enqueue("b-1", "account-b", FairShareScheduler.PRIORITY_NORMAL);
+        scheduler.enqueue("c-1", "account-c", FairShareScheduler.PRIORITY_NORMAL);
+
+        var shares = Map.of("account-a", 0.8, "account-b", 0.1, "account-c", 0.5);
+        assertEquals(List.of("b-1", "c-1", "a-1"), drain(shares::get));
+    }
+
+    @Test
+    void olderProjectsGoFirstWithinAccountAndOnEqualShares() {
+        scheduler.enqueue("a-young", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        clock.addAndGet(-100);
+        scheduler.enqueue("b-old", "account-b", FairShareScheduler.PRIORITY_NORMAL);
+        clock.addAndGet(-100);
+        scheduler.enqueue("a-old", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+
+        assertEquals(List.of("a-old", "b-old", "a-young"), drain(account -> 0.0));
+    }
+
+    @Test
+    void higherPriorityGoesFirstWithinAccount() {
+        scheduler.enqueue("a-old", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        clock.addAndGet(100);
+        scheduler.enqueue("a-resumed", "account-a", FairShareScheduler.PRIORITY_RESUMED);
+
+        assertEquals(List.of("a-resumed", "a-old"), drain(account -> 0.0));
+    }
+
+    @Test
+    void enqueuesEachProjectOnlyOnceAndKeepsItsAge() {
+        scheduler.enqueue("a-1", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        clock.addAndGet(100);
+        scheduler.enqueue("a-2", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        scheduler.enqueue("a-1", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+
+        assertEquals(2, scheduler.getMetrics().queued());
+        assertEquals(List.of("a-1", "a-2"), drain(account -> 0.0));
+    }
+
+    @Test
+    void parkedProjectsKeepTheirAgeOnceRequeued() {
+        scheduler.enqueue("a-starving", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        var polled = scheduler.poll(account -> 0.0);
+        assertEquals(Optional.of("a-starving"), polled.map(FairShareScheduler.Ready::projectId));
+        scheduler.park("a-starving", "account-a");
+        scheduler.done("a-starving");
+
+        clock.addAndGet(1_000);
+        scheduler.enqueue("b-1", "account-b", FairShareScheduler.PRIORITY_NORMAL);
+        assertEquals(1, scheduler.getMetrics().parked());
+        assertEquals(List.of("b-1"), drain(account -> 0.0));
+
+        clock.addAndGet(1_000);
+        scheduler.enqueue("b-2", "account-b", FairShareScheduler.PRIORITY_NORMAL);
+        assertTrue(scheduler.requeueParked());
+        assertFalse(scheduler.requeueParked());
+
+        var next = scheduler.poll(account -> 0.0).orElseThrow();
+        assertEquals("a-starving", next.projectId());
+        assertEquals(1_000_000, next.since());
+        assertEquals(2_000, scheduler.getMetrics().maxWaitMs());
+    }
+
+    @Test
+    void reportsPlacementsWaitTimesAndFairness() {
+        scheduler.enqueue("a-1", "account-a", FairShareScheduler.PRIORITY_NORMAL);
+        scheduler.enqueue("b-1", "account-b", FairShareScheduler.PRIORITY_NORMAL);
+        clock.addAndGet(300);
+
+        scheduler.poll(Map.of("account-a", 0.5, "account-b", 0.5)::get);
+        scheduler.onPlaced("account-a", 30);
+        assertEquals(1.0, scheduler.getMetrics().fairnessIndex(), 1e-9);
+
+        clock.addAndGet(100);
+        scheduler.poll(Map.of("account-b", 0.0)::get);
+        scheduler.onPlaced("account-b", 30);
+
+        var metrics = scheduler.getMetrics();
+        assertEquals(0, metrics.queued());
+        assertEquals(60, metrics.placements());
+        assertEquals(1.0, metrics.placementsPerSecond(), 1e-9);
+        assertEquals(350.0, metrics.averageWaitMs(), 1e-9);
+        assertEquals(400, metrics.maxWaitMs());
+
+        // placements older than the window are no longer counted per second
+        clock.addAndGet(120_000);
+        assertEquals(0.0, scheduler.getMetrics().placementsPerSecond(), 1e-9);
+        assertEquals(60, scheduler.getMetrics().placements());
+    }
+
+    @Test
+    void fairnessIndexDropsWithUnequalShares() {
+        assertEquals(1.0, FairShareScheduler.getFairnessIndex(List.of(0.2, 0.2, 0.2)), 1e-9);
+        assertEquals(1.0 / 3, FairShareScheduler.getFairnessIndex(List.of(0.9, 0.0, 0.0)), 1e-9);
+        assertEquals(1.0, FairShareScheduler.getFairnessIndex(List.of()), 1e-9);
+    }
+
+    private List<String> drain(ToDoubleFunction<String> shares) {
+        var order = new ArrayList<String>();
+        while (true) {
+            var next = scheduler.poll(shares);
+            if (next.isEmpty()) {
+                return order;
+            }
+            order.add(next.get().projectId());
+            scheduler.done(next.get().projectId());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package de.itdesigners.winslow.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 32 * 1024;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void writesValidGzipStreamOfManyBlocks() throws IOException {
+        var content = createContent(10 * BLOCK_SIZE + 123);
+        var gzip    = compress(content, 3);
+
+        assertArrayEquals(content, decompress(gzip));
+        assertTrue(gzip.length < content.length);
+    }
+
+    @Test
+    void compressesWithDictionaryOfPrecedingBlock() throws IOException {
+        var line    = "the same line over and over again, which fits into the dictionary of the next block\n";
+        var content = line.repeat(20 * BLOCK_SIZE / line.length()).getBytes(StandardCharsets.UTF_8);
+        var gzip    = compress(content, 2);
+
+        assertArrayEquals(content, decompress(gzip));
+        assertTrue(gzip.length < content.length / 50, "Compressed to " + gzip.length + " bytes");
+    }
+
+    @Test
+    void writesValidGzipStreamWithoutContent() throws IOException {
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0], 1)));
+    }
+
+    @Test
+    void writesSingleBytes() throws IOException {
+        var content = createContent(BLOCK_SIZE + 7);
+        var output  = new ByteArrayOutputStream();
+        try (var gzip = new ParallelGzipOutputStream(output, executor, 3, Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE)) {
+            for (var b : content) {
+                gzip.write(b);
+            }
+        }
+        assertArrayEquals(content, decompress(output.toByteArray()));
+    }
+
+    @Test
+    void rejectsWritesAfterClose() throws IOException {
+        var gzip = new ParallelGzipOutputStream(new ByteArrayOutputStream(), executor, 1);
+        gzip.close();
+        assertThrows(IOException.class, () -> gzip.write(1));
+    }
+
+    private byte[] compress(byte[] content, int parallelism) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var gzip = new ParallelGzipOutputStream(
+                output,
+                executor,
+                parallelism,
+                Deflater.DEFAULT_COMPRESSION,
+                BLOCK_SIZE
+        )) {
+            // odd sized writes to cross the block boundaries
+            for (int offset = 0; offset < content.length; offset += 1000) {
+                gzip.write(content, offset, Math.min(1000, content.length - offset));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] gzip) throws IOException {
+        try (var input = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static byte[] createContent(int length) {
+        // half random and half compressible
+        var content = new byte[length];
+        var random  = new Random(42);
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i % 2 == 0 ? random.nextInt() : 'a' + (i / 64) % 26);
+        }
+        return content;
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.HandlerMapping;
 
@@ -780,10 +781,7 @@ public class FilesControllerTest {
                 content = baos.toByteArray();
 
                 assertEquals((DEF_TXT.getBytes(StandardCharsets.UTF_8).length), content.length);
-                assertEquals(
-                        DEF_TXT.getBytes(StandardCharsets.UTF_8).length,
-                        response.getHeaders().getContentLength()
-                );
+                assertSingleFileArchiveLength(response, DEF_TXT);
             }
         }
 
@@ -879,10 +877,7 @@ public class FilesControllerTest {
                 content = baos.toByteArray();
 
                 assertEquals((SOME_FILE.getBytes(StandardCharsets.UTF_8).length), content.length);
-                assertEquals(
-                        SOME_FILE.getBytes(StandardCharsets.UTF_8).length,
-                        response.getHeaders().getContentLength()
-                );
+                assertSingleFileArchiveLength(response, SOME_FILE);
             }
         }
     }
@@ -996,10 +991,7 @@ public class FilesControllerTest {
                 content = baos.toByteArray();
 
                 assertEquals(SOME_FILE.getBytes(StandardCharsets.UTF_8).length, content.length);
-                assertEquals(
-                        SOME_FILE.getBytes(StandardCharsets.UTF_8).length,
-                        response.getHeaders().getContentLength()
-                );
+                assertSingleFileArchiveLength(response, SOME_FILE);
             }
         }
     }
@@ -1050,6 +1042,85 @@ public class FilesControllerTest {
         assertTrue(subDirectoryDefTxt);
     }
 
+    @Test
+    public void testResourceDownloadDirectoryAsTar() throws IOException {
+        var response = controller.downloadResourceFile(
+                constructRequest("sub/"),
+                getProjectOwner(),
+                false,
+                FilesController.ARCHIVE_FORMAT_TAR
+        );
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertTrue(response
+                           .getHeaders()
+                           .get(HttpHeaders.CONTENT_DISPOSITION)
+                           .get(0)
+                           .contains("filename=\"sub.tar\""));
+
+        var baos = new ByteArrayOutputStream();
+        response.getBody().writeTo(baos);
+
+        try (var tais = new TarArchiveInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            var entry = tais.getNextTarEntry();
+            assertEquals("directory/def.txt", entry.getName());
+            assertArrayEquals(DEF_TXT.getBytes(StandardCharsets.UTF_8), tais.readAllBytes());
+            assertNull(tais.getNextTarEntry());
+        }
+    }
+
+    @Test
+    public void testResourceDownloadInvalidArchiveFormat() {
+        var response = controller.downloadResourceFile(constructRequest("sub/"), getProjectOwner(), false, "zip");
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testResourceDownloadResumed() throws IOException {
+        var response = controller.downloadResourceFile(
+                constructRequest(
+                        "/some/api/**",
+                        "/some/api/sub/directory/def.txt",
+                        Map.of(HttpHeaders.RANGE, "bytes=3-")
+                ),
+                getRoot(),
+                false
+        );
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+
+        var length = DEF_TXT.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(length - 3, response.getHeaders().getContentLength());
+        assertEquals(
+                "bytes 3-" + (length - 1) + "/" + length,
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)
+        );
+
+        var baos = new ByteArrayOutputStream();
+        response.getBody().writeTo(baos);
+        assertEquals(DEF_TXT.substring(3), baos.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testResourceDownloadUnsatisfiableRange() {
+        var response = controller.downloadResourceFile(
+                constructRequest(
+                        "/some/api/**",
+                        "/some/api/sub/directory/def.txt",
+                        Map.of(HttpHeaders.RANGE, "bytes=100-")
+                ),
+                getRoot(),
+                false
+        );
+        assertNotNull(response);
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals(
+                "bytes */" + DEF_TXT.getBytes(StandardCharsets.UTF_8).length,
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)
+        );
+    }
+
     @Test
     public void testBasicWorkspaceListing() {
         var listing = controller.listWorkspaceDirectory(
@@ -1153,6 +1224,17 @@ public class FilesControllerTest {
     }
 
     @Nonnull
+    /**
+     * The archive of a single file is larger than the file itself, so only a hint of its size is given
+     */
+    private static void assertSingleFileArchiveLength(@Nonnull ResponseEntity<?> response, @Nonnull String content) {
+        assertEquals(-1, response.getHeaders().getContentLength());
+        assertEquals(
+                String.valueOf(content.getBytes(StandardCharsets.UTF_8).length),
+                response.getHeaders().getFirst("X-Content-Length-Hint")
+        );
+    }
+
     private static InputStream constructUploadFile(@Nonnull String content) {
         return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
     }
@@ -1163,6 +1245,13 @@ public class FilesControllerTest {
     }
 
     private static HttpServletRequest constructRequest(@Nonnull String pattern, @Nonnull String path) {
+        return constructRequest(pattern, path, Map.of());
+    }
+
+    private static HttpServletRequest constructRequest(
+            @Nonnull String pattern,
+            @Nonnull String path,
+            @Nonnull Map<String, String> headers) {
         return new HttpServletRequest() {
             Map<String, Object> map = Map.of(
                     HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern,
@@ -1388,7 +1477,7 @@ public class FilesControllerTest {
 
             @Override
             public String getHeader(String s) {
-                return null;
+                return headers.get(s);
             }
 
             @Override
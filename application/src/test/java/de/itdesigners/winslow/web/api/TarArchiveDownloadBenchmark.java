@@ -0,0 +1,119 @@
+package de.itdesigners.winslow.web.api;
+
+import de.itdesigners.winslow.util.ParallelGzipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Archives a directory of 16 files with 8 MiB of text each (128 MiB in total) to a stream that discards the archive:
+ * like the download did before, on a single thread with {@link GzipCompressorOutputStream}, as plain tar and as
+ * tar.gz compressed on one to four threads. Multiply the scores, which are archives per second, by 128 for MiB/s.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TarArchiveDownloadBenchmark {
+
+    private static final int FILES     = 16;
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+
+    @Param({"legacy", "tar", "gzip-1", "gzip-2", "gzip-4"})
+    public String archiver;
+
+    private Path            directory;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory(TarArchiveDownloadBenchmark.class.getSimpleName());
+        this.executor  = Executors.newFixedThreadPool(4);
+
+        var random  = new Random(42);
+        var words   = new String[]{"epoch", "loss", "accuracy", "0.", "1", "2", "3", "4", "5", "6", "7", "8", "9", ";"};
+        var content = new StringBuilder(FILE_SIZE);
+        for (int i = 0; i < FILES; ++i) {
+            content.setLength(0);
+            while (content.length() < FILE_SIZE) {
+                content.append(words[random.nextInt(words.length)]);
+                content.append(random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+            content.setLength(FILE_SIZE);
+            var file = Files.createDirectories(directory.resolve("dir-" + (i % 4))).resolve("file-" + i + ".csv");
+            Files.writeString(file, content, StandardCharsets.US_ASCII);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.executor.shutdownNow();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (var p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public void archive() throws IOException {
+        var out = OutputStream.nullOutputStream();
+        switch (archiver) {
+            case "legacy" -> archiveLegacy(out);
+            case "tar" -> new TarArchiveStreamer(directory).writeTo(out);
+            case "gzip-1" -> new TarArchiveStreamer(directory).writeTo(new ParallelGzipOutputStream(out, executor, 1));
+            case "gzip-2" -> new TarArchiveStreamer(directory).writeTo(new ParallelGzipOutputStream(out, executor, 2));
+            case "gzip-4" -> new TarArchiveStreamer(directory).writeTo(new ParallelGzipOutputStream(out, executor, 4));
+            default -> throw new IllegalStateException("Unknown archiver " + archiver);
+        }
+    }
+
+    private void archiveLegacy(OutputStream out) throws IOException {
+        try (var gcos = new GzipCompressorOutputStream(out)) {
+            try (var taos = new TarArchiveOutputStream(gcos)) {
+                archiveLegacy(directory, directory.toFile(), taos);
+            }
+        }
+    }
+
+    private static void archiveLegacy(Path root, File current, TarArchiveOutputStream taos) throws IOException {
+        var files = current.listFiles();
+        if (files != null) {
+            for (var file : files) {
+                if (file.isFile()) {
+                    try (var fis = new FileInputStream(file)) {
+                        taos.putArchiveEntry(taos.createArchiveEntry(file, root.relativize(file.toPath()).toString()));
+                        fis.transferTo(taos);
+                    } finally {
+                        taos.closeArchiveEntry();
+                    }
+                } else if (file.isDirectory()) {
+                    archiveLegacy(root, file, taos);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TarArchiveDownloadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,59 @@
+package de.itdesigners.winslow.web.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicCacheTest {
+
+    @Test
+    void returnsThePreviousValue() {
+        var cache = new TopicCache();
+        assertNull(cache.put("/a", 1));
+        assertEquals(1, cache.put("/a", 2));
+        assertEquals(2, cache.get("/a"));
+
+        cache.remove("/a");
+        assertNull(cache.get("/a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTopicsOnceTooHeavy() {
+        var weight = TopicCache.weigh("/a") + TopicCache.weigh(1);
+        var cache  = new TopicCache(weight * 2);
+
+        cache.put("/a", 1);
+        cache.put("/b", 1);
+        assertNotNull(cache.get("/a"));
+
+        cache.put("/c", 1);
+        assertNotNull(cache.get("/a"));
+        assertNull(cache.get("/b"));
+        assertNotNull(cache.get("/c"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(weight * 2, cache.getWeight());
+    }
+
+    @Test
+    void keepsTheLatestValueEvenIfTooHeavy() {
+        var cache = new TopicCache(1);
+        cache.put("/a", 1);
+        cache.put("/b", List.of(new TopicCache.Fingerprint("id", 0)));
+
+        assertNull(cache.get("/a"));
+        assertNotNull(cache.get("/b"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void weighsFingerprintsByTheirId() {
+        var small = TopicCache.weigh(List.of(new TopicCache.Fingerprint("id", 0)));
+        var large = TopicCache.weigh(List.of(new TopicCache.Fingerprint("a-much-longer-id", 0)));
+        assertTrue(large > small);
+        assertTrue(TopicCache.weigh(List.of(new TopicCache.Fingerprint("id", 0), new TopicCache.Fingerprint("id", 1))) > small);
+    }
+}
@@ -17,4 +17,6 @@ export enum ChangeType {
   CREATE = 'CREATE',
   UPDATE = 'UPDATE',
   DELETE = 'DELETE',
+  // the value only contains the elements appended to the previously published list
+  APPEND = 'APPEND',
 }
@@ -5,7 +5,7 @@ import {RxStompService} from '../rx-stomp.service';
 import {SubscriptionHandler} from './subscription-handler';
 import {lastValueFrom, Subscription} from 'rxjs';
 import {Message} from '@stomp/stompjs';
-import {ChangeEvent} from './api.service';
+import {ChangeEvent, ChangeType} from './api.service';
 import {
   AuthTokenInfo, EnqueueRequest,
   EnvVariable,
@@ -138,12 +138,15 @@ export class ProjectApiService {
   private watchProjectExecutionGroupInfo(
     projectId: string,
     specialization: string,
-    listener: (update: ExecutionGroupInfoHelper[]) => void): Subscription {
+    listener: (update: ExecutionGroupInfoHelper[], append: boolean) => void): Subscription {
     return this.rxStompService.watch(`/projects/${projectId}/${specialization}`).subscribe((message: Message) => {
       const events: ChangeEvent<string, ExecutionGroupInfoHelper[]>[] = JSON.parse(message.body);
       events.forEach(event => {
         if (event.identifier === projectId) {
-          listener(event.value ? ProjectApiService.fixExecutionGroupInfoArray(event.value) : []);
+          listener(
+            event.value ? ProjectApiService.fixExecutionGroupInfoArray(event.value) : [],
+            event.type === ChangeType.APPEND
+          );
         }
       });
     });
@@ -153,18 +156,29 @@ export class ProjectApiService {
     return this.watchProjectExecutionGroupInfo(projectId, 'history', listener);
   }
 
-  public watchProjectExecutions(projectId: string, listener: (update: ExecutionGroupInfoHelper[]) => void): Subscription {
+  /**
+   * @param listener receives either all executions or, if append is set, only the ones appended since the last update
+   */
+  public watchProjectExecutions(
+    projectId: string,
+    listener: (update: ExecutionGroupInfoHelper[], append: boolean) => void): Subscription {
     return this.watchProjectExecutionGroupInfo(projectId, 'executing', listener);
   }
 
-  public watchProjectEnqueued(projectId: string, listener: (update: ExecutionGroupInfoHelper[]) => void): Subscription {
-    return this.watchProjectExecutionGroupInfo(projectId, 'enqueued', groups => {
+  /**
+   * @param listener receives either all enqueued executions or, if append is set, only the ones appended since the
+   *                 last update, which need their enqueueIndex to be offset by the number of previous ones
+   */
+  public watchProjectEnqueued(
+    projectId: string,
+    listener: (update: ExecutionGroupInfoHelper[], append: boolean) => void): Subscription {
+    return this.watchProjectExecutionGroupInfo(projectId, 'enqueued', (groups, append) => {
       if (groups != null) {
         for (let i = 0; i < groups.length; ++i) {
           groups[i].enqueueIndex = i;
         }
       }
-      listener(groups);
+      listener(groups, append);
     });
   }
 
@@ -327,6 +327,16 @@ export class ExecutionGroupInfo {
   }
 }
 
+export class ExecutionGroupInfoPage {
+  groups: ExecutionGroupInfo[];
+  nextCursor?: string;
+
+  constructor(data: ExecutionGroupInfoPage) {
+    this.groups = data.groups;
+    this.nextCursor = data.nextCursor;
+  }
+}
+
 export class GpuRequirementsInfo {
   count: number;
   vendor: string;
@@ -814,7 +824,7 @@ export type State = 'RUNNING' | 'PAUSED' | 'SUCCEEDED' | 'FAILED' | 'PREPARING'
 
 export type Confirmation = 'NEVER' | 'ONCE' | 'ALWAYS';
 
-export type WorkspaceMode = 'STANDALONE' | 'INCREMENTAL' | 'CONTINUATION';
+export type WorkspaceMode = 'STANDALONE' | 'INCREMENTAL' | 'CONTINUATION' | 'SNAPSHOT';
 
 export type RangedValueUnion = RangeWithStepSize | RangedList;
 
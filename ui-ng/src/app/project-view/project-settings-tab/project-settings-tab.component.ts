@@ -164,7 +164,7 @@ export class ProjectSettingsTabComponent {
   }
 
   workspaceModes(): WorkspaceMode[] {
-    return ['STANDALONE', 'INCREMENTAL', 'CONTINUATION'];
+    return ['STANDALONE', 'INCREMENTAL', 'SNAPSHOT', 'CONTINUATION'];
   }
 
   setWorkspaceMode(value: WorkspaceMode) {
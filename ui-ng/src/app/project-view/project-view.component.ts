@@ -274,18 +274,21 @@ export class ProjectViewComponent implements OnInit, OnDestroy, OnChanges {
     this.historyExecuting = 0;
     this.historyCanLoadMoreEntries = true;
 
-    this.historyEnqueuedSubscription = this.api.watchProjectEnqueued(projectId, executions => {
+    this.historyEnqueuedSubscription = this.api.watchProjectEnqueued(projectId, (executions, append) => {
       const offset = 0;
-      const length = this.historyEnqueued;
+      const length = append ? 0 : this.historyEnqueued;
+      if (append) {
+        executions.forEach(execution => execution.enqueueIndex += this.historyEnqueued);
+      }
       this.history.splice(offset, length, ...executions.reverse());
-      this.historyEnqueued = executions.length;
+      this.historyEnqueued = (append ? this.historyEnqueued : 0) + executions.length;
     });
 
-    this.historyExecutingSubscription = this.api.watchProjectExecutions(projectId, executions => {
+    this.historyExecutingSubscription = this.api.watchProjectExecutions(projectId, (executions, append) => {
       const offset = this.historyEnqueued;
-      const length = this.historyExecuting;
+      const length = append ? 0 : this.historyExecuting;
       this.history.splice(offset, length, ...executions.reverse());
-      this.historyExecuting = executions.length;
+      this.historyExecuting = (append ? this.historyExecuting : 0) + executions.length;
     });
 
     this.historySubscription = this.api.watchProjectHistory(projectId, executions => {